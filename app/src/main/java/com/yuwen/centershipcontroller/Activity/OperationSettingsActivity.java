@@ -21,12 +21,16 @@ import com.yuwen.centershipcontroller.Utils.UserSettings;
  * @author yuwen
  */
 public class OperationSettingsActivity extends AppCompatActivity {
+    // 下标与滤波器类型编号一致；预测滤波按测得的延迟外推，需开启延迟测量或使用二进制线路格式
+    private static final String[] FILTER_TYPES = {"无滤波", "快速滤波", "卡尔曼滤波", "自适应滤波", "预测滤波"};
 
     private UserSettings settings;
     private TextView filterTypeValueText;
     private TextView filterSensitivityValueText;
     private TextView directionChangeValueText;
+    private TextView controlRateValueText;
     private Switch vibrationSwitch;
+    private Switch rttProbeSwitch;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,7 +61,9 @@ public class OperationSettingsActivity extends AppCompatActivity {
         filterTypeValueText = findViewById(R.id.text_filter_type_value);
         filterSensitivityValueText = findViewById(R.id.text_filter_sensitivity_value);
         directionChangeValueText = findViewById(R.id.text_direction_change_value);
+        controlRateValueText = findViewById(R.id.text_control_rate_value);
         vibrationSwitch = findViewById(R.id.switch_vibration);
+        rttProbeSwitch = findViewById(R.id.switch_rtt_probe);
     }
 
     private void loadSettings() {
@@ -73,9 +79,15 @@ public class OperationSettingsActivity extends AppCompatActivity {
         long directionChangeDelay = settings.getDirectionChangeDelay();
         directionChangeValueText.setText(directionChangeDelay + "ms");
 
+        // 加载控制命令频率
+        controlRateValueText.setText(settings.getControlRate() + "Hz");
+
         // 加载振动设置
         boolean vibrationEnabled = settings.getVibrationEnabled();
         vibrationSwitch.setChecked(vibrationEnabled);
+
+        // 加载延迟测量设置
+        rttProbeSwitch.setChecked(settings.getRttProbeEnabled());
     }
 
     private void setupClickListeners() {
@@ -103,6 +115,14 @@ public class OperationSettingsActivity extends AppCompatActivity {
             }
         });
 
+        // 控制命令频率选择
+        findViewById(R.id.setting_control_rate).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showControlRateDialog();
+            }
+        });
+
         // 振动开关
         vibrationSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
             @Override
@@ -110,6 +130,15 @@ public class OperationSettingsActivity extends AppCompatActivity {
                 settings.setVibrationEnabled(isChecked);
             }
         });
+
+        // 延迟测量开关，立即生效
+        rttProbeSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                settings.setRttProbeEnabled(isChecked);
+                JoySticksDecoder.getInstance().setRttProbeEnabled(isChecked);
+            }
+        });
     }
 
     private void showFilterTypeDialog() {
@@ -118,8 +147,7 @@ public class OperationSettingsActivity extends AppCompatActivity {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("选择滤波器类型");
 
-        final String[] filterTypes = {"无滤波", "快速滤波", "卡尔曼滤波"};
-        builder.setSingleChoiceItems(filterTypes, currentFilterType, new DialogInterface.OnClickListener() {
+        builder.setSingleChoiceItems(FILTER_TYPES, currentFilterType, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
                 // 保存设置
@@ -217,10 +245,48 @@ public class OperationSettingsActivity extends AppCompatActivity {
         builder.show();
     }
 
+    private void showControlRateDialog() {
+        int currentRate = settings.getControlRate();
+        int selectedIndex = 1; // 默认20Hz
+
+        if (currentRate <= 10) {
+            selectedIndex = 0;
+        } else if (currentRate <= 20) {
+            selectedIndex = 1;
+        } else if (currentRate <= 50) {
+            selectedIndex = 2;
+        } else {
+            selectedIndex = 3;
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("选择控制命令频率");
+
+        final String[] rates = {"10Hz (省流量)", "20Hz (默认)", "50Hz (灵敏)", "100Hz (最高)"};
+        final int[] rateValues = {10, 20, 50, 100};
+
+        builder.setSingleChoiceItems(rates, selectedIndex, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                // 保存设置
+                int newRate = rateValues[which];
+                settings.setControlRate(newRate);
+                controlRateValueText.setText(newRate + "Hz");
+
+                // 应用设置，运行中的控制循环立即按新频率重新调度
+                JoySticksDecoder.getInstance().setControlRate(newRate);
+
+                dialog.dismiss();
+            }
+        });
+
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+
     private void updateFilterTypeText(int filterType) {
-        String[] filterTypes = {"无滤波", "快速滤波", "卡尔曼滤波"};
-        if (filterType >= 0 && filterType < filterTypes.length) {
-            filterTypeValueText.setText(filterTypes[filterType]);
+        if (filterType >= 0 && filterType < FILTER_TYPES.length) {
+            filterTypeValueText.setText(FILTER_TYPES[filterType]);
         }
     }
 
@@ -4,7 +4,10 @@ import android.Manifest;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.WindowInsetsController;
 import android.view.WindowManager;
@@ -26,16 +29,26 @@ import com.amap.api.maps.CameraUpdateFactory;
 import com.amap.api.maps.LocationSource;
 import com.amap.api.maps.MapView;
 import com.amap.api.maps.MapsInitializer;
+import com.amap.api.maps.model.CameraPosition;
 import com.amap.api.maps.model.LatLng;
 import com.amap.api.maps.model.MyLocationStyle;
+import com.amap.api.maps.model.Polyline;
+import com.amap.api.maps.model.PolylineOptions;
 import com.amap.api.services.core.ServiceSettings;
 import com.yuwen.centershipcontroller.Activity.QR_codeScannerActivity;
 import com.yuwen.centershipcontroller.Activity.SettingsActivity;
 import com.yuwen.centershipcontroller.Component.CustomDialog;
 import com.yuwen.centershipcontroller.Component.DeviceInfoCard;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Logger;
 import com.yuwen.centershipcontroller.Socket.MainDeviceSocket;
 import com.yuwen.centershipcontroller.Socket.ShipDevicesSocket;
+import com.yuwen.centershipcontroller.Utils.AndroidLogger;
+import com.yuwen.centershipcontroller.Utils.GpsFix;
+import com.yuwen.centershipcontroller.Utils.GpsFixCoalescer;
 import com.yuwen.centershipcontroller.Utils.JoySticksDecoder;
+import com.yuwen.centershipcontroller.Utils.ShipTrack;
+import com.yuwen.centershipcontroller.Utils.TelemetryRecorder;
 import com.yuwen.centershipcontroller.Utils.UserSettings;
 import com.yuwen.centershipcontroller.Utils.Utils;
 import com.yuwen.centershipcontroller.Views.JoystickView;
@@ -43,6 +56,11 @@ import com.yuwen.centershipcontroller.Views.JoystickView;
 import pub.devrel.easypermissions.AfterPermissionGranted;
 import pub.devrel.easypermissions.EasyPermissions;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 主活动类，负责核心功能模块：
  * 1. 高德地图集成与定位功能
@@ -67,6 +85,23 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
     private AMap aMap; // 地图控制器
     private boolean isFirstLoc = true;
     private LatLng lastGPSLocation = null;
+    // GPS定位在MainDeviceInbound入站工作线程中写入合并器，主线程每帧最多取出一次到displayedGpsFix
+    private final GpsFixCoalescer gpsCoalescer = new GpsFixCoalescer();
+    private final GpsFix displayedGpsFix = new GpsFix();
+    private final Choreographer.FrameCallback mapFrameCallback = frameTimeNanos -> applyLatestGpsFix();
+    private Choreographer choreographer;
+    private AMapLocation gpsLocation;
+    private boolean gpsLocationStyleApplied = false;
+    // 航迹折线，页面可见时每秒在后台线程抽稀，再到主线程重绘，点数不超过TRACK_MAX_POINTS
+    private static final long TRACK_REFRESH_INTERVAL = 1000;
+    private static final int TRACK_MAX_POINTS = 1000;
+    private static final double TRACK_TOLERANCE_METERS = 1.0;
+    private final double[] trackLatitudes = new double[TRACK_MAX_POINTS];
+    private final double[] trackLongitudes = new double[TRACK_MAX_POINTS];
+    private HandlerThread trackThread;
+    private Handler trackHandler;
+    private Polyline trackPolyline;
+    private long renderedTrackVersion = -1;
 
     // 设备信息显示组件
     private DeviceInfoCard deviceInfoCard; // 设备状态信息卡片
@@ -77,6 +112,28 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
     private long totalInterval = 0;
     private long minInterval = Long.MAX_VALUE;
     private long maxInterval = 0;
+    // 命令往返延迟叠加层，页面可见时每秒刷新
+    private static final long RTT_OVERLAY_INTERVAL = 1000;
+    private final Handler overlayHandler = new Handler(Looper.getMainLooper());
+    private TextView rttOverlayText;
+    private final Runnable rttOverlayTask = new Runnable() {
+        @Override
+        public void run() {
+            if (rttOverlayText != null) {
+                rttOverlayText.setText(JoySticksDecoder.getInstance().getRttTracker().getSummary());
+            }
+            overlayHandler.postDelayed(this, RTT_OVERLAY_INTERVAL);
+        }
+    };
+    private final Runnable trackRefreshTask = new Runnable() {
+        @Override
+        public void run() {
+            refreshTrackPolyline();
+            if (trackHandler != null) {
+                trackHandler.postDelayed(this, TRACK_REFRESH_INTERVAL);
+            }
+        }
+    };
 
     /**
      * Activity创建时的初始化方法
@@ -90,6 +147,8 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // 控制核心模块的日志转给android.util.Log
+        AndroidLogger.install(this);
 
         // 系统UI样式配置（沉浸式状态栏）
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
@@ -135,12 +194,14 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         }
 
         setContentView(R.layout.activity_main);
+        // 主线程的Choreographer，用于按显示帧更新地图
+        choreographer = Choreographer.getInstance();
 
         // 加载高德地图原生库
         try {
             System.loadLibrary("amap3dmap");
         } catch (UnsatisfiedLinkError e) {
-            Log.e("MapError", "Failed to load AMap library: " + e.getMessage());
+            Log.e("MapError", "Failed to load AMap library", e);
         }
 
         requestPermission(); // 发起必要权限请求
@@ -164,6 +225,8 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         JoystickView joystickView = findViewById(R.id.joystick_view);
         UserSettings userSettings = new UserSettings(this);
         joystickView.setJoystickListener(this::updateControlValues);
+        // 全部触摸采样(含历史点)直接交给解码器，由控制线程按控制频率合并
+        joystickView.setSampleListener(JoySticksDecoder.getInstance()::updateJoystickSamples);
 
         // 初始化震动反馈
         JoySticksDecoder.getInstance().init(this);
@@ -177,6 +240,9 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         deviceInfoCard = findViewById(R.id.device_card);
         initDeviceInfoCard();
 
+        // 往返延迟叠加层
+        rttOverlayText = findViewById(R.id.rtt_overlay);
+
         // 连接状态指示灯初始化
         connectionStatusLight = findViewById(R.id.status_light);
         updateConnectionStatusLight(false); // 默认为未连接状态
@@ -187,6 +253,13 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         applyUserSettings();
         Instance = this;
 
+        // 记录收发的控制命令和消息，用于任务后复盘
+        try {
+            TelemetryRecorder.getInstance().start(new File(getFilesDir(), "telemetry"));
+        } catch (IOException e) {
+            Log.e(TAG, "启动遥测记录失败", e);
+        }
+
 
     }
 
@@ -205,6 +278,12 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         long directionChangeDelay = userSettings.getDirectionChangeDelay();
         JoySticksDecoder.getInstance().setDirectionChangeDelay(directionChangeDelay);
 
+        // 应用控制命令发送频率
+        JoySticksDecoder.getInstance().setControlRate(userSettings.getControlRate());
+
+        // 应用命令延迟测量设置
+        JoySticksDecoder.getInstance().setRttProbeEnabled(userSettings.getRttProbeEnabled());
+
         // 其他设置如有需要也可以在这里应用
     }
 
@@ -218,7 +297,7 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         runOnUiThread(() -> {
             ImageView statusLight = findViewById(R.id.status_light);
             if (statusLight != null) {
-                Log.d(TAG, "更新连接状态指示灯: " + (isConnected ? "已连接" : "未连接"));
+                Log.d(TAG, "更新连接状态指示灯: {}", isConnected ? "已连接" : "未连接");
                 statusLight.setImageResource(
                         isConnected ? R.drawable.green : R.drawable.red
                 );
@@ -346,12 +425,10 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         dialog.setCancelable(false);
         dialog.show();
     }
-    // 在更新控制值显示方法中添加超时检测
-    private static final long FORCE_SEND_THRESHOLD = 500; // 如果超过500ms未发送则强制发送
-
     /**
      * 更新控制值显示
      * 并记录每次调用的时间间隔
+     * 命令的持续发送由JoySticksDecoder的固定频率控制循环保证，这里不再做超时补发
      */
     private void updateControlValues(float length, float angle) {
         // 计算本次调用与上次调用的时间间隔
@@ -359,17 +436,13 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         long interval = 0;
         if (lastUpdateTime > 0) {
             interval = currentTime - lastUpdateTime;
-
-            // 如果间隔过长，触发紧急发送（使用无阻塞方法）
-            if (interval > FORCE_SEND_THRESHOLD) {
-                JoySticksDecoder.getInstance().forceSendCommand();
-                Log.w(TAG, "检测到UI更新延迟，触发紧急发送: " + interval + "ms");
-            }
         }
         lastUpdateTime = currentTime;
 
-        // 记录日志，包含时间间隔信息
-        Log.d("ControlValues", "长度：" + length + ", 角度：" + angle + ", 调用间隔：" + interval + "ms");
+        // 记录日志，包含时间间隔信息；三个参数超出格式化重载，关闭调试日志时跳过拼接
+        if (Log.isLoggable(Logger.DEBUG)) {
+            Log.d("ControlValues", "长度：" + length + ", 角度：" + angle + ", 调用间隔：" + interval + "ms");
+        }
 
         // 更新UI显示
         TextView lengthText = findViewById(R.id.textView);
@@ -382,14 +455,7 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         }
         // 更新性能统计相关变量（确保不会阻塞UI线程）
         updatePerformanceMetrics(interval);
-        // 提取JoystickView的归一化坐标并传递给JoySticksDecoder
-        JoystickView joystickView = findViewById(R.id.joystick_view);
-        if (joystickView != null) {
-            float normalizedX = joystickView.getNormalizedX();
-            float normalizedY = joystickView.getNormalizedY();
-            // 使用无阻塞方法更新JoySticksDecoder控制参数
-            JoySticksDecoder.getInstance().updateJoystickValues(normalizedX, normalizedY);
-        }
+        // 摇杆采样已通过采样监听器交给JoySticksDecoder，这里只更新界面
     }
 
     /**
@@ -434,7 +500,7 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         // 日志记录：输出请求码和结果码，用于调试和跟踪
-        Log.d(TAG, "onActivityResult: requestCode=" + requestCode + ", resultCode=" + resultCode);
+        Log.d(TAG, "onActivityResult: requestCode={}, resultCode={}", requestCode, resultCode);
 
         // 检查请求码和结果码以确定是否从二维码扫描返回且操作成功
         if (requestCode == REQUEST_QR_SCAN && resultCode == RESULT_OK) {
@@ -473,7 +539,7 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         // 设置连接状态监听器
         mainDeviceSocket.setConnectionStatusListener(isConnected -> {
             // 记录WebSocket连接状态变化
-            Log.d(TAG, "WebSocket连接状态变化: " + (isConnected ? "已连接" : "未连接"));
+            Log.d(TAG, "WebSocket连接状态变化: {}", isConnected ? "已连接" : "未连接");
             // 更新连接状态指示
             updateConnectionStatusLight(isConnected);
             // 在WebSocket连接成功时启动摇杆控制命令发送
@@ -557,7 +623,7 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
 
                 Log.d("LocationSource", "定位客户端已启动");
             } catch (Exception e) {
-                Log.e("LocationSource", "激活定位客户端失败: " + e.getMessage(), e);
+                Log.e("LocationSource", "激活定位客户端失败", e);
                 throw new RuntimeException(e);
             }
         } else {
@@ -593,7 +659,9 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
                 double longitude = aMapLocation.getLongitude(); // 获取经度
                 String address = aMapLocation.getAddress(); // 获取地址信息
 
-                Log.d("AmapLocation", "定位成功: Lat=" + latitude + ", Lng=" + longitude + ", Address=" + address);
+                if (Log.isLoggable(Logger.DEBUG)) {
+                    Log.d("AmapLocation", "定位成功: Lat=" + latitude + ", Lng=" + longitude + ", Address=" + address);
+                }
 
                 // 更新当前定位点
                 LatLng currentLatLng = new LatLng(latitude, longitude);
@@ -631,34 +699,117 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
                 }
             } else {
                 // 显示错误信息
-                Log.e("AmapError", "location Error, ErrCode:"
-                        + aMapLocation.getErrorCode() + ", errInfo:"
-                        + aMapLocation.getErrorInfo());
+                Log.e("AmapError", "location Error, ErrCode:{}, errInfo:{}",
+                        aMapLocation.getErrorCode(), aMapLocation.getErrorInfo());
             }
         }
     }
 
     /**
      * 更新地图中的定位点位置
-     * 此方法在收到GPS坐标后被调用，更新地图位置
+     * 此方法在MainDeviceInbound入站工作线程中收到GPS坐标后被调用，只写入合并器，地图在下一个显示帧更新，
+     * 一帧内到达的多条定位只绘制最新的一条
      *
-     * @param latitude  纬度
-     * @param longitude 经度
+     * @param fix 已解码的定位，调用返回后会被复用
      */
-    public void updateMapLocation(double latitude, double longitude) {
+    public void updateMapLocation(GpsFix fix) {
         if (aMap == null) return;
-        runOnUiThread(() -> {
-            try {
-                // 创建定位点
-                LatLng location = new LatLng(latitude, longitude);
-                lastGPSLocation = location;  // 更新最后接收的GPS坐标
-                // 获取当前缩放等级
-                float currentZoom = aMap.getCameraPosition().zoom;
+        if (gpsCoalescer.offer(fix)) {
+            // Choreographer允许在其他线程预约帧回调
+            choreographer.postFrameCallback(mapFrameCallback);
+        }
+    }
 
-                // 更新地图中心点，保持当前缩放等级
+    /**
+     * 在后台线程中抽稀船舶航迹，航迹没有变化时跳过
+     */
+    private void refreshTrackPolyline() {
+        ShipTrack track = ShipDevicesSocket.getInstance().getTrack();
+        long version = track.getTotalAppended();
+        if (version == renderedTrackVersion) {
+            return;
+        }
+        renderedTrackVersion = version;
+        try {
+            int count = track.decimate(TRACK_TOLERANCE_METERS, TRACK_MAX_POINTS, trackLatitudes, trackLongitudes);
+            List<LatLng> points = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                points.add(new LatLng(trackLatitudes[i], trackLongitudes[i]));
+            }
+            runOnUiThread(() -> applyTrackPolyline(points));
+        } catch (Exception e) {
+            Log.e("GPS", "抽稀航迹失败", e);
+        }
+    }
+
+    /**
+     * 在主线程中重绘船舶航迹折线
+     */
+    private void applyTrackPolyline(List<LatLng> points) {
+        if (aMap == null) return;
+        try {
+            if (trackPolyline == null) {
+                trackPolyline = aMap.addPolyline(new PolylineOptions()
+                        .addAll(points)
+                        .width(8f)
+                        .color(0xFF1E88E5));
+            } else {
+                trackPolyline.setPoints(points);
+            }
+        } catch (Exception e) {
+            Log.e("GPS", "更新航迹失败", e);
+        }
+    }
+
+    /**
+     * 启动航迹抽稀线程
+     */
+    private void startTrackThread() {
+        stopTrackThread();
+
+        trackThread = new HandlerThread("TrackRenderer");
+        trackThread.start();
+        trackHandler = new Handler(trackThread.getLooper());
+        trackHandler.post(trackRefreshTask);
+    }
+
+    /**
+     * 停止航迹抽稀线程
+     */
+    private void stopTrackThread() {
+        if (trackThread != null) {
+            trackHandler.removeCallbacks(trackRefreshTask);
+            trackThread.quitSafely();
+            trackThread = null;
+            trackHandler = null;
+        }
+    }
+
+    /**
+     * 在帧回调中将最新的定位应用到地图
+     */
+    private void applyLatestGpsFix() {
+        if (aMap == null || !gpsCoalescer.poll(displayedGpsFix)) {
+            return;
+        }
+        double latitude = displayedGpsFix.getLatitude();
+        double longitude = displayedGpsFix.getLongitude();
+        try {
+            // 创建定位点
+            LatLng location = new LatLng(latitude, longitude);
+            lastGPSLocation = location;  // 更新最后接收的GPS坐标
+            // 获取当前地图中心和缩放等级
+            CameraPosition camera = aMap.getCameraPosition();
+            float currentZoom = camera.zoom;
+
+            // 屏幕上位移达到阈值时才移动地图中心，保持当前缩放等级
+            if (gpsCoalescer.shouldMoveCamera(camera.target.latitude, camera.target.longitude,
+                    latitude, longitude, aMap.getScalePerPixel())) {
                 CameraUpdate cameraUpdate = CameraUpdateFactory.newLatLngZoom(location, currentZoom);
                 aMap.moveCamera(cameraUpdate);
-                // 获取当前的定位样式
+            }
+            // 定位样式只需设置一次
+            if (!gpsLocationStyleApplied) {
                 MyLocationStyle myLocationStyle = aMap.getMyLocationStyle();
                 if (myLocationStyle == null) {
                     myLocationStyle = new MyLocationStyle();
@@ -666,20 +817,25 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
                 // 设置样式为显示定位标记
                 myLocationStyle.showMyLocation(true);
                 aMap.setMyLocationStyle(myLocationStyle);
-                // 创建模拟定位对象
-                AMapLocation aMapLocation = new AMapLocation("GPS");
-                aMapLocation.setLatitude(latitude);
-                aMapLocation.setLongitude(longitude);
-                aMapLocation.setAccuracy(5.0f);
-                // 通知监听器更新位置
-                if (mListener != null) {
-                    mListener.onLocationChanged(aMapLocation);
-                }
+                gpsLocationStyleApplied = true;
+            }
+            // 复用模拟定位对象，监听器只在回调中读取坐标
+            if (gpsLocation == null) {
+                gpsLocation = new AMapLocation("GPS");
+                gpsLocation.setAccuracy(5.0f);
+            }
+            gpsLocation.setLatitude(latitude);
+            gpsLocation.setLongitude(longitude);
+            // 通知监听器更新位置
+            if (mListener != null) {
+                mListener.onLocationChanged(gpsLocation);
+            }
+            if (Log.isLoggable(Logger.DEBUG)) {
                 Log.d("GPS", "地图位置已更新: Lat=" + latitude + ", Lng=" + longitude + ", 缩放等级=" + currentZoom);
-            } catch (Exception e) {
-                Log.e("GPS", "更新地图位置失败: " + e.getMessage(), e);
             }
-        });
+        } catch (Exception e) {
+            Log.e("GPS", "更新地图位置失败: " + e.getMessage(), e);
+        }
     }
 
 
@@ -698,10 +854,19 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
             ));
         }
 
+        // 停止按帧更新地图
+        if (choreographer != null) {
+            choreographer.removeFrameCallback(mapFrameCallback);
+        }
+        gpsCoalescer.clear();
+        Log.i(TAG, gpsCoalescer.getStats());
+
         // 断开WebSocket连接 - 使用强制断开模式
         MainDeviceSocket.getInstance().disconnect(true);
         // 停止控制命令发送
         JoySticksDecoder.getInstance().stop();
+        // 写完剩余的遥测记录
+        TelemetryRecorder.getInstance().stop();
         if (mMapView != null) {
             mMapView.onDestroy(); // 确保调用 onDestroy 方法
         }
@@ -726,14 +891,22 @@ public class MainActivity extends AppCompatActivity implements LocationSource, A
         Log.d("MapLifecycle", "MapView onResume called.");
         // 检查WebSocket连接状态并更新指示灯
         boolean isConnected = MainDeviceSocket.getInstance().isConnected();
-        Log.d(TAG, "页面恢复，WebSocket连接状态: " + (isConnected ? "已连接" : "未连接"));
+        Log.d(TAG, "页面恢复，WebSocket连接状态: {}", isConnected ? "已连接" : "未连接");
         updateConnectionStatusLight(isConnected);
+
+        // 开始刷新往返延迟叠加层和航迹
+        overlayHandler.removeCallbacks(rttOverlayTask);
+        overlayHandler.post(rttOverlayTask);
+        startTrackThread();
     }
 
 
     @Override
     protected void onPause() {
         super.onPause();
+        // 页面不可见时停止刷新叠加层和航迹
+        overlayHandler.removeCallbacks(rttOverlayTask);
+        stopTrackThread();
         if (mMapView != null) {
             mMapView.onPause(); // 确保调用 onPause 方法
         }
@@ -4,19 +4,24 @@ import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
+
+import androidx.annotation.NonNull;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.yuwen.centershipcontroller.Component.CustomDialog;
 import com.yuwen.centershipcontroller.Component.DeviceInfoCard;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Logger;
+import com.yuwen.centershipcontroller.Utils.GpsFix;
+import com.yuwen.centershipcontroller.Utils.InboundMessageDispatcher;
+import com.yuwen.centershipcontroller.Utils.InboundMessageWorker;
+import com.yuwen.centershipcontroller.Utils.JoySticksDecoder;
+import com.yuwen.centershipcontroller.Utils.OutboundScheduler;
+import com.yuwen.centershipcontroller.Utils.RoomProtocol;
 import com.yuwen.centershipcontroller.Utils.WebSocketManager;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -30,7 +35,6 @@ import java.util.concurrent.Executors;
 public class MainDeviceSocket {
     private static final String TAG = "MainDeviceSocket";
     private static final String DEVICE_ID = "h832h9eh29h"; // 本设备ID
-    private static final String IDENTITY = "MAIN_DEVICES"; // 本设备类型
     // 心跳机制相关变量
     private static final int HEARTBEAT_INTERVAL = 5000; // 心跳间隔10秒
     private static final int HEARTBEAT_INITIAL_DELAY = 5000; // 初始延迟5秒
@@ -38,13 +42,19 @@ public class MainDeviceSocket {
     private final WebSocketManager webSocketManager;
     private final ExecutorService socketThread;
     private final Handler mainHandler;
+    private final InboundMessageDispatcher messageDispatcher = new InboundMessageDispatcher(new InboundHandler());
+    // 文本消息在此线程中解析处理，WebSocket读线程只负责入队
+    private final InboundMessageWorker inboundWorker = new InboundMessageWorker("MainDeviceInbound",
+            InboundMessageWorker.DEFAULT_CAPACITY, this::processMessage);
+    // 正在处理的消息到达的时刻，只在处理消息的线程中访问
+    private long messageReceivedNanos;
     // 船舶设备信息
     private final List<ShipDevice> shipDevices = new ArrayList<>();
     private Context context;
     private DeviceInfoCard deviceInfoCard;
     private String roomId = "";
     private ConnectionStatusListener connectionStatusListener;
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
     private CustomDialog statusDialog;
     private Handler heartbeatHandler;
     private Runnable heartbeatRunnable;
@@ -92,7 +102,7 @@ public class MainDeviceSocket {
         // 确保不重复启动
         stopHeartbeat();
 
-        Log.d(TAG, "心跳检测将在 " + HEARTBEAT_INITIAL_DELAY + "ms 后开始");
+        Log.d(TAG, "心跳检测将在 {}ms 后开始", HEARTBEAT_INITIAL_DELAY);
         heartbeatActive = true;
         // 延迟5秒开始第一次心跳
         heartbeatHandler.postDelayed(heartbeatRunnable, HEARTBEAT_INITIAL_DELAY);
@@ -114,7 +124,8 @@ public class MainDeviceSocket {
      */
     private void sendHeartbeat() {
         Log.d(TAG, "发送心跳查询");
-        queryRoomInfo();
+        // 发送队列积压时心跳可直接丢弃
+        queryRoomInfo(OutboundScheduler.MessageClass.HEARTBEAT);
     }
 
     /**
@@ -123,7 +134,7 @@ public class MainDeviceSocket {
     public void init(Context context, DeviceInfoCard deviceInfoCard) {
         this.context = context;
         this.deviceInfoCard = deviceInfoCard;
-        Log.d(TAG, "初始化MainDeviceSocket，context: " + context + ", deviceInfoCard: " + deviceInfoCard);
+        Log.d(TAG, "初始化MainDeviceSocket，context: {}, deviceInfoCard: {}", context, deviceInfoCard);
     }
 
     /**
@@ -151,27 +162,31 @@ public class MainDeviceSocket {
         Log.d(TAG, "启动WebSocket连接处理");
 
         socketThread.execute(() -> {
+            // 先登记身份信息，连接打开或重连后由WebSocketManager首先发送
+            registerIdentityInfo();
             // 检查WebSocket是否已连接
             boolean wasAlreadyConnected = webSocketManager.isConnected();
-            Log.d(TAG, "WebSocket连接状态检查: " + (wasAlreadyConnected ? "已连接" : "未连接"));
+            Log.d(TAG, "WebSocket连接状态检查: {}", wasAlreadyConnected ? "已连接" : "未连接");
 
             // 添加WebSocket连接处理逻辑
             webSocketManager.setConnectionCallback(new WebSocketManager.ConnectionCallback() {
                 @Override
                 public void onConnected(String message) {
-                    Log.d(TAG, "WebSocket连接成功: " + message);
+                    Log.d(TAG, "WebSocket连接成功: {}", message);
                     // 更新连接状态
                     isConnected = true;
                     notifyConnectionStatusChanged();
 
-                    // 连接成功后，立即发送设备身份信息
-                    Log.d(TAG, "连接成功，发送设备身份信息");
-                    sendIdentityInfo();
+                    // 身份信息已由WebSocketManager在连接打开时发送
+                    // 断线重连后心跳任务已停止，需要重新启动
+                    if (heartbeatActive) {
+                        startHeartbeat();
+                    }
                 }
 
                 @Override
                 public void onFailure(String errorMessage) {
-                    Log.e(TAG, "WebSocket连接失败: " + errorMessage);
+                    Log.e(TAG, "WebSocket连接失败: {}", errorMessage);
                     // 更新连接状态
                     isConnected = false;
                     notifyConnectionStatusChanged();
@@ -179,9 +194,16 @@ public class MainDeviceSocket {
             });
 
             // 添加消息监听器
-            webSocketManager.setMessageListener(message -> {
-                Log.d(TAG, "收到WebSocket消息，准备处理: " + message);
-                processMessage(message);
+            webSocketManager.setMessageListener(new WebSocketManager.MessageListener() {
+                @Override
+                public void onMessage(String message) {
+                    offerMessage(message);
+                }
+
+                @Override
+                public void onBinaryMessage(byte[] data) {
+                    processBinaryMessage(data);
+                }
             });
 
             // 如果WebSocket已经连接，则手动触发连接成功回调
@@ -195,6 +217,13 @@ public class MainDeviceSocket {
         });
     }
 
+    /**
+     * 收到消息的处理队列，用于性能统计
+     */
+    public InboundMessageWorker getInboundWorker() {
+        return inboundWorker;
+    }
+
     /**
      * 通知连接状态变化
      */
@@ -203,50 +232,92 @@ public class MainDeviceSocket {
             mainHandler.post(() -> {
                 try {
                     connectionStatusListener.onConnectionStatusChanged(isConnected);
-                    Log.d(TAG, "已通知连接状态变化: " + isConnected);
+                    Log.d(TAG, "已通知连接状态变化: {}", isConnected);
                 } catch (Exception e) {
-                    Log.e(TAG, "通知连接状态变化出错: " + e.getMessage());
+                    Log.e(TAG, "通知连接状态变化出错: {}", e.getMessage());
                 }
             });
         }
     }
 
     /**
-     * 处理收到的WebSocket消息
+     * 把收到的文本消息放入处理队列，实时消息和回放会话的消息都由此进入
+     * 消息分发器和到达时刻只在inboundWorker的处理线程中访问，不能从其他线程直接处理
+     */
+    public void offerMessage(String message) {
+        if (!inboundWorker.offer(message)) {
+            Log.w(TAG, "入站队列已满，丢弃消息");
+        }
+    }
+
+    /**
+     * 处理收到的WebSocket消息，只在inboundWorker的处理线程中调用
+     *
+     * @param receivedNanos 消息到达的时刻，确认消息按此时刻统计往返延迟，不计入本地排队时间
      */
-    private void processMessage(String message) {
-        Log.d(TAG, "开始处理WebSocket消息: " + message);
+    private void processMessage(String message, long receivedNanos) {
+        messageReceivedNanos = receivedNanos;
         try {
-            JsonObject jsonObject = JsonParser.parseString(message).getAsJsonObject();
-            // 处理连接成功消息
-            if (jsonObject.has("type") && "connection".equals(jsonObject.get("type").getAsString())) {
-                if (jsonObject.has("message") && "Connected successfully".equals(jsonObject.get("message").getAsString())) {
-                    Log.d(TAG, "检测到连接成功消息，发送设备身份信息");
-                    sendIdentityInfo();
-                    return;
-                }
-            }
-            // 检查是否是GPS数据
-            if (message.contains("\"GPS\"")) {
-                // 将GPS数据传递给ShipDevicesSocket处理
-                ShipDevicesSocket.getInstance().processMessage(message);
-                return;
+            // 单次流式解析并按类型分发；消息内容可能包含房间和位置信息，日志只记录类型和长度
+            InboundMessageDispatcher.MessageKind kind = messageDispatcher.dispatch(message);
+            if (kind == InboundMessageDispatcher.MessageKind.MALFORMED) {
+                Log.e(TAG, "无法解析的消息: 长度={}", message.length());
+            } else if (Log.isLoggable(Logger.DEBUG)) {
+                Log.d(TAG, "已处理WebSocket消息: 类型={}, 长度={}", kind, message.length());
             }
+        } catch (Exception e) {
+            Log.e(TAG, "处理消息出错", e);
+        }
+    }
 
-            // 处理房间消息
-            if (jsonObject.has("type") && "room".equals(jsonObject.get("type").getAsString())) {
-                handleRoomMessage(jsonObject);
-                return;
-            }
-            // 处理房间信息消息
-            if (jsonObject.has("type") && "room_info".equals(jsonObject.get("type").getAsString())) {
-                handleRoomInfoMessage(jsonObject);
-                return;
+    /**
+     * 各类收到消息的处理
+     */
+    private class InboundHandler implements InboundMessageDispatcher.MessageHandler {
+        @Override
+        public void onGpsFix(@NonNull GpsFix fix) {
+            // 将GPS数据传递给ShipDevicesSocket处理
+            ShipDevicesSocket.getInstance().processGps(fix);
+        }
+
+        @Override
+        public void onAck(int sequence) {
+            // 处理控制命令确认，用于统计往返延迟
+            JoySticksDecoder.getInstance().getRttTracker().onJsonAck(sequence, messageReceivedNanos);
+        }
+
+        @Override
+        public void onConnection(@NonNull String message) {
+            // 处理连接成功消息
+            if (RoomProtocol.CONNECTED_MESSAGE.equals(message)) {
+                Log.d(TAG, "检测到连接成功消息，发送设备身份信息");
+                sendIdentityInfo();
             }
-            // 未知消息类型
-            Log.d(TAG, "收到未处理的消息类型: " + message);
-        } catch (Exception e) {
-            Log.e(TAG, "处理消息出错: " + e.getMessage(), e);
+        }
+
+        @Override
+        public void onRoom(@NonNull JsonObject message) {
+            handleRoomMessage(message);
+        }
+
+        @Override
+        public void onRoomInfo(@NonNull JsonObject message) {
+            handleRoomInfoMessage(message);
+        }
+
+        @Override
+        public void onUnknown(@NonNull String message) {
+            Log.d(TAG, "收到未处理的消息类型: {}", message);
+        }
+    }
+
+    /**
+     * 处理收到的二进制消息，目前只有船舶回显的命令帧，实时消息和回放会话的消息都由此进入
+     * 命令帧确认可在任意线程处理，因此不经过入站队列
+     */
+    public void processBinaryMessage(byte[] data) {
+        if (!JoySticksDecoder.getInstance().getRttTracker().onBinaryMessage(data, 0, data.length)) {
+            Log.d(TAG, "收到未处理的二进制消息，长度: {}", data.length);
         }
     }
 
@@ -254,18 +325,18 @@ public class MainDeviceSocket {
      * 处理房间消息
      */
     private void handleRoomMessage(JsonObject jsonObject) {
-        Log.d(TAG, "处理房间消息: " + jsonObject);
+        Log.d(TAG, "处理房间消息: {}", jsonObject);
         try {
             if (jsonObject.has("room_id")) {
                 roomId = jsonObject.get("room_id").getAsString();
-                Log.d(TAG, "收到房间ID: " + roomId);
+                Log.d(TAG, "收到房间ID: {}", roomId);
 
                 // 收到房间ID后，立即查询房间信息
                 Log.d(TAG, "开始查询房间信息");
                 queryRoomInfo();
             }
         } catch (Exception e) {
-            Log.e(TAG, "处理房间消息出错: " + e.getMessage(), e);
+            Log.e(TAG, "处理房间消息出错", e);
         }
     }
 
@@ -273,11 +344,11 @@ public class MainDeviceSocket {
      * 处理房间信息消息
      */
     private void handleRoomInfoMessage(JsonObject jsonObject) {
-        Log.d(TAG, "处理房间信息消息: " + jsonObject);
+        Log.d(TAG, "处理房间信息消息: {}", jsonObject);
         try {
             if (jsonObject.has("room_id")) {
                 roomId = jsonObject.get("room_id").getAsString();
-                Log.d(TAG, "设置房间ID: " + roomId);
+                Log.d(TAG, "设置房间ID: {}", roomId);
 
                 // 检查是否满足连接条件
                 boolean hasShipDevice = false;
@@ -285,7 +356,7 @@ public class MainDeviceSocket {
                 // 获取客户端总数
                 if (jsonObject.has("total_clients")) {
                     totalClients = jsonObject.get("total_clients").getAsInt();
-                    Log.d(TAG, "房间内客户端总数: " + totalClients);
+                    Log.d(TAG, "房间内客户端总数: {}", totalClients);
                 }
 
                 // 清空之前的设备列表
@@ -294,22 +365,24 @@ public class MainDeviceSocket {
                 // 解析客户端列表
                 if (jsonObject.has("clients") && jsonObject.get("clients").isJsonArray()) {
                     JsonArray clientsArray = jsonObject.getAsJsonArray("clients");
-                    Log.d(TAG, "客户端数量: " + clientsArray.size());
+                    Log.d(TAG, "客户端数量: {}", clientsArray.size());
                     for (JsonElement clientElement : clientsArray) {
                         JsonObject clientObject = clientElement.getAsJsonObject();
                         String deviceId = clientObject.has("device_id") ?
                                 clientObject.get("device_id").getAsString() : "";
                         String identity = clientObject.has("identity") ?
                                 clientObject.get("identity").getAsString() : "";
-                        Log.d(TAG, "检测到客户端: deviceId=" + deviceId + ", identity=" + identity);
+                        Log.d(TAG, "检测到客户端: deviceId={}, identity={}", deviceId, identity);
                         // 检查是否有船舶设备
-                        if ("SHIP_DEVICES".equals(identity)) {
+                        if (RoomProtocol.IDENTITY_SHIP.equals(identity)) {
                             hasShipDevice = true;
                             shipDevices.add(new ShipDevice(deviceId, identity));
-                            Log.d(TAG, "添加船舶设备: " + deviceId);
+                            Log.d(TAG, "添加船舶设备: {}", deviceId);
                         }
                     }
                 }
+                // 船舶设备声明支持的命令线路格式，未声明时使用JSON
+                JoySticksDecoder.getInstance().setWireFormat(RoomProtocol.negotiateWireFormat(jsonObject));
                 // 修改的逻辑: 如果没有船舶设备，但已经进入房间，不断开WebSocket连接，而是显示设备连接失败并尝试重连
                 if (!hasShipDevice) {
                     Log.d(TAG, "进入房间成功，但未检测到船舶设备");
@@ -360,20 +433,20 @@ public class MainDeviceSocket {
                                 hasShownSuccessDialog = true;
                             }
                             
-                            Log.d(TAG, "已更新UI" + (hasShownSuccessDialog ? "" : "和显示对话框"));
+                            Log.d(TAG, "已更新UI{}", hasShownSuccessDialog ? "" : "和显示对话框");
                             
                             // 3. 确保心跳检测正在运行
                             if (!heartbeatActive) {
                                 startHeartbeat();
                             }
                         } catch (Exception e) {
-                            Log.e(TAG, "更新UI过程中出错: " + e.getMessage(), e);
+                            Log.e(TAG, "更新UI过程中出错", e);
                         }
                     });
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "处理房间信息消息出错: " + e.getMessage(), e);
+            Log.e(TAG, "处理房间信息消息出错", e);
         }
     }
 
@@ -400,7 +473,7 @@ public class MainDeviceSocket {
                     Log.d(TAG, "设备信息卡片已更新为等待设备连接状态");
                 });
             } catch (Exception e) {
-                Log.e(TAG, "更新设备信息卡片出错: " + e.getMessage(), e);
+                Log.e(TAG, "更新设备信息卡片出错", e);
             }
         } else {
             Log.e(TAG, "设备信息卡片为空，无法更新");
@@ -434,7 +507,7 @@ public class MainDeviceSocket {
                     try {
                         dismissCurrentDialog();
                     } catch (Exception e) {
-                        Log.e(TAG, "关闭对话框出错: " + e.getMessage(), e);
+                        Log.e(TAG, "关闭对话框出错", e);
                     }
                 });
 
@@ -446,7 +519,7 @@ public class MainDeviceSocket {
 
                 Log.d(TAG, "设备未找到对话框已显示");
             } catch (Exception e) {
-                Log.e(TAG, "显示对话框出错: " + e.getMessage(), e);
+                Log.e(TAG, "显示对话框出错", e);
             }
         });
     }
@@ -467,15 +540,18 @@ public class MainDeviceSocket {
             @Override
             public void run() {
                 Log.d(TAG, "执行重连检查...");
-                if (isConnected && !isFinishing()) {
+                if (isFinishing()) {
+                    // Activity已结束，停止重连
+                    stopReconnecting();
+                    return;
+                }
+                // WebSocket断开时由WebSocketManager自动重连，这里只在连接打开时查询
+                if (isConnected) {
                     // 查询房间信息以检查是否已经有船舶设备
                     queryRoomInfo();
-                    // 安排下一次重连检查
-                    reconnectHandler.postDelayed(this, RECONNECT_INTERVAL);
-                } else {
-                    // 如果WebSocket已断开或Activity已结束，停止重连
-                    stopReconnecting();
                 }
+                // 安排下一次重连检查
+                reconnectHandler.postDelayed(this, RECONNECT_INTERVAL);
             }
         };
 
@@ -513,38 +589,41 @@ public class MainDeviceSocket {
     }
 
     /**
-     * 发送设备身份信息
+     * 发送设备身份信息，并登记给WebSocketManager以便断线重连后自动重发
      */
     private void sendIdentityInfo() {
-        try {
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("device_id", DEVICE_ID);
-            jsonObject.put("identity", IDENTITY);
-
-            String message = jsonObject.toString();
-            Log.d(TAG, "发送设备身份信息: " + message);
+        String message = registerIdentityInfo();
+        Log.d(TAG, "发送设备身份信息: {}", message);
+        webSocketManager.sendMessage(message);
+    }
 
-            webSocketManager.sendMessage(message);
-        } catch (JSONException e) {
-            Log.e(TAG, "构建身份信息JSON失败: " + e.getMessage(), e);
-        }
+    /**
+     * 构建设备身份信息并登记给WebSocketManager，连接(包括自动重连)打开后由其首先发送
+     *
+     * @return 身份信息JSON
+     */
+    private String registerIdentityInfo() {
+        // 声明本设备支持的命令线路格式，由船舶设备选择
+        String message = RoomProtocol.mainIdentityMessage(DEVICE_ID);
+        webSocketManager.setIdentityMessage(message);
+        return message;
     }
 
     /**
      * 查询房间信息
      */
     private void queryRoomInfo() {
-        try {
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("type", "query_room");
-
-            String message = jsonObject.toString();
-            Log.d(TAG, "查询房间信息: " + message);
+        queryRoomInfo(OutboundScheduler.MessageClass.QUERY);
+    }
 
-            webSocketManager.sendMessage(message);
-        } catch (JSONException e) {
-            Log.e(TAG, "构建查询JSON失败: " + e.getMessage(), e);
-        }
+    /**
+     * 查询房间信息
+     *
+     * @param messageClass 发送队列积压时的处理类别
+     */
+    private void queryRoomInfo(OutboundScheduler.MessageClass messageClass) {
+        Log.d(TAG, "查询房间信息: {}", RoomProtocol.QUERY_ROOM_MESSAGE);
+        webSocketManager.sendMessage(RoomProtocol.QUERY_ROOM_MESSAGE, messageClass);
     }
 
     /**
@@ -557,7 +636,7 @@ public class MainDeviceSocket {
                 statusDialog = null;
                 Log.d(TAG, "关闭当前对话框");
             } catch (Exception e) {
-                Log.e(TAG, "关闭对话框出错: " + e.getMessage(), e);
+                Log.e(TAG, "关闭对话框出错", e);
             }
         }
     }
@@ -612,7 +691,7 @@ public class MainDeviceSocket {
                 try {
                     dismissCurrentDialog();
                 } catch (Exception e) {
-                    Log.e(TAG, "关闭对话框出错: " + e.getMessage(), e);
+                    Log.e(TAG, "关闭对话框出错", e);
                 }
             });
 
@@ -621,7 +700,7 @@ public class MainDeviceSocket {
 
             Log.d(TAG, "设备信息对话框已显示");
         } catch (Exception e) {
-            Log.e(TAG, "显示对话框出错: " + e.getMessage(), e);
+            Log.e(TAG, "显示对话框出错", e);
         }
     }
 
@@ -650,9 +729,9 @@ public class MainDeviceSocket {
                     }
                 }
 
-                Log.d(TAG, "设备信息卡片已更新: ID=" + displayDeviceId);
+                Log.d(TAG, "设备信息卡片已更新: ID={}", displayDeviceId);
             } catch (Exception e) {
-                Log.e(TAG, "更新设备信息卡片出错: " + e.getMessage(), e);
+                Log.e(TAG, "更新设备信息卡片出错", e);
             }
         } else {
             Log.e(TAG, "设备信息卡片为空，无法更新");
@@ -1,22 +1,25 @@
 package com.yuwen.centershipcontroller.Socket;
 
-import android.util.Log;
-
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.yuwen.centershipcontroller.MainActivity;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Utils.EventJournal;
+import com.yuwen.centershipcontroller.Utils.GpsDecoder;
+import com.yuwen.centershipcontroller.Utils.GpsFix;
+import com.yuwen.centershipcontroller.Utils.ShipTrack;
 
 /**
  * 船舶设备Socket通信类
- * 处理WebSocket接收到的GPS坐标数据
+ * 处理WebSocket接收到的GPS坐标数据，并记录船舶航迹
  *
  * @author yuwen
  */
 public class ShipDevicesSocket {
     private static final String TAG = "ShipDevicesSocket";
     private static ShipDevicesSocket instance;
-    private MainActivity mainActivity;
-    private double nmeaValue;
+    // init在主线程中设置，processGps在入站工作线程中读取
+    private volatile MainActivity mainActivity;
+    // 最近的船舶航迹
+    private final ShipTrack track = new ShipTrack();
 
     private ShipDevicesSocket() {
         // 私有构造方法
@@ -41,51 +44,37 @@ public class ShipDevicesSocket {
     }
 
     /**
-     * 处理WebSocket消息
-     * 特别处理包含GPS坐标的消息
+     * 处理GPS数据
+     * 由消息分发器在MainDeviceInbound入站工作线程中调用，定位对象会被复用，这里不保留引用
      *
-     * @param message WebSocket接收到的消息
+     * @param fix 已解码的定位，经纬度为十进制度数
      */
-    public void processMessage(String message) {
-        if (message == null || message.isEmpty()) {
-            Log.e(TAG, "收到空消息");
-            return;
-        }
-
+    public void processGps(GpsFix fix) {
         try {
-            // 尝试解析为JSON
-            JsonObject jsonObject = JsonParser.parseString(message).getAsJsonObject();
-
-            // 检查是否包含GPS数据
-            if (jsonObject.has("GPS") && jsonObject.get("GPS").isJsonObject()) {
-                JsonObject gpsObject = jsonObject.getAsJsonObject("GPS");
-
-                // 检查是否包含经纬度数据
-                if (gpsObject.has("E") && gpsObject.has("N")) {
-                    double longitude = gpsObject.get("E").getAsDouble();
-                    double latitude = gpsObject.get("N").getAsDouble();
-                    String time = gpsObject.has("time") ? gpsObject.get("time").getAsString() : "";
-
-                    // 处理NMEA格式的经纬度 (DDMM.MMMM 格式)
-                    // 需要转换为度数格式 (DD.DDDDDD)
-                    double lon = convertNMEAToDecimal(longitude);
-                    double lat = convertNMEAToDecimal(latitude);
+            // GPS是频率最高的消息，double重载在关闭调试日志时不装箱、不拼接
+            Log.d(TAG, "收到GPS坐标: 纬度={}, 经度={}", fix.getLatitude(), fix.getLongitude());
 
-                    Log.d(TAG, "收到GPS坐标: 纬度=" + lat + ", 经度=" + lon + ", 时间=" + time);
+            EventJournal.getInstance().record(EventJournal.Event.GPS_FIX, fix.getLatitude(), fix.getLongitude());
+            track.append(fix);
 
-                    // 更新地图位置
-                    if (mainActivity != null) {
-                        mainActivity.updateMapLocation(lat, lon);
-                    } else {
-                        Log.e(TAG, "MainActivity未初始化，无法更新地图位置");
-                    }
-                }
+            // 更新地图位置
+            if (mainActivity != null) {
+                mainActivity.updateMapLocation(fix);
+            } else {
+                Log.e(TAG, "MainActivity未初始化，无法更新地图位置");
             }
         } catch (Exception e) {
-            Log.e(TAG, "处理GPS消息出错: " + e.getMessage(), e);
+            Log.e(TAG, "处理GPS消息出错", e);
         }
     }
 
+    /**
+     * 获取船舶航迹
+     */
+    public ShipTrack getTrack() {
+        return track;
+    }
+
     /**
      * 将NMEA格式的经纬度转换为十进制度数
      * NMEA格式: DDMM.MMMM (度分格式)
@@ -95,21 +84,13 @@ public class ShipDevicesSocket {
      * @return 十进制度数
      */
     public double convertNMEAToDecimal(double nmeaValue) {
-        this.nmeaValue = nmeaValue;
-        // 获取度数部分 (DD)
-        int degrees = (int) (nmeaValue / 100);
-
-        // 获取分钟部分 (MM.MMMM)
-        double minutes = nmeaValue - (degrees * 100);
-
-        // 转换为十进制度数 (DD + MM.MMMM/60)
-        return degrees + (minutes / 60.0);
+        return GpsDecoder.nmeaToDecimal(nmeaValue);
     }
 
     /**
      * 重置状态
      */
     public void reset() {
-        // 目前没有状态需要重置
+        track.clear();
     }
 }
@@ -0,0 +1,54 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Logger;
+
+/**
+ * 把控制核心的日志转给android.util.Log
+ *
+ * @author yuwen
+ */
+public final class AndroidLogger implements Logger {
+    private static final String TAG = "AndroidLogger";
+    private static boolean installed = false;
+
+    /**
+     * 接入控制核心的日志：发布版本只输出INFO及以上级别；
+     * 未捕获的异常先输出事件日志中的控制路径现场，再交给原来的处理器
+     */
+    public static synchronized void install(@NonNull Context context) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        com.yuwen.centershipcontroller.Platform.Log.setLogger(new AndroidLogger());
+        com.yuwen.centershipcontroller.Platform.Log.setMinPriority(debuggable ? Logger.DEBUG : Logger.INFO);
+        if (installed) {
+            return;
+        }
+        installed = true;
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            Log.e(TAG, "未捕获的异常，线程: " + thread.getName(), e);
+            // logcat单条长度有限，逐行输出
+            for (String line : EventJournal.getInstance().dump().split("\n")) {
+                Log.e(TAG, line);
+            }
+            if (previous != null) {
+                previous.uncaughtException(thread, e);
+            }
+        });
+    }
+
+    @Override
+    public void log(int priority, @NonNull String tag, @NonNull String message) {
+        Log.println(priority, tag, message);
+    }
+
+    @Override
+    public void log(int priority, @NonNull String tag, @NonNull String message, @NonNull Throwable tr) {
+        Log.println(priority, tag, message + '\n' + Log.getStackTraceString(tr));
+    }
+}
@@ -0,0 +1,39 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+/**
+ * 基于Handler的调度器，计划时刻使用System.nanoTime时基(即Clock.SYSTEM)
+ *
+ * @author yuwen
+ */
+public final class HandlerScheduler implements Scheduler {
+    private final Handler handler;
+
+    public HandlerScheduler(@NonNull Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void post(@NonNull Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postAt(@NonNull Runnable task, long deadlineNanos) {
+        // Handler以毫秒为单位调度，向上取整保证不早于计划时刻执行
+        long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+        long delayMillis = (remainingNanos + 999_999) / 1_000_000;
+        handler.postAtTime(task, SystemClock.uptimeMillis() + delayMillis);
+    }
+
+    @Override
+    public void remove(@NonNull Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
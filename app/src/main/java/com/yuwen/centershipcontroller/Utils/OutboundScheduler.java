@@ -0,0 +1,260 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.WebSocket;
+import okio.ByteString;
+
+/**
+ * 感知背压的WebSocket发送调度
+ * OkHttp的发送队列最多可积压16MiB，弱网下会堆满过时的控制命令和心跳，船舶要在数秒后才执行。
+ * 这里在发送前检查 {@link WebSocket#queueSize()}，队列超过阈值时按消息类别处理：
+ * <pre>
+ * CONTROL   控制命令，暂存在单槽位中，新命令覆盖旧命令，队列回落后只发送最新一条
+ * HEARTBEAT 心跳，直接丢弃，下一次心跳会重新发送
+ * QUERY     查询，暂存在单槽位中，相同的查询只需发送最新一次
+ * OTHER     身份信息等一次性消息，始终发送
+ * </pre>
+ * 所有方法可在任意线程调用
+ *
+ * @author yuwen
+ */
+public final class OutboundScheduler {
+    private static final String TAG = "OutboundScheduler";
+    // 默认积压阈值：约7条JSON控制命令，20Hz下约350ms
+    public static final long DEFAULT_QUEUE_THRESHOLD_BYTES = 512;
+    // 有暂存消息时检查队列的间隔
+    private static final long FLUSH_INTERVAL_MS = 20;
+
+    /**
+     * 消息类别
+     */
+    public enum MessageClass {
+        CONTROL,
+        HEARTBEAT,
+        QUERY,
+        OTHER
+    }
+
+    /**
+     * 暂存的消息，只在背压期间创建
+     */
+    private static final class Pending {
+        final WebSocket webSocket;
+        final String text;
+        final ByteString bytes;
+
+        Pending(WebSocket webSocket, String text, ByteString bytes) {
+            this.webSocket = webSocket;
+            this.text = text;
+            this.bytes = bytes;
+        }
+
+        boolean send() {
+            return text != null ? webSocket.send(text) : webSocket.send(bytes);
+        }
+    }
+
+    private final ScheduledExecutorService flushExecutor;
+    private final Runnable flushTask = this::flushPending;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicReference<Pending> pendingControl = new AtomicReference<>();
+    private final AtomicReference<Pending> pendingQuery = new AtomicReference<>();
+    private volatile long queueThresholdBytes;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedHeartbeatCount = new AtomicLong();
+    private final AtomicLong lastQueueBytes = new AtomicLong();
+    private final AtomicLong maxQueueBytes = new AtomicLong();
+
+    /**
+     * @param queueThresholdBytes 开始限流的队列积压字节数
+     * @param flushExecutor       用于在队列回落后补发暂存消息
+     */
+    public OutboundScheduler(long queueThresholdBytes, @NonNull ScheduledExecutorService flushExecutor) {
+        this.queueThresholdBytes = queueThresholdBytes;
+        this.flushExecutor = flushExecutor;
+    }
+
+    public void setQueueThresholdBytes(long bytes) {
+        queueThresholdBytes = Math.max(0, bytes);
+    }
+
+    public long getQueueThresholdBytes() {
+        return queueThresholdBytes;
+    }
+
+    /**
+     * 发送文本消息
+     *
+     * @return 已发送或已暂存时返回true；连接已关闭或心跳因背压被丢弃时返回false
+     */
+    public boolean send(@NonNull WebSocket webSocket, @NonNull String text, @NonNull MessageClass messageClass) {
+        return dispatch(webSocket, text, null, messageClass);
+    }
+
+    /**
+     * 发送二进制消息
+     *
+     * @return 已发送或已暂存时返回true；连接已关闭或心跳因背压被丢弃时返回false
+     */
+    public boolean send(@NonNull WebSocket webSocket, @NonNull ByteString bytes, @NonNull MessageClass messageClass) {
+        return dispatch(webSocket, null, bytes, messageClass);
+    }
+
+    private boolean dispatch(WebSocket webSocket, String text, ByteString bytes, MessageClass messageClass) {
+        if (messageClass == MessageClass.OTHER) {
+            return sendNow(webSocket, text, bytes);
+        }
+
+        AtomicReference<Pending> slot = slotFor(messageClass);
+        boolean congested = observeQueue(webSocket) > queueThresholdBytes;
+        if (!congested) {
+            // 新消息取代尚未补发的同类消息
+            if (slot != null && slot.getAndSet(null) != null) {
+                coalescedCount.incrementAndGet();
+            }
+            return sendNow(webSocket, text, bytes);
+        }
+
+        if (slot == null) {
+            droppedHeartbeatCount.incrementAndGet();
+            return false;
+        }
+        deferredCount.incrementAndGet();
+        if (slot.getAndSet(new Pending(webSocket, text, bytes)) != null) {
+            coalescedCount.incrementAndGet();
+        }
+        scheduleFlush();
+        return true;
+    }
+
+    private AtomicReference<Pending> slotFor(MessageClass messageClass) {
+        switch (messageClass) {
+            case CONTROL:
+                return pendingControl;
+            case QUERY:
+                return pendingQuery;
+            default:
+                return null;
+        }
+    }
+
+    private boolean sendNow(WebSocket webSocket, String text, ByteString bytes) {
+        boolean success = text != null ? webSocket.send(text) : webSocket.send(bytes);
+        if (success) {
+            sentCount.incrementAndGet();
+        }
+        return success;
+    }
+
+    private long observeQueue(WebSocket webSocket) {
+        long queued = webSocket.queueSize();
+        lastQueueBytes.set(queued);
+        long max = maxQueueBytes.get();
+        while (queued > max && !maxQueueBytes.compareAndSet(max, queued)) {
+            max = maxQueueBytes.get();
+        }
+        return queued;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.getAndSet(true)) {
+            flushExecutor.schedule(flushTask, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 队列回落到阈值以下时补发暂存的消息，控制命令优先
+     */
+    void flushPending() {
+        flushScheduled.set(false);
+        try {
+            flushSlot(pendingControl);
+            flushSlot(pendingQuery);
+        } catch (Exception e) {
+            Log.e(TAG, "补发暂存消息异常", e);
+        }
+        if (pendingControl.get() != null || pendingQuery.get() != null) {
+            scheduleFlush();
+        }
+    }
+
+    private void flushSlot(AtomicReference<Pending> slot) {
+        Pending pending = slot.get();
+        if (pending == null || observeQueue(pending.webSocket) > queueThresholdBytes) {
+            return;
+        }
+        // 只有仍是同一条暂存消息时才发送，期间被新消息取代则由新消息的发送者处理
+        if (slot.compareAndSet(pending, null) && pending.send()) {
+            sentCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 丢弃所有暂存消息，连接关闭时调用
+     */
+    public void clear() {
+        pendingControl.set(null);
+        pendingQuery.set(null);
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return 因队列积压而暂存的消息数
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    /**
+     * @return 被同类新消息取代而未发送的消息数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getDroppedHeartbeatCount() {
+        return droppedHeartbeatCount.get();
+    }
+
+    /**
+     * @return 最近一次观察到的发送队列字节数
+     */
+    public long getQueueBytes() {
+        return lastQueueBytes.get();
+    }
+
+    public long getMaxQueueBytes() {
+        return maxQueueBytes.get();
+    }
+
+    public void resetStats() {
+        sentCount.set(0);
+        deferredCount.set(0);
+        coalescedCount.set(0);
+        droppedHeartbeatCount.set(0);
+        maxQueueBytes.set(lastQueueBytes.get());
+    }
+
+    @NonNull
+    public String getStats() {
+        return String.format(Locale.ROOT, "发送队列: 当前=%dB, 最大=%dB, 阈值=%dB, 已发送=%d, 暂存=%d, 合并=%d, 丢弃心跳=%d",
+                lastQueueBytes.get(), maxQueueBytes.get(), queueThresholdBytes,
+                sentCount.get(), deferredCount.get(), coalescedCount.get(), droppedHeartbeatCount.get());
+    }
+}
@@ -16,12 +16,16 @@ public class UserSettings {
     private static final String KEY_FILTER_ALPHA = "filter_alpha";
     private static final String KEY_DIRECTION_CHANGE_DELAY = "direction_change_delay";
     private static final String KEY_VIBRATION_ENABLED = "vibration_enabled";
+    private static final String KEY_CONTROL_RATE = "control_rate_hz";
+    private static final String KEY_RTT_PROBE_ENABLED = "rtt_probe_enabled";
 
     // 默认值
     private static final int DEFAULT_FILTER_TYPE = 1; // 默认使用快速滤波
     private static final float DEFAULT_FILTER_ALPHA = 0.7f; // 默认中等灵敏度
     private static final long DEFAULT_DIRECTION_CHANGE_DELAY = 150; // 默认150ms
     private static final boolean DEFAULT_VIBRATION_ENABLED = true; // 默认启用振动
+    private static final int DEFAULT_CONTROL_RATE = 20; // 默认每秒发送20次控制命令
+    private static final boolean DEFAULT_RTT_PROBE_ENABLED = false; // 默认不在JSON命令中附加序号
 
     private final SharedPreferences preferences;
 
@@ -43,6 +47,8 @@ public class UserSettings {
                     .putFloat(KEY_FILTER_ALPHA, DEFAULT_FILTER_ALPHA)
                     .putLong(KEY_DIRECTION_CHANGE_DELAY, DEFAULT_DIRECTION_CHANGE_DELAY)
                     .putBoolean(KEY_VIBRATION_ENABLED, DEFAULT_VIBRATION_ENABLED)
+                    .putInt(KEY_CONTROL_RATE, DEFAULT_CONTROL_RATE)
+                    .putBoolean(KEY_RTT_PROBE_ENABLED, DEFAULT_RTT_PROBE_ENABLED)
                     .apply();
         }
         return isFirstRun;
@@ -50,7 +56,7 @@ public class UserSettings {
 
     /**
      * 获取滤波器类型
-     * @return 滤波器类型 0=无滤波, 1=快速滤波, 2=卡尔曼滤波
+     * @return 滤波器类型 0=无滤波, 1=快速滤波, 2=卡尔曼滤波, 3=自适应滤波, 4=预测滤波
      */
     public int getFilterType() {
         return preferences.getInt(KEY_FILTER_TYPE, DEFAULT_FILTER_TYPE);
@@ -113,4 +119,37 @@ public class UserSettings {
     public void setVibrationEnabled(boolean enabled) {
         preferences.edit().putBoolean(KEY_VIBRATION_ENABLED, enabled).apply();
     }
+
+    /**
+     * 获取控制命令发送频率
+     * @return 每秒发送次数
+     */
+    public int getControlRate() {
+        return preferences.getInt(KEY_CONTROL_RATE, DEFAULT_CONTROL_RATE);
+    }
+
+    /**
+     * 设置控制命令发送频率
+     * @param rateHz 每秒发送次数，范围[5, 100]
+     */
+    public void setControlRate(int rateHz) {
+        int validRate = Math.max(5, Math.min(100, rateHz));
+        preferences.edit().putInt(KEY_CONTROL_RATE, validRate).apply();
+    }
+
+    /**
+     * 获取延迟测量是否启用
+     * @return 是否在JSON命令中附加序号以测量往返延迟
+     */
+    public boolean getRttProbeEnabled() {
+        return preferences.getBoolean(KEY_RTT_PROBE_ENABLED, DEFAULT_RTT_PROBE_ENABLED);
+    }
+
+    /**
+     * 设置延迟测量是否启用
+     * @param enabled 是否启用
+     */
+    public void setRttProbeEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_RTT_PROBE_ENABLED, enabled).apply();
+    }
 }
@@ -2,15 +2,18 @@ package com.yuwen.centershipcontroller.Utils;
 
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import com.google.gson.JsonIOException;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Logger;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -21,18 +24,52 @@ import okio.ByteString;
 
 /**
  * WebSocket连接管理类，负责处理二维码扫描后的WebSocket连接
+ * 连接意外断开后按退避策略自动重连上一次的地址，重连成功后重新发送身份信息。
+ * 连接状态变化如下：
+ * <pre>
+ * CLOSED --connect--> CONNECTING --打开--> OPEN --服务器关闭--> CLOSING
+ * CONNECTING/OPEN/CLOSING --失败或关闭--> BACKOFF --等待--> CONNECTING
+ * 任意状态 --disconnect--> CLOSED
+ * </pre>
  *
  * @author yuwen
  */
 public class WebSocketManager {
     private static final String TAG = "WebSocketManager";
     private static final int NORMAL_CLOSURE_STATUS = 1000;
+    // 每次断线第一次连接失败时输出的事件数，保持在logcat单条长度以内
+    private static final int FAILURE_DUMP_EVENTS = 64;
     private final OkHttpClient client;
-    private WebSocket webSocket;
+    // 由发送线程读取，需保证可见性
+    private volatile WebSocket webSocket;
     private ConnectionCallback connectionCallback;
     private MessageListener messageListener;
     // 添加获取当前连接URL的方法
     private String currentUrl = "";
+    // 按消息类别处理发送队列积压
+    private final OutboundScheduler outboundScheduler;
+    // 执行重连和补发暂存消息
+    private final ScheduledExecutorService scheduler;
+
+    // 以下连接状态字段由stateLock保护
+    private final Object stateLock = new Object();
+    private volatile ConnectionState state = ConnectionState.CLOSED;
+    // 每次拨号递增，用于忽略已废弃连接的回调
+    private int generation = 0;
+    // 用户主动断开后不再重连
+    private boolean userClosed = true;
+    private ScheduledFuture<?> reconnectFuture;
+    private ReconnectBackoff reconnectBackoff = new ReconnectBackoff();
+    // 意外断开的时刻(System.nanoTime)，0表示当前没有待恢复的断线
+    private long disconnectedAtNanos = 0;
+
+    // 每次连接打开后首先发送的身份信息
+    private volatile String identityMessage;
+    // 连接回调的执行线程，默认主线程
+    private volatile Executor callbackExecutor;
+    private final LatencyHistogram reconnectMonitor = new LatencyHistogram("重连耗时");
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong reconnectAttemptCount = new AtomicLong();
 
     private WebSocketManager() {
         // 初始化OkHttp客户端
@@ -40,6 +77,14 @@ public class WebSocketManager {
                 .readTimeout(30, TimeUnit.SECONDS)
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .build();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "WebSocketScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        outboundScheduler = new OutboundScheduler(OutboundScheduler.DEFAULT_QUEUE_THRESHOLD_BYTES, scheduler);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        callbackExecutor = mainHandler::post;
     }
 
     // 单例模式
@@ -66,58 +111,259 @@ public class WebSocketManager {
     }
 
     /**
-     * 发送WebSocket消息
+     * 设置连接回调的执行线程，默认在主线程执行
+     *
+     * @param executor 回调执行器
+     */
+    public void setCallbackExecutor(@NonNull Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /**
+     * 设置身份信息，每次连接(包括自动重连)打开后首先发送
+     *
+     * @param message 身份信息JSON，为null时不发送
+     */
+    public void setIdentityMessage(String message) {
+        this.identityMessage = message;
+    }
+
+    /**
+     * 设置重连退避策略，下一次断线时生效
+     *
+     * @param backoff 退避策略
+     */
+    public void setReconnectBackoff(@NonNull ReconnectBackoff backoff) {
+        synchronized (stateLock) {
+            this.reconnectBackoff = backoff;
+        }
+    }
+
+    /**
+     * 发送WebSocket消息，不参与背压限流
      *
      * @param message 要发送的消息
      * @return 是否发送成功
      */
     public boolean sendMessage(String message) {
-        if (webSocket != null) {
-            return webSocket.send(message);
+        return sendMessage(message, OutboundScheduler.MessageClass.OTHER);
+    }
+
+    /**
+     * 按消息类别发送WebSocket消息，发送队列积压时过时的消息会被合并或丢弃
+     *
+     * @param message      要发送的消息
+     * @param messageClass 消息类别
+     * @return 是否已发送或已暂存
+     */
+    public boolean sendMessage(String message, OutboundScheduler.MessageClass messageClass) {
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            return outboundScheduler.send(socket, message, messageClass);
         } else {
             Log.e(TAG, "WebSocket未连接，无法发送消息");
             return false;
         }
     }
 
-    // 添加一个方法来获取当前连接状态
+    /**
+     * 发送WebSocket二进制消息，不参与背压限流
+     *
+     * @param data   数据缓冲区
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否发送成功
+     */
+    public boolean sendBinary(byte[] data, int offset, int length) {
+        return sendBinary(data, offset, length, OutboundScheduler.MessageClass.OTHER);
+    }
+
+    /**
+     * 按消息类别发送WebSocket二进制消息
+     *
+     * @param data         数据缓冲区
+     * @param offset       起始位置
+     * @param length       长度
+     * @param messageClass 消息类别
+     * @return 是否已发送或已暂存
+     */
+    public boolean sendBinary(byte[] data, int offset, int length, OutboundScheduler.MessageClass messageClass) {
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            return outboundScheduler.send(socket, ByteString.of(data, offset, length), messageClass);
+        } else {
+            Log.e(TAG, "WebSocket未连接，无法发送消息");
+            return false;
+        }
+    }
+
+    /**
+     * 发送队列调度器，用于查看队列深度和丢弃统计
+     */
+    public OutboundScheduler getOutboundScheduler() {
+        return outboundScheduler;
+    }
+
+    /**
+     * @return 连接是否已打开
+     */
     public boolean isConnected() {
-        return webSocket != null;
+        return state == ConnectionState.OPEN;
+    }
+
+    public ConnectionState getConnectionState() {
+        return state;
+    }
+
+    /**
+     * 从意外断开到重新打开的耗时
+     */
+    public LatencyHistogram getReconnectHistogram() {
+        return reconnectMonitor;
+    }
+
+    /**
+     * @return 成功恢复的断线次数
+     */
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    /**
+     * @return 自动重连的拨号次数(含失败)
+     */
+    public long getReconnectAttemptCount() {
+        return reconnectAttemptCount.get();
     }
 
     public String getCurrentUrl() {
         return currentUrl;
     }
 
-    // 修改connect方法，保存URL
+    /**
+     * 连接WebSocket，断线后自动重连该地址，直到调用disconnect
+     *
+     * @param serverUrl 服务器地址
+     */
     public void connect(String serverUrl) {
         // 确保URL格式正确
         if (!serverUrl.startsWith("ws://") && !serverUrl.startsWith("wss://")) {
             serverUrl = "ws://" + serverUrl;
         }
 
-        this.currentUrl = serverUrl;
-        Log.d(TAG, "开始连接WebSocket: " + serverUrl);
+        synchronized (stateLock) {
+            this.currentUrl = serverUrl;
+            Log.d(TAG, "开始连接WebSocket: {}", serverUrl);
+            userClosed = false;
+            cancelReconnect();
+            reconnectBackoff.reset();
+            disconnectedAtNanos = 0;
+            // 关闭旧连接，其后续回调会因代号不符被忽略
+            if (webSocket != null) {
+                webSocket.close(NORMAL_CLOSURE_STATUS, "重新连接");
+            }
+            dial();
+        }
+    }
+
+    /**
+     * 断开WebSocket连接，并停止自动重连
+     */
+    public void disconnect() {
+        synchronized (stateLock) {
+            userClosed = true;
+            cancelReconnect();
+            generation++;
+            disconnectedAtNanos = 0;
+            if (webSocket != null) {
+                webSocket.close(NORMAL_CLOSURE_STATUS, "用户关闭连接");
+                webSocket = null;
+            }
+            setState(ConnectionState.CLOSED);
+        }
+        outboundScheduler.clear();
+    }
 
-        // 创建请求
+    /**
+     * 拨号连接当前地址，调用时需持有stateLock
+     */
+    private void dial() {
+        generation++;
+        setState(ConnectionState.CONNECTING);
         Request request = new Request.Builder()
-                .url(serverUrl)
+                .url(currentUrl)
                 .build();
-
-        // 连接WebSocket
-        webSocket = client.newWebSocket(request, new WebSocketHandler());
+        webSocket = client.newWebSocket(request, new WebSocketHandler(generation));
     }
 
     /**
-     * 断开WebSocket连接
+     * 按退避策略安排下一次重连，调用时需持有stateLock
      */
-    public void disconnect() {
-        if (webSocket != null) {
-            webSocket.close(NORMAL_CLOSURE_STATUS, "用户关闭连接");
-            webSocket = null;
+    private void scheduleReconnect() {
+        if (disconnectedAtNanos == 0) {
+            disconnectedAtNanos = System.nanoTime();
+        }
+        long delay = reconnectBackoff.nextDelayMillis();
+        setState(ConnectionState.BACKOFF);
+        Log.w(TAG, "{}ms后进行第{}次重连", delay, reconnectBackoff.getAttempt());
+        final int expected = generation;
+        reconnectFuture = scheduler.schedule(() -> redial(expected), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void redial(int expected) {
+        synchronized (stateLock) {
+            if (userClosed || generation != expected || state != ConnectionState.BACKOFF) {
+                return;
+            }
+            reconnectAttemptCount.incrementAndGet();
+            dial();
         }
     }
 
+    private void cancelReconnect() {
+        if (reconnectFuture != null) {
+            reconnectFuture.cancel(false);
+            reconnectFuture = null;
+        }
+    }
+
+    private void setState(ConnectionState newState) {
+        if (state != newState) {
+            Log.d(TAG, "连接状态: {} -> {}", state, newState);
+            EventJournal.getInstance().record(EventJournal.Event.CONNECTION_STATE, state.ordinal(), newState.ordinal());
+            state = newState;
+        }
+    }
+
+    private void notifyConnected(String message) {
+        ConnectionCallback callback = connectionCallback;
+        if (callback != null) {
+            callbackExecutor.execute(() -> callback.onConnected(message));
+        }
+    }
+
+    private void notifyFailure(String errorMessage) {
+        ConnectionCallback callback = connectionCallback;
+        if (callback != null) {
+            callbackExecutor.execute(() -> callback.onFailure(errorMessage));
+        }
+    }
+
+    /**
+     * 连接状态
+     */
+    public enum ConnectionState {
+        // 正在建立连接
+        CONNECTING,
+        // 连接已打开
+        OPEN,
+        // 服务器发起关闭，等待关闭完成
+        CLOSING,
+        // 已断开，不会自动重连
+        CLOSED,
+        // 意外断开，等待重连
+        BACKOFF
+    }
 
     /**
      * WebSocket连接回调接口
@@ -148,6 +394,14 @@ public class WebSocketManager {
          * @param text 消息内容
          */
         void onMessage(String text);
+
+        /**
+         * 收到二进制消息回调
+         *
+         * @param data 消息内容
+         */
+        default void onBinaryMessage(byte[] data) {
+        }
     }
 
     private static final class InstanceHolder {
@@ -156,71 +410,115 @@ public class WebSocketManager {
 
     /**
      * WebSocket连接监听器
+     * 每次拨号创建一个实例，代号与当前连接不符的回调来自已废弃的连接，直接忽略
      */
     private class WebSocketHandler extends WebSocketListener {
+        private final int generation;
+
+        WebSocketHandler(int generation) {
+            this.generation = generation;
+        }
+
+        private boolean isCurrent() {
+            return generation == WebSocketManager.this.generation;
+        }
+
         @Override
         public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            synchronized (stateLock) {
+                if (!isCurrent()) {
+                    return;
+                }
+                setState(ConnectionState.OPEN);
+                reconnectBackoff.reset();
+                if (disconnectedAtNanos != 0) {
+                    long elapsed = System.nanoTime() - disconnectedAtNanos;
+                    reconnectMonitor.record(elapsed);
+                    reconnectCount.incrementAndGet();
+                    disconnectedAtNanos = 0;
+                    Log.i(TAG, "WebSocket重连成功，耗时{}ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+                }
+            }
             Log.d(TAG, "WebSocket连接已打开");
-            // 连接成功，通知回调
-            if (connectionCallback != null) {
-                new Handler(Looper.getMainLooper()).post(() ->
-                        connectionCallback.onConnected("连接成功"));
+            // 先发送身份信息，服务器据此恢复房间
+            String identity = identityMessage;
+            if (identity != null) {
+                outboundScheduler.send(webSocket, identity, OutboundScheduler.MessageClass.OTHER);
             }
+            // 连接成功，通知回调
+            notifyConnected("连接成功");
         }
 
         @Override
         public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
-            Log.d(TAG, "收到WebSocket消息: " + text);
-            // 将消息转发给消息监听器
+            TelemetryRecorder.getInstance().recordInbound(text);
+            // 将消息转发给消息监听器，由其负责解析；连接成功已在onOpen中通知
             if (messageListener != null) {
                 messageListener.onMessage(text);
             }
-
-            try {
-                // 解析JSON消息
-                JsonObject jsonObject = JsonParser.parseString(text).getAsJsonObject();
-
-                // 检查是否为连接成功消息
-                if (jsonObject.has("type") && "connection".equals(jsonObject.get("type").getAsString())) {
-                    if (jsonObject.has("message") && "Connected successfully".equals(jsonObject.get("message").getAsString())) {
-                        // 连接成功，通知回调
-                        if (connectionCallback != null) {
-                            new Handler(Looper.getMainLooper()).post(() ->
-                                    connectionCallback.onConnected("连接成功"));
-                        }
-                    }
-                }
-            } catch (JsonIOException e) {
-                Log.e(TAG, "解析WebSocket消息出错: " + e.getMessage());
-            }
         }
 
 
         @Override
         public void onMessage(@NonNull WebSocket webSocket, @NonNull ByteString bytes) {
-            Log.d(TAG, "收到二进制消息");
+            byte[] data = bytes.toByteArray();
+            TelemetryRecorder.getInstance().recordInbound(data);
+            if (messageListener != null) {
+                messageListener.onBinaryMessage(data);
+            }
         }
 
         @Override
         public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
-            Log.d(TAG, "WebSocket正在关闭: " + code + ", " + reason);
+            Log.d(TAG, "WebSocket正在关闭: {}, {}", code, reason);
+            synchronized (stateLock) {
+                if (isCurrent()) {
+                    setState(ConnectionState.CLOSING);
+                }
+            }
             webSocket.close(NORMAL_CLOSURE_STATUS, null);
         }
 
         @Override
         public void onClosed(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
-            Log.d(TAG, "WebSocket已关闭: " + code + ", " + reason);
+            Log.d(TAG, "WebSocket已关闭: {}, {}", code, reason);
+            handleDisconnect("连接已关闭: " + code + ", " + reason);
         }
 
         @Override
         public void onFailure(@NonNull WebSocket webSocket, Throwable t, Response response) {
-            Log.e(TAG, "WebSocket连接失败: " + t.getMessage());
-
+            boolean outageStart;
+            synchronized (stateLock) {
+                // 尚未记录断线时刻，说明是连接打开后(或首次拨号)的第一次失败
+                outageStart = isCurrent() && disconnectedAtNanos == 0;
+            }
+            if (outageStart) {
+                Log.e(TAG, "WebSocket连接失败: {}", t.getMessage());
+                // 输出故障前的控制路径事件，退避重连期间的后续失败不再重复输出
+                if (Log.isLoggable(Logger.WARN)) {
+                    Log.w(TAG, EventJournal.getInstance().dump(FAILURE_DUMP_EVENTS));
+                }
+            } else {
+                Log.w(TAG, "WebSocket重连失败: {}", t.getMessage());
+            }
             // 通知连接失败
-            if (connectionCallback != null) {
-                new Handler(Looper.getMainLooper()).post(() ->
-                        connectionCallback.onFailure("连接失败: " + t.getMessage()));
+            handleDisconnect("连接失败: " + t.getMessage());
+        }
+
+        private void handleDisconnect(String reason) {
+            synchronized (stateLock) {
+                if (!isCurrent()) {
+                    return;
+                }
+                WebSocketManager.this.webSocket = null;
+                if (userClosed) {
+                    setState(ConnectionState.CLOSED);
+                } else {
+                    scheduleReconnect();
+                }
             }
+            outboundScheduler.clear();
+            notifyFailure(reason);
         }
     }
 }
@@ -25,7 +25,7 @@ public class JoystickView extends View {
     private static final float MIN_OUTPUT = -1.0f;
     private static final float MAX_OUTPUT = 1.0f;
     private static final float MAX_THRUST_RATIO = 0.30f; // 最大推力比例，对应30%的最大值
-    private static final long UPDATE_INTERVAL = 100; // 新增常量：更新间隔时间（单位：毫秒）
+    private static final int INITIAL_SAMPLE_CAPACITY = 16; // 单个触摸事件的初始采样容量
     private final Paint debugPaint = new Paint();
     // 交互参数
     private final float deadZoneRatio = 0.1f;  // 死区占最大半径的比例
@@ -44,7 +44,11 @@ public class JoystickView extends View {
     private Drawable backgroundDrawable;
     private Drawable thumbDrawable;
     private JoystickListener listener;
-    private long lastUpdateTime = 0; // 新增变量：记录上次更新时间
+    private JoystickSampleListener sampleListener;
+    // 批量采样缓冲区，事件携带的历史点超过容量时扩容，稳定后不再分配
+    private float[] sampleX = new float[INITIAL_SAMPLE_CAPACITY];
+    private float[] sampleY = new float[INITIAL_SAMPLE_CAPACITY];
+    private long[] sampleTime = new long[INITIAL_SAMPLE_CAPACITY];
 
     public JoystickView(Context context) {
         super(context);
@@ -96,26 +100,52 @@ public class JoystickView extends View {
         switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
             case MotionEvent.ACTION_MOVE:
-                processTouch(event.getX(), event.getY());
+                processTouch(event);
                 return true;
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 resetPosition();
+                sampleX[0] = 0f;
+                sampleY[0] = 0f;
+                sampleTime[0] = event.getEventTimeNanos();
+                notifySampleListener(1);
                 return true;
         }
         return super.onTouchEvent(event);
     }
 
-    private void processTouch(float touchX, float touchY) {
-        // 获取当前时间
-        long currentTime = System.currentTimeMillis();
-        // 检查是否超过更新间隔
-        if (currentTime - lastUpdateTime < UPDATE_INTERVAL) {
-            return; // 如果未超过间隔时间，则直接返回，不进行更新
+    /**
+     * 处理触摸事件中的全部采样
+     * 系统会把两帧之间的多个触摸点合并到一个MOVE事件的历史记录中，这里逐个标准化后批量交给采样监听器，
+     * 摇杆位置和界面监听器只按最新的点更新一次
+     */
+    private void processTouch(MotionEvent event) {
+        int historySize = event.getHistorySize();
+        ensureSampleCapacity(historySize + 1);
+
+        for (int i = 0; i < historySize; i++) {
+            normalizeTouch(event.getHistoricalX(i), event.getHistoricalY(i));
+            sampleX[i] = normalizedX;
+            sampleY[i] = normalizedY;
+            sampleTime[i] = event.getHistoricalEventTimeNanos(i);
         }
-        lastUpdateTime = currentTime; // 更新上次更新时间
+        normalizeTouch(event.getX(), event.getY());
+        sampleX[historySize] = normalizedX;
+        sampleY[historySize] = normalizedY;
+        sampleTime[historySize] = event.getEventTimeNanos();
 
+        // 更新摇杆位置
+        updateThumbPosition();
+        notifySampleListener(historySize + 1);
+        notifyListener();
+        invalidate();
+    }
+
+    /**
+     * 将触摸坐标转换为标准化输出，结果写入normalizedX/normalizedY
+     */
+    private void normalizeTouch(float touchX, float touchY) {
         // 计算原始偏移量
         float deltaX = touchX - centerX;
         float deltaY = touchY - centerY;
@@ -126,7 +156,8 @@ public class JoystickView extends View {
 
         // 应用死区处理
         if (distance < maxDistance * deadZoneRatio) {
-            resetPosition();
+            normalizedX = 0f;
+            normalizedY = 0f;
             return;
         }
 
@@ -136,7 +167,7 @@ public class JoystickView extends View {
         // 标准化输出
         normalizedX = (effectiveDistance / maxDistance) * (float) Math.cos(angle);
         normalizedY = (effectiveDistance / maxDistance) * (float) Math.sin(angle);
-        
+
         // 应用最大推力限制
         float magnitude = (float) Math.hypot(normalizedX, normalizedY);
         if (magnitude > MAX_THRUST_RATIO) {
@@ -148,11 +179,15 @@ public class JoystickView extends View {
         // 约束输出范围
         normalizedX = clamp(normalizedX, MIN_OUTPUT, MAX_OUTPUT);
         normalizedY = clamp(normalizedY, MIN_OUTPUT, MAX_OUTPUT);
+    }
 
-        // 更新摇杆位置
-        updateThumbPosition();
-        notifyListener();
-        invalidate();
+    private void ensureSampleCapacity(int capacity) {
+        if (sampleX.length < capacity) {
+            int size = Math.max(capacity, sampleX.length * 2);
+            sampleX = new float[size];
+            sampleY = new float[size];
+            sampleTime = new long[size];
+        }
     }
 
     private void updateThumbPosition() {
@@ -185,6 +220,12 @@ public class JoystickView extends View {
         }
     }
 
+    private void notifySampleListener(int count) {
+        if (sampleListener != null) {
+            sampleListener.onJoystickSamples(sampleX, sampleY, sampleTime, count);
+        }
+    }
+
     @Override
     protected void onDraw(@NonNull Canvas canvas) {
         // 绘制背景
@@ -220,12 +261,20 @@ public class JoystickView extends View {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         listener = null;
+        sampleListener = null;
     }
 
     public void setJoystickListener(JoystickListener listener) {
         this.listener = listener;
     }
 
+    /**
+     * 设置采样监听器，接收每个触摸事件中的全部采样
+     */
+    public void setSampleListener(JoystickSampleListener sampleListener) {
+        this.sampleListener = sampleListener;
+    }
+
     public float getNormalizedX() {
         return normalizedX;
     }
@@ -238,4 +287,18 @@ public class JoystickView extends View {
     public interface JoystickListener {
         void onJoystickChanged(float x, float y);
     }
+
+    /**
+     * 批量采样监听接口
+     * 数组由控件复用，只在回调期间有效
+     */
+    public interface JoystickSampleListener {
+        /**
+         * @param xs             标准化X轴值
+         * @param ys             标准化Y轴值
+         * @param eventTimeNanos 采样时刻(MotionEvent事件时间，纳秒)
+         * @param count          有效采样数
+         */
+        void onJoystickSamples(float[] xs, float[] ys, long[] eventTimeNanos, int count);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okio.ByteString;
+
+/**
+ * 发送队列背压调度测试
+ *
+ * @author yuwen
+ */
+public class OutboundSchedulerTest {
+    private static final long THRESHOLD = 512;
+
+    private ScheduledExecutorService executor;
+    private OutboundScheduler scheduler;
+    private FakeWebSocket socket;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new OutboundScheduler(THRESHOLD, executor);
+        socket = new FakeWebSocket();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sendsImmediatelyBelowThreshold() {
+        socket.queueBytes = THRESHOLD;
+        assertTrue(scheduler.send(socket, "a", OutboundScheduler.MessageClass.CONTROL));
+        assertTrue(scheduler.send(socket, "b", OutboundScheduler.MessageClass.HEARTBEAT));
+        assertTrue(scheduler.send(socket, "c", OutboundScheduler.MessageClass.QUERY));
+
+        assertEquals("a", socket.sent.poll());
+        assertEquals("b", socket.sent.poll());
+        assertEquals("c", socket.sent.poll());
+        assertEquals(3, scheduler.getSentCount());
+        assertEquals(0, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void congestedControlFramesCoalesceToLatest() throws Exception {
+        socket.queueBytes = 10_000;
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(scheduler.send(socket, "control-" + i, OutboundScheduler.MessageClass.CONTROL));
+        }
+        // 队列积压期间不向OkHttp追加任何控制帧
+        assertNull(socket.sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(5, scheduler.getDeferredCount());
+        assertEquals(4, scheduler.getCoalescedCount());
+
+        socket.queueBytes = 0;
+        assertEquals("control-5", socket.sent.poll(5, TimeUnit.SECONDS));
+        assertNull(socket.sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.getSentCount());
+    }
+
+    @Test
+    public void binaryControlFramesCoalesceToLatest() throws Exception {
+        socket.queueBytes = 10_000;
+        scheduler.send(socket, ByteString.of((byte) 1), OutboundScheduler.MessageClass.CONTROL);
+        scheduler.send(socket, ByteString.of((byte) 2), OutboundScheduler.MessageClass.CONTROL);
+
+        socket.queueBytes = 0;
+        assertEquals(ByteString.of((byte) 2), socket.sentBytes.poll(5, TimeUnit.SECONDS));
+        assertNull(socket.sentBytes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void congestedHeartbeatsAreDropped() {
+        socket.queueBytes = 10_000;
+        assertFalse(scheduler.send(socket, "heartbeat", OutboundScheduler.MessageClass.HEARTBEAT));
+        assertTrue(socket.sent.isEmpty());
+        assertEquals(1, scheduler.getDroppedHeartbeatCount());
+    }
+
+    @Test
+    public void otherMessagesIgnoreBackpressure() {
+        socket.queueBytes = 10_000;
+        assertTrue(scheduler.send(socket, "identity", OutboundScheduler.MessageClass.OTHER));
+        assertEquals("identity", socket.sent.poll());
+    }
+
+    @Test
+    public void freshFrameReplacesPendingOne() throws Exception {
+        socket.queueBytes = 10_000;
+        scheduler.send(socket, "stale", OutboundScheduler.MessageClass.CONTROL);
+        socket.queueBytes = 0;
+        scheduler.send(socket, "fresh", OutboundScheduler.MessageClass.CONTROL);
+
+        assertEquals("fresh", socket.sent.poll());
+        assertNull(socket.sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void tracksQueueDepth() {
+        socket.queueBytes = 300;
+        scheduler.send(socket, "a", OutboundScheduler.MessageClass.CONTROL);
+        socket.queueBytes = 2_000;
+        scheduler.send(socket, "b", OutboundScheduler.MessageClass.HEARTBEAT);
+        socket.queueBytes = 100;
+        scheduler.send(socket, "c", OutboundScheduler.MessageClass.CONTROL);
+
+        assertEquals(100, scheduler.getQueueBytes());
+        assertEquals(2_000, scheduler.getMaxQueueBytes());
+        scheduler.resetStats();
+        assertEquals(100, scheduler.getMaxQueueBytes());
+        assertEquals(0, scheduler.getSentCount());
+    }
+
+    /**
+     * 可控制队列大小的WebSocket
+     */
+    private static class FakeWebSocket implements WebSocket {
+        final LinkedBlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<ByteString> sentBytes = new LinkedBlockingQueue<>();
+        volatile long queueBytes;
+
+        @NonNull
+        @Override
+        public Request request() {
+            return new Request.Builder().url("http://localhost/").build();
+        }
+
+        @Override
+        public long queueSize() {
+            return queueBytes;
+        }
+
+        @Override
+        public boolean send(@NonNull String text) {
+            sent.add(text);
+            return true;
+        }
+
+        @Override
+        public boolean send(@NonNull ByteString bytes) {
+            sentBytes.add(bytes);
+            return true;
+        }
+
+        @Override
+        public boolean close(int code, String reason) {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
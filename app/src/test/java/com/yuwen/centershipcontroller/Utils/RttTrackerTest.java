@@ -0,0 +1,186 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonParser;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令往返延迟统计测试，含本地回显WebSocket服务器的端到端测试
+ *
+ * @author yuwen
+ */
+public class RttTrackerTest {
+    private static final int COMMAND_COUNT = 200;
+
+    private EchoServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EchoServer();
+        server.start();
+        assertTrue("回显服务器启动超时", server.started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WebSocketManager.getInstance().setMessageListener(null);
+        WebSocketManager.getInstance().disconnect();
+        server.stop(1000);
+    }
+
+    @Test
+    public void ackMatchesOnlyOutstandingSequence() {
+        RttTracker tracker = new RttTracker();
+        tracker.onSent(7, 1_000_000L);
+
+        assertTrue(tracker.onAck(7, -1, 3_000_000L));
+        // 重复确认
+        assertFalse(tracker.onAck(7, -1, 4_000_000L));
+        // 从未发送
+        assertFalse(tracker.onAck(8, -1, 4_000_000L));
+
+        assertEquals(1, tracker.getAckCount());
+        assertEquals(2, tracker.getUnmatchedAckCount());
+        assertEquals(2_000_000L, tracker.getHistogram().getMaxNanos());
+    }
+
+    @Test
+    public void staleJsonAckIsRejectedAfterWindowWraps() {
+        RttTracker tracker = new RttTracker();
+        tracker.onSent(1, 1_000L);
+        tracker.onSent(1 + RttTracker.WINDOW, 2_000L);
+
+        assertFalse(tracker.onAck(1, -1, 3_000L));
+        assertTrue(tracker.onAck(1 + RttTracker.WINDOW, -1, 3_000L));
+    }
+
+    @Test
+    public void recognisesAckMessageFormats() {
+        RttTracker tracker = new RttTracker();
+        tracker.onSent(5, System.nanoTime());
+        tracker.onSent(6, System.nanoTime());
+
+        assertTrue(tracker.onJsonMessage(JsonParser.parseString("{\"type\":\"ack\",\"seq\":5}").getAsJsonObject()));
+        assertTrue(tracker.onJsonMessage(JsonParser.parseString(
+                "{\"SHIPMOTRO\":{\"CH1\":0,\"DIR1\":1,\"EN1\":1,\"CH2\":0,\"DIR2\":1,\"EN2\":1},\"SEQ\":6}").getAsJsonObject()));
+        assertFalse(tracker.onJsonMessage(JsonParser.parseString("{\"type\":\"room\",\"room_id\":\"1\"}").getAsJsonObject()));
+        assertEquals(2, tracker.getAckCount());
+    }
+
+    @Test
+    public void measuresRoundTripOfJsonCommandsThroughEchoServer() throws Exception {
+        RttTracker tracker = new RttTracker();
+        CountDownLatch acked = new CountDownLatch(COMMAND_COUNT);
+        WebSocketManager manager = WebSocketManager.getInstance();
+        manager.setMessageListener(text -> {
+            if (tracker.onJsonMessage(JsonParser.parseString(text).getAsJsonObject())) {
+                acked.countDown();
+            }
+        });
+        manager.connect("ws://127.0.0.1:" + server.getPort());
+
+        for (int sequence = 1; sequence <= COMMAND_COUNT; sequence++) {
+            String json = CommandTable.json(CommandTable.get(sequence % CommandTable.SIZE));
+            String tagged = json.substring(0, json.length() - 1) + ",\"SEQ\":" + sequence + "}";
+            tracker.onSent(sequence, System.nanoTime());
+            assertTrue(manager.sendMessage(tagged));
+        }
+
+        assertTrue("未收到全部确认", acked.await(10, TimeUnit.SECONDS));
+        assertRoundTripsRecorded(tracker);
+    }
+
+    @Test
+    public void measuresRoundTripOfBinaryCommandsThroughEchoServer() throws Exception {
+        RttTracker tracker = new RttTracker();
+        CountDownLatch acked = new CountDownLatch(COMMAND_COUNT);
+        WebSocketManager manager = WebSocketManager.getInstance();
+        manager.setMessageListener(new WebSocketManager.MessageListener() {
+            @Override
+            public void onMessage(String text) {
+            }
+
+            @Override
+            public void onBinaryMessage(byte[] data) {
+                if (tracker.onBinaryMessage(data, 0, data.length)) {
+                    acked.countDown();
+                }
+            }
+        });
+        manager.connect("ws://127.0.0.1:" + server.getPort());
+
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        for (int sequence = 1; sequence <= COMMAND_COUNT; sequence++) {
+            MotorCommandCodec.encode(CommandTable.get(sequence % CommandTable.SIZE), sequence, frame, 0);
+            tracker.onSent(sequence, System.nanoTime());
+            assertTrue(manager.sendBinary(frame, 0, frame.length));
+        }
+
+        assertTrue("未收到全部确认", acked.await(10, TimeUnit.SECONDS));
+        assertRoundTripsRecorded(tracker);
+    }
+
+    private static void assertRoundTripsRecorded(RttTracker tracker) {
+        LatencyHistogram histogram = tracker.getHistogram();
+        assertEquals(COMMAND_COUNT, tracker.getSentCount());
+        assertEquals(COMMAND_COUNT, tracker.getAckCount());
+        assertEquals(0, tracker.getUnmatchedAckCount());
+        assertEquals(COMMAND_COUNT, histogram.getCount());
+        assertTrue(histogram.getValueAtPercentile(50) > 0);
+        assertTrue(histogram.getValueAtPercentile(50) <= histogram.getValueAtPercentile(99));
+        assertTrue(histogram.getValueAtPercentile(99) <= histogram.getMaxNanos());
+    }
+
+    /**
+     * 将收到的消息原样返回的WebSocket服务器
+     */
+    private static class EchoServer extends WebSocketServer {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        EchoServer() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            conn.send(message);
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, ByteBuffer message) {
+            conn.send(message);
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+import com.yuwen.centershipcontroller.Relay.RelayServer;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocketManager与本机中继服务器之间的房间握手和命令转发
+ *
+ * @author yuwen
+ */
+public class WebSocketManagerRelayTest {
+    private static final String IDENTITY =
+            "{\"device_id\":\"main-01\",\"identity\":\"MAIN_DEVICES\",\"wire_formats\":[\"json\",\"binary\"]}";
+    private static final String SHIP_IDENTITY =
+            "{\"device_id\":\"ship-01\",\"identity\":\"SHIP_DEVICES\",\"wire_format\":\"binary\"}";
+
+    private RelayServer relay;
+    private WebSocketManager manager;
+    private WebSocketClient ship;
+    private final LinkedBlockingQueue<JsonObject> rooms = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<GpsFix> fixes = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<byte[]> shipReceived = new LinkedBlockingQueue<>();
+
+    // 与MainDeviceSocket相同的解析路径
+    private final InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(
+            new InboundMessageDispatcher.MessageHandler() {
+                @Override
+                public void onRoom(@NonNull JsonObject message) {
+                    rooms.add(message);
+                }
+
+                @Override
+                public void onRoomInfo(@NonNull JsonObject message) {
+                    rooms.add(message);
+                }
+
+                @Override
+                public void onGpsFix(@NonNull GpsFix fix) {
+                    GpsFix copy = new GpsFix();
+                    copy.copyFrom(fix);
+                    fixes.add(copy);
+                }
+            });
+
+    @Before
+    public void setUp() throws Exception {
+        relay = new RelayServer(new InetSocketAddress("127.0.0.1", 0), 1);
+        relay.start();
+        assertTrue(relay.awaitStarted(5, TimeUnit.SECONDS));
+        manager = WebSocketManager.getInstance();
+        manager.setCallbackExecutor(Runnable::run);
+        manager.setIdentityMessage(IDENTITY);
+        manager.setMessageListener(dispatcher::dispatch);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.disconnect();
+        manager.setMessageListener(null);
+        manager.setIdentityMessage(null);
+        if (ship != null) {
+            ship.closeBlocking();
+        }
+        relay.stop(1000);
+    }
+
+    private JsonObject nextRoomMessage(String type, int totalClients) throws InterruptedException {
+        while (true) {
+            JsonObject message = rooms.poll(5, TimeUnit.SECONDS);
+            if (message == null) {
+                throw new AssertionError("没有收到" + type);
+            }
+            if (type.equals(message.get("type").getAsString())
+                    && (totalClients < 0 || message.get("total_clients").getAsInt() == totalClients)) {
+                return message;
+            }
+        }
+    }
+
+    @Test
+    public void joinsRoomAndExchangesCommandsWithShip() throws Exception {
+        String base = "ws://127.0.0.1:" + relay.getPort() + "/room/8848";
+        manager.connect(base);
+        // 连接打开后WebSocketManager首先发送身份信息
+        assertEquals("8848", nextRoomMessage("room", -1).get("room_id").getAsString());
+
+        ship = new WebSocketClient(new URI(base)) {
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                send(SHIP_IDENTITY);
+            }
+
+            @Override
+            public void onMessage(String message) {
+            }
+
+            @Override
+            public void onMessage(ByteBuffer bytes) {
+                byte[] data = new byte[bytes.remaining()];
+                bytes.get(data);
+                shipReceived.add(data);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        };
+        assertTrue(ship.connectBlocking(5, TimeUnit.SECONDS));
+        JsonObject info = nextRoomMessage("room_info", 2);
+        JsonObject shipInfo = info.getAsJsonArray("clients").get(1).getAsJsonObject();
+        assertEquals(WireFormat.BINARY, WireFormat.fromProtocolName(shipInfo.get("wire_format").getAsString()));
+
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.get(20, 20, 1, 0), 9, frame, 0);
+        assertTrue(manager.sendBinary(frame, 0, frame.length));
+        assertArrayEquals(frame, shipReceived.poll(5, TimeUnit.SECONDS));
+
+        ship.send("{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015.120\"}}");
+        GpsFix fix = fixes.poll(5, TimeUnit.SECONDS);
+        assertTrue(fix != null && fix.isValid());
+        assertEquals(39.902057, fix.getLatitude(), 1e-6);
+    }
+}
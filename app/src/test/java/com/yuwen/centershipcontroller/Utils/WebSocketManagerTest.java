@@ -0,0 +1,196 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * WebSocket自动重连测试，使用本地MockWebServer模拟断线
+ *
+ * @author yuwen
+ */
+public class WebSocketManagerTest {
+    private static final String IDENTITY = "{\"device_id\":\"test\",\"identity\":\"MAIN_DEVICE\"}";
+
+    private MockWebServer server;
+    private WebSocketManager manager;
+    private final LinkedBlockingQueue<String> serverReceived = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        manager = WebSocketManager.getInstance();
+        manager.setCallbackExecutor(Runnable::run);
+        manager.setReconnectBackoff(new ReconnectBackoff(20, 200, 2.0, new Random(1)));
+        manager.setIdentityMessage(IDENTITY);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.disconnect();
+        manager.setConnectionCallback(null);
+        manager.setIdentityMessage(null);
+        manager.setReconnectBackoff(new ReconnectBackoff());
+        Log.setLogger(Logger.CONSOLE);
+        server.shutdown();
+    }
+
+    @Test
+    public void reconnectsAndResendsIdentityAfterDrop() throws Exception {
+        // 第一次连接：收到身份信息后服务器关闭连接
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new RecordingListener(true)));
+        // 第一次重连：服务器拒绝握手
+        server.enqueue(new MockResponse().setResponseCode(503));
+        // 第二次重连：成功
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new RecordingListener(false)));
+
+        CountDownLatch opened = new CountDownLatch(2);
+        manager.setConnectionCallback(new WebSocketManager.ConnectionCallback() {
+            @Override
+            public void onConnected(String message) {
+                opened.countDown();
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+            }
+        });
+        long reconnectsBefore = manager.getReconnectCount();
+        long attemptsBefore = manager.getReconnectAttemptCount();
+        long samplesBefore = manager.getReconnectHistogram().getCount();
+        manager.connect("ws://" + server.getHostName() + ":" + server.getPort());
+
+        assertTrue("未能重新连接", opened.await(10, TimeUnit.SECONDS));
+        assertEquals(IDENTITY, serverReceived.poll(5, TimeUnit.SECONDS));
+        assertEquals(IDENTITY, serverReceived.poll(5, TimeUnit.SECONDS));
+        assertEquals(WebSocketManager.ConnectionState.OPEN, manager.getConnectionState());
+        assertTrue(manager.isConnected());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, manager.getReconnectCount() - reconnectsBefore);
+        assertEquals(2, manager.getReconnectAttemptCount() - attemptsBefore);
+        assertEquals(1, manager.getReconnectHistogram().getCount() - samplesBefore);
+
+        // 重连后的连接可以正常发送
+        assertTrue(manager.sendMessage("after-reconnect"));
+        assertEquals("after-reconnect", serverReceived.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void disconnectStopsReconnecting() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        CountDownLatch failed = new CountDownLatch(2);
+        manager.setConnectionCallback(new WebSocketManager.ConnectionCallback() {
+            @Override
+            public void onConnected(String message) {
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                failed.countDown();
+            }
+        });
+        manager.connect("ws://" + server.getHostName() + ":" + server.getPort());
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+
+        manager.disconnect();
+        assertEquals(WebSocketManager.ConnectionState.CLOSED, manager.getConnectionState());
+        // 等待断开前已发出的握手请求到达服务器
+        Thread.sleep(100);
+        int requests = server.getRequestCount();
+        Thread.sleep(500);
+        assertEquals(requests, server.getRequestCount());
+        assertEquals(WebSocketManager.ConnectionState.CLOSED, manager.getConnectionState());
+    }
+
+    @Test
+    public void dumpsEventJournalOncePerOutage() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        ConcurrentLinkedQueue<String> warnings = new ConcurrentLinkedQueue<>();
+        Log.setLogger((priority, tag, message) -> {
+            if (priority == Logger.WARN && WebSocketManager.class.getSimpleName().equals(tag)) {
+                warnings.add(message);
+            }
+        });
+        CountDownLatch failed = new CountDownLatch(4);
+        manager.setConnectionCallback(new WebSocketManager.ConnectionCallback() {
+            @Override
+            public void onConnected(String message) {
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                failed.countDown();
+            }
+        });
+        manager.connect("ws://" + server.getHostName() + ":" + server.getPort());
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        manager.disconnect();
+
+        int dumps = 0;
+        int retryFailures = 0;
+        for (String message : warnings) {
+            if (message.startsWith("事件日志")) {
+                dumps++;
+            } else if (message.startsWith("WebSocket重连失败")) {
+                retryFailures++;
+            }
+        }
+        // 首次失败输出事件日志，退避期间的后续失败各输出一行
+        assertEquals(1, dumps);
+        assertTrue("重连失败次数: " + retryFailures, retryFailures >= 3);
+    }
+
+    /**
+     * 记录服务器端收到的文本消息
+     */
+    private class RecordingListener extends WebSocketListener {
+        private final boolean dropAfterFirstMessage;
+
+        RecordingListener(boolean dropAfterFirstMessage) {
+            this.dropAfterFirstMessage = dropAfterFirstMessage;
+        }
+
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+            serverReceived.add(text);
+            if (dropAfterFirstMessage) {
+                // 模拟服务器重启
+                webSocket.close(1001, "going away");
+            }
+        }
+
+        @Override
+        public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+            webSocket.close(1000, null);
+        }
+    }
+}
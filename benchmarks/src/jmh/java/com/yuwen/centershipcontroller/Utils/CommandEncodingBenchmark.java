@@ -0,0 +1,73 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import com.google.gson.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令编码：原先每条命令用Gson构建JSON，现在从命令表取预生成的JSON，
+ * 开启延迟测量时附加SEQ字段，或编码为6字节二进制帧
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandEncodingBenchmark {
+    private final StringBuilder taggedJson = new StringBuilder(96);
+    private final byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+    private int index;
+    private int sequence;
+
+    private ControlCommand nextCommand() {
+        index = (index + 97) % CommandTable.SIZE;
+        return CommandTable.get(index);
+    }
+
+    /**
+     * 原先的createCommandJson/getJson
+     */
+    @Benchmark
+    public String gsonJson() {
+        ControlCommand command = nextCommand();
+        JsonObject motor = new JsonObject();
+        motor.addProperty("CH1", command.leftThrust);
+        motor.addProperty("DIR1", command.leftDirection);
+        motor.addProperty("EN1", command.leftEnable);
+        motor.addProperty("CH2", command.rightThrust);
+        motor.addProperty("DIR2", command.rightDirection);
+        motor.addProperty("EN2", command.rightEnable);
+        JsonObject root = new JsonObject();
+        root.add("SHIPMOTRO", motor);
+        return root.toString();
+    }
+
+    @Benchmark
+    public String tableJson() {
+        return CommandTable.json(nextCommand());
+    }
+
+    /**
+     * 与CommandSender相同的SEQ字段拼接
+     */
+    @Benchmark
+    public String taggedJson() {
+        String json = CommandTable.json(nextCommand());
+        taggedJson.setLength(0);
+        taggedJson.append(json, 0, json.length() - 1).append(",\"SEQ\":").append(++sequence).append('}');
+        return taggedJson.toString();
+    }
+
+    @Benchmark
+    public byte[] binaryFrame() {
+        MotorCommandCodec.encode(nextCommand(), ++sequence, frame, 0);
+        return frame;
+    }
+}
@@ -0,0 +1,106 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Clock;
+import com.yuwen.centershipcontroller.Platform.Haptics;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制线程热路径：命令计算，以及一个摇杆采样从入队、滤波到生成命令的完整处理
+ * 调度器不执行任务，由基准方法在当前线程直接处理采样；发送通道丢弃命令
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControlPathBenchmark {
+    // 覆盖前进、转向、边缘、后退(方向切换)和回中的摇杆轨迹
+    private static final float[][] TRACE = {
+            {0f, 0f}, {0f, 0.05f}, {0f, 0.15f}, {0f, 0.3f}, {0.05f, 0.3f},
+            {-0.2f, 0.25f}, {-0.3f, 0.1f}, {0.2f, 0.25f}, {0.3f, 0.05f},
+            {0.7f, 0.7f}, {0f, 1f}, {0f, -0.2f}, {0f, -0.3f}, {-0.1f, -0.25f},
+            {0.15f, -0.2f}, {0f, 0f}
+    };
+
+    private ControlCore core;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setLogger((priority, tag, message) -> {
+        });
+        Scheduler scheduler = new Scheduler() {
+            @Override
+            public void post(@NonNull Runnable task) {
+            }
+
+            @Override
+            public void postAt(@NonNull Runnable task, long deadlineNanos) {
+            }
+
+            @Override
+            public void remove(@NonNull Runnable task) {
+            }
+        };
+        CommandSender.Transport transport = new CommandSender.Transport() {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public boolean sendText(@NonNull String text) {
+                return true;
+            }
+
+            @Override
+            public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+                return true;
+            }
+        };
+        core = new ControlCore(scheduler, Clock.SYSTEM, Haptics.NONE, transport);
+        core.setFilterType(ControlCore.FILTER_FAST_LAG, 0.5f);
+        core.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        core.shutdown();
+        Log.setLogger(com.yuwen.centershipcontroller.Platform.Logger.CONSOLE);
+    }
+
+    private float[] nextSample() {
+        float[] sample = TRACE[index];
+        index = (index + 1) % TRACE.length;
+        return sample;
+    }
+
+    @Benchmark
+    public ControlCommand calculateCommand() {
+        float[] sample = nextSample();
+        return core.calculateCommand(sample[0], sample[1]);
+    }
+
+    @Benchmark
+    public ControlCommand sampleToCommand() {
+        float[] sample = nextSample();
+        core.updateJoystickValues(sample[0], sample[1]);
+        core.processPendingInput();
+        return core.getLatestCommand();
+    }
+}
@@ -0,0 +1,89 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各滤波器处理一个二维采样的耗时：逐个更新(结果写入复用的输出数组)与批量原地滤波对比
+ * 批量相关的两项每次调用处理256个采样，均包含复制输入的开销，结果按单个采样折算
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+    private static final int SAMPLES = 256;
+
+    @Param({"NoFilter", "FastLagFilter", "KalmanFilter"})
+    public String filter;
+
+    private Filters.LowLatencyFilter instance;
+    private final float[] out = new float[2];
+    private final float[] xs = new float[SAMPLES];
+    private final float[] ys = new float[SAMPLES];
+    private final float[] workX = new float[SAMPLES];
+    private final float[] workY = new float[SAMPLES];
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (filter) {
+            case "NoFilter":
+                instance = new Filters.NoFilter();
+                break;
+            case "FastLagFilter":
+                instance = new Filters.FastLagFilter(0.5f);
+                break;
+            default:
+                instance = new Filters.KalmanFilter();
+                break;
+        }
+        // 带噪声的圆周运动
+        for (int i = 0; i < xs.length; i++) {
+            double angle = i * 2 * Math.PI / xs.length;
+            xs[i] = (float) (0.8 * Math.cos(angle) + 0.02 * Math.sin(i * 7.1));
+            ys[i] = (float) (0.8 * Math.sin(angle) + 0.02 * Math.cos(i * 5.3));
+        }
+    }
+
+    @Benchmark
+    public float update() {
+        int i = index;
+        index = (i + 1) & (xs.length - 1);
+        instance.update(xs[i], ys[i], out);
+        return out[0] + out[1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float perSampleArray() {
+        System.arraycopy(xs, 0, workX, 0, SAMPLES);
+        System.arraycopy(ys, 0, workY, 0, SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            instance.update(workX[i], workY[i], out);
+            workX[i] = out[0];
+            workY[i] = out[1];
+        }
+        return workX[SAMPLES - 1] + workY[SAMPLES - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float batchArray() {
+        System.arraycopy(xs, 0, workX, 0, SAMPLES);
+        System.arraycopy(ys, 0, workY, 0, SAMPLES);
+        instance.update(workX, workY, 0, SAMPLES);
+        return workX[SAMPLES - 1] + workY[SAMPLES - 1];
+    }
+}
@@ -0,0 +1,115 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收到消息的解析：
+ * room_info经分发器解析后按MainDeviceSocket的方式读取客户端列表和线路格式(不含界面处理)，
+ * GPS对比原先ShipDevicesSocket的Gson树解析、字符扫描的快速路径与JsonReader回退路径；
+ * 指数形式的坐标不走快速路径，分发器改用JsonReader重新读取
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InboundParsingBenchmark {
+    private static final String ROOM_INFO = "{\"type\":\"room_info\",\"room_id\":\"8848\",\"total_clients\":2,\"clients\":["
+            + "{\"device_id\":\"main-01\",\"identity\":\"MAIN_DEVICE\"},"
+            + "{\"device_id\":\"ship-01\",\"identity\":\"SHIP_DEVICES\",\"wire_format\":\"binary\"}]}";
+    private static final String GPS = "{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015.120\"}}";
+    private static final String GPS_EXPONENT = "{\"GPS\":{\"E\":1.16234567E4,\"N\":3.9541234E3,\"time\":\"083015.120\"}}";
+
+    private final GpsDecoder gpsDecoder = new GpsDecoder();
+    private final GpsFix gpsFix = new GpsFix();
+    private Blackhole blackhole;
+
+    private final InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(
+            new InboundMessageDispatcher.MessageHandler() {
+                @Override
+                public void onRoomInfo(@NonNull JsonObject message) {
+                    blackhole.consume(message.get("room_id").getAsString());
+                    blackhole.consume(message.get("total_clients").getAsInt());
+                    WireFormat wireFormat = WireFormat.JSON;
+                    JsonArray clients = message.getAsJsonArray("clients");
+                    for (JsonElement element : clients) {
+                        JsonObject client = element.getAsJsonObject();
+                        String deviceId = client.has("device_id") ? client.get("device_id").getAsString() : "";
+                        String identity = client.has("identity") ? client.get("identity").getAsString() : "";
+                        blackhole.consume(deviceId);
+                        if ("SHIP_DEVICES".equals(identity) && client.has("wire_format")) {
+                            wireFormat = WireFormat.fromProtocolName(client.get("wire_format").getAsString());
+                        }
+                    }
+                    blackhole.consume(wireFormat);
+                }
+
+                @Override
+                public void onGpsFix(@NonNull GpsFix fix) {
+                    blackhole.consume(fix.getLongitude());
+                }
+            });
+
+    @Benchmark
+    public InboundMessageDispatcher.MessageKind roomInfo(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        return dispatcher.dispatch(ROOM_INFO);
+    }
+
+    @Benchmark
+    public InboundMessageDispatcher.MessageKind gpsDispatch(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        return dispatcher.dispatch(GPS);
+    }
+
+    @Benchmark
+    public InboundMessageDispatcher.MessageKind gpsFallbackDispatch(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        return dispatcher.dispatch(GPS_EXPONENT);
+    }
+
+    @Benchmark
+    public double gpsDecoder() {
+        gpsDecoder.decode(GPS, gpsFix);
+        return gpsFix.getLatitude() + gpsFix.getLongitude();
+    }
+
+    /**
+     * 快速路径返回false时的回退解析
+     */
+    @Benchmark
+    public double gpsJsonReader() throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(GPS));
+        reader.beginObject();
+        reader.nextName();
+        GpsDecoder.decode(reader, gpsFix);
+        return gpsFix.getLatitude() + gpsFix.getLongitude();
+    }
+
+    /**
+     * 原先ShipDevicesSocket的解析方式
+     */
+    @Benchmark
+    public double gpsGsonTree() {
+        JsonObject gps = JsonParser.parseString(GPS).getAsJsonObject().getAsJsonObject("GPS");
+        return gps.get("E").getAsDouble() + gps.get("N").getAsDouble();
+    }
+}
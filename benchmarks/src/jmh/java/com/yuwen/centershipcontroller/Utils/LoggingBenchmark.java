@@ -0,0 +1,57 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关闭的调试日志在每帧路径上的开销：拼接字符串后调用与带参数调用对比，以及事件日志记录一条事件的耗时
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark {
+    private static final String TAG = "LoggingBenchmark";
+
+    private final EventJournal journal = new EventJournal(EventJournal.DEFAULT_CAPACITY, System::nanoTime);
+    private int sequence;
+    private long rtt = 1_234_567;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setMinPriority(Logger.INFO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.setMinPriority(Logger.DEBUG);
+    }
+
+    @Benchmark
+    public void disabledConcatenated() {
+        Log.d(TAG, "命令确认: 序号=" + (++sequence) + ", 往返=" + rtt + "ns");
+    }
+
+    @Benchmark
+    public void disabledParameterized() {
+        Log.d(TAG, "命令确认: 序号={}, 往返={}ns", ++sequence, rtt);
+    }
+
+    @Benchmark
+    public void journalRecord() {
+        journal.record(EventJournal.Event.ACK, ++sequence, rtt);
+    }
+}
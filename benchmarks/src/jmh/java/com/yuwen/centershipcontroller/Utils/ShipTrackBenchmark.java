@@ -0,0 +1,71 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 船舶航迹的写入和抽稀：航迹保持写满(默认容量，10Hz下1小时)，
+ * 输入为合成航迹(约2米/秒随机转向，叠加±1.5米GPS噪声)，抽稀到地图显示的1000点
+ *
+ * @author yuwen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShipTrackBenchmark {
+    private static final double METER = 1.0 / 111_195.0;
+    private static final int INPUT_FIXES = 2 * ShipTrack.DEFAULT_CAPACITY;
+    private static final int MAX_POINTS = 1000;
+
+    private final ShipTrack track = new ShipTrack();
+    private final double[] inputLatitudes = new double[INPUT_FIXES];
+    private final double[] inputLongitudes = new double[INPUT_FIXES];
+    private final double[] latitudes = new double[MAX_POINTS];
+    private final double[] longitudes = new double[MAX_POINTS];
+    private int next;
+    private long nanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(24);
+        double heading = 0;
+        double latitude = 39.9;
+        double longitude = 116.4;
+        for (int i = 0; i < INPUT_FIXES; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.05;
+            latitude += Math.cos(heading) * 0.2 * METER;
+            longitude += Math.sin(heading) * 0.2 * METER;
+            inputLatitudes[i] = latitude + (random.nextDouble() * 3 - 1.5) * METER;
+            inputLongitudes[i] = longitude + (random.nextDouble() * 3 - 1.5) * METER;
+        }
+        for (int i = 0; i < track.getCapacity(); i++) {
+            appendNext();
+        }
+    }
+
+    private void appendNext() {
+        track.append(inputLatitudes[next], inputLongitudes[next], nanos);
+        nanos += 100_000_000L;
+        next = next + 1 == INPUT_FIXES ? 0 : next + 1;
+    }
+
+    @Benchmark
+    public void append() {
+        appendNext();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int decimate() {
+        return track.decimate(1.0, MAX_POINTS, latitudes, longitudes);
+    }
+}
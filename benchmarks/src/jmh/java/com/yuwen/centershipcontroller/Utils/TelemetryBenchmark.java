@@ -0,0 +1,100 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 遥测记录吞吐量：记录线程每条记录的耗时，写入线程在后台把暂存区写入分段文件
+ * contended组两个记录线程同时满速写入，模拟控制命令发送线程和入站线程；
+ * 满速时写入线程跟不上会丢弃记录，recorded/dropped为每个线程写入和丢弃的条数
+ *
+ * @author yuwen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelemetryBenchmark {
+    private static final String COMMAND = "{\"SHIPMOTRO\":{\"CH1\":12,\"DIR1\":1,\"EN1\":1,\"CH2\":8,\"DIR2\":0,\"EN2\":1},\"SEQ\":4096}";
+    private static final String GPS = "{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015.120\"}}";
+
+    private final TelemetryRecorder recorder = new TelemetryRecorder(TelemetryRecorder.DEFAULT_STAGING_BYTES);
+    private final byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+    private File directory;
+
+    /**
+     * 每个记录线程的写入和丢弃条数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long recorded;
+        public long dropped;
+
+        void count(boolean accepted) {
+            if (accepted) {
+                recorded++;
+            } else {
+                dropped++;
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("telemetry-benchmark").toFile();
+        recorder.start(directory, TelemetryRecorder.DEFAULT_SEGMENT_BYTES, 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recorder.stop();
+        for (File file : TelemetryReader.listSegments(directory)) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void outboundBinary(Counters counters) {
+        counters.count(recorder.recordOutbound(frame, 0, frame.length, true));
+    }
+
+    @Benchmark
+    public void outboundJson(Counters counters) {
+        counters.count(recorder.recordOutbound(COMMAND, true));
+    }
+
+    @Benchmark
+    public void inboundGps(Counters counters) {
+        counters.count(recorder.recordInbound(GPS));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedCommand(Counters counters) {
+        counters.count(recorder.recordOutbound(frame, 0, frame.length, true));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedGps(Counters counters) {
+        counters.count(recorder.recordInbound(GPS));
+    }
+}
@@ -0,0 +1,19 @@
+package com.yuwen.centershipcontroller.Platform;
+
+/**
+ * 时钟
+ * 控制核心只通过此接口读取时间，测试和回放时可以替换为手动推进的时钟
+ *
+ * @author yuwen
+ */
+public interface Clock {
+    /**
+     * 系统时钟，与System.nanoTime同一时基
+     */
+    Clock SYSTEM = System::nanoTime;
+
+    /**
+     * @return 单调递增的纳秒时刻，只用于计算时间间隔
+     */
+    long nanoTime();
+}
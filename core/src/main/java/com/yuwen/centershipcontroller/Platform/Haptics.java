@@ -0,0 +1,20 @@
+package com.yuwen.centershipcontroller.Platform;
+
+/**
+ * 震动反馈
+ * 实现不得阻塞调用线程，Android上在专用线程中调用Vibrator
+ *
+ * @author yuwen
+ */
+public interface Haptics {
+    /**
+     * 无震动，用于测试和没有震动器的设备
+     */
+    Haptics NONE = durationMs -> {
+    };
+
+    /**
+     * @param durationMs 震动时长(毫秒)
+     */
+    void vibrate(long durationMs);
+}
@@ -0,0 +1,176 @@
+package com.yuwen.centershipcontroller.Platform;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 日志入口，调用方式与android.util.Log相同
+ * 控制核心中的类只使用此类输出日志，应用启动时通过 {@link #setLogger} 接入android.util.Log
+ *
+ * 低于 {@link #setMinPriority} 的级别直接返回。带参数的重载用"{}"占位，只在级别开启时拼接字符串：
+ * <pre>
+ * Log.d(TAG, "命令发送: 序号={}, 耗时={}ns", seq, elapsed);
+ * </pre>
+ * 基本类型参数使用long/double重载，关闭的级别不装箱、不分配
+ *
+ * @author yuwen
+ */
+public final class Log {
+    private static final String PLACEHOLDER = "{}";
+    private static volatile Logger logger = Logger.CONSOLE;
+    private static volatile int minPriority = Logger.DEBUG;
+
+    private Log() {
+    }
+
+    /**
+     * 设置日志输出
+     */
+    public static void setLogger(@NonNull Logger logger) {
+        Log.logger = logger;
+    }
+
+    /**
+     * 设置输出的最低级别，默认为 {@link Logger#DEBUG}
+     *
+     * @param priority 日志级别，取值与android.util.Log一致
+     */
+    public static void setMinPriority(int priority) {
+        minPriority = priority;
+    }
+
+    /**
+     * 拼接开销较大的日志前用于判断
+     */
+    public static boolean isLoggable(int priority) {
+        return priority >= minPriority;
+    }
+
+    public static void d(String tag, String message) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, message);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    public static void d(String tag, String format, long arg) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void d(String tag, String format, long arg1, long arg2) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    public static void d(String tag, String format, double arg1, double arg2) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, message);
+        }
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    public static void i(String tag, String format, long arg) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void w(String tag, String message) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, message);
+        }
+    }
+
+    public static void w(String tag, String format, Object arg) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    public static void w(String tag, String format, long arg) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void e(String tag, String message) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, message);
+        }
+    }
+
+    public static void e(String tag, String format, Object arg) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, format(format, arg, null, 1));
+        }
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, format(format, arg1, arg2, 2));
+        }
+    }
+
+    /**
+     * 输出错误和异常堆栈，消息不做占位替换
+     */
+    public static void e(String tag, String message, Throwable tr) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, message, tr);
+        }
+    }
+
+    /**
+     * 依次用参数替换格式中的"{}"，多余的占位保留原样，多余的参数忽略
+     */
+    @NonNull
+    static String format(@NonNull String format, Object arg1, Object arg2, int argCount) {
+        StringBuilder builder = new StringBuilder(format.length() + 32);
+        int start = 0;
+        for (int i = 0; i < argCount; i++) {
+            int index = format.indexOf(PLACEHOLDER, start);
+            if (index < 0) {
+                break;
+            }
+            builder.append(format, start, index).append(i == 0 ? arg1 : arg2);
+            start = index + PLACEHOLDER.length();
+        }
+        return builder.append(format, start, format.length()).toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.yuwen.centershipcontroller.Platform;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * 日志输出
+ * Android上转给android.util.Log，JVM上默认输出到标准输出
+ *
+ * @author yuwen
+ */
+public interface Logger {
+    int DEBUG = 3;
+    int INFO = 4;
+    int WARN = 5;
+    int ERROR = 6;
+
+    /**
+     * 标准输出，警告和错误写入标准错误
+     */
+    Logger CONSOLE = (priority, tag, message) -> {
+        String level = priority >= ERROR ? "E" : priority == WARN ? "W" : priority == INFO ? "I" : "D";
+        (priority >= WARN ? System.err : System.out).println(level + "/" + tag + ": " + message);
+    };
+
+    /**
+     * @param priority 日志级别，取值与android.util.Log一致
+     */
+    void log(int priority, @NonNull String tag, @NonNull String message);
+
+    /**
+     * 输出日志和异常堆栈，默认把堆栈拼在消息之后
+     */
+    default void log(int priority, @NonNull String tag, @NonNull String message, @NonNull Throwable tr) {
+        StringWriter writer = new StringWriter();
+        tr.printStackTrace(new PrintWriter(writer));
+        log(priority, tag, message + '\n' + writer);
+    }
+}
@@ -0,0 +1,28 @@
+package com.yuwen.centershipcontroller.Platform;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 任务调度器
+ * 所有任务在同一个线程中按投递顺序执行，Android上由Handler实现
+ *
+ * @author yuwen
+ */
+public interface Scheduler {
+    /**
+     * 尽快执行任务
+     */
+    void post(@NonNull Runnable task);
+
+    /**
+     * 在指定时刻或之后执行任务
+     *
+     * @param deadlineNanos 计划时刻，与调用方使用的 {@link Clock} 同一时基
+     */
+    void postAt(@NonNull Runnable task, long deadlineNanos);
+
+    /**
+     * 移除尚未执行的任务
+     */
+    void remove(@NonNull Runnable task);
+}
@@ -0,0 +1,269 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 控制命令发送线程
+ * 命令通过单槽位邮箱交给专用线程发送："最新者胜出"，尚未发出的旧命令直接被新命令覆盖，
+ * 因此UI线程卡顿或网络调用变慢时，既不会推迟新命令，也不会堆积过时的电机命令。
+ *
+ * 邮箱只保存命令表下标(int)，投递时不分配对象；帧编码、序号分配和发送都在发送线程中完成
+ *
+ * @author yuwen
+ */
+public final class CommandSender {
+    private static final String TAG = "CommandSender";
+    private static final int EMPTY = -1;
+
+    /**
+     * 命令的实际发送通道
+     */
+    public interface Transport {
+        /**
+         * @return 当前是否可以发送
+         */
+        boolean isConnected();
+
+        boolean sendText(@NonNull String text);
+
+        boolean sendBinary(@NonNull byte[] data, int offset, int length);
+    }
+
+    private final Transport transport;
+    private final RttTracker rttTracker;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // 待发送命令的下标，EMPTY表示没有待发送命令
+    private final AtomicInteger mailbox = new AtomicInteger(EMPTY);
+    // 最近一次投递的时刻(System.nanoTime)
+    private volatile long offerTime = 0;
+    // 与船舶协商的命令线路格式，默认JSON
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+    private volatile boolean rttProbeEnabled = false;
+    private volatile Runnable failureListener;
+    // 发送线程正在取出或发送命令；先置位再取邮箱，邮箱为空且未置位时发送线程空闲
+    private volatile boolean sending = false;
+    // awaitIdle的等待者数，由idleLock保护写入
+    private final Object idleLock = new Object();
+    private volatile int idleWaiters = 0;
+
+    // 以下字段只在发送线程中访问
+    private int sequence = 0;
+    private boolean lastConnected = true;
+    private final byte[] binaryFrame = new byte[MotorCommandCodec.FRAME_LENGTH];
+    private final StringBuilder taggedJson = new StringBuilder(96);
+
+    private final LatencyHistogram queueMonitor = new LatencyHistogram("发送排队");
+    private final LatencyHistogram sendMonitor = new LatencyHistogram("命令发送");
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong supersededCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * 创建并启动发送线程
+     *
+     * @param name       线程名
+     * @param transport  发送通道
+     * @param rttTracker 往返延迟统计，记录带序号命令的发送时刻
+     */
+    public CommandSender(String name, @NonNull Transport transport, @NonNull RttTracker rttTracker) {
+        this.transport = transport;
+        this.rttTracker = rttTracker;
+        thread = new Thread(this::runLoop, name);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 投递命令，覆盖尚未发送的旧命令，不阻塞、不分配对象
+     *
+     * @param command 控制命令
+     */
+    public void offer(@NonNull ControlCommand command) {
+        offerTime = System.nanoTime();
+        if (mailbox.getAndSet(command.index) != EMPTY) {
+            supersededCount.incrementAndGet();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * 设置发送失败时的回调，在发送线程中调用
+     */
+    public void setFailureListener(Runnable listener) {
+        failureListener = listener;
+    }
+
+    public void setWireFormat(@NonNull WireFormat format) {
+        wireFormat = format;
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * 开启后JSON命令附加顶层字段"SEQ"；二进制命令始终携带序号
+     */
+    public void setRttProbeEnabled(boolean enabled) {
+        rttProbeEnabled = enabled;
+    }
+
+    public boolean isRttProbeEnabled() {
+        return rttProbeEnabled;
+    }
+
+    /**
+     * 等待已投递的命令全部发出：邮箱为空且发送线程不在发送中
+     * 用于切换发送通道前确认最后一条命令(如停止命令)已经交给原通道
+     *
+     * @return 是否在超时前进入空闲；发送线程已停止时返回false
+     */
+    public boolean awaitIdle(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idleLock) {
+            idleWaiters++;
+            try {
+                while (mailbox.get() != EMPTY || sending) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+                }
+                return true;
+            } finally {
+                idleWaiters--;
+            }
+        }
+    }
+
+    /**
+     * 停止发送线程，未发送的命令被丢弃
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            sending = true;
+            int index = mailbox.getAndSet(EMPTY);
+            if (index == EMPTY) {
+                sending = false;
+                // 先清除sending再读等待者数，与awaitIdle先登记再检查相对，不会错过唤醒
+                if (idleWaiters > 0) {
+                    synchronized (idleLock) {
+                        idleLock.notifyAll();
+                    }
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            queueMonitor.recordSince(offerTime);
+            try {
+                send(CommandTable.get(index));
+            } catch (Exception e) {
+                Log.e(TAG, "发送消息异常", e);
+                notifyFailure();
+            }
+        }
+    }
+
+    private void send(ControlCommand command) {
+        boolean connected = transport.isConnected();
+        if (connected != lastConnected) {
+            lastConnected = connected;
+            Log.w(TAG, connected ? "WebSocket已连接，恢复发送控制命令" : "WebSocket未连接，控制命令将被丢弃");
+        }
+        if (!connected) {
+            return;
+        }
+
+        int seq = ++sequence;
+        long sendStart = System.nanoTime();
+        boolean success;
+        if (wireFormat == WireFormat.BINARY) {
+            int length = MotorCommandCodec.encode(command, seq, binaryFrame, 0);
+            // 先记录发送时刻，避免确认先于记录到达
+            rttTracker.onSent(seq, sendStart);
+            success = transport.sendBinary(binaryFrame, 0, length);
+        } else if (rttProbeEnabled) {
+            String json = CommandTable.json(command);
+            // 在命令JSON末尾的"}"前插入 ,"SEQ":N
+            taggedJson.setLength(0);
+            taggedJson.append(json, 0, json.length() - 1).append(",\"SEQ\":").append(seq).append('}');
+            rttTracker.onSent(seq, sendStart);
+            success = transport.sendText(taggedJson.toString());
+        } else {
+            success = transport.sendText(CommandTable.json(command));
+        }
+        sendMonitor.recordSince(sendStart);
+
+        if (success) {
+            sentCount.incrementAndGet();
+            EventJournal.getInstance().record(EventJournal.Event.COMMAND_SENT, seq, command.index);
+        } else {
+            EventJournal.getInstance().record(EventJournal.Event.COMMAND_FAILED, seq, command.index);
+            Log.e(TAG, "发送控制命令失败");
+            notifyFailure();
+        }
+    }
+
+    private void notifyFailure() {
+        failedCount.incrementAndGet();
+        Runnable listener = failureListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 从投递到开始发送的等待时间
+     */
+    public LatencyHistogram getQueueHistogram() {
+        return queueMonitor;
+    }
+
+    /**
+     * 发送调用本身的耗时
+     */
+    public LatencyHistogram getSendHistogram() {
+        return sendMonitor;
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return 发出前即被新命令覆盖的命令数
+     */
+    public long getSupersededCount() {
+        return supersededCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public void resetStats() {
+        queueMonitor.reset();
+        sendMonitor.reset();
+        sentCount.set(0);
+        supersededCount.set(0);
+        failedCount.set(0);
+    }
+}
@@ -0,0 +1,112 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 控制命令表
+ * 推力范围为[0, MAX_THRUST_POWER]，左右电机方向和使能各1位，整个命令空间很小，
+ * 启动时一次性创建全部合法命令及其JSON文本和UTF-8编码，运行时查找只是一次数组下标访问
+ *
+ * 下标布局: ((enable * 2 + direction) * THRUST_LEVELS + rightThrust) * THRUST_LEVELS + leftThrust
+ *
+ * @author yuwen
+ */
+public final class CommandTable {
+    // 最大推力限制为30
+    public static final int MAX_THRUST_POWER = 30;
+    private static final int THRUST_LEVELS = MAX_THRUST_POWER + 1;
+    // 命令总数：31 * 31 * 2(方向) * 2(使能)
+    public static final int SIZE = THRUST_LEVELS * THRUST_LEVELS * 4;
+
+    private static final ControlCommand[] COMMANDS = new ControlCommand[SIZE];
+    private static final String[] JSON = new String[SIZE];
+    private static final byte[][] JSON_UTF8 = new byte[SIZE][];
+    private static final ControlCommand ZERO;
+
+    static {
+        StringBuilder builder = new StringBuilder(96);
+        for (int enable = 0; enable <= 1; enable++) {
+            for (int direction = 0; direction <= 1; direction++) {
+                for (int right = 0; right <= MAX_THRUST_POWER; right++) {
+                    for (int left = 0; left <= MAX_THRUST_POWER; left++) {
+                        int index = index(left, right, direction, enable);
+                        ControlCommand command = new ControlCommand(index, left, right, direction, enable);
+                        COMMANDS[index] = command;
+                        JSON[index] = buildJson(builder, command);
+                        JSON_UTF8[index] = JSON[index].getBytes(StandardCharsets.UTF_8);
+                    }
+                }
+            }
+        }
+        // 零命令：推力为0，方向正向，电机关闭
+        ZERO = COMMANDS[index(0, 0, 1, 1)];
+    }
+
+    private CommandTable() {
+    }
+
+    /**
+     * 计算命令下标，推力超出范围时截断
+     *
+     * @param leftThrust  左推进器推力
+     * @param rightThrust 右推进器推力
+     * @param direction   方向 (0=反向, 1=正向)
+     * @param enable      使能 (0=开启, 1=关闭)
+     */
+    public static int index(int leftThrust, int rightThrust, int direction, int enable) {
+        int left = Math.min(MAX_THRUST_POWER, Math.max(0, leftThrust));
+        int right = Math.min(MAX_THRUST_POWER, Math.max(0, rightThrust));
+        return (((enable & 1) * 2 + (direction & 1)) * THRUST_LEVELS + right) * THRUST_LEVELS + left;
+    }
+
+    /**
+     * 获取命令对象
+     */
+    public static ControlCommand get(int leftThrust, int rightThrust, int direction, int enable) {
+        return COMMANDS[index(leftThrust, rightThrust, direction, enable)];
+    }
+
+    /**
+     * 按下标获取命令对象
+     */
+    public static ControlCommand get(int index) {
+        return COMMANDS[index];
+    }
+
+    /**
+     * 零命令（停止）
+     */
+    public static ControlCommand zero() {
+        return ZERO;
+    }
+
+    /**
+     * 命令的SHIPMOTRO JSON文本
+     */
+    public static String json(ControlCommand command) {
+        return JSON[command.index];
+    }
+
+    /**
+     * 命令JSON的UTF-8编码，即文本帧在线路上的字节，调用方不得修改
+     */
+    public static byte[] jsonBytes(ControlCommand command) {
+        return JSON_UTF8[command.index];
+    }
+
+    /**
+     * 构建SHIPMOTRO JSON，字段顺序与原Gson输出一致
+     */
+    private static String buildJson(StringBuilder builder, ControlCommand command) {
+        builder.setLength(0);
+        builder.append("{\"SHIPMOTRO\":{")
+                .append("\"CH1\":").append(command.leftThrust)
+                .append(",\"DIR1\":").append(command.leftDirection)
+                .append(",\"EN1\":").append(command.leftEnable)
+                .append(",\"CH2\":").append(command.rightThrust)
+                .append(",\"DIR2\":").append(command.rightDirection)
+                .append(",\"EN2\":").append(command.rightEnable)
+                .append("}}");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 船舶电机控制命令
+ * 不可变对象，所有合法命令由 {@link CommandTable} 在启动时一次性创建，运行时只做下标查找
+ *
+ * @author yuwen
+ */
+public final class ControlCommand {
+    public final int leftThrust;
+    public final int rightThrust;
+    public final int leftDirection;
+    public final int rightDirection;
+    public final int leftEnable;
+    public final int rightEnable;
+    public final boolean isZeroCommand;
+    // 在命令表中的下标
+    public final int index;
+
+    ControlCommand(int index, int leftThrust, int rightThrust, int direction, int enable) {
+        this.index = index;
+        this.leftThrust = leftThrust;
+        this.rightThrust = rightThrust;
+        this.leftDirection = direction;
+        this.rightDirection = direction;
+        this.leftEnable = enable;
+        this.rightEnable = enable;
+        this.isZeroCommand = leftThrust == 0 && rightThrust == 0 && enable == 1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+
+        ControlCommand that = (ControlCommand) obj;
+        return leftThrust == that.leftThrust &&
+                rightThrust == that.rightThrust &&
+                leftDirection == that.leftDirection &&
+                rightDirection == that.rightDirection &&
+                leftEnable == that.leftEnable &&
+                rightEnable == that.rightEnable;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ControlCommand{" +
+                "leftThrust=" + leftThrust +
+                ", rightThrust=" + rightThrust +
+                ", leftDirection=" + leftDirection +
+                ", rightDirection=" + rightDirection +
+                ", leftEnable=" + leftEnable +
+                ", rightEnable=" + rightEnable +
+                ", isZeroCommand=" + isZeroCommand +
+                '}';
+    }
+}
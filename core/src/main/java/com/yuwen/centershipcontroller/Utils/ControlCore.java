@@ -0,0 +1,762 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Clock;
+import com.yuwen.centershipcontroller.Platform.Haptics;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 摇杆控制核心
+ * 负责将摇杆的原始输入转换为船舶电机控制命令：采样缓冲、滤波、死区和边缘处理、
+ * 命令计算、方向切换保护和固定频率控制循环。
+ * 线程、时间、震动和发送通道都通过平台接口注入，可在JVM上测试和测量；
+ * Android上由应用模块的JoySticksDecoder以HandlerThread、Vibrator和WebSocket组装
+ *
+ * 除标明的方法外，滤波和命令计算都在调度器的线程(控制线程)中执行
+ *
+ * @author yuwen
+ */
+public final class ControlCore {
+    private static final String TAG = "ControlCore";
+
+    // 配置参数 - 高性能设置
+    private static final float CENTER_DEAD_ZONE = 0.05f; // 减小死区以提高响应性
+    private static final int MAX_THRUST_POWER = CommandTable.MAX_THRUST_POWER; // 最大推力限制为30
+    // 固定频率控制循环：无论触摸事件多少，都按此频率向船发送最新命令
+    public static final int DEFAULT_CONTROL_RATE_HZ = 20;
+    private static final int MIN_CONTROL_RATE_HZ = 5; // 不低于时序说明要求的每200ms一次
+    private static final int MAX_CONTROL_RATE_HZ = 100;
+    private static final float EDGE_BUFFER_ZONE = 0.05f; // 边缘缓冲区
+    private static final long DIRECTION_CHANGE_VIBRATION = 100; // 减少震动时间
+    private static final long START_STOP_VIBRATION = 40;
+    private static final long EDGE_VIBRATION = 30;
+    public static final long DEFAULT_DIRECTION_CHANGE_DELAY_MS = 150;
+
+    // 滤波器类型
+    public static final int FILTER_NONE = 0;
+    public static final int FILTER_FAST_LAG = 1;
+    public static final int FILTER_KALMAN = 2;
+    public static final int FILTER_ADAPTIVE = 3;
+    public static final int FILTER_PREDICTIVE = 4;
+    // 自适应滤波器的速度系数
+    private static final float ADAPTIVE_FILTER_BETA = 4f;
+    // 预测滤波的外推时长上限及按测得延迟更新的间隔
+    private static final long MAX_PREDICTION_NANOS = 100_000_000L;
+    private static final long PREDICTION_UPDATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    // 摇杆采样缓冲区：输入线程写入每个触摸采样(含历史点)，控制线程按顺序全部滤波
+    private static final int INPUT_RING_CAPACITY = 256;
+    private static final int INPUT_BATCH_SIZE = 64;
+
+    private final Scheduler scheduler;
+    private final Clock clock;
+    private final Haptics haptics;
+
+    private final InputSampleRing inputRing = new InputSampleRing(INPUT_RING_CAPACITY);
+    // 控制线程取出采样用的缓冲区
+    private final float[] batchX = new float[INPUT_BATCH_SIZE];
+    private final float[] batchY = new float[INPUT_BATCH_SIZE];
+    private final long[] batchTime = new long[INPUT_BATCH_SIZE];
+    // 最新摇杆输入槽位：x/y打包进一个long，一次原子写入；缓冲区溢出时以此保证不丢失最新输入
+    private final AtomicLong latestInput = new AtomicLong();
+    // 最新输入的采样时刻(Clock时基)
+    private volatile long latestInputTime = 0;
+    private final AtomicBoolean inputOverflowed = new AtomicBoolean(false);
+    private final AtomicLong inputSampleCount = new AtomicLong();
+    // 是否已有待处理的输入任务，多批采样只投递一次，由任务处理全部待处理采样
+    private final AtomicBoolean inputPending = new AtomicBoolean(false);
+    private final Runnable processInputTask = this::processPendingInput;
+    private final Runnable clearInputTask = this::clearPendingInput;
+    private final Runnable forceSendTask = this::forceSendLatest;
+    private final Runnable controlTickTask = this::onControlTick;
+    private final Runnable restartControlLoopTask = this::restartControlLoop;
+    // 控制循环周期及下一次计划执行时刻(Clock时基)，后者只在控制线程中访问
+    private volatile long controlPeriodNanos = 1_000_000_000L / DEFAULT_CONTROL_RATE_HZ;
+    private long nextTickNanos = 0;
+    private final DeadlineTracker controlLoopTracker = new DeadlineTracker("控制循环", controlPeriodNanos);
+    // 滤波输出缓冲区及死区/边缘处理后的当前输入，仅在控制线程中使用
+    private final float[] filterOutput = new float[2];
+    private float filteredX = 0;
+    private float filteredY = 0;
+    // 最近一次交给发送线程的时刻，输入变化时据此限制立即发送的频率
+    private volatile long lastSendNanos = 0;
+    // 使用原子引用替代锁
+    private final AtomicReference<ControlCommand> latestCommand = new AtomicReference<>(CommandTable.zero());
+    // 零命令，来自预计算的命令表
+    private final ControlCommand zeroCommand = CommandTable.zero();
+    // 状态跟踪 - 使用原子变量确保线程安全
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean isDirectionChanging = new AtomicBoolean(false);
+    private final AtomicBoolean emergencyForceSend = new AtomicBoolean(false);
+    private volatile long directionChangeDelayNanos = DEFAULT_DIRECTION_CHANGE_DELAY_MS * 1_000_000L;
+    private volatile long directionChangeTimestamp = 0;
+    private volatile boolean hasReachedEdge = false;
+
+    // 各阶段耗时直方图(纳秒)，无锁，可在任意线程记录和读取
+    private final LatencyHistogram inputMonitor = new LatencyHistogram("输入传递");
+    private final LatencyHistogram filterMonitor = new LatencyHistogram("滤波处理");
+    private final LatencyHistogram commandGenMonitor = new LatencyHistogram("命令生成");
+    private final LatencyHistogram fullPathMonitor = new LatencyHistogram("全路径延迟");
+    private final LatencyHistogram[] stageMonitors;
+    // 输入滤波器，只在控制线程中使用
+    private Filters.LowLatencyFilter inputFilter;
+    // 预测滤波器，仅在选择预测滤波时非空，外推时长由控制循环按测得的延迟更新
+    private volatile Filters.OneEuroFilter predictiveFilter;
+    private long lastPredictionUpdateNanos = 0;
+    // 往返延迟统计；二进制帧始终携带序号，JSON命令仅在开启延迟测量时附加SEQ字段
+    private final RttTracker rttTracker = new RttTracker();
+    // 专用发送线程，不经过控制线程，新命令覆盖尚未发出的旧命令
+    private final CommandSender commandSender;
+
+    /**
+     * @param scheduler 控制线程的调度器，deadline与clock同一时基
+     * @param clock     时钟
+     * @param haptics   震动反馈
+     * @param transport 命令发送通道，在专用发送线程中调用
+     */
+    public ControlCore(@NonNull Scheduler scheduler, @NonNull Clock clock, @NonNull Haptics haptics,
+                       @NonNull CommandSender.Transport transport) {
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.haptics = haptics;
+        // 创建命令发送线程，发送失败时标记强制重发
+        commandSender = new CommandSender("JoystickSender", transport, rttTracker);
+        commandSender.setFailureListener(() -> emergencyForceSend.set(true));
+        stageMonitors = new LatencyHistogram[]{fullPathMonitor, inputMonitor, filterMonitor, commandGenMonitor,
+                commandSender.getQueueHistogram(), commandSender.getSendHistogram()};
+        inputFilter = new Filters.FastLagFilter(0.5f);
+    }
+
+    /**
+     * 启动控制处理，可在任意线程调用
+     */
+    public void start() {
+        if (running.getAndSet(true)) {
+            return; // 已在运行中
+        }
+
+        // 重置状态
+        inputFilter.reset();
+        isDirectionChanging.set(false);
+        directionChangeTimestamp = 0;
+        latestCommand.set(zeroCommand);
+        hasReachedEdge = false;
+        emergencyForceSend.set(true);
+
+        // 重置性能监控
+        for (LatencyHistogram monitor : stageMonitors) {
+            monitor.reset();
+        }
+
+        // 立即发送一个停止命令
+        directSendCommand(zeroCommand);
+
+        // 在控制线程中启动固定频率控制循环
+        scheduler.post(restartControlLoopTask);
+
+        Log.i(TAG, "摇杆控制处理器已启动");
+    }
+
+    /**
+     * 停止控制处理并发送停止命令，可在任意线程调用
+     */
+    public void stop() {
+        if (!running.getAndSet(false)) {
+            return; // 已停止
+        }
+
+        scheduler.remove(controlTickTask);
+        // 丢弃尚未处理的采样
+        scheduler.post(clearInputTask);
+
+        // 发送停止命令
+        directSendCommand(zeroCommand);
+
+        // 输出最终性能统计
+        Log.i(TAG, "摇杆控制处理器性能统计:");
+        for (LatencyHistogram monitor : stageMonitors) {
+            Log.i(TAG, monitor.getStats());
+        }
+        Log.i(TAG, controlLoopTracker.getStats());
+        Log.i(TAG, rttTracker.getHistogram().getStats());
+        Log.i(TAG, "摇杆控制处理器已停止");
+    }
+
+    /**
+     * 停止发送线程，之后不能再使用
+     */
+    public void shutdown() {
+        stop();
+        commandSender.shutdown();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public void forceSendCommand() {
+        emergencyForceSend.set(true);
+        scheduler.post(forceSendTask);
+    }
+
+    /**
+     * 重新开始控制循环：清空截止时间统计，以当前时刻为相位起点
+     * 在控制线程中执行
+     */
+    private void restartControlLoop() {
+        scheduler.remove(controlTickTask);
+        if (!running.get()) {
+            return;
+        }
+        long period = controlPeriodNanos;
+        controlLoopTracker.reset(period);
+        nextTickNanos = clock.nanoTime() + period;
+        scheduler.postAt(controlTickTask, nextTickNanos);
+    }
+
+    /**
+     * 控制循环的一次执行：记录相对计划时刻的抖动，发送最新命令，
+     * 下一次计划时刻按固定相位推进，错过的周期直接跳过而不补发
+     */
+    private void onControlTick() {
+        if (!running.get()) {
+            return;
+        }
+        long period = controlPeriodNanos;
+        long lateness = clock.nanoTime() - nextTickNanos;
+        long missed = controlLoopTracker.recordTick(lateness);
+        if (missed > 0) {
+            EventJournal.getInstance().record(EventJournal.Event.CONTROL_LATE, lateness, missed);
+        }
+
+        ControlCommand command = latestCommand.get();
+        directSendCommand(command != null ? command : zeroCommand);
+        updatePredictionHorizon();
+
+        nextTickNanos += (missed + 1) * period;
+        scheduler.postAt(controlTickTask, nextTickNanos);
+    }
+
+    /**
+     * 按测得的管线延迟更新预测滤波的外推时长：采样到命令交给发送线程的中位耗时，
+     * 加上往返延迟中位数的一半(手机到船的单程)；没有新的统计数据时保持原值
+     */
+    private void updatePredictionHorizon() {
+        Filters.OneEuroFilter filter = predictiveFilter;
+        long now = clock.nanoTime();
+        if (filter == null || now - lastPredictionUpdateNanos < PREDICTION_UPDATE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPredictionUpdateNanos = now;
+        LatencyHistogram rtt = rttTracker.getHistogram();
+        if (fullPathMonitor.getCount() == 0 && rtt.getCount() == 0) {
+            return;
+        }
+        long latency = 0;
+        if (fullPathMonitor.getCount() > 0) {
+            latency += fullPathMonitor.getValueAtPercentile(50);
+        }
+        if (rtt.getCount() > 0) {
+            latency += rtt.getValueAtPercentile(50) / 2;
+        }
+        filter.setPredictionNanos(Math.min(MAX_PREDICTION_NANOS, latency));
+    }
+
+    /**
+     * 设置控制循环频率
+     *
+     * @param rateHz 每秒发送命令的次数 (范围: 5-100Hz)
+     * @return 实际使用的频率
+     */
+    public int setControlRate(int rateHz) {
+        int rate = Math.max(MIN_CONTROL_RATE_HZ, Math.min(MAX_CONTROL_RATE_HZ, rateHz));
+        controlPeriodNanos = 1_000_000_000L / rate;
+        if (running.get()) {
+            scheduler.post(restartControlLoopTask);
+        }
+        return rate;
+    }
+
+    public long getControlPeriodNanos() {
+        return controlPeriodNanos;
+    }
+
+    /**
+     * 获取控制循环的截止时间统计
+     *
+     * @return 控制循环统计，可在任意线程读取
+     */
+    public DeadlineTracker getControlLoopStats() {
+        return controlLoopTracker;
+    }
+
+    /**
+     * 在控制线程中重发最新命令
+     */
+    private void forceSendLatest() {
+        ControlCommand command = latestCommand.get();
+        directSendCommand(command != null ? command : zeroCommand);
+    }
+
+    /**
+     * 更新摇杆输入值，以当前时刻作为采样时刻
+     * 无锁设计，不会阻塞输入线程，也不分配对象
+     *
+     * @param x 标准化X轴值 [-1.0, 1.0]
+     * @param y 标准化Y轴值 [-1.0, 1.0]
+     */
+    public void updateJoystickValues(float x, float y) {
+        updateJoystickValue(x, y, clock.nanoTime());
+    }
+
+    /**
+     * 更新一个带时刻的摇杆采样
+     *
+     * @param timeNanos 采样时刻(Clock时基)
+     */
+    public void updateJoystickValue(float x, float y, long timeNanos) {
+        if (!running.get()) {
+            return; // 如果系统未运行，忽略输入
+        }
+        offerSample(x, y, timeNanos);
+        schedulePendingInput();
+    }
+
+    /**
+     * 批量更新摇杆采样（一个触摸事件携带的全部历史点）
+     * 只能在同一个输入线程调用；数组由调用方复用，本方法返回后不再访问
+     *
+     * @param xs             标准化X轴值
+     * @param ys             标准化Y轴值
+     * @param eventTimeNanos 采样时刻(Clock时基)
+     * @param count          采样数
+     */
+    public void updateJoystickSamples(float[] xs, float[] ys, long[] eventTimeNanos, int count) {
+        if (!running.get() || count <= 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            offerSample(xs[i], ys[i], eventTimeNanos[i]);
+        }
+        schedulePendingInput();
+    }
+
+    private void offerSample(float x, float y, long timeNanos) {
+        latestInputTime = timeNanos;
+        latestInput.set(packInput(x, y));
+        inputSampleCount.incrementAndGet();
+        if (!inputRing.offer(x, y, timeNanos)) {
+            // 控制线程处理不过来时丢弃历史采样，但最新输入始终保留
+            inputOverflowed.set(true);
+        }
+    }
+
+    private void schedulePendingInput() {
+        // 在专用控制线程处理，控制线程尚未处理时不重复投递任务
+        if (!inputPending.getAndSet(true)) {
+            scheduler.post(processInputTask);
+        }
+    }
+
+    /**
+     * 控制线程中处理全部待处理的摇杆采样
+     * 每个采样都经过滤波，但整批只生成一次命令，发送频率由控制循环决定
+     */
+    void processPendingInput() {
+        // 先清除标志，处理期间到达的新输入会重新投递任务
+        inputPending.set(false);
+        try {
+            int processed = 0;
+            long newestTime = 0;
+            int count;
+            while ((count = inputRing.drainTo(batchX, batchY, batchTime, INPUT_BATCH_SIZE)) > 0) {
+                long now = clock.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    // 记录采样从触摸事件到控制线程的传递耗时
+                    inputMonitor.record(now - batchTime[i]);
+                    filterSample(batchX[i], batchY[i], batchTime[i]);
+                }
+                newestTime = batchTime[count - 1];
+                processed += count;
+            }
+            if (inputOverflowed.getAndSet(false)) {
+                // 缓冲区曾经溢出，补上最新输入
+                long packed = latestInput.get();
+                newestTime = latestInputTime;
+                filterSample(unpackX(packed), unpackY(packed), newestTime);
+                processed++;
+            }
+            if (processed > 0) {
+                emitCommand(newestTime);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "处理输入异常: {}", e.getMessage());
+        }
+    }
+
+    private void clearPendingInput() {
+        inputRing.clear();
+        inputOverflowed.set(false);
+    }
+
+    private static long packInput(float x, float y) {
+        return ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xFFFFFFFFL);
+    }
+
+    private static float unpackX(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private static float unpackY(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+
+    /**
+     * 对单个采样滤波并做死区、边缘处理，结果保存在filteredX/filteredY
+     */
+    private void filterSample(float inputX, float inputY, long timeNanos) {
+        // 记录滤波开始时间
+        long filterStart = System.nanoTime();
+
+        // 应用滤波器，结果写入预分配的缓冲区
+        inputFilter.update(inputX, inputY, timeNanos, filterOutput);
+        float x = filterOutput[0];
+        float y = filterOutput[1];
+
+        // 记录滤波耗时
+        filterMonitor.recordSince(filterStart);
+
+        // 死区处理
+        float length = (float) Math.hypot(x, y);
+        if (length < CENTER_DEAD_ZONE) {
+            x = 0;
+            y = 0;
+            inputFilter.reset();
+        } else {
+            // 边缘缓冲处理
+            float maxAllowedLength = 1.0f - EDGE_BUFFER_ZONE;
+            if (length > maxAllowedLength) {
+                float scaleFactor = maxAllowedLength / length;
+                x *= scaleFactor;
+                y *= scaleFactor;
+
+                // 检测是否到达边缘，只震动一次
+                if (!hasReachedEdge) {
+                    hasReachedEdge = true;
+                    haptics.vibrate(EDGE_VIBRATION);
+                }
+            } else {
+                // 离开边缘状态
+                hasReachedEdge = false;
+            }
+        }
+        filteredX = x;
+        filteredY = y;
+    }
+
+    /**
+     * 根据当前滤波结果生成命令
+     * 命令变化时，若距上次发送已过半个控制周期则立即发送，否则由下一次控制循环发出，
+     * 避免高频触摸采样挤满发送通道
+     *
+     * @param startTime 所依据采样的时刻(Clock时基)
+     */
+    private void emitCommand(long startTime) {
+        // 记录命令生成开始时间
+        long commandStart = System.nanoTime();
+
+        // 计算控制命令
+        ControlCommand command = calculateCommand(filteredX, filteredY);
+
+        // 记录命令生成耗时
+        commandGenMonitor.recordSince(commandStart);
+
+        // 获取上次命令进行比较
+        ControlCommand lastCommand = latestCommand.get();
+        boolean forceSend = emergencyForceSend.getAndSet(false);
+
+        // 检查命令是否与上次相同或需要强制发送
+        if (lastCommand == null || !command.equals(lastCommand) || forceSend) {
+            // 更新最新命令，控制循环总是发送最新命令
+            latestCommand.set(command);
+
+            // 检测开始/停止移动状态变化
+            if (lastCommand != null && lastCommand.isZeroCommand != command.isZeroCommand) {
+                haptics.vibrate(START_STOP_VIBRATION);
+            }
+
+            // 停止命令和强制发送不受频率限制
+            if (forceSend || command.isZeroCommand
+                    || clock.nanoTime() - lastSendNanos >= controlPeriodNanos / 2) {
+                directSendCommand(command);
+
+                // 记录全路径延迟：从触摸采样至命令交给发送线程
+                if (startTime > 0) {
+                    fullPathMonitor.record(clock.nanoTime() - startTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * 根据输入值计算最佳控制命令
+     * 优先使用缓存的命令，减少计算开销；包内可见供基准测试直接调用
+     */
+    ControlCommand calculateCommand(float x, float y) {
+        // 计算总推力强度 (0-100)
+        float length = (float) Math.hypot(x, y);
+        int thrustPower = (int) (length * 100);
+
+        // 限制推力范围
+        thrustPower = Math.min(MAX_THRUST_POWER, Math.max(0, thrustPower));
+
+        // 检查是否为零输入状态 - 降低阈值提高响应性
+        if (thrustPower < 3) {
+            return zeroCommand;
+        }
+
+        // 确定方向 (Y值决定前进/后退)
+        boolean isForward = y >= 0;
+
+        // 优先使用预设档位的命令
+        int roundedPower = Math.round(thrustPower / 10f) * 10; // 舍入到最近的10的倍数
+        if (roundedPower >= 10) {
+            if (Math.abs(x) < 0.1) {
+                // 直线前进/后退
+                return CommandTable.get(roundedPower, roundedPower, isForward ? 1 : 0, 0);
+            } else if (isForward) {
+                // 前进转向，反向转向较少用，不使用预设档位
+                int turnPercent = Math.round(Math.abs(x) * 100 / 4) * 25; // 转向百分比(25, 50, 75)
+                if (turnPercent > 75) turnPercent = 75;
+                if (turnPercent > 0) {
+                    int turnPower = roundedPower * (100 - turnPercent) / 100;
+                    return x < 0
+                            ? CommandTable.get(turnPower, roundedPower, 1, 0)
+                            : CommandTable.get(roundedPower, turnPower, 1, 0);
+                }
+            }
+        }
+
+        // 非预设档位，计算实际命令
+        int direction = isForward ? 1 : 0;
+
+        // 获取上次命令
+        ControlCommand lastCommand = latestCommand.get();
+        if (lastCommand == null) {
+            lastCommand = zeroCommand;
+        }
+
+        // 检测方向变化
+        if ((isForward && (lastCommand.leftDirection == 0 || lastCommand.rightDirection == 0)) ||
+                (!isForward && (lastCommand.leftDirection == 1 || lastCommand.rightDirection == 1))) {
+
+            // 首次检测到方向变化
+            if (!isDirectionChanging.getAndSet(true)) {
+                directionChangeTimestamp = clock.nanoTime();
+                haptics.vibrate(DIRECTION_CHANGE_VIBRATION);
+                return zeroCommand;
+            }
+            // 如果正在等待方向切换
+            else if (clock.nanoTime() - directionChangeTimestamp < directionChangeDelayNanos) {
+                return zeroCommand;
+            }
+            // 方向切换延迟结束
+            else {
+                isDirectionChanging.set(false);
+            }
+        } else {
+            // 没有方向变化，重置标志
+            isDirectionChanging.set(false);
+        }
+
+        // 计算左右推进器的不同推力
+        int leftThrust, rightThrust;
+
+        if (Math.abs(x) < 0.1) {
+            // 直线前进或后退
+            leftThrust = thrustPower;
+            rightThrust = thrustPower;
+        } else if (x < 0) {
+            // 向左转 (减弱左推进器，保持右推进器)
+            float turnRatio = 1 + x; // 从1.0到0.0
+            leftThrust = (int) (thrustPower * turnRatio);
+            rightThrust = thrustPower;
+        } else {
+            // 向右转 (减弱右推进器，保持左推进器)
+            float turnRatio = 1 - x; // 从1.0到0.0
+            leftThrust = thrustPower;
+            rightThrust = (int) (thrustPower * turnRatio);
+        }
+
+        // 从命令表获取命令对象（推力截断到有效范围），电机使能为0（开启）
+        return CommandTable.get(leftThrust, rightThrust, direction, 0);
+    }
+
+    /**
+     * 把命令交给发送线程
+     */
+    private void directSendCommand(ControlCommand command) {
+        // 更新最新命令
+        latestCommand.set(command);
+        lastSendNanos = clock.nanoTime();
+        // 交给发送线程，不经过控制线程的任务队列
+        commandSender.offer(command);
+    }
+
+    /**
+     * 设置滤波器类型，只能在停止时调用
+     *
+     * @param type  滤波器类型: 0=无滤波, 1=快速滤波(默认), 2=卡尔曼滤波, 3=自适应滤波, 4=预测滤波
+     * @param alpha 灵敏度, 范围[0.1, 1.0], 值越大响应越快；
+     *              FastLagFilter为滤波系数，自适应和预测滤波据此设置静止时的截止频率
+     * @return 是否已更改；运行中不能更改
+     */
+    public boolean setFilterType(int type, float alpha) {
+        if (running.get()) {
+            return false;
+        }
+        predictiveFilter = null;
+        switch (type) {
+            case FILTER_NONE:
+                inputFilter = new Filters.NoFilter();
+                break;
+            case FILTER_FAST_LAG:
+                inputFilter = new Filters.FastLagFilter(alpha);
+                break;
+            case FILTER_KALMAN:
+                inputFilter = new Filters.KalmanFilter();
+                break;
+            case FILTER_ADAPTIVE:
+                inputFilter = new Filters.OneEuroFilter(adaptiveMinCutoff(alpha), ADAPTIVE_FILTER_BETA, 1f);
+                break;
+            case FILTER_PREDICTIVE:
+                Filters.OneEuroFilter filter =
+                        new Filters.OneEuroFilter(adaptiveMinCutoff(alpha), ADAPTIVE_FILTER_BETA, 1f);
+                inputFilter = filter;
+                predictiveFilter = filter;
+                lastPredictionUpdateNanos = 0;
+                break;
+            default:
+                inputFilter = new Filters.FastLagFilter(0.5f);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 灵敏度[0.1, 1.0]对应静止时的截止频率[0.6, 3.0]Hz，默认灵敏度0.7约为2.2Hz
+     */
+    private static float adaptiveMinCutoff(float alpha) {
+        return 0.3f + 2.7f * Filters.clamp(alpha, 0.1f, 1.0f);
+    }
+
+    @NonNull
+    public String getFilterName() {
+        Filters.OneEuroFilter filter = predictiveFilter;
+        if (filter != null) {
+            return inputFilter.getClass().getSimpleName() + "(预测" + filter.getPredictionNanos() / 1_000_000 + "ms)";
+        }
+        return inputFilter.getClass().getSimpleName();
+    }
+
+    /**
+     * 设置方向切换延迟
+     *
+     * @param delayMs 延迟毫秒数 (范围: 50-200ms)
+     * @return 实际使用的延迟
+     */
+    public long setDirectionChangeDelay(long delayMs) {
+        long delay = Math.max(50, Math.min(200, delayMs));
+        directionChangeDelayNanos = delay * 1_000_000L;
+        return delay;
+    }
+
+    /**
+     * 获取命令发送线程，用于设置线路格式、查看发送、覆盖和失败计数
+     */
+    public CommandSender getCommandSender() {
+        return commandSender;
+    }
+
+    /**
+     * @return 命令往返延迟统计，可在任意线程读取
+     */
+    public RttTracker getRttTracker() {
+        return rttTracker;
+    }
+
+    /**
+     * 获取各阶段耗时直方图：全路径、输入传递、滤波、命令生成、发送排队、命令发送
+     *
+     * @return 直方图数组副本
+     */
+    public LatencyHistogram[] getStageHistograms() {
+        return stageMonitors.clone();
+    }
+
+    /**
+     * @return 收到的摇杆采样总数(含触摸事件中的历史点)
+     */
+    public long getInputSampleCount() {
+        return inputSampleCount.get();
+    }
+
+    /**
+     * @return 因控制线程处理不及被丢弃的历史采样数
+     */
+    public long getDroppedInputSampleCount() {
+        return inputRing.getDroppedCount();
+    }
+
+    /**
+     * @return 最新计算出的命令
+     */
+    @NonNull
+    public ControlCommand getLatestCommand() {
+        ControlCommand command = latestCommand.get();
+        return command != null ? command : zeroCommand;
+    }
+
+    /**
+     * 检查当前是否有零命令在发送
+     */
+    public boolean isIdle() {
+        return getLatestCommand().isZeroCommand;
+    }
+
+    /**
+     * @return 各阶段耗时、输入采样、控制循环和往返延迟统计，每项一行
+     */
+    @NonNull
+    public String getStats() {
+        StringBuilder stats = new StringBuilder();
+        for (LatencyHistogram monitor : stageMonitors) {
+            stats.append(monitor.getStats()).append("\n");
+        }
+        stats.append(String.format(Locale.ROOT, "输入采样: 总数=%d, 丢弃=%d",
+                inputSampleCount.get(), inputRing.getDroppedCount())).append("\n");
+        stats.append("输入滤波: ").append(getFilterName()).append("\n");
+        stats.append(controlLoopTracker.getStats()).append("\n");
+        stats.append(rttTracker.getHistogram().getStats());
+        return stats.toString();
+    }
+
+    /**
+     * 重置性能统计
+     */
+    public void resetStats() {
+        for (LatencyHistogram monitor : stageMonitors) {
+            monitor.reset();
+        }
+        commandSender.resetStats();
+        controlLoopTracker.reset(controlPeriodNanos);
+        rttTracker.reset();
+    }
+}
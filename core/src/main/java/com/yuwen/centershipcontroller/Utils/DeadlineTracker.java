@@ -0,0 +1,95 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * 固定周期任务的截止时间统计
+ * 每次执行时记录相对计划时刻的偏差(抖动)，偏差超过一个周期即视为错过截止时间
+ * 只允许一个线程调用 {@link #recordTick(long)}，其他线程可随时读取统计值
+ *
+ * @author yuwen
+ */
+public final class DeadlineTracker {
+    private final String name;
+    private volatile long periodNanos;
+    private volatile long ticks;
+    private volatile long missedDeadlines;
+    private volatile long totalJitterNanos;
+    private volatile long maxJitterNanos;
+    private volatile long lastJitterNanos;
+
+    public DeadlineTracker(String name, long periodNanos) {
+        this.name = name;
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * 清空统计并设置新的周期
+     *
+     * @param periodNanos 周期(纳秒)
+     */
+    public void reset(long periodNanos) {
+        this.periodNanos = periodNanos;
+        ticks = 0;
+        missedDeadlines = 0;
+        totalJitterNanos = 0;
+        maxJitterNanos = 0;
+        lastJitterNanos = 0;
+    }
+
+    /**
+     * 记录一次执行
+     *
+     * @param latenessNanos 实际执行时刻减去计划时刻(纳秒)，提前执行时为负
+     * @return 本次执行错过的周期数
+     */
+    public long recordTick(long latenessNanos) {
+        long jitter = Math.abs(latenessNanos);
+        long missed = latenessNanos >= periodNanos ? latenessNanos / periodNanos : 0;
+
+        ticks++;
+        missedDeadlines += missed;
+        totalJitterNanos += jitter;
+        lastJitterNanos = jitter;
+        if (jitter > maxJitterNanos) {
+            maxJitterNanos = jitter;
+        }
+        return missed;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    public long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    public long getLastJitterNanos() {
+        return lastJitterNanos;
+    }
+
+    public long getAverageJitterNanos() {
+        long count = ticks;
+        return count > 0 ? totalJitterNanos / count : 0;
+    }
+
+    @NonNull
+    public String getStats() {
+        if (ticks == 0) return name + ": 无数据";
+
+        return String.format(Locale.ROOT, "%s: 周期=%.1fms, 执行=%d, 错过截止=%d, 平均抖动=%.2fms, 最大抖动=%.2fms",
+                name, periodNanos / 1e6, ticks, missedDeadlines,
+                getAverageJitterNanos() / 1e6, maxJitterNanos / 1e6);
+    }
+}
@@ -0,0 +1,210 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Clock;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 内存事件日志
+ * 固定大小的环形缓冲区，保存最近的控制路径事件，故障(连接失败、未捕获异常)后用 {@link #dump} 输出现场。
+ * 每条事件按二进制写入4个long槽位，记录时不拼接字符串、不分配对象，可以在控制线程和读线程中常开：
+ * <pre>
+ * [0] 标记   (事件编号 + 1) << 8 | 事件类型，写入完成后最后写
+ * [1] 时刻   Clock.nanoTime
+ * [2] 参数1
+ * [3] 参数2
+ * </pre>
+ * 多个线程可以同时记录，编号由原子计数器分配。读取时前后两次读标记，不一致或编号不符的槽位正在被改写，跳过。
+ * 写入者相隔整整一圈同时写同一槽位时该条事件可能混杂，容量远大于并发写入数时可以忽略
+ *
+ * @author yuwen
+ */
+public final class EventJournal {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int SLOT_LONGS = 4;
+    private static final int TYPE_BITS = 8;
+    private static final long TYPE_MASK = (1L << TYPE_BITS) - 1;
+    // 写入中的标记，不会与任何有效标记相同
+    private static final long WRITING = -1;
+
+    /**
+     * 事件类型，格式中的"{}"依次替换为两个参数
+     */
+    public enum Event {
+        COMMAND_SENT("命令发送: 序号={}, 命令={}"),
+        COMMAND_FAILED("命令发送失败: 序号={}, 命令={}"),
+        ACK("命令确认: 序号={}, 往返={}ns"),
+        ACK_UNMATCHED("未匹配的确认: 序号={}"),
+        CONTROL_LATE("控制循环超时: 延迟={}ns, 错过周期={}"),
+        GPS_FIX("GPS定位: 纬度={}, 经度={}", true),
+        INBOUND_DROPPED("入站消息丢弃: 队列深度={}"),
+        CONNECTION_STATE("连接状态: {} -> {}"),
+        MARK("标记: {}, {}");
+
+        private final String format;
+        // 参数为double的原始位
+        private final boolean doubleArgs;
+
+        Event(String format) {
+            this(format, false);
+        }
+
+        Event(String format, boolean doubleArgs) {
+            this.format = format;
+            this.doubleArgs = doubleArgs;
+        }
+
+        /**
+         * 按格式输出一条事件
+         */
+        void appendTo(StringBuilder builder, long arg1, long arg2) {
+            int start = 0;
+            for (int i = 0; i < 2; i++) {
+                int index = format.indexOf("{}", start);
+                if (index < 0) {
+                    break;
+                }
+                builder.append(format, start, index);
+                long arg = i == 0 ? arg1 : arg2;
+                if (doubleArgs) {
+                    builder.append(Double.longBitsToDouble(arg));
+                } else {
+                    builder.append(arg);
+                }
+                start = index + 2;
+            }
+            builder.append(format, start, format.length());
+        }
+    }
+
+    private static final Event[] EVENTS = Event.values();
+    private static final EventJournal INSTANCE = new EventJournal(DEFAULT_CAPACITY, Clock.SYSTEM);
+
+    private final Clock clock;
+    private final int mask;
+    private final AtomicLongArray slots;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param capacity 保存的事件数，向上取整为2的幂
+     * @param clock    事件时刻的时钟
+     */
+    public EventJournal(int capacity, @NonNull Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("容量必须为正: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.clock = clock;
+        this.mask = size - 1;
+        this.slots = new AtomicLongArray(size * SLOT_LONGS);
+    }
+
+    /**
+     * 应用共用的事件日志
+     */
+    public static EventJournal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 记录一条事件，可在任意线程调用
+     */
+    public void record(@NonNull Event event, long arg1, long arg2) {
+        long number = next.getAndIncrement();
+        int base = (int) (number & mask) * SLOT_LONGS;
+        // 有序写入即可：读取方看到新内容时一定也能看到之前写入的WRITING标记
+        slots.lazySet(base, WRITING);
+        slots.lazySet(base + 1, clock.nanoTime());
+        slots.lazySet(base + 2, arg1);
+        slots.lazySet(base + 3, arg2);
+        slots.lazySet(base, (number + 1) << TYPE_BITS | event.ordinal());
+    }
+
+    public void record(@NonNull Event event, long arg) {
+        record(event, arg, 0);
+    }
+
+    /**
+     * 记录两个double参数，如经纬度
+     */
+    public void record(@NonNull Event event, double arg1, double arg2) {
+        record(event, Double.doubleToRawLongBits(arg1), Double.doubleToRawLongBits(arg2));
+    }
+
+    /**
+     * @return 累计记录的事件数，包括已被覆盖的
+     */
+    public long getRecordedCount() {
+        return next.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 按时间顺序输出缓冲区中的全部事件
+     */
+    @NonNull
+    public String dump() {
+        return dump(getCapacity());
+    }
+
+    /**
+     * 按时间顺序输出最近的事件，时刻为相对最后一条事件的毫秒数
+     * 输出期间仍在记录的事件可能被跳过
+     *
+     * @param limit 最多输出的事件数
+     */
+    @NonNull
+    public String dump(int limit) {
+        long end = next.get();
+        long begin = Math.max(0, end - Math.min(limit, getCapacity()));
+        StringBuilder builder = new StringBuilder((int) (end - begin) * 48 + 64);
+        builder.append(String.format(Locale.ROOT, "事件日志: 记录=%d, 输出最近%d条\n", end, end - begin));
+        long[] times = new long[(int) (end - begin)];
+        long[] stamps = new long[times.length];
+        long[] args1 = new long[times.length];
+        long[] args2 = new long[times.length];
+        long lastTime = Long.MIN_VALUE;
+        for (long number = begin; number < end; number++) {
+            int base = (int) (number & mask) * SLOT_LONGS;
+            int i = (int) (number - begin);
+            long stamp = slots.get(base);
+            times[i] = slots.get(base + 1);
+            args1[i] = slots.get(base + 2);
+            args2[i] = slots.get(base + 3);
+            if (stamp != slots.get(base) || stamp >>> TYPE_BITS != number + 1) {
+                continue;
+            }
+            stamps[i] = stamp;
+            lastTime = Math.max(lastTime, times[i]);
+        }
+        for (int i = 0; i < times.length; i++) {
+            if (stamps[i] == 0) {
+                continue;
+            }
+            builder.append(String.format(Locale.ROOT, "%10.3fms ", (times[i] - lastTime) / 1e6));
+            EVENTS[(int) (stamps[i] & TYPE_MASK)].appendTo(builder, args1[i], args2[i]);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 清空缓冲区，只在没有并发记录时调用
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+        next.set(0);
+    }
+}
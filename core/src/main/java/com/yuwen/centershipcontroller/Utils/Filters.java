@@ -0,0 +1,531 @@
+package com.yuwen.centershipcontroller.Utils;
+
+/**
+ * 摇杆输入滤波器
+ * 滤波器只在控制线程中使用，不是线程安全的
+ * @author yuwen404
+ */
+public final class Filters {
+    // 接口默认批量实现的输出数组；默认方法不能持有实例字段，按线程复用
+    private static final ThreadLocal<float[]> DEFAULT_BATCH_OUT = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[2];
+        }
+    };
+
+    private Filters() {
+    }
+
+    /**
+     * 限制值在指定范围内
+     * @param value 需要限制的值
+     * @param min 最小值
+     * @param max 最大值
+     * @return 限制后的值
+     */
+    public static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * 检查批量滤波的数组范围
+     * @throws IndexOutOfBoundsException 范围超出任一数组
+     */
+    static void checkBatchRange(float[] xs, float[] ys, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > xs.length - length || offset > ys.length - length) {
+            throw new IndexOutOfBoundsException("批量范围越界: offset=" + offset + ", length=" + length
+                    + ", xs=" + xs.length + ", ys=" + ys.length);
+        }
+    }
+
+    /**
+     * 逐个采样调用update(x, y, out)完成批量滤波，作为没有专门批量实现时的通用路径
+     * @param out 调用方复用的输出数组，至少2个元素
+     */
+    static void updateEach(LowLatencyFilter filter, float[] xs, float[] ys, int offset, int length, float[] out) {
+        checkBatchRange(xs, ys, offset, length);
+        for (int i = offset, end = offset + length; i < end; i++) {
+            filter.update(xs[i], ys[i], out);
+            xs[i] = out[0];
+            ys[i] = out[1];
+        }
+    }
+
+    /**
+     * 超低延迟滤波器接口
+     * 定义通用滤波器接口，使不同滤波算法可以互换使用
+     */
+    public interface LowLatencyFilter {
+        /**
+         * 重置滤波器状态
+         */
+        void reset();
+
+        /**
+         * 更新一个坐标轴的值
+         * @param value 输入值
+         * @return 滤波后的值
+         */
+        float update(float value);
+
+        /**
+         * 同时更新两个坐标的值，结果写入调用方提供的数组，热路径上不产生分配
+         * @param x X轴输入值
+         * @param y Y轴输入值
+         * @param out 输出数组，至少2个元素，out[0]为滤波后的X，out[1]为滤波后的Y
+         */
+        void update(float x, float y, float[] out);
+
+        /**
+         * 带采样时刻同时更新两个坐标的值
+         * 依赖采样间隔的滤波器(如OneEuroFilter)据此计算速度，其余滤波器忽略时刻
+         * @param x X轴输入值
+         * @param y Y轴输入值
+         * @param timeNanos 采样时刻(纳秒)
+         * @param out 输出数组，至少2个元素
+         */
+        default void update(float x, float y, long timeNanos, float[] out) {
+            update(x, y, out);
+        }
+
+        /**
+         * 同时更新两个坐标的值
+         * @param x X轴输入值
+         * @param y Y轴输入值
+         * @return 包含滤波后[x,y]的数组
+         */
+        default float[] update(float x, float y) {
+            float[] out = new float[2];
+            update(x, y, out);
+            return out;
+        }
+
+        /**
+         * 批量滤波：按顺序处理xs/ys中[offset, offset+length)的采样，结果原地写回
+         * X、Y分别存放在两个连续数组中(结构数组)，结果与逐个调用update(x, y, out)完全相同
+         * @param xs X轴采样，滤波后原地覆盖
+         * @param ys Y轴采样，滤波后原地覆盖
+         * @param offset 起始下标
+         * @param length 采样数
+         */
+        default void update(float[] xs, float[] ys, int offset, int length) {
+            updateEach(this, xs, ys, offset, length, DEFAULT_BATCH_OUT.get());
+        }
+    }
+
+    /**
+     * 一阶滞后滤波器(First-Order Lag Filter)
+     * 极低计算复杂度，适合对实时性要求高的控制场景
+     */
+    public static class FastLagFilter implements LowLatencyFilter {
+        // 滤波系数，范围[0,1]：0表示完全使用上次值，1表示完全使用当前值
+        private final float alpha;
+
+        // 上一次滤波结果
+        private float lastX = 0;
+        private float lastY = 0;
+
+        // 滤波器是否初始化
+        private boolean initialized = false;
+
+        /**
+         * 创建快速滞后滤波器
+         * @param alpha 滤波系数[0,1]，值越小滤波效果越强，但响应越慢
+         */
+        public FastLagFilter(float alpha) {
+            // 确保alpha在有效范围内
+            this.alpha = clamp(alpha, 0.01f, 1.0f);
+        }
+
+        /**
+         * 创建默认参数的快速滤波器
+         */
+        public FastLagFilter() {
+            // 默认使用0.3的系数，平衡了平滑性和响应速度
+            this(0.3f);
+        }
+
+        @Override
+        public void reset() {
+            lastX = 0;
+            lastY = 0;
+            initialized = false;
+        }
+
+        @Override
+        public float update(float value) {
+            // 如果是第一次调用，直接返回输入值
+            if (!initialized) {
+                lastX = value;
+                initialized = true;
+                return value;
+            }
+
+            // 一阶滞后滤波公式: y(n) = alpha*x(n) + (1-alpha)*y(n-1)
+            // 只有一次乘法和一次加法，极低计算复杂度
+            lastX = alpha * value + (1 - alpha) * lastX;
+            return lastX;
+        }
+
+        @Override
+        public void update(float x, float y, float[] out) {
+            out[0] = update(x);
+            // 使用相同公式处理Y轴
+            if (!initialized) {
+                lastY = y;
+                initialized = true;
+                out[1] = y;
+                return;
+            }
+
+            lastY = alpha * y + (1 - alpha) * lastY;
+            out[1] = lastY;
+        }
+
+        @Override
+        public void update(float[] xs, float[] ys, int offset, int length) {
+            checkBatchRange(xs, ys, offset, length);
+            if (length == 0) {
+                return;
+            }
+            int start = offset;
+            int end = offset + length;
+            if (!initialized) {
+                // 与逐个更新一致：首个采样X直接采用输入，Y从当前值开始滞后
+                lastX = xs[start];
+                lastY = alpha * ys[start] + (1 - alpha) * lastY;
+                ys[start] = lastY;
+                initialized = true;
+                start++;
+            }
+            // 无分支的紧凑循环，状态保存在局部变量中
+            // 递推依赖上一个结果，无法跨采样向量化；两轴放在同一循环中，使两条依赖链的延迟重叠
+            float a = alpha;
+            float b = 1 - alpha;
+            float x = lastX;
+            float y = lastY;
+            for (int i = start; i < end; i++) {
+                x = a * xs[i] + b * x;
+                y = a * ys[i] + b * y;
+                xs[i] = x;
+                ys[i] = y;
+            }
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    /**
+     * 无滤波直通器 - 用于完全禁用滤波，获得最低延迟
+     */
+    public static class NoFilter implements LowLatencyFilter {
+        @Override
+        public void reset() {
+            // 无状态，不需要重置
+        }
+
+        @Override
+        public float update(float value) {
+            // 直接返回输入值，无滤波
+            return value;
+        }
+
+        @Override
+        public void update(float x, float y, float[] out) {
+            // 直接输出输入值，无滤波
+            out[0] = x;
+            out[1] = y;
+        }
+
+        @Override
+        public void update(float[] xs, float[] ys, int offset, int length) {
+            // 直通，数组保持不变
+            checkBatchRange(xs, ys, offset, length);
+        }
+    }
+
+    /**
+     * 卡尔曼滤波器 - 更高精度的滤波，但计算复杂度较高
+     * 适用于需要精确控制且能接受一定延迟的场景
+     */
+    public static class KalmanFilter implements LowLatencyFilter {
+        // 状态估计值
+        private float stateX = 0;
+        private float stateY = 0;
+
+        // 估计误差协方差
+        private float errorCovarianceX = 1.0f;
+        private float errorCovarianceY = 1.0f;
+
+        // 过程噪声协方差
+        private final float processNoise;
+
+        // 测量噪声协方差
+        private final float measurementNoise;
+
+        // 批量滤波回退到逐个更新时的输出数组
+        private final float[] batchOut = new float[2];
+
+        /**
+         * 创建卡尔曼滤波器
+         */
+        public KalmanFilter(float processNoise, float measurementNoise) {
+            this.processNoise = processNoise;
+            this.measurementNoise = measurementNoise;
+        }
+
+        /**
+         * 创建默认参数的卡尔曼滤波器
+         */
+        public KalmanFilter() {
+            this(0.01f, 0.1f);
+        }
+
+        @Override
+        public void reset() {
+            stateX = 0;
+            stateY = 0;
+            errorCovarianceX = 1.0f;
+            errorCovarianceY = 1.0f;
+        }
+
+        @Override
+        public float update(float measurement) {
+            // 预测阶段
+            errorCovarianceX = errorCovarianceX + processNoise;
+
+            // 更新阶段
+            float kalmanGain = errorCovarianceX / (errorCovarianceX + measurementNoise);
+            stateX = stateX + kalmanGain * (measurement - stateX);
+            errorCovarianceX = (1 - kalmanGain) * errorCovarianceX;
+
+            return stateX;
+        }
+
+        @Override
+        public void update(float x, float y, float[] out) {
+            out[0] = update(x);
+
+            // 对Y轴执行相同操作
+            errorCovarianceY = errorCovarianceY + processNoise;
+            float kalmanGain = errorCovarianceY / (errorCovarianceY + measurementNoise);
+            stateY = stateY + kalmanGain * (y - stateY);
+            errorCovarianceY = (1 - kalmanGain) * errorCovarianceY;
+
+            out[1] = stateY;
+        }
+
+        @Override
+        public void update(float[] xs, float[] ys, int offset, int length) {
+            if (errorCovarianceX != errorCovarianceY) {
+                // 只更新过单个坐标轴，两轴的增益序列不同
+                updateEach(this, xs, ys, offset, length, batchOut);
+                return;
+            }
+            checkBatchRange(xs, ys, offset, length);
+            // 协方差和增益的递推与测量值无关，两轴相同时每个采样只需计算一次增益
+            float q = processNoise;
+            float r = measurementNoise;
+            float p = errorCovarianceX;
+            float sx = stateX;
+            float sy = stateY;
+            int i = offset;
+            int end = offset + length;
+            while (i < end) {
+                float predicted = p + q;
+                float kalmanGain = predicted / (predicted + r);
+                sx = sx + kalmanGain * (xs[i] - sx);
+                sy = sy + kalmanGain * (ys[i] - sy);
+                xs[i] = sx;
+                ys[i] = sy;
+                i++;
+                float next = (1 - kalmanGain) * predicted;
+                if (next == p) {
+                    // 协方差已收敛到不动点，此后增益不变，剩余采样不再需要除法
+                    for (; i < end; i++) {
+                        sx = sx + kalmanGain * (xs[i] - sx);
+                        sy = sy + kalmanGain * (ys[i] - sy);
+                        xs[i] = sx;
+                        ys[i] = sy;
+                    }
+                }
+                p = next;
+            }
+            stateX = sx;
+            stateY = sy;
+            errorCovarianceX = p;
+            errorCovarianceY = p;
+        }
+    }
+
+    /**
+     * 自适应滤波器(One Euro Filter)
+     * 截止频率随摇杆速度升高：静止或慢速时强平滑以去除手抖，快速移动时几乎不平滑以减小滞后；
+     * 设置预测时长后，沿估计的速度外推，补偿从触摸到船执行之间的管线延迟
+     */
+    public static class OneEuroFilter implements LowLatencyFilter {
+        // 没有采样时刻时按触摸采样的典型间隔计算
+        private static final float NOMINAL_INTERVAL = 1f / 120f;
+        // 采样间隔上限，长时间无输入后不会因间隔过大而失去平滑
+        private static final float MAX_INTERVAL = 0.1f;
+        // 外推速度的截止频率(Hz)
+        private static final float TREND_CUTOFF = 5f;
+
+        // 静止时的截止频率(Hz)，越低越平滑
+        private final float minCutoff;
+        // 截止频率随速度增加的系数，越大快速移动时滞后越小
+        private final float beta;
+        // 速度估计的截止频率(Hz)
+        private final float derivativeCutoff;
+
+        private float lastX = 0;
+        private float lastY = 0;
+        private float velocityX = 0;
+        private float velocityY = 0;
+        // 外推用的速度：滤波结果的变化率，保持阶段接近零，外推不会放大抖动
+        private float trendX = 0;
+        private float trendY = 0;
+        private long lastTimeNanos = 0;
+        private boolean initialized = false;
+
+        // 外推时长(秒)，可在其他线程设置
+        private volatile float predictionSeconds = 0;
+
+        // 批量滤波的输出数组
+        private final float[] batchOut = new float[2];
+
+        /**
+         * 创建自适应滤波器
+         * @param minCutoff 静止时的截止频率(Hz)
+         * @param beta 速度系数
+         * @param derivativeCutoff 速度估计的截止频率(Hz)
+         */
+        public OneEuroFilter(float minCutoff, float beta, float derivativeCutoff) {
+            this.minCutoff = Math.max(0.01f, minCutoff);
+            this.beta = Math.max(0f, beta);
+            this.derivativeCutoff = Math.max(0.01f, derivativeCutoff);
+        }
+
+        /**
+         * 创建默认参数的自适应滤波器
+         */
+        public OneEuroFilter() {
+            this(1.5f, 4f, 1f);
+        }
+
+        /**
+         * 设置外推时长，0表示只滤波不预测
+         * @param predictionNanos 需要补偿的管线延迟(纳秒)
+         */
+        public void setPredictionNanos(long predictionNanos) {
+            predictionSeconds = Math.max(0L, predictionNanos) / 1e9f;
+        }
+
+        public long getPredictionNanos() {
+            return (long) (predictionSeconds * 1e9f);
+        }
+
+        /**
+         * 低通滤波系数
+         * @param cutoff 截止频率(Hz)
+         * @param interval 采样间隔(秒)
+         */
+        private static float smoothing(float cutoff, float interval) {
+            float tau = 1f / (2f * (float) Math.PI * cutoff);
+            return 1f / (1f + tau / interval);
+        }
+
+        private float interval(long timeNanos) {
+            if (timeNanos == 0 || lastTimeNanos == 0 || timeNanos <= lastTimeNanos) {
+                return NOMINAL_INTERVAL;
+            }
+            return Math.min(MAX_INTERVAL, (timeNanos - lastTimeNanos) / 1e9f);
+        }
+
+        @Override
+        public void reset() {
+            lastX = 0;
+            lastY = 0;
+            velocityX = 0;
+            velocityY = 0;
+            trendX = 0;
+            trendY = 0;
+            lastTimeNanos = 0;
+            initialized = false;
+        }
+
+        @Override
+        public float update(float value) {
+            // 单轴更新按典型采样间隔计算
+            if (!initialized) {
+                lastX = value;
+                velocityX = 0;
+                initialized = true;
+                return value;
+            }
+            float interval = NOMINAL_INTERVAL;
+            velocityX += smoothing(derivativeCutoff, interval) * ((value - lastX) / interval - velocityX);
+            float cutoff = minCutoff + beta * Math.abs(velocityX);
+            lastX += smoothing(cutoff, interval) * (value - lastX);
+            return clamp(lastX + velocityX * predictionSeconds, -1f, 1f);
+        }
+
+        @Override
+        public void update(float x, float y, float[] out) {
+            update(x, y, 0L, out);
+        }
+
+        @Override
+        public void update(float x, float y, long timeNanos, float[] out) {
+            if (!initialized) {
+                lastX = x;
+                lastY = y;
+                velocityX = 0;
+                velocityY = 0;
+                trendX = 0;
+                trendY = 0;
+                lastTimeNanos = timeNanos;
+                initialized = true;
+                out[0] = x;
+                out[1] = y;
+                return;
+            }
+            float interval = interval(timeNanos);
+            if (timeNanos != 0) {
+                lastTimeNanos = timeNanos;
+            }
+
+            // 速度估计：相对上次滤波结果的变化率，再做一次低通
+            float derivativeAlpha = smoothing(derivativeCutoff, interval);
+            velocityX += derivativeAlpha * ((x - lastX) / interval - velocityX);
+            velocityY += derivativeAlpha * ((y - lastY) / interval - velocityY);
+
+            // 两轴按合速度共用截止频率，斜向移动时两轴平滑程度一致
+            float speed = (float) Math.hypot(velocityX, velocityY);
+            float alpha = smoothing(minCutoff + beta * speed, interval);
+            float stepX = alpha * (x - lastX);
+            float stepY = alpha * (y - lastY);
+            lastX += stepX;
+            lastY += stepY;
+
+            float horizon = predictionSeconds;
+            if (horizon <= 0) {
+                out[0] = lastX;
+                out[1] = lastY;
+                return;
+            }
+            float trendAlpha = smoothing(TREND_CUTOFF, interval);
+            trendX += trendAlpha * (stepX / interval - trendX);
+            trendY += trendAlpha * (stepY / interval - trendY);
+            out[0] = clamp(lastX + trendX * horizon, -1f, 1f);
+            out[1] = clamp(lastY + trendY * horizon, -1f, 1f);
+        }
+
+        @Override
+        public void update(float[] xs, float[] ys, int offset, int length) {
+            // 每个采样的截止频率依赖速度，逐个更新
+            updateEach(this, xs, ys, offset, length, batchOut);
+        }
+    }
+}
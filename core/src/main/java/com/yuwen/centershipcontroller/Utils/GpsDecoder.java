@@ -0,0 +1,371 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * GPS消息解码
+ * 船舶设备发送的GPS消息格式为 {"GPS":{"E":11623.4567,"N":3954.1234,"time":"083015"}}，
+ * 经纬度为NMEA度分格式，数值也可能以字符串形式发送。
+ *
+ * {@link #decode(CharSequence, GpsFix)} 直接扫描字符，把E、N、time写入复用的 {@link GpsFix}，
+ * 不构建JsonObject、不截取子串；遇到不常见的写法(转义字符、指数形式、超过15位有效数字)时返回false，
+ * 由调用方改用 {@link #decode(JsonReader, GpsFix)} 处理。
+ * 实例保存扫描位置，不是线程安全的
+ *
+ * @author yuwen
+ */
+public final class GpsDecoder {
+    private static final String KEY_GPS = "GPS";
+    private static final String KEY_EAST = "E";
+    private static final String KEY_NORTH = "N";
+    private static final String KEY_TIME = "time";
+    // 快速路径支持的最大有效数字位数，保证结果与Double.parseDouble一致
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+    static {
+        double power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    // 以下字段只在一次decode调用中使用
+    private CharSequence text;
+    private int pos;
+    private int length;
+    private double number;
+
+    /**
+     * 将NMEA度分格式转换为十进制度数
+     * NMEA格式: DDMM.MMMM，十进制度数: DD.DDDDDD
+     *
+     * @param nmeaValue NMEA格式的经纬度值
+     * @return 十进制度数
+     */
+    public static double nmeaToDecimal(double nmeaValue) {
+        // 获取度数部分 (DD)
+        int degrees = (int) (nmeaValue / 100);
+        // 获取分钟部分 (MM.MMMM)
+        double minutes = nmeaValue - (degrees * 100);
+        // 转换为十进制度数 (DD + MM.MMMM/60)
+        return degrees + (minutes / 60.0);
+    }
+
+    /**
+     * 从消息文本中解码GPS数据
+     *
+     * @param message 第一个顶层字段为"GPS"的消息
+     * @param out     写入结果，解码失败时不修改
+     * @return 成功取得E和N时返回true；不是GPS消息或需要完整JSON解析时返回false
+     */
+    public boolean decode(@NonNull CharSequence message, @NonNull GpsFix out) {
+        reset(message);
+        try {
+            if (!enterGpsObject()) {
+                return false;
+            }
+            boolean hasEast = false;
+            boolean hasNorth = false;
+            double east = 0;
+            double north = 0;
+            int timeStart = 0;
+            int timeEnd = 0;
+
+            skipWhitespace();
+            if (peek() == '}') {
+                return false;
+            }
+            while (true) {
+                if (peek() != '"') {
+                    return false;
+                }
+                int keyStart = pos + 1;
+                int keyEnd = scanString();
+                if (keyEnd < 0 || !expectColon()) {
+                    return false;
+                }
+                if (regionEquals(keyStart, keyEnd, KEY_EAST)) {
+                    if (!scanNumber()) {
+                        return false;
+                    }
+                    east = number;
+                    hasEast = true;
+                } else if (regionEquals(keyStart, keyEnd, KEY_NORTH)) {
+                    if (!scanNumber()) {
+                        return false;
+                    }
+                    north = number;
+                    hasNorth = true;
+                } else if (regionEquals(keyStart, keyEnd, KEY_TIME)) {
+                    if (peek() == '"') {
+                        timeStart = pos + 1;
+                        timeEnd = scanString();
+                        if (timeEnd < 0) {
+                            return false;
+                        }
+                    } else {
+                        timeStart = pos;
+                        skipScalar();
+                        timeEnd = pos;
+                    }
+                } else if (!skipValue()) {
+                    return false;
+                }
+
+                skipWhitespace();
+                char next = peek();
+                pos++;
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    return false;
+                }
+                skipWhitespace();
+            }
+            if (!hasEast || !hasNorth) {
+                return false;
+            }
+            out.set(east, north, message, timeStart, timeEnd, System.nanoTime());
+            return true;
+        } finally {
+            text = null;
+        }
+    }
+
+    /**
+     * 从JSON读取器中解码GPS数据，用于快速路径无法处理的消息
+     *
+     * @param reader 位于"GPS"字段的值之前，返回时恰好读完这个值
+     * @param out    写入结果，解码失败时不修改
+     * @return 是否取得E和N
+     */
+    public static boolean decode(@NonNull JsonReader reader, @NonNull GpsFix out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return false;
+        }
+        double east = Double.NaN;
+        double north = Double.NaN;
+        String time = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case KEY_EAST:
+                    east = reader.nextDouble();
+                    break;
+                case KEY_NORTH:
+                    north = reader.nextDouble();
+                    break;
+                case KEY_TIME:
+                    time = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            return false;
+        }
+        out.set(east, north, time, 0, time.length(), System.nanoTime());
+        return true;
+    }
+
+    private void reset(CharSequence message) {
+        text = message;
+        length = message.length();
+        pos = 0;
+    }
+
+    /**
+     * 跳过 {"GPS": 并进入GPS对象
+     */
+    private boolean enterGpsObject() {
+        skipWhitespace();
+        if (peek() != '{') {
+            return false;
+        }
+        pos++;
+        skipWhitespace();
+        if (peek() != '"') {
+            return false;
+        }
+        int keyStart = pos + 1;
+        int keyEnd = scanString();
+        if (keyEnd < 0 || !regionEquals(keyStart, keyEnd, KEY_GPS) || !expectColon()) {
+            return false;
+        }
+        if (peek() != '{') {
+            return false;
+        }
+        pos++;
+        return true;
+    }
+
+    private char peek() {
+        return pos < length ? text.charAt(pos) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean expectColon() {
+        skipWhitespace();
+        if (peek() != ':') {
+            return false;
+        }
+        pos++;
+        skipWhitespace();
+        return true;
+    }
+
+    /**
+     * 扫描位于pos的字符串，pos移到结束引号之后
+     *
+     * @return 字符串内容的结束位置(不含)，包含转义字符或未结束时返回-1
+     */
+    private int scanString() {
+        for (int i = pos + 1; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                pos = i + 1;
+                return i;
+            }
+            if (c == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionEquals(int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析十进制小数(可带引号)到number字段
+     * 整数部分和小数部分合并为不超过15位的整数再除以10的幂，结果与Double.parseDouble相同
+     */
+    private boolean scanNumber() {
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            pos++;
+        }
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean sawDigit = false;
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                // 忽略前导零，不计入有效数字
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        return false;
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        // 指数形式等交给JsonReader
+        char end = peek();
+        if (!sawDigit || end == 'e' || end == 'E' || fractionDigits > MAX_FAST_DIGITS) {
+            return false;
+        }
+        if (quoted) {
+            if (end != '"') {
+                return false;
+            }
+            pos++;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        number = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * 跳过数字、true、false、null
+     */
+    private void skipScalar() {
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * 跳过任意值，嵌套对象和数组按括号深度跳过
+     */
+    private boolean skipValue() {
+        char c = peek();
+        if (c == '"') {
+            return scanString() >= 0;
+        }
+        if (c != '{' && c != '[') {
+            skipScalar();
+            return true;
+        }
+        int depth = 0;
+        while (pos < length) {
+            c = text.charAt(pos);
+            if (c == '"') {
+                if (scanString() < 0) {
+                    return false;
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    pos++;
+                    return true;
+                }
+            }
+            pos++;
+        }
+        return false;
+    }
+}
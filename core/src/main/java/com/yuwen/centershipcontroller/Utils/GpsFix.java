@@ -0,0 +1,133 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * GPS定位数据
+ * 可复用的可变对象，由 {@link GpsDecoder} 直接写入，解码过程不分配对象。
+ * 不是线程安全的，跨线程传递时由调用方加锁复制
+ *
+ * @author yuwen
+ */
+public final class GpsFix {
+    // 时间字段的最大长度，超出部分截断
+    public static final int MAX_TIME_LENGTH = 32;
+
+    private double rawEast;
+    private double rawNorth;
+    private double latitude;
+    private double longitude;
+    private final char[] time = new char[MAX_TIME_LENGTH];
+    private int timeLength;
+    private long receivedNanos;
+    private boolean valid;
+
+    /**
+     * 写入一次定位，经纬度由NMEA度分格式换算为十进制度数
+     *
+     * @param east          NMEA格式经度(DDDMM.MMMM)
+     * @param north         NMEA格式纬度(DDMM.MMMM)
+     * @param source        时间字段所在的字符序列，可为null
+     * @param timeStart     时间字段起始位置
+     * @param timeEnd       时间字段结束位置(不含)
+     * @param receivedNanos 收到的时刻(System.nanoTime)
+     */
+    void set(double east, double north, CharSequence source, int timeStart, int timeEnd, long receivedNanos) {
+        rawEast = east;
+        rawNorth = north;
+        longitude = GpsDecoder.nmeaToDecimal(east);
+        latitude = GpsDecoder.nmeaToDecimal(north);
+        timeLength = 0;
+        if (source != null) {
+            int end = Math.min(timeEnd, timeStart + MAX_TIME_LENGTH);
+            for (int i = timeStart; i < end; i++) {
+                time[timeLength++] = source.charAt(i);
+            }
+        }
+        this.receivedNanos = receivedNanos;
+        valid = true;
+    }
+
+    /**
+     * 复制另一个定位对象的全部内容
+     */
+    public void copyFrom(@NonNull GpsFix other) {
+        rawEast = other.rawEast;
+        rawNorth = other.rawNorth;
+        latitude = other.latitude;
+        longitude = other.longitude;
+        System.arraycopy(other.time, 0, time, 0, other.timeLength);
+        timeLength = other.timeLength;
+        receivedNanos = other.receivedNanos;
+        valid = other.valid;
+    }
+
+    public void clear() {
+        timeLength = 0;
+        valid = false;
+    }
+
+    /**
+     * @return 是否已写入定位
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return 十进制纬度
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return 十进制经度
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return NMEA格式经度
+     */
+    public double getRawEast() {
+        return rawEast;
+    }
+
+    /**
+     * @return NMEA格式纬度
+     */
+    public double getRawNorth() {
+        return rawNorth;
+    }
+
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    public int getTimeLength() {
+        return timeLength;
+    }
+
+    /**
+     * 将时间字段追加到StringBuilder，不分配字符串
+     */
+    public StringBuilder appendTime(@NonNull StringBuilder builder) {
+        return builder.append(time, 0, timeLength);
+    }
+
+    /**
+     * @return 时间字段，会分配新字符串，只用于显示和日志
+     */
+    @NonNull
+    public String getTime() {
+        return new String(time, 0, timeLength);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "GpsFix{纬度=" + latitude + ", 经度=" + longitude + ", 时间=" + getTime() + "}";
+    }
+}
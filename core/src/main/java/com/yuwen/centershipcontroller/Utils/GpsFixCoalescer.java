@@ -0,0 +1,149 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GPS定位合并器
+ * WebSocket读线程调用 {@link #offer(GpsFix)} 写入定位，只保留最新的一条；
+ * 主线程在每个显示帧调用 {@link #poll(GpsFix)} 取出，连续到达的多条定位在一帧内只绘制一次。
+ * offer返回true时调用方需要预约下一帧(Choreographer)，同一时刻最多只有一次预约
+ *
+ * @author yuwen
+ */
+public final class GpsFixCoalescer {
+    // 地球平均半径(米)
+    private static final double EARTH_RADIUS = 6_371_008.8;
+    // 默认的地图移动阈值(像素)
+    public static final float DEFAULT_MIN_CAMERA_MOVE_PIXELS = 2f;
+
+    private final GpsFix pending = new GpsFix();
+    private boolean hasPending; // 由pending加锁保护
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private volatile float minCameraMovePixels = DEFAULT_MIN_CAMERA_MOVE_PIXELS;
+
+    // offer只在读线程调用，poll和shouldMoveCamera只在主线程调用，计数器各自单线程写入
+    private volatile long receivedCount;
+    private volatile long coalescedCount;
+    private volatile long renderedCount;
+    private volatile long cameraMoveCount;
+    private volatile long skippedCameraMoveCount;
+
+    /**
+     * 写入一条新定位，覆盖尚未绘制的旧定位
+     *
+     * @param fix 新定位，调用返回后可被复用
+     * @return 是否需要预约下一帧
+     */
+    public boolean offer(@NonNull GpsFix fix) {
+        synchronized (pending) {
+            if (hasPending) {
+                coalescedCount++;
+            }
+            pending.copyFrom(fix);
+            hasPending = true;
+        }
+        receivedCount++;
+        return frameScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * 在帧回调中取出最新定位
+     * 先清除预约标记再取数据，取出后到达的定位会重新预约下一帧，不会遗漏
+     *
+     * @param out 接收定位的对象
+     * @return 是否有新定位
+     */
+    public boolean poll(@NonNull GpsFix out) {
+        frameScheduled.set(false);
+        synchronized (pending) {
+            if (!hasPending) {
+                return false;
+            }
+            out.copyFrom(pending);
+            hasPending = false;
+        }
+        renderedCount++;
+        return true;
+    }
+
+    /**
+     * 丢弃尚未绘制的定位，页面销毁时调用
+     */
+    public void clear() {
+        synchronized (pending) {
+            hasPending = false;
+        }
+        frameScheduled.set(false);
+    }
+
+    /**
+     * 判断地图中心是否需要移动，屏幕上位移小于阈值时跳过
+     *
+     * @param fromLatitude   当前地图中心纬度
+     * @param fromLongitude  当前地图中心经度
+     * @param toLatitude     新定位纬度
+     * @param toLongitude    新定位经度
+     * @param metersPerPixel 当前缩放等级下每像素对应的米数
+     */
+    public boolean shouldMoveCamera(double fromLatitude, double fromLongitude,
+                                    double toLatitude, double toLongitude, float metersPerPixel) {
+        boolean move = !(metersPerPixel > 0)
+                || distanceMeters(fromLatitude, fromLongitude, toLatitude, toLongitude) / metersPerPixel
+                >= minCameraMovePixels;
+        if (move) {
+            cameraMoveCount++;
+        } else {
+            skippedCameraMoveCount++;
+        }
+        return move;
+    }
+
+    /**
+     * 两点间的近似距离(米)，等距圆柱投影，地图一屏范围内误差可以忽略
+     */
+    static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double meanLatitude = Math.toRadians((latitude1 + latitude2) / 2);
+        double dx = Math.toRadians(longitude2 - longitude1) * Math.cos(meanLatitude);
+        double dy = Math.toRadians(latitude2 - latitude1);
+        return Math.sqrt(dx * dx + dy * dy) * EARTH_RADIUS;
+    }
+
+    public void setMinCameraMovePixels(float pixels) {
+        if (pixels < 0) {
+            throw new IllegalArgumentException("像素阈值不能为负: " + pixels);
+        }
+        minCameraMovePixels = pixels;
+    }
+
+    public float getMinCameraMovePixels() {
+        return minCameraMovePixels;
+    }
+
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getRenderedCount() {
+        return renderedCount;
+    }
+
+    public long getCameraMoveCount() {
+        return cameraMoveCount;
+    }
+
+    public long getSkippedCameraMoveCount() {
+        return skippedCameraMoveCount;
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT, "GPS定位: 收到=%d, 绘制=%d, 合并=%d, 移动地图=%d, 跳过移动=%d",
+                receivedCount, renderedCount, coalescedCount, cameraMoveCount, skippedCameraMoveCount);
+    }
+}
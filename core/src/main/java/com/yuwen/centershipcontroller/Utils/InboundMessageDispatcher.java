@@ -0,0 +1,181 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * 收到的JSON消息分发器
+ * 用JsonReader单次流式读取顶层字段，按消息类型交给对应的处理方法：
+ * <pre>
+ * {"GPS":{...}}                     GPS数据，由GpsDecoder直接扫描字符写入复用的GpsFix
+ * {"SHIPMOTRO":{...},"SEQ":N}       船舶回显的控制命令，命令内容直接跳过
+ * {"type":"ack","seq":N}            控制命令确认
+ * {"type":"connection",...}         连接消息
+ * {"type":"room"/"room_info",...}   房间消息，频率低，构建JsonObject后交给处理方法
+ * </pre>
+ * GpsFix在调用间复用，因此只能在单一线程(MainDeviceInbound入站工作线程)中调用
+ *
+ * @author yuwen
+ */
+public final class InboundMessageDispatcher {
+    public static final String KEY_GPS = "GPS";
+    public static final String KEY_SHIP_MOTOR = "SHIPMOTRO";
+    public static final String KEY_SEQ = "SEQ";
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_ACK_SEQ = "seq";
+    private static final String KEY_MESSAGE = "message";
+
+    /**
+     * 分发结果
+     */
+    public enum MessageKind {
+        GPS,
+        ACK,
+        CONNECTION,
+        ROOM,
+        ROOM_INFO,
+        UNKNOWN,
+        MALFORMED
+    }
+
+    /**
+     * 各类消息的处理方法，按需覆盖
+     */
+    public interface MessageHandler {
+        /**
+         * GPS定位，对象在下一条消息时会被覆盖，需要保留时调用copyFrom复制
+         */
+        default void onGpsFix(@NonNull GpsFix fix) {
+        }
+
+        /**
+         * 控制命令确认(顶层"SEQ"字段或ack消息)
+         */
+        default void onAck(int sequence) {
+        }
+
+        default void onConnection(@NonNull String message) {
+        }
+
+        default void onRoom(@NonNull JsonObject message) {
+        }
+
+        default void onRoomInfo(@NonNull JsonObject message) {
+        }
+
+        default void onUnknown(@NonNull String message) {
+        }
+    }
+
+    private final MessageHandler handler;
+    private final GpsDecoder gpsDecoder = new GpsDecoder();
+    private final GpsFix gpsFix = new GpsFix();
+
+    public InboundMessageDispatcher(@NonNull MessageHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 解析并分发一条消息
+     *
+     * @param message 收到的文本消息
+     * @return 消息类型，无法解析时返回MALFORMED
+     */
+    public MessageKind dispatch(@NonNull String message) {
+        // 最高频的GPS消息走字符扫描快速路径
+        if (gpsDecoder.decode(message, gpsFix)) {
+            handler.onGpsFix(gpsFix);
+            return MessageKind.GPS;
+        }
+        try {
+            return dispatch(new JsonReader(new StringReader(message)), message);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return MessageKind.MALFORMED;
+        }
+    }
+
+    private MessageKind dispatch(JsonReader reader, String message) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return MessageKind.MALFORMED;
+        }
+        reader.beginObject();
+        // 顶层字段只在需要时才保存，GPS和命令回显都不会用到
+        JsonObject members = null;
+        boolean hasSequence = false;
+        int sequence = 0;
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case KEY_GPS:
+                    if (GpsDecoder.decode(reader, gpsFix)) {
+                        handler.onGpsFix(gpsFix);
+                    }
+                    // GPS消息的其余字段不再需要
+                    return MessageKind.GPS;
+                case KEY_SHIP_MOTOR:
+                    reader.skipValue();
+                    break;
+                case KEY_SEQ:
+                    if (reader.peek() == JsonToken.NUMBER) {
+                        sequence = reader.nextInt();
+                        hasSequence = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    if (members == null) {
+                        members = new JsonObject();
+                    }
+                    members.add(name, JsonParser.parseReader(reader));
+                    break;
+            }
+        }
+
+        if (hasSequence) {
+            handler.onAck(sequence);
+            return MessageKind.ACK;
+        }
+        String type = members == null ? null : stringMember(members, KEY_TYPE);
+        if (type == null) {
+            handler.onUnknown(message);
+            return MessageKind.UNKNOWN;
+        }
+        switch (type) {
+            case "ack":
+                JsonElement ackSequence = members.get(KEY_ACK_SEQ);
+                if (ackSequence == null || !ackSequence.isJsonPrimitive()) {
+                    break;
+                }
+                handler.onAck(ackSequence.getAsInt());
+                return MessageKind.ACK;
+            case "connection":
+                String text = stringMember(members, KEY_MESSAGE);
+                handler.onConnection(text == null ? "" : text);
+                return MessageKind.CONNECTION;
+            case "room":
+                handler.onRoom(members);
+                return MessageKind.ROOM;
+            case "room_info":
+                handler.onRoomInfo(members);
+                return MessageKind.ROOM_INFO;
+            default:
+                break;
+        }
+        handler.onUnknown(message);
+        return MessageKind.UNKNOWN;
+    }
+
+    private static String stringMember(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+}
@@ -0,0 +1,296 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 收到消息的处理线程
+ * WebSocket读线程只把文本消息放入有界队列，解析和处理在专用线程中进行，处理变慢时不会阻塞读取。
+ * 队列中尚未处理的同类消息按类别合并：
+ * <pre>
+ * GPS        只保留最新一条，新定位直接替换队列中未处理的旧定位
+ * ROOM_INFO  只保留最新一条，房间信息只关心当前状态
+ * OTHER      确认、房间、连接等消息，按到达顺序逐条处理
+ * </pre>
+ * 合并的消息保留旧消息在队列中的位置，其余消息的相对顺序不变。
+ * 队列已满时丢弃新到达的消息；GPS和房间信息各自最多占用一个位置，只有处理线程长时间停滞时才会发生
+ *
+ * {@link #offer} 只由读线程调用，处理方法在处理线程中调用
+ *
+ * @author yuwen
+ */
+public final class InboundMessageWorker {
+    private static final String TAG = "InboundMessageWorker";
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final String GPS_PREFIX = "{\"" + InboundMessageDispatcher.KEY_GPS + "\"";
+    private static final String ROOM_INFO_TYPE = "\"type\":\"room_info\"";
+
+    /**
+     * 消息类别
+     */
+    public enum Kind {
+        GPS,
+        ROOM_INFO,
+        OTHER
+    }
+
+    /**
+     * 消息处理方法，在处理线程中调用
+     */
+    public interface Handler {
+        /**
+         * @param message       消息内容，合并后为同类消息中最新的一条
+         * @param receivedNanos 消息到达读线程的时刻，用于统计往返延迟等需要排除本地排队时间的场合
+         */
+        void onMessage(@NonNull String message, long receivedNanos);
+    }
+
+    /**
+     * 队列中的消息，合并时原地替换内容
+     */
+    private static final class Entry {
+        final long receivedNanos;
+        String text;
+
+        Entry(String text, long receivedNanos) {
+            this.text = text;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private final Handler handler;
+    private final int capacity;
+    private volatile boolean running = true;
+
+    // 以下字段由lock保护
+    private final Object lock = new Object();
+    private final ArrayDeque<Entry> queue;
+    private Entry pendingGps;
+    private Entry pendingRoomInfo;
+    private boolean waiting;
+    private int maxDepth;
+
+    private final LatencyHistogram queueMonitor = new LatencyHistogram("入站排队");
+    private final LatencyHistogram processMonitor = new LatencyHistogram("入站处理");
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong conflatedGpsCount = new AtomicLong();
+    private final AtomicLong conflatedRoomInfoCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * 创建并启动处理线程
+     *
+     * @param name     线程名
+     * @param capacity 队列容量
+     * @param handler  消息处理方法
+     */
+    public InboundMessageWorker(String name, int capacity, @NonNull Handler handler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("队列容量必须为正: " + capacity);
+        }
+        this.handler = handler;
+        this.capacity = capacity;
+        queue = new ArrayDeque<>(capacity);
+        Thread thread = new Thread(this::runLoop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 根据消息开头判断类别，不解析JSON；无法识别的GPS消息按OTHER处理，不影响正确性，只是不参与合并
+     */
+    @NonNull
+    static Kind classify(@NonNull String message) {
+        if (message.startsWith(GPS_PREFIX)) {
+            return Kind.GPS;
+        }
+        if (message.contains(ROOM_INFO_TYPE)) {
+            return Kind.ROOM_INFO;
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * 放入一条消息，不阻塞
+     *
+     * @param message 收到的文本消息
+     * @return 是否已入队或已合并；队列已满或已停止时返回false
+     */
+    public boolean offer(@NonNull String message) {
+        long now = System.nanoTime();
+        receivedCount.incrementAndGet();
+        Kind kind = classify(message);
+        synchronized (lock) {
+            if (!running) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            Entry pending = kind == Kind.GPS ? pendingGps : kind == Kind.ROOM_INFO ? pendingRoomInfo : null;
+            if (pending != null) {
+                // 替换尚未处理的同类消息，排队时间仍从旧消息到达时算起
+                pending.text = message;
+                (kind == Kind.GPS ? conflatedGpsCount : conflatedRoomInfoCount).incrementAndGet();
+                return true;
+            }
+            if (queue.size() >= capacity) {
+                droppedCount.incrementAndGet();
+                EventJournal.getInstance().record(EventJournal.Event.INBOUND_DROPPED, queue.size());
+                return false;
+            }
+            Entry entry = new Entry(message, now);
+            queue.addLast(entry);
+            if (kind == Kind.GPS) {
+                pendingGps = entry;
+            } else if (kind == Kind.ROOM_INFO) {
+                pendingRoomInfo = entry;
+            }
+            maxDepth = Math.max(maxDepth, queue.size());
+            if (waiting) {
+                waiting = false;
+                lock.notify();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止处理线程，未处理的消息被丢弃
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            droppedCount.addAndGet(queue.size());
+            queue.clear();
+            pendingGps = null;
+            pendingRoomInfo = null;
+            lock.notify();
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            Entry entry;
+            String text;
+            synchronized (lock) {
+                while (running && queue.isEmpty()) {
+                    waiting = true;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                entry = queue.pollFirst();
+                if (entry == pendingGps) {
+                    pendingGps = null;
+                } else if (entry == pendingRoomInfo) {
+                    pendingRoomInfo = null;
+                }
+                // 出队后entry不再被修改，在锁内读取合并后的内容
+                text = entry.text;
+            }
+            long start = System.nanoTime();
+            queueMonitor.record(start - entry.receivedNanos);
+            try {
+                handler.onMessage(text, entry.receivedNanos);
+            } catch (Exception e) {
+                Log.e(TAG, "处理消息出错", e);
+            }
+            processMonitor.recordSince(start);
+            processedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return 当前队列中的消息数
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return 统计重置以来的最大队列深度
+     */
+    public int getMaxQueueDepth() {
+        synchronized (lock) {
+            return maxDepth;
+        }
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return 被更新的定位替换的GPS消息数
+     */
+    public long getConflatedGpsCount() {
+        return conflatedGpsCount.get();
+    }
+
+    /**
+     * @return 被更新的房间信息替换的room_info消息数
+     */
+    public long getConflatedRoomInfoCount() {
+        return conflatedRoomInfoCount.get();
+    }
+
+    /**
+     * @return 队列已满或停止后丢弃的消息数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 从到达到开始处理的等待时间
+     */
+    public LatencyHistogram getQueueHistogram() {
+        return queueMonitor;
+    }
+
+    /**
+     * 处理方法本身的耗时
+     */
+    public LatencyHistogram getProcessHistogram() {
+        return processMonitor;
+    }
+
+    @NonNull
+    public String getStats() {
+        return String.format(Locale.ROOT, "入站队列: 深度=%d, 最大深度=%d, 收到=%d, 处理=%d, 合并GPS=%d, 合并房间信息=%d, 丢弃=%d",
+                getQueueDepth(), getMaxQueueDepth(), receivedCount.get(), processedCount.get(),
+                conflatedGpsCount.get(), conflatedRoomInfoCount.get(), droppedCount.get())
+                + "\n" + queueMonitor.getStats()
+                + "\n" + processMonitor.getStats();
+    }
+
+    public void resetStats() {
+        synchronized (lock) {
+            maxDepth = queue.size();
+        }
+        queueMonitor.reset();
+        processMonitor.reset();
+        receivedCount.set(0);
+        processedCount.set(0);
+        conflatedGpsCount.set(0);
+        conflatedRoomInfoCount.set(0);
+        droppedCount.set(0);
+    }
+}
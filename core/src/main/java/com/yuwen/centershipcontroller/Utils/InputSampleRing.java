@@ -0,0 +1,97 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 摇杆采样环形缓冲区
+ * 单生产者(UI线程)、单消费者(控制线程)，无锁，采样以原始类型数组保存，读写都不分配对象。
+ * 缓冲区满时丢弃新采样并计数，由调用方另行保留最新输入
+ *
+ * @author yuwen
+ */
+public final class InputSampleRing {
+    private final int mask;
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] times;
+    // 下一个写入位置，只由生产者推进
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个读取位置，只由消费者推进
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public InputSampleRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        xs = new float[size];
+        ys = new float[size];
+        times = new long[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 写入一个采样，只能在生产者线程调用
+     *
+     * @param x         标准化X轴值
+     * @param y         标准化Y轴值
+     * @param timeNanos 采样时刻(System.nanoTime时基)
+     * @return 缓冲区已满时返回false，采样被丢弃
+     */
+    public boolean offer(float x, float y, long timeNanos) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int slot = (int) t & mask;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = timeNanos;
+        // 发布写入，消费者读到新的tail时数据已可见
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 按写入顺序取出采样，只能在消费者线程调用
+     *
+     * @return 取出的采样数，不超过max
+     */
+    public int drainTo(float[] outX, float[] outY, long[] outTimes, int max) {
+        long h = head.get();
+        int count = (int) Math.min(max, tail.get() - h);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (h + i) & mask;
+            outX[i] = xs[slot];
+            outY[i] = ys[slot];
+            outTimes[i] = times[slot];
+        }
+        // 释放槽位
+        head.lazySet(h + count);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    /**
+     * 清空缓冲区，只能在消费者线程调用
+     */
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    /**
+     * @return 因缓冲区已满被丢弃的采样数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
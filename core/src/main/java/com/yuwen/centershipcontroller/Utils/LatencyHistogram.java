@@ -0,0 +1,244 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图(纳秒)
+ * 对数-线性分桶：小于32ns逐值计数，之后每个2的幂区间等分16个桶，相对误差不超过约6%
+ * 桶数组固定大小，记录时不加锁也不分配对象，可在任意多个线程中同时记录；
+ * 查询时通过 {@link #snapshot()} 取得一致的副本再计算百分位
+ *
+ * @author yuwen
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    // 最高位为第62位的数值对应最后一组桶
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (62 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一个样本，负值按0处理
+     *
+     * @param nanos 延迟(纳秒)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long min = minNanos.get();
+        while (value < min && !minNanos.compareAndSet(min, value)) {
+            min = minNanos.get();
+        }
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * 记录从起始时刻到现在的耗时
+     *
+     * @param startNanos 起始时刻(System.nanoTime)
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 清空所有样本
+     * 与记录并发执行时，同时到达的样本可能保留也可能被清除，但不会破坏其他样本
+     */
+    public void reset() {
+        drain(null);
+    }
+
+    /**
+     * 获取当前样本的副本
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(name, copy, totalNanos.get(), minNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * 获取当前样本的副本并清空，用于按时间窗口统计
+     * 每个样本恰好出现在一次快照中
+     */
+    @NonNull
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKET_COUNT];
+        return drain(copy);
+    }
+
+    private Snapshot drain(long[] copy) {
+        long total = totalNanos.getAndSet(0);
+        long min = minNanos.getAndSet(Long.MAX_VALUE);
+        long max = maxNanos.getAndSet(0);
+        long drained = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.getAndSet(i, 0);
+            drained += count;
+            if (copy != null) {
+                copy[i] = count;
+            }
+        }
+        totalCount.addAndGet(-drained);
+        return copy != null ? new Snapshot(name, copy, total, min, max) : null;
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 获取百分位值，需要多个统计值时应使用 {@link #snapshot()}
+     *
+     * @param percentile 百分位 (0-100]
+     */
+    public long getValueAtPercentile(double percentile) {
+        return snapshot().getValueAtPercentile(percentile);
+    }
+
+    @NonNull
+    public String getStats() {
+        return snapshot().toString();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        // value >> shift 落在 [16, 32)
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图的不可变副本
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long minNanos;
+        private final long maxNanos;
+
+        Snapshot(String name, long[] counts, long totalNanos, long minNanos, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+            this.minNanos = sum > 0 ? minNanos : 0;
+            this.maxNanos = sum > 0 ? maxNanos : 0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMinNanos() {
+            return minNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        /**
+         * 合并另一个快照的样本，用于汇总多个会话的同类直方图
+         *
+         * @return 以本快照名称命名的新快照
+         */
+        @NonNull
+        public Snapshot merge(@NonNull Snapshot other) {
+            long[] merged = counts.clone();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += other.counts[i];
+            }
+            long min = Math.min(count > 0 ? minNanos : Long.MAX_VALUE, other.count > 0 ? other.minNanos : Long.MAX_VALUE);
+            return new Snapshot(name, merged, totalNanos + other.totalNanos, min, Math.max(maxNanos, other.maxNanos));
+        }
+
+        /**
+         * 获取百分位值
+         *
+         * @param percentile 百分位 (0-100]
+         * @return 该百分位所在桶的上界，不超过最大值；无数据时返回0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double clamped = Math.max(0, Math.min(100, percentile));
+            long target = Math.max(1, (long) Math.ceil(clamped / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            if (count == 0) return name + ": 无数据";
+
+            return String.format(Locale.ROOT, "%s: 计数=%d, 平均=%.3fms, p50=%.3fms, p95=%.3fms, p99=%.3fms, 最大=%.3fms",
+                    name, count, getMeanNanos() / 1e6,
+                    getValueAtPercentile(50) / 1e6, getValueAtPercentile(95) / 1e6,
+                    getValueAtPercentile(99) / 1e6, maxNanos / 1e6);
+        }
+    }
+}
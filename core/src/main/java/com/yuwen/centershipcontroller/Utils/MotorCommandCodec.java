@@ -0,0 +1,122 @@
+package com.yuwen.centershipcontroller.Utils;
+
+/**
+ * 电机控制命令二进制编解码
+ * 以WebSocket二进制帧发送，船舶端无需解析JSON
+ *
+ * 帧格式(6字节):
+ * <pre>
+ * 字节0: 帧头 0xA5
+ * 字节1: 序号 (0-255循环)
+ * 字节2: CH1 左推进器推力
+ * 字节3: CH2 右推进器推力
+ * 字节4: 标志位 bit0=DIR1, bit1=DIR2, bit2=EN1, bit3=EN2, 其余为0
+ * 字节5: 校验 CRC-8 (多项式0x07, 初值0x00)，覆盖字节0-4
+ * </pre>
+ *
+ * @author yuwen
+ */
+public final class MotorCommandCodec {
+    public static final int FRAME_LENGTH = 6;
+    public static final byte MAGIC = (byte) 0xA5;
+
+    private static final int FLAG_DIR1 = 1;
+    private static final int FLAG_DIR2 = 1 << 1;
+    private static final int FLAG_EN1 = 1 << 2;
+    private static final int FLAG_EN2 = 1 << 3;
+    private static final int FLAG_MASK = FLAG_DIR1 | FLAG_DIR2 | FLAG_EN1 | FLAG_EN2;
+
+    private static final byte[] CRC8_TABLE = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1) ^ 0x07 : crc << 1;
+            }
+            CRC8_TABLE[i] = (byte) crc;
+        }
+    }
+
+    private MotorCommandCodec() {
+    }
+
+    /**
+     * 将命令编码到调用方提供的缓冲区
+     *
+     * @param command  控制命令
+     * @param sequence 序号，只保留低8位
+     * @param out      输出缓冲区
+     * @param offset   写入起始位置，之后至少需要 {@link #FRAME_LENGTH} 字节
+     * @return 写入的字节数
+     */
+    public static int encode(ControlCommand command, int sequence, byte[] out, int offset) {
+        int flags = (command.leftDirection & 1)
+                | (command.rightDirection & 1) << 1
+                | (command.leftEnable & 1) << 2
+                | (command.rightEnable & 1) << 3;
+        out[offset] = MAGIC;
+        out[offset + 1] = (byte) sequence;
+        out[offset + 2] = (byte) command.leftThrust;
+        out[offset + 3] = (byte) command.rightThrust;
+        out[offset + 4] = (byte) flags;
+        out[offset + 5] = crc8(out, offset, FRAME_LENGTH - 1);
+        return FRAME_LENGTH;
+    }
+
+    /**
+     * 检查帧头、长度、标志位和校验
+     *
+     * @return 是否为有效的命令帧
+     */
+    public static boolean isValidFrame(byte[] in, int offset, int length) {
+        if (length < FRAME_LENGTH || in[offset] != MAGIC) {
+            return false;
+        }
+        if ((in[offset + 4] & ~FLAG_MASK) != 0) {
+            return false;
+        }
+        return crc8(in, offset, FRAME_LENGTH - 1) == in[offset + 5];
+    }
+
+    /**
+     * 解码命令帧
+     *
+     * @return 命令表中的对应命令；帧无效或命令不在命令表中(如左右方向不一致)时返回null
+     */
+    public static ControlCommand decode(byte[] in, int offset, int length) {
+        if (!isValidFrame(in, offset, length)) {
+            return null;
+        }
+        int leftThrust = in[offset + 2] & 0xFF;
+        int rightThrust = in[offset + 3] & 0xFF;
+        int flags = in[offset + 4];
+        int direction = flags & FLAG_DIR1;
+        int enable = (flags & FLAG_EN1) != 0 ? 1 : 0;
+        boolean sameDirection = ((flags & FLAG_DIR2) != 0) == (direction == 1);
+        boolean sameEnable = ((flags & FLAG_EN2) != 0) == (enable == 1);
+        if (!sameDirection || !sameEnable
+                || leftThrust > CommandTable.MAX_THRUST_POWER || rightThrust > CommandTable.MAX_THRUST_POWER) {
+            return null;
+        }
+        return CommandTable.get(leftThrust, rightThrust, direction, enable);
+    }
+
+    /**
+     * 读取帧序号
+     */
+    public static int decodeSequence(byte[] in, int offset) {
+        return in[offset + 1] & 0xFF;
+    }
+
+    /**
+     * CRC-8 (多项式0x07)
+     */
+    static byte crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = CRC8_TABLE[(crc ^ data[i]) & 0xFF] & 0xFF;
+        }
+        return (byte) crc;
+    }
+}
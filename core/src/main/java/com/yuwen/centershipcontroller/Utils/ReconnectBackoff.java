@@ -0,0 +1,77 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import java.util.Random;
+
+/**
+ * 重连退避策略
+ * 第n次重连的等待上限为 min(最大值, 初始值 × 倍数^n)，实际等待时间在上限的一半到上限之间随机选取，
+ * 避免多台设备在服务器重启后同时重连
+ *
+ * @author yuwen
+ */
+public final class ReconnectBackoff {
+    // 默认首次重连等待500ms，最长30s
+    public static final long DEFAULT_INITIAL_DELAY_MS = 500;
+    public static final long DEFAULT_MAX_DELAY_MS = 30_000;
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final Random random;
+    private int attempt = 0;
+
+    public ReconnectBackoff() {
+        this(DEFAULT_INITIAL_DELAY_MS, DEFAULT_MAX_DELAY_MS, DEFAULT_MULTIPLIER, new Random());
+    }
+
+    /**
+     * @param initialDelayMillis 首次重连的等待上限
+     * @param maxDelayMillis     等待上限的最大值
+     * @param multiplier         每次失败后等待上限的增长倍数
+     * @param random             随机数来源
+     */
+    public ReconnectBackoff(long initialDelayMillis, long maxDelayMillis, double multiplier, Random random) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis || multiplier < 1.0) {
+            throw new IllegalArgumentException("无效的退避参数");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.random = random;
+    }
+
+    /**
+     * 计算下一次重连前的等待时间，并增加重试次数
+     *
+     * @return 等待毫秒数
+     */
+    public synchronized long nextDelayMillis() {
+        long ceiling = ceilingMillis(attempt);
+        attempt++;
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half + 1));
+    }
+
+    /**
+     * @return 第attempt次(从0开始)重连的等待上限
+     */
+    long ceilingMillis(int attempt) {
+        double ceiling = initialDelayMillis * Math.pow(multiplier, attempt);
+        return ceiling >= maxDelayMillis ? maxDelayMillis : (long) ceiling;
+    }
+
+    /**
+     * 连接成功后调用，下一次断线从初始等待时间重新开始
+     */
+    public synchronized void reset() {
+        attempt = 0;
+    }
+
+    /**
+     * @return 自上次成功连接以来的重连次数
+     */
+    public synchronized int getAttempt() {
+        return attempt;
+    }
+}
@@ -0,0 +1,70 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * 房间协议中主控设备一侧的消息
+ * 连接打开后服务器发送connection消息，主控设备回复身份信息；服务器回复room消息后查询房间信息，
+ * 再根据room_info中船舶设备声明的wire_format选择命令线路格式
+ *
+ * @author yuwen
+ */
+public final class RoomProtocol {
+    public static final String IDENTITY_MAIN = "MAIN_DEVICES";
+    public static final String IDENTITY_SHIP = "SHIP_DEVICES";
+    // connection消息中表示连接成功的内容
+    public static final String CONNECTED_MESSAGE = "Connected successfully";
+    public static final String QUERY_ROOM_MESSAGE = "{\"type\":\"query_room\"}";
+
+    private RoomProtocol() {
+    }
+
+    /**
+     * 构建主控设备的身份信息，声明支持的全部命令线路格式
+     *
+     * @param deviceId 设备ID
+     * @return 身份信息JSON
+     */
+    @NonNull
+    public static String mainIdentityMessage(@NonNull String deviceId) {
+        JsonObject identity = new JsonObject();
+        identity.addProperty("device_id", deviceId);
+        identity.addProperty("identity", IDENTITY_MAIN);
+        JsonArray formats = new JsonArray();
+        for (WireFormat format : WireFormat.values()) {
+            formats.add(format.getProtocolName());
+        }
+        identity.add("wire_formats", formats);
+        return identity.toString();
+    }
+
+    /**
+     * 根据房间信息选择命令线路格式：以最后一个声明了wire_format的船舶设备为准，都未声明时使用JSON
+     *
+     * @param roomInfo room_info消息
+     */
+    @NonNull
+    public static WireFormat negotiateWireFormat(@NonNull JsonObject roomInfo) {
+        WireFormat wireFormat = WireFormat.JSON;
+        JsonElement clients = roomInfo.get("clients");
+        if (clients == null || !clients.isJsonArray()) {
+            return wireFormat;
+        }
+        for (JsonElement element : clients.getAsJsonArray()) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject client = element.getAsJsonObject();
+            JsonElement identity = client.get("identity");
+            JsonElement format = client.get("wire_format");
+            if (identity != null && IDENTITY_SHIP.equals(identity.getAsString()) && format != null) {
+                wireFormat = WireFormat.fromProtocolName(format.getAsString());
+            }
+        }
+        return wireFormat;
+    }
+}
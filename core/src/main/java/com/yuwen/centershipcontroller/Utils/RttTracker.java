@@ -0,0 +1,178 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 控制命令往返延迟(RTT)统计
+ * 发送时按序号记录发送时刻，收到船舶确认后计算往返时间并记入直方图
+ *
+ * 可识别的确认消息:
+ * <pre>
+ * JSON确认:   {"type":"ack","seq":N}
+ * JSON回显:   {"SHIPMOTRO":{...},"SEQ":N}   (命令原样返回)
+ * 二进制回显: 6字节命令帧原样返回，取帧内8位序号
+ * </pre>
+ *
+ * 发送记录保存在 {@link #WINDOW} 个槽位的环形数组中，超出窗口仍未确认的命令视为丢失。
+ * {@link #onSent(int, long)} 只由发送线程调用，确认可在任意线程处理
+ *
+ * @author yuwen
+ */
+public final class RttTracker {
+    // 必须为2的幂且不小于256，使二进制帧的8位序号能直接定位槽位
+    static final int WINDOW = 256;
+    private static final int MASK = WINDOW - 1;
+    private static final int BINARY_SEQUENCE_MASK = 0xFF;
+
+    // 发送时刻(System.nanoTime)，0表示空槽或已确认
+    private final AtomicLongArray sentNanos = new AtomicLongArray(WINDOW);
+    private final AtomicIntegerArray sentSequence = new AtomicIntegerArray(WINDOW);
+    private final LatencyHistogram histogram = new LatencyHistogram("命令往返延迟");
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong ackCount = new AtomicLong();
+    private final AtomicLong unmatchedAckCount = new AtomicLong();
+
+    /**
+     * 记录命令发送
+     *
+     * @param sequence  命令序号
+     * @param nowNanos  发送时刻(System.nanoTime)
+     */
+    public void onSent(int sequence, long nowNanos) {
+        int slot = sequence & MASK;
+        // 先写序号再写时刻，确认线程读到时刻时序号已可见
+        sentSequence.set(slot, sequence);
+        sentNanos.set(slot, nowNanos);
+        sentCount.incrementAndGet();
+    }
+
+    /**
+     * 处理确认序号
+     *
+     * @param sequence     确认中的序号
+     * @param sequenceMask 序号有效位，JSON为-1(全部32位)，二进制帧为0xFF
+     * @param nowNanos     收到确认的时刻(System.nanoTime)
+     * @return 是否匹配到未确认的发送记录
+     */
+    public boolean onAck(int sequence, int sequenceMask, long nowNanos) {
+        int slot = sequence & MASK;
+        long sent = sentNanos.get(slot);
+        if (sent == 0 || (sentSequence.get(slot) & sequenceMask) != (sequence & sequenceMask)
+                || !sentNanos.compareAndSet(slot, sent, 0)) {
+            // 重复确认、过期确认或窗口已被新命令覆盖
+            unmatchedAckCount.incrementAndGet();
+            EventJournal.getInstance().record(EventJournal.Event.ACK_UNMATCHED, sequence);
+            return false;
+        }
+        histogram.record(nowNanos - sent);
+        EventJournal.getInstance().record(EventJournal.Event.ACK, sequence, nowNanos - sent);
+        ackCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 尝试将JSON消息作为确认处理
+     *
+     * @param message 已解析的消息
+     * @return 是否为确认消息(无论是否匹配到发送记录)
+     */
+    public boolean onJsonMessage(@NonNull JsonObject message) {
+        JsonElement sequence = null;
+        if (message.has("SEQ")) {
+            sequence = message.get("SEQ");
+        } else if (message.has("type") && "ack".equals(message.get("type").getAsString())) {
+            sequence = message.get("seq");
+        }
+        if (sequence == null || !sequence.isJsonPrimitive()) {
+            return false;
+        }
+        onJsonAck(sequence.getAsInt());
+        return true;
+    }
+
+    /**
+     * 处理JSON消息中的确认序号
+     *
+     * @param sequence 顶层"SEQ"或ack消息中的序号
+     * @return 是否匹配到未确认的发送记录
+     */
+    public boolean onJsonAck(int sequence) {
+        return onJsonAck(sequence, System.nanoTime());
+    }
+
+    /**
+     * 处理JSON消息中的确认序号，消息在队列中等待处理时使用到达时刻计算往返延迟
+     *
+     * @param sequence      确认序号
+     * @param receivedNanos 消息到达的时刻
+     * @return 是否匹配到未确认的发送记录
+     */
+    public boolean onJsonAck(int sequence, long receivedNanos) {
+        return onAck(sequence, -1, receivedNanos);
+    }
+
+    /**
+     * 尝试将二进制消息作为确认处理
+     *
+     * @return 是否为有效的命令回显帧
+     */
+    public boolean onBinaryMessage(byte[] data, int offset, int length) {
+        if (!MotorCommandCodec.isValidFrame(data, offset, length)) {
+            return false;
+        }
+        onAck(MotorCommandCodec.decodeSequence(data, offset), BINARY_SEQUENCE_MASK, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * 往返延迟直方图，可在任意线程读取百分位
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getAckCount() {
+        return ackCount.get();
+    }
+
+    public long getUnmatchedAckCount() {
+        return unmatchedAckCount.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < WINDOW; i++) {
+            sentNanos.set(i, 0);
+        }
+        histogram.reset();
+        sentCount.set(0);
+        ackCount.set(0);
+        unmatchedAckCount.set(0);
+    }
+
+    /**
+     * 屏幕叠加层显示用的简短统计
+     */
+    @NonNull
+    public String getSummary() {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        if (snapshot.getCount() == 0) {
+            return "RTT 无数据 (已发送" + sentCount.get() + ")";
+        }
+        return String.format(Locale.ROOT, "RTT p50 %.1f  p95 %.1f  p99 %.1f  max %.1f ms\n确认 %d/%d",
+                snapshot.getValueAtPercentile(50) / 1e6, snapshot.getValueAtPercentile(95) / 1e6,
+                snapshot.getValueAtPercentile(99) / 1e6, snapshot.getMaxNanos() / 1e6,
+                ackCount.get(), sentCount.get());
+    }
+}
@@ -0,0 +1,196 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 录制的控制会话
+ * 从遥测日志中载入摇杆采样、收到的消息和发出的控制命令，按时间排序，供 {@link SessionReplayer} 回放。
+ * 只在离线分析和测试中使用，载入时会为每条记录分配对象
+ *
+ * @author yuwen
+ */
+public final class SessionRecording {
+    private static final String SEQ_FIELD = ",\"SEQ\":";
+    // 命令JSON到命令的映射，第一次解码文本命令时构建
+    private static volatile Map<String, ControlCommand> commandsByJson;
+
+    /**
+     * 一条录制的记录
+     */
+    public static final class Event {
+        public final byte type;
+        public final byte flags;
+        public final long nanos;
+        public final float x;
+        public final float y;
+        @Nullable
+        public final String text;
+        @Nullable
+        public final byte[] data;
+
+        Event(byte type, byte flags, long nanos, float x, float y, @Nullable String text, @Nullable byte[] data) {
+            this.type = type;
+            this.flags = flags;
+            this.nanos = nanos;
+            this.x = x;
+            this.y = y;
+            this.text = text;
+            this.data = data;
+        }
+
+        /**
+         * @return 是否为回放时需要输入的记录(摇杆采样或收到的消息)
+         */
+        public boolean isInput() {
+            return type == TelemetryRecorder.TYPE_JOYSTICK_SAMPLE
+                    || type == TelemetryRecorder.TYPE_INBOUND_TEXT
+                    || type == TelemetryRecorder.TYPE_INBOUND_BINARY;
+        }
+
+        public boolean isOutbound() {
+            return type == TelemetryRecorder.TYPE_OUTBOUND_TEXT || type == TelemetryRecorder.TYPE_OUTBOUND_BINARY;
+        }
+    }
+
+    /**
+     * 带时间的控制命令
+     */
+    public static final class TimedCommand {
+        public final long nanos;
+        @NonNull
+        public final ControlCommand command;
+
+        public TimedCommand(long nanos, @NonNull ControlCommand command) {
+            this.nanos = nanos;
+            this.command = command;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return nanos + " " + command;
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+    private boolean sorted = true;
+
+    /**
+     * 载入遥测分段，分段应属于同一次会话并按时间顺序给出
+     */
+    @NonNull
+    public static SessionRecording load(@NonNull File... segments) throws IOException {
+        SessionRecording recording = new SessionRecording();
+        for (File segment : segments) {
+            try (TelemetryReader reader = new TelemetryReader(segment)) {
+                while (reader.next()) {
+                    byte type = reader.getType();
+                    if (type == TelemetryRecorder.TYPE_JOYSTICK_SAMPLE) {
+                        recording.add(new Event(type, reader.getFlags(), reader.getNanos(),
+                                reader.getJoystickX(), reader.getJoystickY(), null, null));
+                    } else if (type == TelemetryRecorder.TYPE_OUTBOUND_TEXT || type == TelemetryRecorder.TYPE_INBOUND_TEXT) {
+                        recording.add(new Event(type, reader.getFlags(), reader.getNanos(), 0, 0, reader.getText(), null));
+                    } else {
+                        byte[] data = new byte[reader.getPayloadLength()];
+                        reader.copyPayload(data, 0);
+                        recording.add(new Event(type, reader.getFlags(), reader.getNanos(), 0, 0, null, data));
+                    }
+                }
+            }
+        }
+        return recording;
+    }
+
+    public void addJoystickSample(long nanos, float x, float y) {
+        add(new Event(TelemetryRecorder.TYPE_JOYSTICK_SAMPLE, (byte) 0, nanos, x, y, null, null));
+    }
+
+    public void addInboundText(long nanos, @NonNull String text) {
+        add(new Event(TelemetryRecorder.TYPE_INBOUND_TEXT, (byte) 0, nanos, 0, 0, text, null));
+    }
+
+    public void addInboundBinary(long nanos, @NonNull byte[] data) {
+        add(new Event(TelemetryRecorder.TYPE_INBOUND_BINARY, (byte) 0, nanos, 0, 0, null, data));
+    }
+
+    public void addOutboundText(long nanos, @NonNull String text) {
+        add(new Event(TelemetryRecorder.TYPE_OUTBOUND_TEXT, (byte) 0, nanos, 0, 0, text, null));
+    }
+
+    public void addOutboundBinary(long nanos, @NonNull byte[] data) {
+        add(new Event(TelemetryRecorder.TYPE_OUTBOUND_BINARY, (byte) 0, nanos, 0, 0, null, data));
+    }
+
+    private void add(Event event) {
+        if (!events.isEmpty() && events.get(events.size() - 1).nanos > event.nanos) {
+            sorted = false;
+        }
+        events.add(event);
+    }
+
+    /**
+     * @return 按时间排序的全部记录；摇杆采样使用触摸事件时间，可能早于其前面写入的记录
+     */
+    @NonNull
+    public List<Event> getEvents() {
+        if (!sorted) {
+            // 稳定排序，同一时刻的记录保持写入顺序
+            Collections.sort(events, (a, b) -> Long.compare(a.nanos, b.nanos));
+            sorted = true;
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * @return 录制时发出的控制命令，无法识别的命令被跳过
+     */
+    @NonNull
+    public List<TimedCommand> getRecordedCommands() {
+        List<TimedCommand> commands = new ArrayList<>();
+        for (Event event : getEvents()) {
+            if (!event.isOutbound()) {
+                continue;
+            }
+            ControlCommand command = event.text != null
+                    ? decodeCommandText(event.text)
+                    : MotorCommandCodec.decode(event.data, 0, event.data.length);
+            if (command != null) {
+                commands.add(new TimedCommand(event.nanos, command));
+            }
+        }
+        return commands;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * 解析SHIPMOTRO文本命令，忽略附加的SEQ字段
+     *
+     * @return 命令表中的命令，无法识别时返回null
+     */
+    @Nullable
+    public static ControlCommand decodeCommandText(@NonNull String text) {
+        Map<String, ControlCommand> commands = commandsByJson;
+        if (commands == null) {
+            commands = new HashMap<>(CommandTable.SIZE * 2);
+            for (int i = 0; i < CommandTable.SIZE; i++) {
+                ControlCommand command = CommandTable.get(i);
+                commands.put(CommandTable.json(command), command);
+            }
+            commandsByJson = commands;
+        }
+        int seq = text.lastIndexOf(SEQ_FIELD);
+        return commands.get(seq >= 0 ? text.substring(0, seq) + "}" : text);
+    }
+}
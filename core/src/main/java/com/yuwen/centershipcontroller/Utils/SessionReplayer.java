@@ -0,0 +1,394 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 会话回放器
+ * 按录制时的时间间隔(可加速)把摇杆采样和收到的消息重新送入控制链路，
+ * 命令发往本地替身通道而不是WebSocket，回放结束后与录制时发出的命令流逐条比较
+ * <pre>
+ * SessionRecording recording = SessionRecording.load(TelemetryReader.listSegments(dir));
+ * SessionReplayer.Report report = new SessionReplayer(recording, JoySticksDecoder.getInstance().newReplayTarget()).replay(4);
+ * Log.i(TAG, report.getSummary());
+ * </pre>
+ * 控制循环会按时间重发最新命令，重发次数取决于调度时机，因此只比较去掉连续重复后的命令变化序列
+ *
+ * @author yuwen
+ */
+public final class SessionReplayer {
+    private static final String TAG = "SessionReplayer";
+    // 不等待，尽快送入全部输入
+    public static final double SPEED_UNLIMITED = 0;
+    // 最后一条输入之后继续收集命令的录制时长，等控制循环发出最后的变化
+    public static final long DEFAULT_TAIL_NANOS = 500_000_000L;
+    // 剩余时间短于此值时忙等，避免parkNanos的唤醒误差
+    private static final long SPIN_THRESHOLD_NANOS = 200_000L;
+    // 对齐命令变化时向前查找的范围
+    private static final int RESYNC_WINDOW = 16;
+
+    /**
+     * 回放的接收方，负责把输入交给被测的控制链路
+     * 所有方法都在调用 {@link #replay(double)} 的线程中按录制顺序调用
+     */
+    public interface Target {
+        /**
+         * 回放开始，之后产生的命令都应发往standIn
+         */
+        void begin(@NonNull CommandSender.Transport standIn);
+
+        void onJoystickSample(float x, float y);
+
+        void onInboundText(@NonNull String text);
+
+        default void onInboundBinary(@NonNull byte[] data) {
+        }
+
+        /**
+         * 回放结束，停止发送并恢复正常通道
+         */
+        void end();
+    }
+
+    private final SessionRecording recording;
+    private final Target target;
+    private long tailNanos = DEFAULT_TAIL_NANOS;
+
+    public SessionReplayer(@NonNull SessionRecording recording, @NonNull Target target) {
+        this.recording = recording;
+        this.target = target;
+    }
+
+    /**
+     * 设置最后一条输入之后继续收集命令的录制时长
+     */
+    public void setTailNanos(long tailNanos) {
+        if (tailNanos < 0) {
+            throw new IllegalArgumentException("tailNanos不能为负: " + tailNanos);
+        }
+        this.tailNanos = tailNanos;
+    }
+
+    /**
+     * 回放会话并比较命令流，阻塞直到回放结束
+     *
+     * @param speed 回放倍速，1为实时，{@link #SPEED_UNLIMITED}表示不等待
+     * @return 比较结果
+     */
+    @NonNull
+    public Report replay(double speed) throws InterruptedException {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("回放倍速无效: " + speed);
+        }
+        List<SessionRecording.Event> events = recording.getEvents();
+        long origin = Long.MIN_VALUE;
+        long lastInput = Long.MIN_VALUE;
+        for (SessionRecording.Event event : events) {
+            if (event.isInput()) {
+                if (origin == Long.MIN_VALUE) {
+                    origin = event.nanos;
+                }
+                lastInput = event.nanos;
+            }
+        }
+        if (origin == Long.MIN_VALUE) {
+            origin = lastInput = events.isEmpty() ? 0 : events.get(0).nanos;
+        }
+
+        long start = System.nanoTime();
+        StandInTransport standIn = new StandInTransport(origin, start, speed);
+        target.begin(standIn);
+        try {
+            for (SessionRecording.Event event : events) {
+                if (!event.isInput()) {
+                    continue;
+                }
+                waitUntil(start, event.nanos - origin, speed);
+                if (event.type == TelemetryRecorder.TYPE_JOYSTICK_SAMPLE) {
+                    target.onJoystickSample(event.x, event.y);
+                } else if (event.text != null) {
+                    target.onInboundText(event.text);
+                } else if (event.data != null) {
+                    target.onInboundBinary(event.data);
+                }
+            }
+            waitUntil(start, lastInput - origin + tailNanos, speed);
+        } finally {
+            target.end();
+        }
+        long elapsed = System.nanoTime() - start;
+        return compare(recording.getRecordedCommands(), standIn.getCommands(), elapsed);
+    }
+
+    private static void waitUntil(long start, long offsetNanos, double speed) throws InterruptedException {
+        if (speed == SPEED_UNLIMITED) {
+            return;
+        }
+        long due = start + (long) (offsetNanos / speed);
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("回放被中断");
+            }
+            long remaining = due - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            }
+        }
+    }
+
+    /**
+     * 比较录制和回放的命令流
+     */
+    @NonNull
+    static Report compare(@NonNull List<SessionRecording.TimedCommand> recorded,
+                          @NonNull List<SessionRecording.TimedCommand> replayed, long elapsedNanos) {
+        List<SessionRecording.TimedCommand> expected = collapse(recorded);
+        List<SessionRecording.TimedCommand> actual = collapse(replayed);
+        LatencyHistogram skew = new LatencyHistogram("回放时间偏差");
+        int matched = 0;
+        int missing = 0;
+        int extra = 0;
+        int firstDivergence = -1;
+        int i = 0;
+        int j = 0;
+        while (i < expected.size() && j < actual.size()) {
+            SessionRecording.TimedCommand e = expected.get(i);
+            SessionRecording.TimedCommand a = actual.get(j);
+            if (e.command.equals(a.command)) {
+                matched++;
+                skew.record(Math.abs(a.nanos - e.nanos));
+                i++;
+                j++;
+                continue;
+            }
+            if (firstDivergence < 0) {
+                firstDivergence = i;
+            }
+            // 在前方窗口内寻找对方的命令，以较近的一侧重新对齐；都找不到时视为替换
+            int skipActual = indexOf(actual, j + 1, e.command);
+            int skipExpected = indexOf(expected, i + 1, a.command);
+            if (skipActual >= 0 && (skipExpected < 0 || skipActual - j <= skipExpected - i)) {
+                extra += skipActual - j;
+                j = skipActual;
+            } else if (skipExpected >= 0) {
+                missing += skipExpected - i;
+                i = skipExpected;
+            } else {
+                missing++;
+                extra++;
+                i++;
+                j++;
+            }
+        }
+        if (firstDivergence < 0 && (i < expected.size() || j < actual.size())) {
+            firstDivergence = i;
+        }
+        missing += expected.size() - i;
+        extra += actual.size() - j;
+        return new Report(recorded.size(), replayed.size(), expected, actual,
+                matched, missing, extra, firstDivergence, skew, elapsedNanos);
+    }
+
+    private static int indexOf(List<SessionRecording.TimedCommand> commands, int from, ControlCommand command) {
+        int end = Math.min(commands.size(), from + RESYNC_WINDOW);
+        for (int k = from; k < end; k++) {
+            if (commands.get(k).command.equals(command)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 去掉连续重复的命令，只保留每次变化的第一条
+     */
+    @NonNull
+    static List<SessionRecording.TimedCommand> collapse(@NonNull List<SessionRecording.TimedCommand> commands) {
+        List<SessionRecording.TimedCommand> transitions = new ArrayList<>();
+        ControlCommand last = null;
+        for (SessionRecording.TimedCommand command : commands) {
+            if (!command.command.equals(last)) {
+                transitions.add(command);
+                last = command.command;
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * 回放时代替WebSocket的本地通道，解码收到的命令并按录制时间轴记录
+     */
+    private static final class StandInTransport implements CommandSender.Transport {
+        private final long origin;
+        private final long start;
+        private final double speed;
+        private final List<SessionRecording.TimedCommand> commands = new ArrayList<>();
+        private long unknown = 0;
+
+        StandInTransport(long origin, long start, double speed) {
+            this.origin = origin;
+            this.start = start;
+            this.speed = speed;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean sendText(@NonNull String text) {
+            add(SessionRecording.decodeCommandText(text));
+            return true;
+        }
+
+        @Override
+        public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+            add(MotorCommandCodec.decode(data, offset, length));
+            return true;
+        }
+
+        private void add(@Nullable ControlCommand command) {
+            // 换算回录制时间轴，不限速时直接使用经过的时间
+            long elapsed = System.nanoTime() - start;
+            long nanos = origin + (speed == SPEED_UNLIMITED ? elapsed : (long) (elapsed * speed));
+            synchronized (commands) {
+                if (command == null) {
+                    unknown++;
+                } else {
+                    commands.add(new SessionRecording.TimedCommand(nanos, command));
+                }
+            }
+        }
+
+        List<SessionRecording.TimedCommand> getCommands() {
+            synchronized (commands) {
+                if (unknown > 0) {
+                    Log.w(TAG, "回放中有{}条命令无法识别", unknown);
+                }
+                return new ArrayList<>(commands);
+            }
+        }
+    }
+
+    /**
+     * 回放结果
+     */
+    public static final class Report {
+        private final int recordedCommands;
+        private final int replayedCommands;
+        private final List<SessionRecording.TimedCommand> recordedTransitions;
+        private final List<SessionRecording.TimedCommand> replayedTransitions;
+        private final int matched;
+        private final int missing;
+        private final int extra;
+        private final int firstDivergence;
+        private final LatencyHistogram skew;
+        private final long elapsedNanos;
+
+        Report(int recordedCommands, int replayedCommands,
+               List<SessionRecording.TimedCommand> recordedTransitions,
+               List<SessionRecording.TimedCommand> replayedTransitions,
+               int matched, int missing, int extra, int firstDivergence,
+               LatencyHistogram skew, long elapsedNanos) {
+            this.recordedCommands = recordedCommands;
+            this.replayedCommands = replayedCommands;
+            this.recordedTransitions = recordedTransitions;
+            this.replayedTransitions = replayedTransitions;
+            this.matched = matched;
+            this.missing = missing;
+            this.extra = extra;
+            this.firstDivergence = firstDivergence;
+            this.skew = skew;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return 命令变化序列是否完全一致
+         */
+        public boolean isIdentical() {
+            return missing == 0 && extra == 0;
+        }
+
+        public int getRecordedCommandCount() {
+            return recordedCommands;
+        }
+
+        public int getReplayedCommandCount() {
+            return replayedCommands;
+        }
+
+        @NonNull
+        public List<SessionRecording.TimedCommand> getRecordedTransitions() {
+            return recordedTransitions;
+        }
+
+        @NonNull
+        public List<SessionRecording.TimedCommand> getReplayedTransitions() {
+            return replayedTransitions;
+        }
+
+        public int getMatchedCount() {
+            return matched;
+        }
+
+        /**
+         * @return 录制中有而回放中没有的命令变化数
+         */
+        public int getMissingCount() {
+            return missing;
+        }
+
+        /**
+         * @return 回放中多出的命令变化数
+         */
+        public int getExtraCount() {
+            return extra;
+        }
+
+        /**
+         * @return 录制命令变化序列中第一处不一致的下标，一致时返回-1
+         */
+        public int getFirstDivergence() {
+            return firstDivergence;
+        }
+
+        /**
+         * @return 对齐的命令变化在录制时间轴上的时间偏差
+         */
+        @NonNull
+        public LatencyHistogram getTimingSkew() {
+            return skew;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @NonNull
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                    "会话回放: 录制命令=%d, 回放命令=%d, 变化=%d/%d, 一致=%d, 缺少=%d, 多出=%d, 耗时=%.1fms",
+                    recordedCommands, replayedCommands, recordedTransitions.size(), replayedTransitions.size(),
+                    matched, missing, extra, elapsedNanos / 1e6));
+            if (firstDivergence >= 0) {
+                summary.append(", 首个差异=#").append(firstDivergence);
+                if (firstDivergence < recordedTransitions.size()) {
+                    summary.append(' ').append(recordedTransitions.get(firstDivergence).command);
+                }
+            }
+            summary.append("; ").append(skew.getStats());
+            return summary.toString();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 船舶航迹
+ * 固定容量的环形缓冲区，经纬度和时间保存在基本类型数组中，满了以后覆盖最旧的点，
+ * 内存占用只取决于容量，与任务时长无关。
+ * 绘制时用Douglas-Peucker算法抽稀，输出点数不超过给定上限。
+ * 写入在MainDeviceInbound入站工作线程，抽稀在后台线程：抽稀只在复制快照时持有对象锁，
+ * 计算在快照上进行，不会阻塞写入
+ *
+ * @author yuwen
+ */
+public final class ShipTrack {
+    // 默认容量：10Hz定位保留1小时
+    public static final int DEFAULT_CAPACITY = 36_000;
+    // 每度纬度对应的米数
+    private static final double METERS_PER_DEGREE = 111_195.0;
+    // 抽稀后点数仍超过上限时，容差翻倍重试的最大次数
+    private static final int MAX_TOLERANCE_DOUBLINGS = 32;
+
+    private final int capacity;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] timestamps;
+    private int head; // 下一个写入位置
+    private int size;
+    private long totalAppended;
+
+    // 抽稀用的工作区，第一次抽稀时分配，由workspaceLock保护
+    private final Object workspaceLock = new Object();
+    private double[] snapshotLatitudes;
+    private double[] snapshotLongitudes;
+    private boolean[] keep;
+    private int[] stack;
+
+    public ShipTrack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShipTrack(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("航迹容量至少为2: " + capacity);
+        }
+        this.capacity = capacity;
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * 追加一个定位点，时间为收到定位的时刻
+     */
+    public void append(@NonNull GpsFix fix) {
+        append(fix.getLatitude(), fix.getLongitude(), fix.getReceivedNanos());
+    }
+
+    /**
+     * 追加一个定位点，缓冲区满时覆盖最旧的点
+     *
+     * @param latitude  十进制纬度
+     * @param longitude 十进制经度
+     * @param nanos     时间(System.nanoTime)
+     */
+    public synchronized void append(double latitude, double longitude, long nanos) {
+        latitudes[head] = latitude;
+        longitudes[head] = longitude;
+        timestamps[head] = nanos;
+        head = head + 1 == capacity ? 0 : head + 1;
+        if (size < capacity) {
+            size++;
+        }
+        totalAppended++;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+        totalAppended = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return 累计追加的点数，包括已被覆盖的点；也可用作版本号判断航迹是否变化
+     */
+    public synchronized long getTotalAppended() {
+        return totalAppended;
+    }
+
+    /**
+     * @param i 0为保留的最旧点
+     */
+    public synchronized double getLatitude(int i) {
+        return latitudes[index(i)];
+    }
+
+    public synchronized double getLongitude(int i) {
+        return longitudes[index(i)];
+    }
+
+    public synchronized long getTimestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("航迹下标越界: " + i + ", 点数=" + size);
+        }
+        return physical(i);
+    }
+
+    private int physical(int i) {
+        int start = head - size;
+        int index = start + i;
+        if (start < 0) {
+            index += capacity;
+        }
+        return index >= capacity ? index - capacity : index;
+    }
+
+    /**
+     * 抽稀航迹，按时间顺序输出
+     * 先按容差抽稀，点数超过上限时将容差翻倍后重新抽稀，直到不超过上限。
+     * 首尾两点总会保留
+     *
+     * @param toleranceMeters 允许的最大偏离距离(米)
+     * @param maxPoints       输出点数上限，至少为2
+     * @param outLatitudes    输出纬度，长度不小于maxPoints
+     * @param outLongitudes   输出经度，长度不小于maxPoints
+     * @return 输出的点数
+     */
+    public int decimate(double toleranceMeters, int maxPoints,
+                        @NonNull double[] outLatitudes, @NonNull double[] outLongitudes) {
+        if (maxPoints < 2 || outLatitudes.length < maxPoints || outLongitudes.length < maxPoints) {
+            throw new IllegalArgumentException("输出点数上限至少为2且不能超过输出数组长度: " + maxPoints);
+        }
+        synchronized (workspaceLock) {
+            if (keep == null) {
+                snapshotLatitudes = new double[capacity];
+                snapshotLongitudes = new double[capacity];
+                keep = new boolean[capacity];
+                stack = new int[2 * capacity];
+            }
+            int count = snapshot();
+            if (count <= 2 || (count <= maxPoints && toleranceMeters <= 0)) {
+                System.arraycopy(snapshotLatitudes, 0, outLatitudes, 0, count);
+                System.arraycopy(snapshotLongitudes, 0, outLongitudes, 0, count);
+                return count;
+            }
+
+            // 按第一个点的纬度做等距圆柱投影，在度的尺度上比较距离
+            double cosLatitude = Math.cos(Math.toRadians(snapshotLatitudes[0]));
+            double tolerance = Math.max(toleranceMeters, 0) / METERS_PER_DEGREE;
+            int kept = markDouglasPeucker(count, tolerance, cosLatitude);
+            for (int attempt = 0; kept > maxPoints && attempt < MAX_TOLERANCE_DOUBLINGS; attempt++) {
+                tolerance = tolerance > 0 ? tolerance * 2 : 1.0 / METERS_PER_DEGREE;
+                kept = markDouglasPeucker(count, tolerance, cosLatitude);
+            }
+
+            int output = 0;
+            for (int i = 0; i < count && output < maxPoints; i++) {
+                if (keep[i]) {
+                    outLatitudes[output] = snapshotLatitudes[i];
+                    outLongitudes[output] = snapshotLongitudes[i];
+                    output++;
+                }
+            }
+            // 容差翻倍用尽时仍超限，保证最后一点是最新位置
+            if (kept > maxPoints) {
+                outLatitudes[maxPoints - 1] = snapshotLatitudes[count - 1];
+                outLongitudes[maxPoints - 1] = snapshotLongitudes[count - 1];
+            }
+            return output;
+        }
+    }
+
+    /**
+     * 按时间顺序复制当前航迹到快照数组
+     *
+     * @return 点数
+     */
+    private synchronized int snapshot() {
+        int start = physical(0);
+        int firstPart = Math.min(size, capacity - start);
+        System.arraycopy(latitudes, start, snapshotLatitudes, 0, firstPart);
+        System.arraycopy(longitudes, start, snapshotLongitudes, 0, firstPart);
+        System.arraycopy(latitudes, 0, snapshotLatitudes, firstPart, size - firstPart);
+        System.arraycopy(longitudes, 0, snapshotLongitudes, firstPart, size - firstPart);
+        return size;
+    }
+
+    /**
+     * 非递归的Douglas-Peucker标记，keep[i]为true表示保留快照中第i个点
+     *
+     * @return 保留的点数
+     */
+    private int markDouglasPeucker(int count, double tolerance, double cosLatitude) {
+        double[] lat = snapshotLatitudes;
+        double[] lon = snapshotLongitudes;
+        for (int i = 0; i < count; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+        int kept = 2;
+        double toleranceSquared = tolerance * tolerance;
+
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            if (last - first < 2) {
+                continue;
+            }
+            double ax = lon[first] * cosLatitude;
+            double ay = lat[first];
+            double dx = lon[last] * cosLatitude - ax;
+            double dy = lat[last] - ay;
+            double lengthSquared = dx * dx + dy * dy;
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = lon[i] * cosLatitude - ax;
+                double py = lat[i] - ay;
+                double distance;
+                if (lengthSquared == 0) {
+                    distance = px * px + py * py;
+                } else {
+                    // 点到线段的距离平方
+                    double t = (px * dx + py * dy) / lengthSquared;
+                    t = t < 0 ? 0 : (t > 1 ? 1 : t);
+                    double ex = px - t * dx;
+                    double ey = py - t * dy;
+                    distance = ex * ex + ey * ey;
+                }
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (maxDistance > toleranceSquared) {
+                keep[farthest] = true;
+                kept++;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,174 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 遥测日志分段读取器，顺序遍历 {@link TelemetryRecorder} 写入的记录
+ * <pre>
+ * try (TelemetryReader reader = new TelemetryReader(file)) {
+ *     while (reader.next()) {
+ *         reader.getType(); reader.getNanos(); reader.getText();
+ *     }
+ * }
+ * </pre>
+ *
+ * @author yuwen
+ */
+public final class TelemetryReader implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final long createdMillis;
+    private final long createdNanos;
+    private final int segmentIndex;
+
+    private byte type;
+    private byte flags;
+    private long nanos;
+    private int payloadOffset;
+    private int payloadLength;
+
+    public TelemetryReader(@NonNull File segment) throws IOException {
+        file = new RandomAccessFile(segment, "r");
+        try {
+            long size = file.length();
+            if (size < TelemetryRecorder.SEGMENT_HEADER_BYTES) {
+                throw new IOException("遥测分段过短: " + segment);
+            }
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != TelemetryRecorder.SEGMENT_MAGIC) {
+                throw new IOException("不是遥测分段文件: " + segment);
+            }
+            int version = buffer.getInt();
+            if (version != TelemetryRecorder.SEGMENT_VERSION) {
+                throw new IOException("不支持的遥测分段版本: " + version);
+            }
+            createdMillis = buffer.getLong();
+            createdNanos = buffer.getLong();
+            segmentIndex = buffer.getInt();
+            buffer.position(TelemetryRecorder.SEGMENT_HEADER_BYTES);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 列出目录中的遥测分段，按时间顺序排列
+     */
+    @NonNull
+    public static File[] listSegments(@NonNull File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(TelemetryRecorder.SEGMENT_PREFIX)
+                && name.endsWith(TelemetryRecorder.SEGMENT_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 没有更多记录时返回false，末尾不完整的记录视为结束
+     */
+    public boolean next() {
+        if (buffer.remaining() < TelemetryRecorder.RECORD_HEADER_BYTES) {
+            return false;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        byte recordType = buffer.get();
+        if (recordType == 0 || length < 0 || length > buffer.remaining() - 9) {
+            buffer.position(start);
+            return false;
+        }
+        type = recordType;
+        flags = buffer.get();
+        nanos = buffer.getLong();
+        payloadOffset = buffer.position();
+        payloadLength = length;
+        buffer.position(payloadOffset + length);
+        return true;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public byte getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return 记录时刻(System.nanoTime)，与 {@link #getCreatedNanos()} 对照可换算为墙上时间
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * 复制当前记录的内容
+     *
+     * @return 复制的字节数
+     */
+    public int copyPayload(@NonNull byte[] destination, int offset) {
+        for (int i = 0; i < payloadLength; i++) {
+            destination[offset + i] = buffer.get(payloadOffset + i);
+        }
+        return payloadLength;
+    }
+
+    /**
+     * @return 摇杆采样的X轴值，只对TYPE_JOYSTICK_SAMPLE记录有效
+     */
+    public float getJoystickX() {
+        return buffer.getFloat(payloadOffset);
+    }
+
+    /**
+     * @return 摇杆采样的Y轴值，只对TYPE_JOYSTICK_SAMPLE记录有效
+     */
+    public float getJoystickY() {
+        return buffer.getFloat(payloadOffset + 4);
+    }
+
+    /**
+     * @return 当前记录内容按UTF-8解码的文本
+     */
+    @NonNull
+    public String getText() {
+        byte[] bytes = new byte[payloadLength];
+        copyPayload(bytes, 0);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,532 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 遥测记录器
+ * 将摇杆采样、发出的控制命令和收到的每一帧消息以纳秒时间戳追加写入内存映射的二进制日志，
+ * 用于任务后复盘和 {@link SessionReplayer} 回放。
+ * <p>
+ * 记录线程(UI线程、控制命令发送线程、WebSocket读线程)只把记录复制到内存中的暂存环形缓冲区，
+ * 不做任何文件操作，缓冲区满时丢弃记录并计数，不等待写入线程；暂存锁只在记录线程之间互斥，
+ * 临界区内只预留空间并复制一条记录，长度不超过暂存区容量；
+ * 后台写入线程每隔几毫秒把暂存区的记录搬到内存映射的分段文件中，分段写满后切换到新文件，
+ * 超过保留数量时删除最旧的分段。内存映射的页面由内核回写，应用崩溃也不会丢失已写入的记录。
+ * <p>
+ * 分段文件格式(大端序)：
+ * <pre>
+ * 文件头 32字节: 魔数"CSTL" | 版本 int | 创建时刻 long(毫秒) | 创建时刻 long(System.nanoTime) | 分段序号 int | 保留 int
+ * 记录   14字节+内容: 内容长度 int | 类型 byte | 标志 byte | 时间 long(System.nanoTime) | 内容
+ * 摇杆采样的内容为 x float | y float
+ * </pre>
+ * 文件末尾未使用的部分全为0，读到类型为0的记录即结束，见 {@link TelemetryReader}
+ *
+ * @author yuwen
+ */
+public final class TelemetryRecorder {
+    private static final String TAG = "TelemetryRecorder";
+
+    // 记录类型
+    public static final byte TYPE_OUTBOUND_TEXT = 1;
+    public static final byte TYPE_OUTBOUND_BINARY = 2;
+    public static final byte TYPE_INBOUND_TEXT = 3;
+    public static final byte TYPE_INBOUND_BINARY = 4;
+    public static final byte TYPE_JOYSTICK_SAMPLE = 5;
+    static final int JOYSTICK_SAMPLE_BYTES = 8;
+    // 记录标志：发送失败
+    public static final byte FLAG_SEND_FAILED = 1;
+
+    static final int SEGMENT_MAGIC = 0x4353544C; // "CSTL"
+    static final int SEGMENT_VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 32;
+    static final int RECORD_HEADER_BYTES = 14;
+    static final String SEGMENT_PREFIX = "telemetry-";
+    static final String SEGMENT_SUFFIX = ".bin";
+
+    public static final int DEFAULT_STAGING_BYTES = 1 << 20;
+    public static final int DEFAULT_SEGMENT_BYTES = 8 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    // 写入线程空闲时的轮询间隔
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    // 暂存环形缓冲区，容量为2的幂；writePosition由记录线程在stagingLock内推进，
+    // readPosition由写入线程推进，只在start中写入线程启动前重置
+    private final byte[] staging;
+    private final int stagingMask;
+    private final Object stagingLock = new Object();
+    private volatile long writePosition;
+    private volatile long readPosition;
+
+    private volatile boolean recording;
+    private Thread writerThread;
+    private File directory;
+    private int segmentBytes;
+    private int maxSegments;
+    private String sessionName;
+
+    // 以下字段只在写入线程中访问
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+
+    private final AtomicLong recordedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong segmentCount = new AtomicLong();
+    private final AtomicLong writeErrorCount = new AtomicLong();
+
+    private static final class InstanceHolder {
+        static final TelemetryRecorder INSTANCE = new TelemetryRecorder(DEFAULT_STAGING_BYTES);
+    }
+
+    public static TelemetryRecorder getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @param stagingBytes 暂存区容量，向上取整为2的幂
+     */
+    TelemetryRecorder(int stagingBytes) {
+        int capacity = Integer.highestOneBit(Math.max(stagingBytes, 1024) - 1) << 1;
+        staging = new byte[capacity];
+        stagingMask = capacity - 1;
+    }
+
+    /**
+     * 使用默认分段大小和保留数量开始记录
+     *
+     * @param directory 日志目录，不存在时创建
+     */
+    public void start(@NonNull File directory) throws IOException {
+        start(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * 开始记录，已在记录时先停止当前会话
+     *
+     * @param directory    日志目录，不存在时创建
+     * @param segmentBytes 每个分段文件的大小
+     * @param maxSegments  保留的分段数量，超出时删除最旧的分段
+     */
+    public synchronized void start(@NonNull File directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES + 1024 || maxSegments < 1) {
+            throw new IllegalArgumentException("分段大小或保留数量无效: " + segmentBytes + ", " + maxSegments);
+        }
+        stop();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建遥测日志目录: " + directory);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        sessionName = SEGMENT_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.ROOT).format(new Date());
+        segmentIndex = 0;
+        openSegment();
+        // 停止时已通过recording检查的记录可能仍留在暂存区，丢弃这些字节，不写进新会话
+        synchronized (stagingLock) {
+            readPosition = writePosition;
+        }
+
+        recording = true;
+        writerThread = new Thread(this::writerLoop, "TelemetryWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Log.i(TAG, "开始记录遥测数据: {}", directory);
+    }
+
+    /**
+     * 停止记录，写入暂存区中剩余的记录后关闭当前分段
+     */
+    public synchronized void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        recording = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+        Log.i(TAG, getStats());
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * 记录发出的文本命令
+     */
+    public boolean recordOutbound(@NonNull CharSequence text, boolean sent) {
+        return recordText(TYPE_OUTBOUND_TEXT, sent ? 0 : FLAG_SEND_FAILED, System.nanoTime(), text);
+    }
+
+    /**
+     * 记录发出的二进制命令
+     */
+    public boolean recordOutbound(@NonNull byte[] data, int offset, int length, boolean sent) {
+        return recordBinary(TYPE_OUTBOUND_BINARY, sent ? 0 : FLAG_SEND_FAILED, System.nanoTime(), data, offset, length);
+    }
+
+    /**
+     * 记录收到的文本帧
+     */
+    public boolean recordInbound(@NonNull CharSequence text) {
+        return recordText(TYPE_INBOUND_TEXT, (byte) 0, System.nanoTime(), text);
+    }
+
+    /**
+     * 记录收到的二进制帧
+     */
+    public boolean recordInbound(@NonNull byte[] data) {
+        return recordBinary(TYPE_INBOUND_BINARY, (byte) 0, System.nanoTime(), data, 0, data.length);
+    }
+
+    /**
+     * 记录一个摇杆采样
+     *
+     * @param x     标准化X轴值
+     * @param y     标准化Y轴值
+     * @param nanos 采样时刻(System.nanoTime时基)
+     */
+    public boolean recordJoystick(float x, float y, long nanos) {
+        if (!recording) {
+            return false;
+        }
+        synchronized (stagingLock) {
+            long position = reserve(JOYSTICK_SAMPLE_BYTES);
+            if (position < 0) {
+                return false;
+            }
+            position = putHeader(position, JOYSTICK_SAMPLE_BYTES, TYPE_JOYSTICK_SAMPLE, (byte) 0, nanos);
+            position = putInt(position, Float.floatToRawIntBits(x));
+            writePosition = putInt(position, Float.floatToRawIntBits(y));
+        }
+        recordedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录一段文本，按UTF-8编码
+     *
+     * @return 是否已写入暂存区；未在记录或暂存区已满时返回false
+     */
+    public boolean recordText(byte type, byte flags, long nanos, @NonNull CharSequence text) {
+        if (!recording) {
+            return false;
+        }
+        int length = utf8Length(text);
+        synchronized (stagingLock) {
+            long position = reserve(length);
+            if (position < 0) {
+                return false;
+            }
+            position = putHeader(position, length, type, flags, nanos);
+            int count = text.length();
+            for (int i = 0; i < count; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    staging[(int) position++ & stagingMask] = (byte) c;
+                } else if (c < 0x800) {
+                    staging[(int) position++ & stagingMask] = (byte) (0xC0 | (c >> 6));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    staging[(int) position++ & stagingMask] = (byte) (0xF0 | (codePoint >> 18));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // 不成对的代理字符，与String.getBytes一样写为'?'
+                    staging[(int) position++ & stagingMask] = '?';
+                } else {
+                    staging[(int) position++ & stagingMask] = (byte) (0xE0 | (c >> 12));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    staging[(int) position++ & stagingMask] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            writePosition = position;
+        }
+        recordedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录一段二进制内容
+     *
+     * @return 是否已写入暂存区；未在记录或暂存区已满时返回false
+     */
+    public boolean recordBinary(byte type, byte flags, long nanos, @NonNull byte[] data, int offset, int length) {
+        if (!recording) {
+            return false;
+        }
+        synchronized (stagingLock) {
+            long position = reserve(length);
+            if (position < 0) {
+                return false;
+            }
+            position = putHeader(position, length, type, flags, nanos);
+            int start = (int) position & stagingMask;
+            int firstPart = Math.min(length, staging.length - start);
+            System.arraycopy(data, offset, staging, start, firstPart);
+            System.arraycopy(data, offset + firstPart, staging, 0, length - firstPart);
+            writePosition = position + length;
+        }
+        recordedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 在暂存区中预留一条记录的空间，必须在stagingLock内调用
+     *
+     * @return 记录的起始位置，空间不足时返回-1
+     */
+    private long reserve(int payloadLength) {
+        long position = writePosition;
+        int size = RECORD_HEADER_BYTES + payloadLength;
+        if (size > staging.length || size > segmentBytes - SEGMENT_HEADER_BYTES
+                || position + size - readPosition > staging.length) {
+            droppedCount.incrementAndGet();
+            return -1;
+        }
+        return position;
+    }
+
+    private long putHeader(long position, int length, byte type, byte flags, long nanos) {
+        position = putInt(position, length);
+        staging[(int) position++ & stagingMask] = type;
+        staging[(int) position++ & stagingMask] = flags;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            staging[(int) position++ & stagingMask] = (byte) (nanos >>> shift);
+        }
+        return position;
+    }
+
+    private long putInt(long position, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            staging[(int) position++ & stagingMask] = (byte) (value >>> shift);
+        }
+        return position;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int count = text.length();
+        int length = count;
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // 代理对两个char写为4字节
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 等待暂存区中的记录全部写入分段文件，测试和基准测试使用
+     *
+     * @return 超时前是否已写完
+     */
+    boolean awaitDrained(long timeoutMillis) {
+        long target = writePosition;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (readPosition < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS / 5);
+        }
+        return true;
+    }
+
+    private void writerLoop() {
+        while (true) {
+            boolean stopping = !recording;
+            boolean wrote = drain();
+            if (stopping) {
+                // 停止前最后一次写入已完成
+                break;
+            }
+            if (!wrote) {
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+        }
+        closeSegment(true);
+    }
+
+    /**
+     * 把暂存区中已提交的记录写入分段文件，每条记录完整地写在同一个分段中。
+     * 能放进当前分段的连续记录合并为一次复制
+     *
+     * @return 是否写入了记录
+     */
+    private boolean drain() {
+        long position = readPosition;
+        long end = writePosition;
+        if (position == end) {
+            return false;
+        }
+        while (position < end) {
+            try {
+                if (segment == null || segment.remaining() < recordSize(position)) {
+                    rotateSegment();
+                }
+                int remaining = segment.remaining();
+                long runEnd = position;
+                while (runEnd < end) {
+                    int size = recordSize(runEnd);
+                    if (runEnd + size - position > remaining) {
+                        break;
+                    }
+                    runEnd += size;
+                }
+                int length = (int) (runEnd - position);
+                int start = (int) position & stagingMask;
+                int firstPart = Math.min(length, staging.length - start);
+                segment.put(staging, start, firstPart);
+                segment.put(staging, 0, length - firstPart);
+                writtenBytes.addAndGet(length);
+                position = runEnd;
+            } catch (IOException | RuntimeException e) {
+                // 写入失败时丢弃该记录，继续处理后面的记录
+                writeErrorCount.incrementAndGet();
+                Log.e(TAG, "写入遥测记录失败: {}", e.getMessage());
+                position += recordSize(position);
+            }
+            // 释放暂存区空间
+            readPosition = position;
+        }
+        return true;
+    }
+
+    /**
+     * @return 暂存区中从position开始的记录的总字节数
+     */
+    private int recordSize(long position) {
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            length = (length << 8) | (staging[(int) (position + i) & stagingMask] & 0xFF);
+        }
+        return RECORD_HEADER_BYTES + length;
+    }
+
+    private void rotateSegment() throws IOException {
+        // 切换分段时不同步到磁盘，页面由内核回写，避免写入线程长时间等待
+        closeSegment(false);
+        segmentIndex++;
+        openSegment();
+        deleteOldSegments();
+    }
+
+    private void openSegment() throws IOException {
+        File file = new File(directory, String.format(Locale.ROOT, "%s-%04d%s", sessionName, segmentIndex, SEGMENT_SUFFIX));
+        segmentFile = new RandomAccessFile(file, "rw");
+        segmentFile.setLength(segmentBytes);
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(SEGMENT_VERSION);
+        segment.putLong(System.currentTimeMillis());
+        segment.putLong(System.nanoTime());
+        segment.putInt(segmentIndex);
+        segment.putInt(0);
+        segmentCount.incrementAndGet();
+    }
+
+    /**
+     * 关闭当前分段，截掉未使用的部分
+     *
+     * @param force 是否先同步到磁盘
+     */
+    private void closeSegment(boolean force) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            if (force) {
+                segment.force();
+            }
+            segmentFile.getChannel().truncate(segment.position());
+        } catch (IOException | RuntimeException e) {
+            // 映射未释放时部分系统不允许截断，保留全0的尾部，读取时同样会在此结束
+            Log.w(TAG, "关闭遥测分段时截断失败: {}", e.getMessage());
+        }
+        try {
+            segmentFile.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭遥测分段失败: {}", e.getMessage());
+        }
+        segment = null;
+        segmentFile = null;
+    }
+
+    private void deleteOldSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null || files.length <= maxSegments) {
+            return;
+        }
+        // 文件名以会话时间和分段序号开头，按名称排序即为时间顺序
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - maxSegments; i++) {
+            if (!files[i].delete()) {
+                Log.w(TAG, "删除旧遥测分段失败: {}", files[i]);
+            }
+        }
+    }
+
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    public long getSegmentCount() {
+        return segmentCount.get();
+    }
+
+    public long getWriteErrorCount() {
+        return writeErrorCount.get();
+    }
+
+    /**
+     * @return 暂存区中尚未写入文件的字节数
+     */
+    public long getPendingBytes() {
+        return writePosition - readPosition;
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT, "遥测记录: 记录=%d, 丢弃=%d, 写入=%dKB, 分段=%d, 写入失败=%d, 暂存=%dB",
+                recordedCount.get(), droppedCount.get(), writtenBytes.get() / 1024, segmentCount.get(),
+                writeErrorCount.get(), getPendingBytes());
+    }
+}
@@ -0,0 +1,38 @@
+package com.yuwen.centershipcontroller.Utils;
+
+/**
+ * 电机控制命令的线路格式
+ * 与船舶设备协商：船舶在房间信息中声明支持二进制格式时使用BINARY，否则回退到JSON
+ *
+ * @author yuwen
+ */
+public enum WireFormat {
+    /**
+     * SHIPMOTRO JSON文本帧
+     */
+    JSON("json"),
+    /**
+     * {@link MotorCommandCodec} 定义的二进制帧
+     */
+    BINARY("binary");
+
+    private final String protocolName;
+
+    WireFormat(String protocolName) {
+        this.protocolName = protocolName;
+    }
+
+    /**
+     * 协议中使用的名称
+     */
+    public String getProtocolName() {
+        return protocolName;
+    }
+
+    /**
+     * 根据协议名称解析格式，未知名称返回JSON
+     */
+    public static WireFormat fromProtocolName(String name) {
+        return BINARY.protocolName.equals(name) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,75 @@
+package com.yuwen.centershipcontroller.Platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志入口测试
+ *
+ * @author yuwen
+ */
+public class LogTest {
+    private final List<String> lines = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Log.setLogger((priority, tag, message) -> lines.add(priority + "/" + tag + ": " + message));
+    }
+
+    @After
+    public void tearDown() {
+        Log.setLogger(Logger.CONSOLE);
+        Log.setMinPriority(Logger.DEBUG);
+    }
+
+    @Test
+    public void formatsPlaceholdersInOrder() {
+        Log.d("T", "序号={}, 命令={}", 7, 12L);
+        Log.i("T", "房间: {}", "r1");
+        Log.w("T", "{} 连接被服务器关闭: {}", "dev", "bye");
+        Log.e("T", "{} 连接异常: {}", "dev", "reset");
+        assertEquals("3/T: 序号=7, 命令=12", lines.get(0));
+        assertEquals("4/T: 房间: r1", lines.get(1));
+        assertEquals("5/T: dev 连接被服务器关闭: bye", lines.get(2));
+        assertEquals("6/T: dev 连接异常: reset", lines.get(3));
+    }
+
+    @Test
+    public void keepsUnmatchedPlaceholdersAndIgnoresExtraArgs() {
+        assertEquals("a=1, b={}", Log.format("a={}, b={}", 1, null, 1));
+        assertEquals("无占位", Log.format("无占位", 1, 2, 2));
+        assertEquals("null", Log.format("{}", null, null, 1));
+    }
+
+    @Test
+    public void disabledLevelsAreSkipped() {
+        Log.setMinPriority(Logger.INFO);
+        assertFalse(Log.isLoggable(Logger.DEBUG));
+        assertTrue(Log.isLoggable(Logger.ERROR));
+        Log.d("T", "不输出");
+        Log.d("T", "不输出 {}", new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("关闭的级别不应格式化参数");
+            }
+        });
+        Log.i("T", "输出");
+        assertEquals(1, lines.size());
+        assertEquals("4/T: 输出", lines.get(0));
+    }
+
+    @Test
+    public void errorWithThrowableAppendsStackTrace() {
+        Log.e("T", "处理出错", new IllegalStateException("坏状态"));
+        assertTrue(lines.get(0).startsWith("6/T: 处理出错\njava.lang.IllegalStateException: 坏状态"));
+        assertTrue(lines.get(0).contains("at " + LogTest.class.getName()));
+    }
+}
@@ -0,0 +1,43 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 测试用的线程分配统计，读取线程累计分配的字节数
+ * 依赖HotSpot的com.sun.management.ThreadMXBean，不支持或未开启时跳过当前测试
+ *
+ * @author yuwen
+ */
+final class AllocationProbe {
+    private final com.sun.management.ThreadMXBean threads;
+
+    private AllocationProbe(com.sun.management.ThreadMXBean threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * 当前JVM支持并已开启线程分配统计时返回探针，否则跳过当前测试
+     */
+    static AllocationProbe assumeAvailable() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("当前JVM不支持或未开启线程分配统计", bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled());
+        return new AllocationProbe((com.sun.management.ThreadMXBean) bean);
+    }
+
+    /**
+     * @return 指定线程累计分配的字节数
+     */
+    long allocatedBytes(long threadId) {
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * @return 当前线程累计分配的字节数
+     */
+    long allocatedBytes() {
+        return allocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,216 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令发送线程测试
+ *
+ * @author yuwen
+ */
+public class CommandSenderTest {
+    // 一次模拟的UI卡顿时长
+    private static final long UI_STALL_MILLIS = 1000;
+    // 卡顿期间每条命令从投递到发出允许的最长时间
+    private static final long MAX_SEND_DELAY_MILLIS = 100;
+
+    private CommandSender sender;
+
+    @After
+    public void tearDown() {
+        if (sender != null) {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    public void newerCommandsSupersedeQueuedOnes() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        transport.gate = new CountDownLatch(1);
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+
+        ControlCommand first = CommandTable.get(10, 10, 1, 0);
+        sender.offer(first);
+        // 等待发送线程卡在第一条命令上
+        assertTrue(transport.entered.await(5, TimeUnit.SECONDS));
+
+        sender.offer(CommandTable.get(20, 20, 1, 0));
+        sender.offer(CommandTable.get(25, 25, 1, 0));
+        ControlCommand latest = CommandTable.get(30, 30, 1, 0);
+        sender.offer(latest);
+        transport.gate.countDown();
+
+        assertEquals(CommandTable.json(first), transport.texts.poll(5, TimeUnit.SECONDS));
+        assertEquals(CommandTable.json(latest), transport.texts.poll(5, TimeUnit.SECONDS));
+        assertEquals(null, transport.texts.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, sender.getSupersededCount());
+        assertEquals(2, sender.getSentCount());
+    }
+
+    @Test
+    public void awaitIdleWaitsForInFlightSend() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        transport.gate = new CountDownLatch(1);
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+        assertTrue(sender.awaitIdle(1, TimeUnit.SECONDS));
+
+        sender.offer(CommandTable.get(10, 10, 1, 0));
+        assertTrue(transport.entered.await(5, TimeUnit.SECONDS));
+        ControlCommand stop = CommandTable.zero();
+        sender.offer(stop);
+        // 第一条命令仍在发送中，停止命令在邮箱中
+        assertFalse(sender.awaitIdle(100, TimeUnit.MILLISECONDS));
+
+        transport.gate.countDown();
+        assertTrue(sender.awaitIdle(5, TimeUnit.SECONDS));
+        // 返回时停止命令已经交给发送通道
+        assertEquals(2, transport.texts.size());
+        assertEquals(2, sender.getSentCount());
+    }
+
+    @Test
+    public void awaitIdleReturnsAfterShutdown() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        transport.gate = new CountDownLatch(1);
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+        sender.offer(CommandTable.get(10, 10, 1, 0));
+        assertTrue(transport.entered.await(5, TimeUnit.SECONDS));
+        sender.shutdown();
+        assertFalse(sender.awaitIdle(5, TimeUnit.SECONDS));
+        transport.gate.countDown();
+    }
+
+    @Test
+    public void blockedUiThreadDoesNotDelaySends() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+
+        // 模拟一次长时间的布局/地图渲染：UI线程在整个测试期间都无法处理任何消息
+        Object uiLock = new Object();
+        CountDownLatch uiBlocked = new CountDownLatch(1);
+        Thread uiThread = new Thread(() -> {
+            synchronized (uiLock) {
+                uiBlocked.countDown();
+                try {
+                    Thread.sleep(UI_STALL_MILLIS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, "fake-ui");
+        uiThread.start();
+        assertTrue(uiBlocked.await(5, TimeUnit.SECONDS));
+
+        List<Long> delays = new ArrayList<>();
+        for (int thrust = 1; thrust <= 10; thrust++) {
+            long offered = System.nanoTime();
+            sender.offer(CommandTable.get(thrust, thrust, 1, 0));
+            String sent = transport.texts.poll(MAX_SEND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            long delayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - offered);
+
+            assertEquals(CommandTable.json(CommandTable.get(thrust, thrust, 1, 0)), sent);
+            delays.add(delayMillis);
+            Thread.sleep(20);
+        }
+
+        // 所有命令都在UI线程仍然阻塞时发出
+        assertTrue("UI线程应仍处于阻塞状态", uiThread.isAlive());
+        for (long delay : delays) {
+            assertTrue("发送延迟过大: " + delays, delay < MAX_SEND_DELAY_MILLIS);
+        }
+        uiThread.join();
+    }
+
+    @Test
+    public void binaryFramesCarryConsecutiveSequenceNumbers() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        RttTracker tracker = new RttTracker();
+        sender = new CommandSender("test-sender", transport, tracker);
+        sender.setWireFormat(WireFormat.BINARY);
+
+        ControlCommand command = CommandTable.get(12, 8, 0, 0);
+        for (int i = 1; i <= 3; i++) {
+            sender.offer(command);
+            byte[] frame = transport.frames.poll(5, TimeUnit.SECONDS);
+            assertSame(command, MotorCommandCodec.decode(frame, 0, frame.length));
+            assertEquals(i, MotorCommandCodec.decodeSequence(frame, 0));
+        }
+        assertEquals(3, tracker.getSentCount());
+    }
+
+    @Test
+    public void probeTagsJsonWithSequence() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+        sender.setRttProbeEnabled(true);
+
+        sender.offer(CommandTable.zero());
+        assertEquals("{\"SHIPMOTRO\":{\"CH1\":0,\"DIR1\":1,\"EN1\":1,\"CH2\":0,\"DIR2\":1,\"EN2\":1},\"SEQ\":1}",
+                transport.texts.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedSendNotifiesListener() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        transport.accept = false;
+        CountDownLatch failed = new CountDownLatch(1);
+        sender = new CommandSender("test-sender", transport, new RttTracker());
+        sender.setFailureListener(failed::countDown);
+
+        sender.offer(CommandTable.zero());
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sender.getFailedCount());
+    }
+
+    private static class RecordingTransport implements CommandSender.Transport {
+        final LinkedBlockingQueue<String> texts = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+        volatile boolean accept = true;
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean sendText(@NonNull String text) {
+            awaitGate();
+            texts.add(text);
+            return accept;
+        }
+
+        @Override
+        public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+            awaitGate();
+            byte[] copy = new byte[length];
+            System.arraycopy(data, offset, copy, 0, length);
+            frames.add(copy);
+            return accept;
+        }
+
+        private void awaitGate() {
+            entered.countDown();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
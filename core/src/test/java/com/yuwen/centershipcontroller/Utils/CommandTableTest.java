@@ -0,0 +1,70 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 控制命令表测试
+ *
+ * @author yuwen
+ */
+public class CommandTableTest {
+
+    @Test
+    public void everyCommandMatchesGsonSerialization() {
+        for (int index = 0; index < CommandTable.SIZE; index++) {
+            ControlCommand command = CommandTable.get(index);
+            assertEquals(index, command.index);
+            assertEquals(gsonJson(command), CommandTable.json(command));
+            assertArrayEquals(gsonJson(command).getBytes(StandardCharsets.UTF_8), CommandTable.jsonBytes(command));
+        }
+    }
+
+    @Test
+    public void lookupReturnsSameInstance() {
+        ControlCommand command = CommandTable.get(12, 30, 1, 0);
+        assertSame(command, CommandTable.get(12, 30, 1, 0));
+        assertSame(command, CommandTable.get(command.index));
+        assertEquals(12, command.leftThrust);
+        assertEquals(30, command.rightThrust);
+        assertEquals(1, command.leftDirection);
+        assertEquals(1, command.rightDirection);
+        assertEquals(0, command.leftEnable);
+        assertEquals(0, command.rightEnable);
+    }
+
+    @Test
+    public void thrustIsClampedToTableRange() {
+        assertSame(CommandTable.get(30, 0, 0, 0), CommandTable.get(100, -5, 0, 0));
+    }
+
+    @Test
+    public void zeroCommandIsStopWithMotorsDisabled() {
+        ControlCommand zero = CommandTable.zero();
+        assertTrue(zero.isZeroCommand);
+        assertEquals("{\"SHIPMOTRO\":{\"CH1\":0,\"DIR1\":1,\"EN1\":1,\"CH2\":0,\"DIR2\":1,\"EN2\":1}}",
+                CommandTable.json(zero));
+    }
+
+    private static String gsonJson(ControlCommand command) {
+        JsonObject shipMotorObject = new JsonObject();
+        shipMotorObject.addProperty("CH1", command.leftThrust);
+        shipMotorObject.addProperty("DIR1", command.leftDirection);
+        shipMotorObject.addProperty("EN1", command.leftEnable);
+        shipMotorObject.addProperty("CH2", command.rightThrust);
+        shipMotorObject.addProperty("DIR2", command.rightDirection);
+        shipMotorObject.addProperty("EN2", command.rightEnable);
+
+        JsonObject commandObject = new JsonObject();
+        commandObject.add("SHIPMOTRO", shipMotorObject);
+        return commandObject.toString();
+    }
+}
@@ -0,0 +1,258 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Clock;
+import com.yuwen.centershipcontroller.Platform.Haptics;
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 摇杆采样到命令发送的热路径分配测试
+ * 预热后 采样 → 滤波 → 命令生成 → 控制循环 → 发送线程编码并交给通道 的整条路径不应产生堆分配，
+ * 输入线程(兼作控制线程)和发送线程分别统计
+ *
+ * @author yuwen
+ */
+public class ControlCoreAllocationTest {
+    private static final long MS = 1_000_000L;
+    // 每次调用runTrace的轮数，按块调用使循环正常编译而不是栈上替换，退出循环时不会去优化
+    private static final int CHUNK_ROUNDS = 100;
+    private static final int MEASURED_ROUNDS = 5_000;
+    // 发送线程的调用次数要远超C2编译阈值；负载高时命令大多被合并，发送次数远少于轮数
+    private static final long WARM_UP_SENDS = 30_000;
+    private static final int MAX_WARM_UP_PASSES = 200;
+
+    // 一段覆盖前进、转向、边缘、后退(方向切换)和回中的摇杆轨迹
+    private static final float[][] TRACE = {
+            {0f, 0f}, {0f, 0.05f}, {0f, 0.15f}, {0f, 0.3f}, {0.05f, 0.3f},
+            {-0.2f, 0.25f}, {-0.3f, 0.1f}, {0.2f, 0.25f}, {0.3f, 0.05f},
+            {0.7f, 0.7f}, {0f, 1f}, {0f, -0.2f}, {0f, -0.3f}, {-0.1f, -0.25f},
+            {0.15f, -0.2f}, {0f, 0f}
+    };
+
+    private final float[] batchX = new float[TRACE.length];
+    private final float[] batchY = new float[TRACE.length];
+    private final long[] batchTimes = new long[TRACE.length];
+
+    /**
+     * 手动推进的时钟
+     */
+    private static final class ManualClock implements Clock {
+        long now = 1_000 * MS;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    /**
+     * 在调用线程中立即执行投递的任务，定时任务只保存最近一个(控制循环)，由测试按时执行；不分配对象
+     */
+    private static final class InlineScheduler implements Scheduler {
+        Runnable timedTask;
+        long timedDeadline;
+
+        @Override
+        public void post(@NonNull Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void postAt(@NonNull Runnable task, long deadlineNanos) {
+            timedTask = task;
+            timedDeadline = deadlineNanos;
+        }
+
+        @Override
+        public void remove(@NonNull Runnable task) {
+            if (timedTask == task) {
+                timedTask = null;
+            }
+        }
+
+        void runDue(long now) {
+            Runnable task = timedTask;
+            if (task != null && timedDeadline <= now) {
+                timedTask = null;
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 始终在线的通道，只计数，记录发送线程ID
+     */
+    private static final class CountingTransport implements CommandSender.Transport {
+        volatile long senderThreadId = -1;
+        volatile long texts;
+        volatile long frames;
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean sendText(@NonNull String text) {
+            senderThreadId = Thread.currentThread().getId();
+            texts++;
+            return true;
+        }
+
+        @Override
+        public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+            senderThreadId = Thread.currentThread().getId();
+            frames++;
+            return true;
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final InlineScheduler scheduler = new InlineScheduler();
+    private final CountingTransport transport = new CountingTransport();
+    private AllocationProbe probe;
+    private ControlCore core;
+    // 最近一轮测量的结果
+    private long inputAllocated;
+    private long senderAllocated;
+    private long sent;
+
+    @Before
+    public void setUp() {
+        probe = AllocationProbe.assumeAvailable();
+
+        core = new ControlCore(scheduler, clock, Haptics.NONE, transport);
+        core.setFilterType(ControlCore.FILTER_FAST_LAG, 0.5f);
+        for (int i = 0; i < TRACE.length; i++) {
+            batchX[i] = TRACE[i][0];
+            batchY[i] = TRACE[i][1];
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (core != null) {
+            core.shutdown();
+        }
+    }
+
+    @Test
+    public void jsonSamplesDoNotAllocate() throws Exception {
+        assertSteadyStateDoesNotAllocate(WireFormat.JSON, false);
+    }
+
+    @Test
+    public void binarySampleBatchesDoNotAllocate() throws Exception {
+        assertSteadyStateDoesNotAllocate(WireFormat.BINARY, true);
+    }
+
+    private void assertSteadyStateDoesNotAllocate(WireFormat format, boolean batched) throws Exception {
+        core.start();
+        warmUp(format, batched);
+        measure(batched);
+        assertTrue("测量期间没有发送命令", sent > 0);
+        int samples = MEASURED_ROUNDS * TRACE.length;
+        assertEquals("输入/控制线程在" + samples + "个采样中产生了分配", 0, inputAllocated);
+        assertEquals("发送线程在" + sent + "次发送中产生了分配", 0, senderAllocated);
+    }
+
+    /**
+     * 预热到JIT稳定：先让每种编码和采样方式都走过，分支剖析与测试执行顺序无关，不会在测量时去优化；
+     * 再重复测量时的同一调用，直到发送次数足够、编译停止且整轮无分配。
+     * 应用线程触发C2编译时会在本线程解析类中的字符串常量，发送线程的方法没有编译完就会在测量中分配
+     */
+    private void warmUp(WireFormat format, boolean batched) throws InterruptedException {
+        CommandSender sender = core.getCommandSender();
+        for (WireFormat other : WireFormat.values()) {
+            sender.setWireFormat(other);
+            runTrace(MEASURED_ROUNDS, false);
+            runTrace(MEASURED_ROUNDS, true);
+            assertTrue(sender.awaitIdle(5, TimeUnit.SECONDS));
+        }
+        assertTrue("发送线程没有发出命令", transport.senderThreadId >= 0);
+        sender.setWireFormat(format);
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean timed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long compileTime = -1;
+        long sentBefore = transport.texts + transport.frames;
+        for (int pass = 0; pass < MAX_WARM_UP_PASSES; pass++) {
+            measure(batched);
+            long now = timed ? compiler.getTotalCompilationTime() : 0;
+            boolean settled = now == compileTime && inputAllocated == 0 && senderAllocated == 0;
+            if (settled && transport.texts + transport.frames - sentBefore >= WARM_UP_SENDS) {
+                return;
+            }
+            compileTime = now;
+        }
+    }
+
+    /**
+     * 执行一轮测量，结果保存在 {@link #inputAllocated}、{@link #senderAllocated}、{@link #sent}
+     */
+    private void measure(boolean batched) throws InterruptedException {
+        long senderThread = transport.senderThreadId;
+        long sentBefore = transport.texts + transport.frames;
+        // 读取其他线程的统计会在调用线程上分配，先读发送线程再读本线程
+        long senderBefore = probe.allocatedBytes(senderThread);
+        long inputBefore = probe.allocatedBytes();
+        runTrace(MEASURED_ROUNDS, batched);
+        inputAllocated = probe.allocatedBytes() - inputBefore;
+        assertTrue(core.getCommandSender().awaitIdle(5, TimeUnit.SECONDS));
+        senderAllocated = probe.allocatedBytes(senderThread) - senderBefore;
+        sent = transport.texts + transport.frames - sentBefore;
+    }
+
+    private void runTrace(int rounds, boolean batched) {
+        for (int done = 0; done < rounds; done += CHUNK_ROUNDS) {
+            if (batched) {
+                runBatches(CHUNK_ROUNDS);
+            } else {
+                runSamples(CHUNK_ROUNDS);
+            }
+        }
+    }
+
+    private void runSamples(int rounds) {
+        long step = core.getControlPeriodNanos() / TRACE.length;
+        for (int round = 0; round < rounds; round++) {
+            for (float[] sample : TRACE) {
+                clock.now += step;
+                core.updateJoystickValue(sample[0], sample[1], clock.now);
+            }
+            runControlTick();
+        }
+    }
+
+    private void runBatches(int rounds) {
+        long step = core.getControlPeriodNanos() / TRACE.length;
+        for (int round = 0; round < rounds; round++) {
+            // 整条轨迹作为一个触摸事件的历史点批量送入
+            for (int i = 0; i < TRACE.length; i++) {
+                clock.now += step;
+                batchTimes[i] = clock.now;
+            }
+            core.updateJoystickSamples(batchX, batchY, batchTimes, TRACE.length);
+            runControlTick();
+        }
+    }
+
+    /**
+     * 时钟推进到控制循环的计划时刻并执行，每轮正好一个周期，控制循环不会迟到
+     */
+    private void runControlTick() {
+        clock.now = scheduler.timedDeadline;
+        scheduler.runDue(clock.now);
+    }
+}
@@ -0,0 +1,260 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Clock;
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制核心测试
+ * 时钟和调度器都由测试手动推进，控制线程上的任务在测试线程中执行
+ *
+ * @author yuwen
+ */
+public class ControlCoreTest {
+    private static final long MS = 1_000_000L;
+
+    /**
+     * 手动推进的时钟
+     */
+    private static final class ManualClock implements Clock {
+        long now = 1_000 * MS;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    /**
+     * 手动执行的调度器：runPending执行已投递的任务和已到期的定时任务
+     */
+    private static final class ManualScheduler implements Scheduler {
+        private final ManualClock clock;
+        private final List<Runnable> immediate = new ArrayList<>();
+        private final Map<Runnable, Long> timed = new LinkedHashMap<>();
+
+        ManualScheduler(ManualClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public synchronized void post(@NonNull Runnable task) {
+            immediate.add(task);
+        }
+
+        @Override
+        public synchronized void postAt(@NonNull Runnable task, long deadlineNanos) {
+            timed.put(task, deadlineNanos);
+        }
+
+        @Override
+        public synchronized void remove(@NonNull Runnable task) {
+            immediate.remove(task);
+            timed.remove(task);
+        }
+
+        synchronized Long nextDeadline() {
+            return timed.isEmpty() ? null : timed.values().iterator().next();
+        }
+
+        void runPending() {
+            while (true) {
+                Runnable task = null;
+                synchronized (this) {
+                    if (!immediate.isEmpty()) {
+                        task = immediate.remove(0);
+                    } else {
+                        for (Map.Entry<Runnable, Long> entry : timed.entrySet()) {
+                            if (entry.getValue() <= clock.now) {
+                                task = entry.getKey();
+                                timed.remove(task);
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (task == null) {
+                    return;
+                }
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 记录发送线程发出的命令
+     */
+    private static final class CapturingTransport implements CommandSender.Transport {
+        final LinkedBlockingQueue<ControlCommand> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean sendText(@NonNull String text) {
+            sent.add(SessionRecording.decodeCommandText(text));
+            return true;
+        }
+
+        @Override
+        public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+            sent.add(MotorCommandCodec.decode(data, offset, length));
+            return true;
+        }
+
+        ControlCommand next() throws InterruptedException {
+            ControlCommand command = sent.poll(1, TimeUnit.SECONDS);
+            if (command == null) {
+                throw new AssertionError("发送线程没有发出命令");
+            }
+            return command;
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final ManualScheduler scheduler = new ManualScheduler(clock);
+    private final CapturingTransport transport = new CapturingTransport();
+    private final List<Long> vibrations = new ArrayList<>();
+    private ControlCore core;
+
+    @Before
+    public void setUp() {
+        core = new ControlCore(scheduler, clock, vibrations::add, transport);
+        core.setFilterType(ControlCore.FILTER_NONE, 1f);
+        core.start();
+        scheduler.runPending();
+    }
+
+    @After
+    public void tearDown() {
+        core.shutdown();
+    }
+
+    private void input(float x, float y) {
+        core.updateJoystickValues(x, y);
+        scheduler.runPending();
+    }
+
+    @Test
+    public void straightInputUsesPresetThrustLevels() {
+        input(0f, 0.2f);
+        assertSame(CommandTable.get(20, 20, 1, 0), core.getLatestCommand());
+        input(0f, 0.02f);
+        assertTrue("死区内应为零命令", core.isIdle());
+        // 开始和停止各震动一次
+        assertEquals(2, vibrations.size());
+        assertEquals(40L, (long) vibrations.get(0));
+    }
+
+    @Test
+    public void reversingWaitsForDirectionChangeDelay() {
+        core.setDirectionChangeDelay(100);
+        input(0f, 0.22f);
+        assertSame(CommandTable.get(20, 20, 1, 0), core.getLatestCommand());
+
+        // 后退：第一次检测到方向变化时发出零命令并震动
+        input(0.15f, -0.25f);
+        assertTrue(core.isIdle());
+        assertTrue(vibrations.contains(100L));
+
+        clock.now += 60 * MS;
+        input(0.15f, -0.26f);
+        assertTrue("方向切换延迟内保持零命令", core.isIdle());
+
+        clock.now += 50 * MS;
+        input(0.15f, -0.25f);
+        ControlCommand reverse = core.getLatestCommand();
+        assertFalse(reverse.isZeroCommand);
+        assertEquals(0, reverse.leftDirection);
+        assertEquals(0, reverse.rightDirection);
+    }
+
+    @Test
+    public void edgeVibratesOnceUntilLeavingTheEdge() {
+        input(0f, 1f);
+        input(0.01f, 1f);
+        input(0f, 0.99f);
+        assertEquals(1, count(30L));
+        input(0f, 0.5f);
+        input(0f, 1f);
+        assertEquals(2, count(30L));
+    }
+
+    private int count(long duration) {
+        int n = 0;
+        for (long v : vibrations) {
+            if (v == duration) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void controlLoopResendsLatestCommandAndSkipsMissedTicks() throws Exception {
+        long period = core.getControlPeriodNanos();
+        // 启动时的停止命令
+        assertSame(CommandTable.zero(), transport.next());
+        Long first = scheduler.nextDeadline();
+        assertEquals(clock.now + period, (long) first);
+
+        input(0f, 0.3f);
+        assertSame(CommandTable.get(30, 30, 1, 0), transport.next());
+
+        clock.now = first;
+        scheduler.runPending();
+        assertSame(CommandTable.get(30, 30, 1, 0), transport.next());
+        assertEquals(first + period, (long) scheduler.nextDeadline());
+
+        // 控制线程停顿了三个周期多：只补一次，下次计划时刻保持原相位
+        clock.now = first + 3 * period + period / 2;
+        scheduler.runPending();
+        assertSame(CommandTable.get(30, 30, 1, 0), transport.next());
+        assertEquals(first + 4 * period, (long) scheduler.nextDeadline());
+        assertEquals(2, core.getControlLoopStats().getMissedDeadlines());
+
+        core.stop();
+        assertSame(CommandTable.zero(), transport.next());
+        assertNull(scheduler.nextDeadline());
+    }
+
+    @Test
+    public void predictiveFilterUsesMeasuredLatency() {
+        core.stop();
+        scheduler.runPending();
+        assertTrue(core.setFilterType(ControlCore.FILTER_PREDICTIVE, 0.7f));
+        core.start();
+        scheduler.runPending();
+
+        // 往返40ms，外推时长取单程20ms(采样到发送的耗时在手动时钟下为0)
+        core.getRttTracker().onSent(1, clock.now);
+        core.getRttTracker().onAck(1, 0xFF, clock.now + 40 * MS);
+        input(0f, 0.5f);
+        clock.now += 1_100 * MS;
+        scheduler.runPending();
+        String name = core.getFilterName();
+        assertTrue(name, name.startsWith("OneEuroFilter(预测"));
+        long horizonMs = Long.parseLong(name.replaceAll("\\D", ""));
+        assertTrue(name, horizonMs >= 19 && horizonMs <= 21);
+    }
+}
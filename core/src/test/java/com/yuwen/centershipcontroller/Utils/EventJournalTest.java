@@ -0,0 +1,99 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存事件日志测试
+ *
+ * @author yuwen
+ */
+public class EventJournalTest {
+    private final AtomicLong now = new AtomicLong();
+    private final EventJournal journal = new EventJournal(4, now::get);
+
+    private String[] lines(String dump) {
+        return dump.split("\n");
+    }
+
+    @Test
+    public void dumpsEventsInOrderRelativeToLast() {
+        now.set(1_000_000);
+        journal.record(EventJournal.Event.COMMAND_SENT, 1, 42);
+        now.set(3_500_000);
+        journal.record(EventJournal.Event.ACK, 1, 2_500_000);
+
+        String[] lines = lines(journal.dump());
+        assertEquals(3, lines.length);
+        assertEquals("事件日志: 记录=2, 输出最近2条", lines[0]);
+        assertEquals("    -2.500ms 命令发送: 序号=1, 命令=42", lines[1]);
+        assertEquals("     0.000ms 命令确认: 序号=1, 往返=2500000ns", lines[2]);
+    }
+
+    @Test
+    public void keepsOnlyNewestEventsWhenWrapped() {
+        for (int i = 0; i < 10; i++) {
+            journal.record(EventJournal.Event.ACK_UNMATCHED, i);
+        }
+        assertEquals(10, journal.getRecordedCount());
+        String[] lines = lines(journal.dump());
+        assertEquals(1 + journal.getCapacity(), lines.length);
+        assertTrue(lines[1].endsWith("未匹配的确认: 序号=6"));
+        assertTrue(lines[4].endsWith("未匹配的确认: 序号=9"));
+
+        lines = lines(journal.dump(2));
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].endsWith("序号=8"));
+    }
+
+    @Test
+    public void decodesDoubleArguments() {
+        journal.record(EventJournal.Event.GPS_FIX, 39.9, 116.4);
+        assertTrue(journal.dump().contains("GPS定位: 纬度=39.9, 经度=116.4"));
+    }
+
+    @Test
+    public void roundsCapacityToPowerOfTwo() {
+        assertEquals(8, new EventJournal(5, now::get).getCapacity());
+        assertEquals(EventJournal.DEFAULT_CAPACITY, EventJournal.getInstance().getCapacity());
+    }
+
+    @Test
+    public void clearEmptiesJournal() {
+        journal.record(EventJournal.Event.MARK, 1, 2);
+        journal.clear();
+        assertEquals(0, journal.getRecordedCount());
+        assertFalse(journal.dump().contains("标记"));
+    }
+
+    @Test
+    public void concurrentWritersProduceConsistentEvents() throws InterruptedException {
+        EventJournal shared = new EventJournal(1024, System::nanoTime);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final long id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    // 两个参数始终相同，混杂的事件会被发现
+                    shared.record(EventJournal.Event.MARK, id * 1_000_000 + i, id * 1_000_000 + i);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(400_000, shared.getRecordedCount());
+        String[] lines = lines(shared.dump());
+        assertEquals(1 + 1024, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            String[] args = lines[i].substring(lines[i].indexOf("标记: ") + 4).split(", ");
+            assertEquals(args[0], args[1]);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * 滤波器批量接口测试：批量结果应与逐个更新逐位相同
+ *
+ * @author yuwen
+ */
+public class FiltersTest {
+    private static final int SAMPLES = 100;
+
+    private static float[] wave(double frequency, double phase) {
+        float[] values = new float[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            values[i] = (float) (0.8 * Math.sin(i * frequency + phase) + 0.03 * Math.cos(i * 5.3));
+        }
+        return values;
+    }
+
+    /**
+     * 分别用逐个更新和批量接口处理同一段采样，分两批以覆盖批次之间的状态衔接
+     */
+    private static void assertBatchMatchesPerSample(Filters.LowLatencyFilter perSample,
+                                                    Filters.LowLatencyFilter batch) {
+        float[] xs = wave(0.11, 0);
+        float[] ys = wave(0.07, 1);
+        float[] expectedX = new float[SAMPLES];
+        float[] expectedY = new float[SAMPLES];
+        float[] out = new float[2];
+        for (int i = 0; i < SAMPLES; i++) {
+            perSample.update(xs[i], ys[i], out);
+            expectedX[i] = out[0];
+            expectedY[i] = out[1];
+        }
+
+        batch.update(xs, ys, 0, 37);
+        batch.update(xs, ys, 37, SAMPLES - 37);
+        assertArrayEquals(expectedX, xs, 0f);
+        assertArrayEquals(expectedY, ys, 0f);
+
+        // 批量之后继续逐个更新，状态应一致
+        perSample.update(0.5f, -0.5f, out);
+        float[] next = new float[2];
+        batch.update(0.5f, -0.5f, next);
+        assertArrayEquals(out, next, 0f);
+    }
+
+    @Test
+    public void fastLagBatchMatchesPerSample() {
+        assertBatchMatchesPerSample(new Filters.FastLagFilter(0.4f), new Filters.FastLagFilter(0.4f));
+    }
+
+    @Test
+    public void kalmanBatchMatchesPerSample() {
+        assertBatchMatchesPerSample(new Filters.KalmanFilter(), new Filters.KalmanFilter());
+    }
+
+    @Test
+    public void kalmanBatchAfterSingleAxisUpdateMatchesPerSample() {
+        Filters.KalmanFilter perSample = new Filters.KalmanFilter();
+        Filters.KalmanFilter batch = new Filters.KalmanFilter();
+        // 只更新X轴后两轴协方差不同，走逐个更新的通用路径
+        perSample.update(0.3f);
+        batch.update(0.3f);
+        assertBatchMatchesPerSample(perSample, batch);
+    }
+
+    @Test
+    public void oneEuroBatchMatchesPerSample() {
+        assertBatchMatchesPerSample(new Filters.OneEuroFilter(), new Filters.OneEuroFilter());
+    }
+
+    @Test
+    public void defaultBatchMatchesPerSample() {
+        // 只实现逐个更新的滤波器走接口的默认批量实现
+        assertBatchMatchesPerSample(new HalfFilter(), new HalfFilter());
+    }
+
+    /**
+     * 只实现必需方法的滤波器：输出为输入的一半
+     */
+    private static final class HalfFilter implements Filters.LowLatencyFilter {
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public float update(float value) {
+            return value / 2;
+        }
+
+        @Override
+        public void update(float x, float y, float[] out) {
+            out[0] = x / 2;
+            out[1] = y / 2;
+        }
+    }
+
+    @Test
+    public void noFilterBatchLeavesSamplesUnchanged() {
+        assertBatchMatchesPerSample(new Filters.NoFilter(), new Filters.NoFilter());
+    }
+
+    @Test
+    public void batchOnlyTouchesGivenRange() {
+        float[] xs = new float[10];
+        float[] ys = new float[10];
+        Arrays.fill(xs, 0.5f);
+        Arrays.fill(ys, 0.5f);
+        Filters.FastLagFilter filter = new Filters.FastLagFilter(0.5f);
+        filter.update(0f, 0f, new float[2]);
+        filter.update(xs, ys, 3, 4);
+        assertEquals(0.5f, xs[2], 0f);
+        assertEquals(0.25f, xs[3], 0f);
+        assertEquals(0.46875f, xs[6], 0f);
+        assertEquals(0.5f, xs[7], 0f);
+        assertEquals(0.5f, ys[7], 0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void batchRejectsRangeOutsideArrays() {
+        new Filters.KalmanFilter().update(new float[8], new float[4], 2, 4);
+    }
+}
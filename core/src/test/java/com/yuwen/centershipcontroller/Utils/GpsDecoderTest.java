@@ -0,0 +1,110 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * GPS解码测试
+ *
+ * @author yuwen
+ */
+public class GpsDecoderTest {
+    private static final double EPSILON = 1e-9;
+
+    private final GpsDecoder decoder = new GpsDecoder();
+    private final GpsFix fix = new GpsFix();
+
+    @Test
+    public void decodesTypicalMessage() {
+        assertTrue(decoder.decode("{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015\"}}", fix));
+        assertEquals(11623.4567, fix.getRawEast(), 0);
+        assertEquals(3954.1234, fix.getRawNorth(), 0);
+        assertEquals(116 + 23.4567 / 60, fix.getLongitude(), EPSILON);
+        assertEquals(39 + 54.1234 / 60, fix.getLatitude(), EPSILON);
+        assertEquals("083015", fix.getTime());
+        assertTrue(fix.isValid());
+    }
+
+    @Test
+    public void acceptsWhitespaceQuotedNumbersAndExtraFields() {
+        String message = "{ \"GPS\" : {\n \"time\" : 83015 , \"speed\" : {\"kn\": [1, 2]},"
+                + " \"N\" : \"-3954.1234\", \"fix\": true, \"E\":11623 } , \"other\": 1 }";
+        assertTrue(decoder.decode(message, fix));
+        assertEquals(11623, fix.getRawEast(), 0);
+        assertEquals(-3954.1234, fix.getRawNorth(), 0);
+        assertEquals("83015", fix.getTime());
+    }
+
+    @Test
+    public void matchesDoubleParseDouble() {
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            String east = String.format(Locale.ROOT, "%." + random.nextInt(9) + "f", random.nextDouble() * 18000);
+            String north = String.format(Locale.ROOT, "%." + random.nextInt(9) + "f", random.nextDouble() * 9000);
+            assertTrue(decoder.decode("{\"GPS\":{\"E\":" + east + ",\"N\":" + north + "}}", fix));
+            assertEquals(east, Double.parseDouble(east), fix.getRawEast(), 0);
+            assertEquals(north, Double.parseDouble(north), fix.getRawNorth(), 0);
+        }
+    }
+
+    @Test
+    public void leavesUnusualMessagesToJsonReader() {
+        fix.clear();
+        // 不是GPS消息
+        assertFalse(decoder.decode("{\"type\":\"room\"}", fix));
+        // GPS不是第一个字段
+        assertFalse(decoder.decode("{\"id\":1,\"GPS\":{\"E\":1,\"N\":2}}", fix));
+        // 指数形式
+        assertFalse(decoder.decode("{\"GPS\":{\"E\":1.1623E4,\"N\":3954.1}}", fix));
+        // 转义字符
+        assertFalse(decoder.decode("{\"GPS\":{\"time\":\"08\\u00330\",\"E\":1,\"N\":2}}", fix));
+        // 缺少纬度、截断
+        assertFalse(decoder.decode("{\"GPS\":{\"E\":11623.4567}}", fix));
+        assertFalse(decoder.decode("{\"GPS\":{\"E\":11623.4567,\"N\":", fix));
+        assertFalse(decoder.decode("{\"GPS\":{\"E\":\"\",\"N\":1}}", fix));
+        assertFalse(fix.isValid());
+    }
+
+    @Test
+    public void jsonReaderPathProducesSameFix() throws Exception {
+        JsonReader reader = new JsonReader(new StringReader("{\"E\":1.1623E4,\"N\":\"3954.1\",\"time\":\"08\\u00330\"}"));
+        assertTrue(GpsDecoder.decode(reader, fix));
+        assertEquals(11623, fix.getRawEast(), 0);
+        assertEquals(3954.1, fix.getRawNorth(), 0);
+        assertEquals("0830", fix.getTime());
+    }
+
+    @Test
+    public void steadyStateDecodingDoesNotAllocate() {
+        AllocationProbe probe = AllocationProbe.assumeAvailable();
+
+        String[] messages = new String[64];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = String.format(Locale.ROOT, "{\"GPS\":{\"E\":%.4f,\"N\":%.4f,\"time\":\"0830%02d\"}}",
+                    11623.4567 + i * 0.001, 3954.1234 + i * 0.001, i % 60);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            decoder.decode(messages[i % messages.length], fix);
+        }
+
+        long allocated = Long.MAX_VALUE;
+        // JIT去优化可能带来一次性分配，取最好的一轮
+        for (int attempt = 0; attempt < 3 && allocated >= 1024; attempt++) {
+            long before = probe.allocatedBytes();
+            for (int i = 0; i < 100_000; i++) {
+                decoder.decode(messages[i % messages.length], fix);
+            }
+            allocated = probe.allocatedBytes() - before;
+        }
+        assertTrue("解码100000条GPS消息分配了" + allocated + "字节", allocated < 1024);
+    }
+}
@@ -0,0 +1,118 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GPS定位合并器测试
+ *
+ * @author yuwen
+ */
+public class GpsFixCoalescerTest {
+    private final GpsFixCoalescer coalescer = new GpsFixCoalescer();
+    private final GpsDecoder decoder = new GpsDecoder();
+    private final GpsFix out = new GpsFix();
+
+    private GpsFix fix(double east, double north) {
+        GpsFix fix = new GpsFix();
+        assertTrue(decoder.decode("{\"GPS\":{\"E\":" + east + ",\"N\":" + north + "}}", fix));
+        return fix;
+    }
+
+    @Test
+    public void keepsOnlyNewestFixPerFrame() {
+        assertTrue(coalescer.offer(fix(11623.1, 3954.1)));
+        // 帧已预约，后续定位只覆盖
+        assertFalse(coalescer.offer(fix(11623.2, 3954.2)));
+        assertFalse(coalescer.offer(fix(11623.3, 3954.3)));
+
+        assertTrue(coalescer.poll(out));
+        assertEquals(11623.3, out.getRawEast(), 0);
+        assertFalse(coalescer.poll(out));
+
+        assertEquals(3, coalescer.getReceivedCount());
+        assertEquals(1, coalescer.getRenderedCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void fixAfterPollSchedulesNextFrame() {
+        assertTrue(coalescer.offer(fix(11623.1, 3954.1)));
+        assertTrue(coalescer.poll(out));
+        assertTrue(coalescer.offer(fix(11623.2, 3954.2)));
+        // 空帧之后也要重新预约
+        assertTrue(coalescer.poll(out));
+        assertFalse(coalescer.poll(out));
+        assertTrue(coalescer.offer(fix(11623.3, 3954.3)));
+    }
+
+    @Test
+    public void clearDropsPendingFix() {
+        coalescer.offer(fix(11623.1, 3954.1));
+        coalescer.clear();
+        assertFalse(coalescer.poll(out));
+        assertTrue(coalescer.offer(fix(11623.2, 3954.2)));
+    }
+
+    @Test
+    public void skipsCameraMovesBelowPixelThreshold() {
+        // 纬度0.00001度约1.1米
+        assertEquals(1.11, GpsFixCoalescer.distanceMeters(39.9, 116.4, 39.90001, 116.4), 0.01);
+        assertEquals(0.85, GpsFixCoalescer.distanceMeters(39.9, 116.4, 39.9, 116.40001), 0.01);
+
+        // 每像素1米，移动约1.1像素，不移动地图
+        assertFalse(coalescer.shouldMoveCamera(39.9, 116.4, 39.90001, 116.4, 1f));
+        // 每像素0.5米，约2.2像素
+        assertTrue(coalescer.shouldMoveCamera(39.9, 116.4, 39.90001, 116.4, 0.5f));
+        // 无法取得比例尺时总是移动
+        assertTrue(coalescer.shouldMoveCamera(39.9, 116.4, 39.9, 116.4, 0f));
+
+        coalescer.setMinCameraMovePixels(0);
+        assertTrue(coalescer.shouldMoveCamera(39.9, 116.4, 39.9, 116.4, 1f));
+
+        assertEquals(3, coalescer.getCameraMoveCount());
+        assertEquals(1, coalescer.getSkippedCameraMoveCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeThreshold() {
+        coalescer.setMinCameraMovePixels(-1);
+    }
+
+    @Test
+    public void concurrentOffersNeverLoseTheLastFix() throws Exception {
+        final int fixes = 200_000;
+        GpsFix[] source = {fix(11623.0, 3954.0), fix(11624.0, 3955.0)};
+        AtomicInteger scheduled = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < fixes; i++) {
+                if (coalescer.offer(source[i == fixes - 1 ? 1 : 0])) {
+                    scheduled.incrementAndGet();
+                }
+            }
+            done.countDown();
+        });
+        reader.start();
+
+        // 模拟主线程：每次预约对应一次帧回调
+        int frames = 0;
+        while (done.getCount() > 0 || frames < scheduled.get()) {
+            if (frames < scheduled.get()) {
+                frames++;
+                coalescer.poll(out);
+            }
+        }
+        reader.join();
+
+        assertEquals(11624.0, out.getRawEast(), 0);
+        assertEquals(fixes, coalescer.getReceivedCount());
+        assertEquals(fixes, coalescer.getRenderedCount() + coalescer.getCoalescedCount());
+    }
+}
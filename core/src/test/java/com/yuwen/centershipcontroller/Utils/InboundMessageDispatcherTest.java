@@ -0,0 +1,108 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息分发器测试
+ *
+ * @author yuwen
+ */
+public class InboundMessageDispatcherTest {
+
+    private final RecordingHandler handler = new RecordingHandler();
+    private final InboundMessageDispatcher dispatcher = new InboundMessageDispatcher(handler);
+
+    @Test
+    public void decodesGpsFix() {
+        assertEquals(InboundMessageDispatcher.MessageKind.GPS,
+                dispatcher.dispatch("{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015\"}}"));
+        assertEquals("E=11623.4567,N=3954.1234,time=083015", handler.events.get(0));
+    }
+
+    @Test
+    public void decodesGpsThatIsNotTheFirstKey() {
+        assertEquals(InboundMessageDispatcher.MessageKind.GPS,
+                dispatcher.dispatch("{\"device\":\"ship-01\",\"GPS\":{\"N\":\"3954.1234\",\"E\":\"11623.4567\"}}"));
+        assertEquals("E=11623.4567,N=3954.1234,time=", handler.events.get(0));
+    }
+
+    @Test
+    public void recognisesEchoedCommandAsAck() {
+        String echoed = "{\"SHIPMOTRO\":{\"CH1\":12,\"DIR1\":1,\"EN1\":1,\"CH2\":8,\"DIR2\":0,\"EN2\":1},\"SEQ\":4096}";
+        assertEquals(InboundMessageDispatcher.MessageKind.ACK, dispatcher.dispatch(echoed));
+        assertEquals("ack 4096", handler.events.get(0));
+    }
+
+    @Test
+    public void recognisesAckMessageInAnyKeyOrder() {
+        assertEquals(InboundMessageDispatcher.MessageKind.ACK, dispatcher.dispatch("{\"seq\":7,\"type\":\"ack\"}"));
+        assertEquals("ack 7", handler.events.get(0));
+    }
+
+    @Test
+    public void routesTypedMessages() {
+        dispatcher.dispatch("{\"type\":\"connection\",\"message\":\"Connected successfully\"}");
+        dispatcher.dispatch("{\"room_id\":\"42\",\"type\":\"room\"}");
+        dispatcher.dispatch("{\"type\":\"room_info\",\"clients\":[{\"device_id\":\"s1\",\"identity\":\"SHIP_DEVICES\"}]}");
+
+        assertEquals("connection Connected successfully", handler.events.get(0));
+        assertEquals("room 42", handler.events.get(1));
+        assertEquals("room_info 1", handler.events.get(2));
+        assertNull(handler.lastRoomInfo.get("GPS"));
+    }
+
+    @Test
+    public void reportsUnknownAndMalformedMessages() {
+        assertEquals(InboundMessageDispatcher.MessageKind.UNKNOWN, dispatcher.dispatch("{\"type\":\"weather\"}"));
+        assertEquals(InboundMessageDispatcher.MessageKind.UNKNOWN, dispatcher.dispatch("{\"foo\":1}"));
+        assertEquals(InboundMessageDispatcher.MessageKind.MALFORMED, dispatcher.dispatch("[1,2]"));
+        assertEquals(InboundMessageDispatcher.MessageKind.MALFORMED, dispatcher.dispatch("{\"type\":"));
+        assertEquals(2, handler.events.size());
+    }
+
+    private static class RecordingHandler implements InboundMessageDispatcher.MessageHandler {
+        final List<String> events = new ArrayList<>();
+        JsonObject lastRoomInfo;
+
+        @Override
+        public void onGpsFix(@NonNull GpsFix fix) {
+            events.add("E=" + fix.getRawEast() + ",N=" + fix.getRawNorth() + ",time=" + fix.getTime());
+        }
+
+        @Override
+        public void onAck(int sequence) {
+            events.add("ack " + sequence);
+        }
+
+        @Override
+        public void onConnection(@NonNull String message) {
+            events.add("connection " + message);
+        }
+
+        @Override
+        public void onRoom(@NonNull JsonObject message) {
+            events.add("room " + message.get("room_id").getAsString());
+        }
+
+        @Override
+        public void onRoomInfo(@NonNull JsonObject message) {
+            lastRoomInfo = message;
+            events.add("room_info " + message.getAsJsonArray("clients").size());
+        }
+
+        @Override
+        public void onUnknown(@NonNull String message) {
+            events.add("unknown");
+        }
+    }
+}
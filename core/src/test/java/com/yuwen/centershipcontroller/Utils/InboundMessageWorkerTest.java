@@ -0,0 +1,169 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收到消息处理线程测试
+ *
+ * @author yuwen
+ */
+public class InboundMessageWorkerTest {
+    private static final String ROOM_INFO = "{\"type\":\"room_info\",\"room_id\":\"%s\"}";
+    private static final String BLOCK = "{\"type\":\"block\"}";
+
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private InboundMessageWorker worker;
+
+    private InboundMessageWorker start(int capacity) {
+        worker = new InboundMessageWorker("inbound-test", capacity, (message, receivedNanos) -> {
+            if (BLOCK.equals(message)) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            handled.add(message);
+        });
+        return worker;
+    }
+
+    private static String gps(int index) {
+        return "{\"GPS\":{\"E\":11623." + index + ",\"N\":3954." + index + "}}";
+    }
+
+    /**
+     * 阻塞处理线程，使后续消息留在队列中
+     */
+    private void blockWorker() throws InterruptedException {
+        assertTrue(worker.offer(BLOCK));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (worker.getProcessedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, worker.getProcessedCount());
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void classifiesWithoutParsing() {
+        assertEquals(InboundMessageWorker.Kind.GPS, InboundMessageWorker.classify(gps(1)));
+        assertEquals(InboundMessageWorker.Kind.ROOM_INFO, InboundMessageWorker.classify(String.format(ROOM_INFO, "r1")));
+        assertEquals(InboundMessageWorker.Kind.OTHER, InboundMessageWorker.classify("{\"type\":\"ack\",\"seq\":3}"));
+        assertEquals(InboundMessageWorker.Kind.OTHER, InboundMessageWorker.classify("{\"type\":\"room\",\"room_id\":\"r1\"}"));
+    }
+
+    @Test
+    public void preservesOrderOfOtherMessages() throws InterruptedException {
+        start(InboundMessageWorker.DEFAULT_CAPACITY);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(worker.offer("{\"type\":\"ack\",\"seq\":" + i + "}"));
+        }
+        awaitProcessed(100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("{\"type\":\"ack\",\"seq\":" + i + "}", handled.get(i));
+        }
+    }
+
+    @Test
+    public void conflatesPendingGpsAndRoomInfo() throws InterruptedException {
+        start(InboundMessageWorker.DEFAULT_CAPACITY);
+        blockWorker();
+
+        worker.offer(gps(1));
+        worker.offer("{\"type\":\"ack\",\"seq\":1}");
+        worker.offer(String.format(ROOM_INFO, "r1"));
+        worker.offer(gps(2));
+        worker.offer(String.format(ROOM_INFO, "r2"));
+        worker.offer(gps(3));
+        assertEquals(3, worker.getQueueDepth());
+
+        release.countDown();
+        awaitProcessed(4);
+        // 合并后的消息保留最早一条的位置，内容为最新一条
+        assertEquals(Arrays.asList(gps(3), "{\"type\":\"ack\",\"seq\":1}", String.format(ROOM_INFO, "r2")), handled);
+        assertEquals(2, worker.getConflatedGpsCount());
+        assertEquals(1, worker.getConflatedRoomInfoCount());
+        assertEquals(0, worker.getDroppedCount());
+        assertEquals(7, worker.getReceivedCount());
+    }
+
+    @Test
+    public void gpsAfterDequeueIsQueuedAgain() throws InterruptedException {
+        start(InboundMessageWorker.DEFAULT_CAPACITY);
+        worker.offer(gps(1));
+        awaitProcessed(1);
+        worker.offer(gps(2));
+        awaitProcessed(2);
+        assertEquals(Arrays.asList(gps(1), gps(2)), handled);
+        assertEquals(0, worker.getConflatedGpsCount());
+    }
+
+    @Test
+    public void dropsWhenFull() throws InterruptedException {
+        start(2);
+        blockWorker();
+
+        assertTrue(worker.offer("{\"type\":\"ack\",\"seq\":1}"));
+        assertTrue(worker.offer(gps(1)));
+        assertFalse(worker.offer("{\"type\":\"ack\",\"seq\":2}"));
+        // 已在队列中的GPS仍可合并
+        assertTrue(worker.offer(gps(2)));
+        assertEquals(1, worker.getDroppedCount());
+        assertEquals(2, worker.getMaxQueueDepth());
+
+        release.countDown();
+        awaitProcessed(3);
+        assertEquals(Arrays.asList("{\"type\":\"ack\",\"seq\":1}", gps(2)), handled);
+    }
+
+    @Test
+    public void recordsQueueAndProcessTimes() throws InterruptedException {
+        start(InboundMessageWorker.DEFAULT_CAPACITY);
+        worker.offer(gps(1));
+        worker.offer("{\"type\":\"ack\",\"seq\":1}");
+        awaitProcessed(2);
+        assertEquals(2, worker.getQueueHistogram().getCount());
+        assertEquals(2, worker.getProcessHistogram().getCount());
+        assertTrue(worker.getStats().startsWith("入站队列: "));
+
+        worker.resetStats();
+        assertEquals(0, worker.getProcessedCount());
+        assertEquals(0, worker.getQueueHistogram().getCount());
+    }
+
+    @Test
+    public void rejectsAfterShutdown() {
+        start(InboundMessageWorker.DEFAULT_CAPACITY);
+        worker.shutdown();
+        assertFalse(worker.offer(gps(1)));
+        assertEquals(1, worker.getDroppedCount());
+    }
+}
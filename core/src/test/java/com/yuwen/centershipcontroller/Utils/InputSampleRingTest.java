@@ -0,0 +1,93 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 摇杆采样环形缓冲区测试
+ *
+ * @author yuwen
+ */
+public class InputSampleRingTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(64, new InputSampleRing(64).capacity());
+        assertEquals(128, new InputSampleRing(65).capacity());
+        assertEquals(2, new InputSampleRing(1).capacity());
+    }
+
+    @Test
+    public void drainsInOrderAcrossWrapAround() {
+        InputSampleRing ring = new InputSampleRing(8);
+        float[] xs = new float[8];
+        float[] ys = new float[8];
+        long[] times = new long[8];
+
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5; i++, next++) {
+                assertTrue(ring.offer(next, -next, next * 10L));
+            }
+            int count = ring.drainTo(xs, ys, times, 8);
+            assertEquals(5, count);
+            for (int i = 0; i < count; i++, expected++) {
+                assertEquals(expected, xs[i], 0f);
+                assertEquals(-expected, ys[i], 0f);
+                assertEquals(expected * 10L, times[i]);
+            }
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void dropsNewSamplesWhenFull() {
+        InputSampleRing ring = new InputSampleRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i, i, i));
+        }
+        assertFalse(ring.offer(9, 9, 9));
+        assertEquals(1, ring.getDroppedCount());
+
+        float[] xs = new float[2];
+        float[] ys = new float[2];
+        long[] times = new long[2];
+        // 每次最多取出max个
+        assertEquals(2, ring.drainTo(xs, ys, times, 2));
+        assertEquals(1f, xs[1], 0f);
+        assertTrue(ring.offer(4, 4, 4));
+    }
+
+    @Test
+    public void producerAndConsumerThreadsSeeEverySampleInOrder() throws Exception {
+        final int total = 1_000_000;
+        InputSampleRing ring = new InputSampleRing(256);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; ) {
+                if (ring.offer(i, i, i)) {
+                    i++;
+                }
+            }
+        });
+        producer.start();
+
+        float[] xs = new float[32];
+        float[] ys = new float[32];
+        long[] times = new long[32];
+        long expected = 0;
+        while (expected < total) {
+            int count = ring.drainTo(xs, ys, times, xs.length);
+            for (int i = 0; i < count; i++, expected++) {
+                assertEquals(expected, times[i]);
+                assertEquals((float) expected, xs[i], 0f);
+            }
+        }
+        producer.join();
+        assertTrue(ring.isEmpty());
+    }
+}
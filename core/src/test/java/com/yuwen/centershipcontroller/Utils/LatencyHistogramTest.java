@@ -0,0 +1,127 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 延迟直方图测试
+ *
+ * @author yuwen
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguousAndCoverTheirValues() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            previous = index;
+        }
+        assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) >= 0);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("测试");
+        // 1ms..100ms 各一个样本
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(100_000_000L, snapshot.getMaxNanos());
+        assertEquals(1_000_000L, snapshot.getMinNanos());
+        assertEquals(50_500_000L, snapshot.getMeanNanos());
+        assertWithin(50_000_000L, snapshot.getValueAtPercentile(50));
+        assertWithin(95_000_000L, snapshot.getValueAtPercentile(95));
+        assertWithin(99_000_000L, snapshot.getValueAtPercentile(99));
+        assertEquals(100_000_000L, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void snapshotIsIndependentOfLaterSamples() {
+        LatencyHistogram histogram = new LatencyHistogram("测试");
+        histogram.record(1_000L);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        histogram.record(2_000_000L);
+
+        assertEquals(1, snapshot.getCount());
+        assertEquals(2, histogram.getCount());
+    }
+
+    @Test
+    public void mergedSnapshotCombinesSamples() {
+        LatencyHistogram first = new LatencyHistogram("会话1");
+        LatencyHistogram second = new LatencyHistogram("会话2");
+        LatencyHistogram empty = new LatencyHistogram("空");
+        for (int i = 1; i <= 50; i++) {
+            first.record(i * 1_000_000L);
+            second.record((i + 50) * 1_000_000L);
+        }
+
+        LatencyHistogram.Snapshot merged = empty.snapshot().merge(first.snapshot()).merge(second.snapshot());
+        assertEquals(100, merged.getCount());
+        assertEquals(1_000_000L, merged.getMinNanos());
+        assertEquals(100_000_000L, merged.getMaxNanos());
+        assertEquals(50_500_000L, merged.getMeanNanos());
+        LatencyHistogram combined = new LatencyHistogram("合计");
+        for (int i = 1; i <= 100; i++) {
+            combined.record(i * 1_000_000L);
+        }
+        assertEquals(combined.getValueAtPercentile(50), merged.getValueAtPercentile(50));
+        assertEquals(combined.getValueAtPercentile(99), merged.getValueAtPercentile(99));
+        assertTrue(merged.toString().startsWith("空: 计数=100"));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNoSamples() throws Exception {
+        final int threads = 4;
+        final int samplesPerThread = 200_000;
+        LatencyHistogram histogram = new LatencyHistogram("测试");
+        AtomicLong drained = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final long base = (t + 1) * 1_000L;
+            new Thread(() -> {
+                for (int i = 0; i < samplesPerThread; i++) {
+                    histogram.record(base + i);
+                }
+                done.countDown();
+            }).start();
+        }
+        // 记录期间不断按窗口取出，每个样本只能被取出一次
+        while (done.getCount() > 0) {
+            drained.addAndGet(histogram.snapshotAndReset().getCount());
+        }
+        drained.addAndGet(histogram.snapshotAndReset().getCount());
+
+        assertEquals((long) threads * samplesPerThread, drained.get());
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void resetClearsSamples() {
+        LatencyHistogram histogram = new LatencyHistogram("测试");
+        histogram.record(5_000_000L);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals("测试: 无数据", histogram.getStats());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("期望约" + expected + "，实际" + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,104 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 电机控制命令二进制编解码测试
+ *
+ * @author yuwen
+ */
+public class MotorCommandCodecTest {
+
+    @Test
+    public void everyTableCommandRoundTrips() {
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        for (int index = 0; index < CommandTable.SIZE; index++) {
+            ControlCommand command = CommandTable.get(index);
+            int length = MotorCommandCodec.encode(command, index, frame, 0);
+
+            assertEquals(MotorCommandCodec.FRAME_LENGTH, length);
+            assertSame(command, MotorCommandCodec.decode(frame, 0, length));
+            assertEquals(index & 0xFF, MotorCommandCodec.decodeSequence(frame, 0));
+        }
+    }
+
+    @Test
+    public void zeroCommandHasExpectedLayout() {
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.zero(), 7, frame, 0);
+
+        assertEquals((byte) 0xA5, frame[0]);
+        assertEquals(7, frame[1]);
+        assertEquals(0, frame[2]);
+        assertEquals(0, frame[3]);
+        // DIR1=1, DIR2=1, EN1=1, EN2=1
+        assertEquals(0x0F, frame[4]);
+        assertEquals(MotorCommandCodec.crc8(frame, 0, 5), frame[5]);
+    }
+
+    @Test
+    public void encodesAtOffset() {
+        byte[] buffer = new byte[16];
+        ControlCommand command = CommandTable.get(25, 12, 0, 0);
+        MotorCommandCodec.encode(command, 300, buffer, 5);
+
+        assertSame(command, MotorCommandCodec.decode(buffer, 5, MotorCommandCodec.FRAME_LENGTH));
+        assertEquals(300 & 0xFF, MotorCommandCodec.decodeSequence(buffer, 5));
+    }
+
+    @Test
+    public void detectsEverySingleBitError() {
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.get(30, 18, 1, 0), 42, frame, 0);
+
+        for (int bit = 0; bit < MotorCommandCodec.FRAME_LENGTH * 8; bit++) {
+            byte[] corrupted = frame.clone();
+            corrupted[bit / 8] ^= (byte) (1 << (bit % 8));
+            assertFalse("未检测到第" + bit + "位错误",
+                    MotorCommandCodec.isValidFrame(corrupted, 0, corrupted.length));
+        }
+    }
+
+    @Test
+    public void rejectsShortFrames() {
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.zero(), 1, frame, 0);
+
+        assertTrue(MotorCommandCodec.isValidFrame(frame, 0, frame.length));
+        assertFalse(MotorCommandCodec.isValidFrame(frame, 0, frame.length - 1));
+    }
+
+    @Test
+    public void rejectsFramesOutsideCommandTable() {
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+
+        // 左右方向不一致
+        frame[0] = MotorCommandCodec.MAGIC;
+        frame[2] = 10;
+        frame[3] = 10;
+        frame[4] = 0x01;
+        frame[5] = MotorCommandCodec.crc8(frame, 0, 5);
+        assertTrue(MotorCommandCodec.isValidFrame(frame, 0, frame.length));
+        assertNull(MotorCommandCodec.decode(frame, 0, frame.length));
+
+        // 推力超出上限
+        frame[2] = (byte) (CommandTable.MAX_THRUST_POWER + 1);
+        frame[4] = 0x03;
+        frame[5] = MotorCommandCodec.crc8(frame, 0, 5);
+        assertNull(MotorCommandCodec.decode(frame, 0, frame.length));
+    }
+
+    @Test
+    public void binaryFrameIsMuchSmallerThanJson() {
+        for (int index = 0; index < CommandTable.SIZE; index++) {
+            ControlCommand command = CommandTable.get(index);
+            assertTrue(MotorCommandCodec.FRAME_LENGTH * 10 < CommandTable.jsonBytes(command).length);
+        }
+    }
+}
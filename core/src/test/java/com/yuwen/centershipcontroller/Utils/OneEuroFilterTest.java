@@ -0,0 +1,225 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 自适应滤波器离线测试：在摇杆轨迹上测量滞后和抖动
+ * 轨迹按120Hz采样，由推杆、保持、转向、回中和慢速摆动组成，
+ * 保持阶段叠加手抖(8Hz)和触摸噪声，真实值为不含噪声的轨迹
+ *
+ * @author yuwen
+ */
+public class OneEuroFilterTest {
+    private static final int RATE_HZ = 120;
+    private static final long INTERVAL_NANOS = 1_000_000_000L / RATE_HZ;
+    private static final long PIPELINE_LATENCY_NANOS = 50_000_000L;
+
+    /**
+     * 一段摇杆轨迹：真实位置、含噪声的采样，以及每个采样是否处于保持阶段
+     */
+    private static final class Trace {
+        final float[] truthX;
+        final float[] truthY;
+        final float[] sampleX;
+        final float[] sampleY;
+        final boolean[] holding;
+        int length;
+
+        Trace(int capacity) {
+            truthX = new float[capacity];
+            truthY = new float[capacity];
+            sampleX = new float[capacity];
+            sampleY = new float[capacity];
+            holding = new boolean[capacity];
+        }
+    }
+
+    private static Trace stickTrace() {
+        Trace trace = new Trace(RATE_HZ * 20);
+        Random random = new Random(20240601L);
+        float x = 0;
+        float y = 0;
+        // {目标X, 目标Y, 移动时长ms, 保持时长ms}
+        float[][] segments = {
+                {0f, 0f, 0, 800},
+                {0f, 0.8f, 150, 1500},
+                {-0.5f, 0.6f, 200, 1200},
+                {0.5f, 0.6f, 250, 1200},
+                {0f, 0.3f, 120, 1000},
+                {0f, -0.4f, 300, 1000},
+                {0f, 0f, 100, 800},
+                {0.7f, 0.7f, 180, 1500},
+                {0f, 0f, 80, 800},
+        };
+        for (float[] segment : segments) {
+            int moveSamples = (int) (segment[2] * RATE_HZ / 1000);
+            float startX = x;
+            float startY = y;
+            for (int i = 1; i <= moveSamples; i++) {
+                // 平滑的推杆动作
+                float t = (float) i / moveSamples;
+                float eased = t * t * (3 - 2 * t);
+                x = startX + (segment[0] - startX) * eased;
+                y = startY + (segment[1] - startY) * eased;
+                add(trace, random, x, y, false);
+            }
+            x = segment[0];
+            y = segment[1];
+            int holdSamples = (int) (segment[3] * RATE_HZ / 1000);
+            for (int i = 0; i < holdSamples; i++) {
+                add(trace, random, x, y, true);
+            }
+        }
+        // 慢速摆动
+        for (int i = 0; i < RATE_HZ * 4; i++) {
+            double t = (double) i / RATE_HZ;
+            add(trace, random, (float) (0.4 * Math.sin(2 * Math.PI * 0.5 * t)), 0.5f, false);
+        }
+        return trace;
+    }
+
+    private static void add(Trace trace, Random random, float x, float y, boolean holding) {
+        int i = trace.length++;
+        double t = (double) i / RATE_HZ;
+        float tremor = (float) (0.012 * Math.sin(2 * Math.PI * 8 * t));
+        trace.truthX[i] = x;
+        trace.truthY[i] = y;
+        trace.sampleX[i] = x + tremor + (float) (random.nextGaussian() * 0.01);
+        trace.sampleY[i] = y - tremor + (float) (random.nextGaussian() * 0.01);
+        trace.holding[i] = holding;
+    }
+
+    /**
+     * 滤波结果
+     */
+    private static final class Result {
+        float[] x;
+        float[] y;
+    }
+
+    private static Result run(Filters.LowLatencyFilter filter, Trace trace) {
+        Result result = new Result();
+        result.x = new float[trace.length];
+        result.y = new float[trace.length];
+        float[] out = new float[2];
+        long time = 1_000_000_000L;
+        for (int i = 0; i < trace.length; i++) {
+            filter.update(trace.sampleX[i], trace.sampleY[i], time, out);
+            result.x[i] = out[0];
+            result.y[i] = out[1];
+            time += INTERVAL_NANOS;
+        }
+        return result;
+    }
+
+    /**
+     * 滞后：使输出与平移后的真实轨迹误差最小的平移量(毫秒)，负值表示超前
+     */
+    private static double lagMillis(Result result, Trace trace) {
+        int maxShift = RATE_HZ / 4;
+        double[] errors = new double[2 * maxShift + 1];
+        int best = 0;
+        for (int shift = -maxShift; shift <= maxShift; shift++) {
+            double error = 0;
+            for (int i = maxShift; i < trace.length - maxShift; i++) {
+                double dx = result.x[i] - trace.truthX[i - shift];
+                double dy = result.y[i] - trace.truthY[i - shift];
+                error += dx * dx + dy * dy;
+            }
+            errors[shift + maxShift] = error;
+            if (error < errors[best]) {
+                best = shift + maxShift;
+            }
+        }
+        // 抛物线插值得到采样间隔以下的精度
+        double offset = 0;
+        if (best > 0 && best < errors.length - 1) {
+            double left = errors[best - 1];
+            double right = errors[best + 1];
+            double curvature = left - 2 * errors[best] + right;
+            if (curvature > 0) {
+                offset = 0.5 * (left - right) / curvature;
+            }
+        }
+        return (best - maxShift + offset) * 1000.0 / RATE_HZ;
+    }
+
+    /**
+     * 抖动：保持阶段(跳过开始的200ms过渡)输出偏离真实位置的均方根
+     */
+    private static double jitter(Result result, Trace trace) {
+        int settle = RATE_HZ / 5;
+        double sum = 0;
+        int count = 0;
+        int held = 0;
+        for (int i = 0; i < trace.length; i++) {
+            held = trace.holding[i] ? held + 1 : 0;
+            if (held > settle) {
+                double dx = result.x[i] - trace.truthX[i];
+                double dy = result.y[i] - trace.truthY[i];
+                sum += dx * dx + dy * dy;
+                count++;
+            }
+        }
+        return Math.sqrt(sum / count);
+    }
+
+    private static String describe(String name, Result result, Trace trace) {
+        return String.format(Locale.ROOT, "%s: 滞后=%.1fms, 抖动=%.4f", name, lagMillis(result, trace), jitter(result, trace));
+    }
+
+    @Test
+    public void adaptiveFilterMatchesFastLagLagWithLessJitter() {
+        Trace trace = stickTrace();
+        Result fastLag = run(new Filters.FastLagFilter(0.5f), trace);
+        Result kalman = run(new Filters.KalmanFilter(), trace);
+        Result oneEuro = run(new Filters.OneEuroFilter(), trace);
+        String summary = describe("FastLagFilter", fastLag, trace) + "; " + describe("KalmanFilter", kalman, trace)
+                + "; " + describe("OneEuroFilter", oneEuro, trace);
+
+        // 运动时和快速滤波一样跟手(差距小于2ms)，保持时抖动不到其60%，也低于卡尔曼滤波
+        assertTrue(summary, lagMillis(oneEuro, trace) < lagMillis(fastLag, trace) + 2);
+        assertTrue(summary, jitter(oneEuro, trace) < 0.6 * jitter(fastLag, trace));
+        assertTrue(summary, jitter(oneEuro, trace) < jitter(kalman, trace));
+        assertTrue(summary, lagMillis(oneEuro, trace) < lagMillis(kalman, trace));
+    }
+
+    @Test
+    public void predictionCompensatesPartOfPipelineLatency() {
+        Trace trace = stickTrace();
+        Result fastLag = run(new Filters.FastLagFilter(0.5f), trace);
+        Result oneEuro = run(new Filters.OneEuroFilter(), trace);
+        Filters.OneEuroFilter filter = new Filters.OneEuroFilter();
+        filter.setPredictionNanos(PIPELINE_LATENCY_NANOS);
+        Result predictive = run(filter, trace);
+        String summary = describe("OneEuroFilter", oneEuro, trace)
+                + "; " + describe("OneEuroFilter+50ms", predictive, trace);
+
+        // 外推后输出超前于输入，抵消至少20ms的管线延迟，抖动仍低于快速滤波
+        assertTrue(summary, lagMillis(predictive, trace) < lagMillis(oneEuro, trace) - 20);
+        assertTrue(summary, jitter(predictive, trace) < jitter(fastLag, trace));
+        for (int i = 0; i < trace.length; i++) {
+            assertTrue(Math.abs(predictive.x[i]) <= 1f && Math.abs(predictive.y[i]) <= 1f);
+        }
+    }
+
+    @Test
+    public void zeroPredictionIsPlainAdaptiveFilter() {
+        Trace trace = stickTrace();
+        Filters.OneEuroFilter filter = new Filters.OneEuroFilter();
+        filter.setPredictionNanos(PIPELINE_LATENCY_NANOS);
+        filter.setPredictionNanos(0);
+        Result plain = run(new Filters.OneEuroFilter(), trace);
+        Result reset = run(filter, trace);
+        for (int i = 0; i < trace.length; i++) {
+            assertEquals(plain.x[i], reset.x[i], 0f);
+            assertEquals(plain.y[i], reset.y[i], 0f);
+        }
+    }
+}
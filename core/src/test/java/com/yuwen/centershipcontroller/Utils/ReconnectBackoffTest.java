@@ -0,0 +1,66 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 重连退避策略测试
+ *
+ * @author yuwen
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void ceilingGrowsExponentiallyUpToCap() {
+        ReconnectBackoff backoff = new ReconnectBackoff(500, 30_000, 2.0, new Random(1));
+        assertEquals(500, backoff.ceilingMillis(0));
+        assertEquals(1_000, backoff.ceilingMillis(1));
+        assertEquals(16_000, backoff.ceilingMillis(5));
+        assertEquals(30_000, backoff.ceilingMillis(6));
+        assertEquals(30_000, backoff.ceilingMillis(1_000));
+    }
+
+    @Test
+    public void delaysStayWithinJitterWindow() {
+        ReconnectBackoff backoff = new ReconnectBackoff(500, 30_000, 2.0, new Random(42));
+        for (int attempt = 0; attempt < 20; attempt++) {
+            long ceiling = backoff.ceilingMillis(attempt);
+            long delay = backoff.nextDelayMillis();
+            assertTrue("第" + attempt + "次等待" + delay + "ms超出范围",
+                    delay >= ceiling / 2 && delay <= ceiling);
+        }
+        assertEquals(20, backoff.getAttempt());
+    }
+
+    @Test
+    public void jitterSpreadsDelays() {
+        Random random = new Random(7);
+        Set<Long> delays = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            delays.add(new ReconnectBackoff(1_000, 30_000, 2.0, random).nextDelayMillis());
+        }
+        assertTrue("退避时间没有随机化: " + delays, delays.size() > 10);
+    }
+
+    @Test
+    public void resetRestartsFromInitialDelay() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 10_000, 2.0, new Random(3));
+        for (int i = 0; i < 5; i++) {
+            backoff.nextDelayMillis();
+        }
+        backoff.reset();
+        assertEquals(0, backoff.getAttempt());
+        assertTrue(backoff.nextDelayMillis() <= 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShrinkingMultiplier() {
+        new ReconnectBackoff(100, 1_000, 0.5, new Random());
+    }
+}
@@ -0,0 +1,44 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+/**
+ * 房间协议消息测试
+ *
+ * @author yuwen
+ */
+public class RoomProtocolTest {
+
+    private static JsonObject roomInfo(String clients) {
+        return JsonParser.parseString("{\"type\":\"room_info\",\"room_id\":\"8848\",\"clients\":[" + clients + "]}")
+                .getAsJsonObject();
+    }
+
+    @Test
+    public void identityDeclaresAllWireFormats() {
+        assertEquals("{\"device_id\":\"main-01\",\"identity\":\"MAIN_DEVICES\",\"wire_formats\":[\"json\",\"binary\"]}",
+                RoomProtocol.mainIdentityMessage("main-01"));
+    }
+
+    @Test
+    public void negotiatesFormatDeclaredByShip() {
+        assertEquals(WireFormat.BINARY, RoomProtocol.negotiateWireFormat(roomInfo(
+                "{\"device_id\":\"main-01\",\"identity\":\"MAIN_DEVICES\"},"
+                        + "{\"device_id\":\"ship-01\",\"identity\":\"SHIP_DEVICES\",\"wire_format\":\"binary\"}")));
+    }
+
+    @Test
+    public void fallsBackToJson() {
+        assertEquals(WireFormat.JSON, RoomProtocol.negotiateWireFormat(roomInfo(
+                "{\"device_id\":\"ship-01\",\"identity\":\"SHIP_DEVICES\"}")));
+        assertEquals(WireFormat.JSON, RoomProtocol.negotiateWireFormat(roomInfo(
+                "{\"device_id\":\"main-02\",\"identity\":\"MAIN_DEVICES\",\"wire_format\":\"binary\"}")));
+        assertEquals(WireFormat.JSON, RoomProtocol.negotiateWireFormat(
+                JsonParser.parseString("{\"type\":\"room_info\"}").getAsJsonObject()));
+    }
+}
@@ -0,0 +1,196 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话回放测试
+ * 用确定性的假控制链路代替JoySticksDecoder：每个摇杆采样直接映射为命令表中的命令并同步发出
+ *
+ * @author yuwen
+ */
+public class SessionReplayerTest {
+    private static final long STEP_NANOS = 10_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 推力取Y轴幅度，方向取Y轴符号；收到"stop"消息时发出零命令
+     * 文本命令附加SEQ字段，检查比较时忽略序号
+     */
+    private static class FakeChain implements SessionReplayer.Target {
+        CommandSender.Transport transport;
+        int sequence;
+        float droppedY = Float.NaN;
+
+        static ControlCommand commandFor(float y) {
+            int thrust = Math.round(Math.abs(y) * CommandTable.MAX_THRUST_POWER);
+            return CommandTable.get(thrust, thrust, y >= 0 ? 1 : 0, 0);
+        }
+
+        @Override
+        public void begin(@NonNull CommandSender.Transport standIn) {
+            transport = standIn;
+        }
+
+        @Override
+        public void onJoystickSample(float x, float y) {
+            if (y == droppedY) {
+                return;
+            }
+            send(commandFor(y));
+        }
+
+        @Override
+        public void onInboundText(@NonNull String text) {
+            if (text.equals("stop")) {
+                send(CommandTable.zero());
+            }
+        }
+
+        void send(ControlCommand command) {
+            if (sequence % 2 == 0) {
+                String json = CommandTable.json(command);
+                transport.sendText(json.substring(0, json.length() - 1) + ",\"SEQ\":" + sequence + "}");
+            } else {
+                byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+                MotorCommandCodec.encode(command, sequence, frame, 0);
+                transport.sendBinary(frame, 0, frame.length);
+            }
+            sequence++;
+        }
+
+        @Override
+        public void end() {
+            transport = null;
+        }
+    }
+
+    /**
+     * 构建录制：摇杆从0推到1再拉回-0.5，每个位置保持三个采样(录制中有重复命令)，最后收到停止消息
+     */
+    private static SessionRecording buildRecording(float[] positions) {
+        SessionRecording recording = new SessionRecording();
+        long nanos = 1_000_000_000L;
+        for (float y : positions) {
+            for (int repeat = 0; repeat < 3; repeat++) {
+                recording.addJoystickSample(nanos, 0, y);
+                recording.addOutboundText(nanos + 1000, CommandTable.json(FakeChain.commandFor(y)));
+                nanos += STEP_NANOS;
+            }
+        }
+        recording.addInboundText(nanos, "stop");
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.zero(), 7, frame, 0);
+        recording.addOutboundBinary(nanos + 1000, frame);
+        return recording;
+    }
+
+    private static final float[] POSITIONS = {0f, 0.5f, 1f, 0.5f, -0.5f};
+
+    @Test
+    public void replayOfDeterministicChainMatchesRecording() throws Exception {
+        SessionRecording recording = buildRecording(POSITIONS);
+        SessionReplayer replayer = new SessionReplayer(recording, new FakeChain());
+        replayer.setTailNanos(0);
+        SessionReplayer.Report report = replayer.replay(10);
+
+        assertTrue(report.getSummary(), report.isIdentical());
+        assertEquals(-1, report.getFirstDivergence());
+        assertEquals(16, report.getRecordedCommandCount());
+        assertEquals(16, report.getReplayedCommandCount());
+        // 0 -> 0.5 -> 1 -> 0.5 -> -0.5 -> 停止
+        assertEquals(6, report.getMatchedCount());
+        assertEquals(6, report.getRecordedTransitions().size());
+        assertEquals(6, report.getTimingSkew().getCount());
+    }
+
+    @Test
+    public void reportsMissingAndExtraTransitions() throws Exception {
+        SessionRecording recording = buildRecording(POSITIONS);
+        FakeChain chain = new FakeChain();
+        chain.droppedY = 1f;
+        SessionReplayer.Report report = new SessionReplayer(recording, chain).replay(SessionReplayer.SPEED_UNLIMITED);
+        assertFalse(report.isIdentical());
+        // 丢掉推力30后，两次0.5合并为一次变化
+        assertEquals(2, report.getMissingCount());
+        assertEquals(0, report.getExtraCount());
+        assertEquals(2, report.getFirstDivergence());
+        assertTrue(report.getSummary().contains("首个差异=#2"));
+
+        List<SessionRecording.TimedCommand> recorded = recording.getRecordedCommands();
+        List<SessionRecording.TimedCommand> replayed = new ArrayList<>(recorded);
+        replayed.add(3, new SessionRecording.TimedCommand(0, CommandTable.get(3, 3, 1, 0)));
+        SessionReplayer.Report extra = SessionReplayer.compare(recorded, replayed, 0);
+        assertEquals(0, extra.getMissingCount());
+        assertEquals(1, extra.getExtraCount());
+        assertEquals(1, extra.getFirstDivergence());
+    }
+
+    @Test
+    public void replaySpeedScalesWallClockTime() throws Exception {
+        SessionRecording recording = buildRecording(POSITIONS);
+        // 录制中输入跨度为15个采样间隔，即150ms
+        SessionReplayer replayer = new SessionReplayer(recording, new FakeChain());
+        replayer.setTailNanos(0);
+
+        SessionReplayer.Report real = replayer.replay(1);
+        assertTrue(real.getElapsedNanos() >= 150_000_000L);
+        SessionReplayer.Report fast = replayer.replay(5);
+        assertTrue(fast.getElapsedNanos() >= 30_000_000L);
+        assertTrue(fast.getElapsedNanos() < 150_000_000L);
+        assertTrue(real.isIdentical());
+        assertTrue(fast.isIdentical());
+        // 替身通道把回放时间换算回录制时间轴，偏差远小于采样间隔
+        assertTrue(real.getTimingSkew().getStats(), real.getTimingSkew().getMaxNanos() < 5 * STEP_NANOS);
+    }
+
+    @Test
+    public void loadsRecordedSessionFromTelemetrySegments() throws Exception {
+        File directory = folder.newFolder("telemetry");
+        TelemetryRecorder recorder = new TelemetryRecorder(64 * 1024);
+        recorder.start(directory);
+        long nanos = System.nanoTime();
+        ControlCommand command = CommandTable.get(15, 15, 1, 0);
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.zero(), 1, frame, 0);
+        assertTrue(recorder.recordJoystick(0.25f, 0.5f, nanos));
+        assertTrue(recorder.recordOutbound(CommandTable.json(command).replace("}}", "},\"SEQ\":3}"), true));
+        assertTrue(recorder.recordInbound("stop"));
+        assertTrue(recorder.recordOutbound(frame, 0, frame.length, true));
+        recorder.stop();
+
+        SessionRecording recording = SessionRecording.load(TelemetryReader.listSegments(directory));
+        List<SessionRecording.Event> events = recording.getEvents();
+        assertEquals(4, events.size());
+        SessionRecording.Event sample = events.get(0);
+        assertEquals(TelemetryRecorder.TYPE_JOYSTICK_SAMPLE, sample.type);
+        assertEquals(nanos, sample.nanos);
+        assertEquals(0.25f, sample.x, 0f);
+        assertEquals(0.5f, sample.y, 0f);
+        assertEquals("stop", events.get(2).text);
+
+        List<SessionRecording.TimedCommand> commands = recording.getRecordedCommands();
+        assertEquals(2, commands.size());
+        assertEquals(command, commands.get(0).command);
+        assertEquals(CommandTable.zero(), commands.get(1).command);
+        assertNull(SessionRecording.decodeCommandText("{\"message\":\"hello\"}"));
+
+        SessionReplayer.Report report = new SessionReplayer(recording, new FakeChain())
+                .replay(SessionReplayer.SPEED_UNLIMITED);
+        assertTrue(report.getSummary(), report.isIdentical());
+    }
+}
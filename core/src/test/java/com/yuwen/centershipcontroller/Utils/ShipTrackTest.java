@@ -0,0 +1,116 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * 船舶航迹测试
+ *
+ * @author yuwen
+ */
+public class ShipTrackTest {
+    // 每度纬度约111195米，1e-5度约1.1米
+    private static final double METER = 1.0 / 111_195.0;
+    // 24小时10Hz
+    private static final int DAY_OF_FIXES = 24 * 3600 * 10;
+
+    @Test
+    public void overwritesOldestPointWhenFull() {
+        ShipTrack track = new ShipTrack(4);
+        for (int i = 0; i < 6; i++) {
+            track.append(i, 100 + i, i * 100L);
+        }
+        assertEquals(4, track.size());
+        assertEquals(6, track.getTotalAppended());
+        assertEquals(2, track.getLatitude(0), 0);
+        assertEquals(105, track.getLongitude(3), 0);
+        assertEquals(500, track.getTimestamp(3));
+
+        track.clear();
+        assertEquals(0, track.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexOutsideTrack() {
+        ShipTrack track = new ShipTrack(4);
+        track.append(1, 1, 1);
+        track.getLatitude(1);
+    }
+
+    @Test
+    public void straightLineDecimatesToEndpoints() {
+        ShipTrack track = new ShipTrack(100);
+        for (int i = 0; i < 100; i++) {
+            track.append(39.9 + i * 10 * METER, 116.4, i);
+        }
+        double[] latitudes = new double[10];
+        double[] longitudes = new double[10];
+        assertEquals(2, track.decimate(1.0, 10, latitudes, longitudes));
+        assertEquals(39.9, latitudes[0], 0);
+        assertEquals(39.9 + 990 * METER, latitudes[1], 1e-12);
+    }
+
+    @Test
+    public void keepsCornersAndDropsSmallNoise() {
+        ShipTrack track = new ShipTrack(300);
+        Random random = new Random(14);
+        // 向北100米、向东100米、再向北100米，叠加±0.3米噪声
+        for (int i = 0; i < 300; i++) {
+            double north = Math.min(i, 100) + Math.max(0, i - 200);
+            double east = Math.max(0, Math.min(i, 200) - 100);
+            track.append(39.9 + (north + random.nextDouble() * 0.6 - 0.3) * METER,
+                    116.4 + (east + random.nextDouble() * 0.6 - 0.3) * METER / Math.cos(Math.toRadians(39.9)), i);
+        }
+        double[] latitudes = new double[50];
+        double[] longitudes = new double[50];
+        int count = track.decimate(1.0, 50, latitudes, longitudes);
+        assertEquals(4, count);
+        assertEquals(100, (latitudes[1] - 39.9) / METER, 1.0);
+        assertEquals(100, (latitudes[2] - 39.9) / METER, 1.0);
+    }
+
+    @Test
+    public void dayOfFixesStaysBoundedAndDoesNotAllocate() {
+        AllocationProbe probe = AllocationProbe.assumeAvailable();
+
+        ShipTrack track = new ShipTrack();
+        double[] latitudes = new double[1000];
+        double[] longitudes = new double[1000];
+        // 预热抽稀，分配工作区
+        track.append(39.9, 116.4, 0);
+        track.append(39.9001, 116.4001, 1);
+        track.append(39.9002, 116.4, 2);
+        track.decimate(1.0, 1000, latitudes, longitudes);
+        track.clear();
+
+        double heading = 0;
+        double latitude = 39.9;
+        double longitude = 116.4;
+        Random random = new Random(24);
+        long before = probe.allocatedBytes();
+        for (int i = 0; i < DAY_OF_FIXES; i++) {
+            // 约2米/秒随机转向航行
+            heading += (random.nextDouble() - 0.5) * 0.05;
+            latitude += Math.cos(heading) * 0.2 * METER;
+            longitude += Math.sin(heading) * 0.2 * METER;
+            track.append(latitude, longitude, i * 100_000_000L);
+            if (i % 36_000 == 0) {
+                assertTrue(track.decimate(1.0, 1000, latitudes, longitudes) <= 1000);
+            }
+        }
+        int count = track.decimate(1.0, 1000, latitudes, longitudes);
+        long allocated = probe.allocatedBytes() - before;
+
+        assertEquals(ShipTrack.DEFAULT_CAPACITY, track.size());
+        assertEquals(DAY_OF_FIXES, track.getTotalAppended());
+        assertTrue(count >= 2 && count <= 1000);
+        // 抽稀结果以最新位置结尾
+        assertEquals(latitude, latitudes[count - 1], 0);
+        assertEquals(longitude, longitudes[count - 1], 0);
+        assertTrue("写入一天的定位分配了" + allocated + "字节", allocated < 1024);
+    }
+}
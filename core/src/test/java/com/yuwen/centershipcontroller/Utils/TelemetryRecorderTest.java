@@ -0,0 +1,144 @@
+package com.yuwen.centershipcontroller.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+/**
+ * 遥测记录器测试
+ *
+ * @author yuwen
+ */
+public class TelemetryRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TelemetryRecorder recorder = new TelemetryRecorder(64 * 1024);
+
+    @After
+    public void tearDown() {
+        recorder.stop();
+    }
+
+    @Test
+    public void recordsAreReadBackInOrder() throws Exception {
+        File directory = folder.newFolder("telemetry");
+        recorder.start(directory);
+        byte[] frame = {0x5A, 1, 2, 3, 4, (byte) 0xA5};
+        assertTrue(recorder.recordOutbound("{\"SHIPMOTRO\":{\"CH1\":12}}", true));
+        assertTrue(recorder.recordOutbound(frame, 0, frame.length, false));
+        assertTrue(recorder.recordInbound("{\"message\":\"船舶已连接 🚤\"}"));
+        assertTrue(recorder.recordInbound(new byte[0]));
+        recorder.stop();
+
+        File[] segments = TelemetryReader.listSegments(directory);
+        assertEquals(1, segments.length);
+        try (TelemetryReader reader = new TelemetryReader(segments[0])) {
+            assertEquals(0, reader.getSegmentIndex());
+            assertTrue(reader.next());
+            assertEquals(TelemetryRecorder.TYPE_OUTBOUND_TEXT, reader.getType());
+            assertEquals(0, reader.getFlags());
+            assertEquals("{\"SHIPMOTRO\":{\"CH1\":12}}", reader.getText());
+            long first = reader.getNanos();
+            assertTrue(first >= reader.getCreatedNanos());
+
+            assertTrue(reader.next());
+            assertEquals(TelemetryRecorder.TYPE_OUTBOUND_BINARY, reader.getType());
+            assertEquals(TelemetryRecorder.FLAG_SEND_FAILED, reader.getFlags());
+            byte[] copy = new byte[reader.getPayloadLength()];
+            reader.copyPayload(copy, 0);
+            assertArrayEquals(frame, copy);
+            assertTrue(reader.getNanos() >= first);
+
+            assertTrue(reader.next());
+            assertEquals(TelemetryRecorder.TYPE_INBOUND_TEXT, reader.getType());
+            assertEquals("{\"message\":\"船舶已连接 🚤\"}", reader.getText());
+
+            assertTrue(reader.next());
+            assertEquals(TelemetryRecorder.TYPE_INBOUND_BINARY, reader.getType());
+            assertEquals(0, reader.getPayloadLength());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void rotatesSegmentsAndKeepsTheNewest() throws Exception {
+        File directory = folder.newFolder("telemetry");
+        recorder.start(directory, 4096, 3);
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(recorder.recordInbound("{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"seq\":" + i + "}}"));
+            if (i % 100 == 0) {
+                assertTrue(recorder.awaitDrained(1000));
+            }
+        }
+        recorder.stop();
+        assertTrue(recorder.getSegmentCount() > 3);
+        assertEquals(0, recorder.getDroppedCount());
+
+        File[] segments = TelemetryReader.listSegments(directory);
+        assertEquals(3, segments.length);
+        int expected = -1;
+        int lastIndex = -1;
+        for (File segment : segments) {
+            try (TelemetryReader reader = new TelemetryReader(segment)) {
+                assertTrue(segment.length() <= 4096);
+                assertTrue(reader.getSegmentIndex() > lastIndex);
+                lastIndex = reader.getSegmentIndex();
+                while (reader.next()) {
+                    String text = reader.getText();
+                    int seq = Integer.parseInt(text.substring(text.lastIndexOf(':') + 1, text.length() - 2));
+                    if (expected >= 0) {
+                        assertEquals(expected, seq);
+                    }
+                    expected = seq + 1;
+                }
+            }
+        }
+        assertEquals(2000, expected);
+    }
+
+    @Test
+    public void dropsInsteadOfBlockingWhenNotRecordingOrTooLarge() throws Exception {
+        assertFalse(recorder.recordInbound("未开始记录"));
+        assertEquals(0, recorder.getDroppedCount());
+
+        recorder.start(folder.newFolder("telemetry"));
+        assertFalse(recorder.recordInbound(new byte[128 * 1024]));
+        assertEquals(1, recorder.getDroppedCount());
+        assertTrue(recorder.recordInbound(new byte[1024]));
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() throws Exception {
+        AllocationProbe probe = AllocationProbe.assumeAvailable();
+
+        recorder.start(folder.newFolder("telemetry"), 1 << 20, 2);
+        String command = "{\"SHIPMOTRO\":{\"CH1\":12,\"DIR1\":1,\"EN1\":1,\"CH2\":8,\"DIR2\":0,\"EN2\":1},\"SEQ\":4096}";
+        byte[] frame = new byte[6];
+        for (int i = 0; i < 20_000; i++) {
+            recorder.recordOutbound(command, true);
+            recorder.recordOutbound(frame, 0, frame.length, true);
+        }
+        assertTrue(recorder.awaitDrained(1000));
+
+        long allocated = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 3 && allocated >= 1024; attempt++) {
+            long before = probe.allocatedBytes();
+            for (int i = 0; i < 500; i++) {
+                recorder.recordOutbound(command, true);
+                recorder.recordOutbound(frame, 0, frame.length, true);
+            }
+            allocated = probe.allocatedBytes() - before;
+            assertTrue(recorder.awaitDrained(1000));
+        }
+        assertTrue("记录1000条分配了" + allocated + "字节", allocated < 1024);
+    }
+}
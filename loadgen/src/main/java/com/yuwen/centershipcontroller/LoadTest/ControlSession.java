@@ -0,0 +1,223 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.yuwen.centershipcontroller.Platform.Clock;
+import com.yuwen.centershipcontroller.Platform.Haptics;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+import com.yuwen.centershipcontroller.Utils.CommandSender;
+import com.yuwen.centershipcontroller.Utils.ControlCore;
+import com.yuwen.centershipcontroller.Utils.GpsFix;
+import com.yuwen.centershipcontroller.Utils.InboundMessageDispatcher;
+import com.yuwen.centershipcontroller.Utils.RoomProtocol;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个模拟主控设备的控制会话
+ * 握手与MainDeviceSocket相同：收到connection消息后发送身份信息，收到room消息后查询房间信息，
+ * 按room_info中船舶声明的格式发送命令。命令由ControlCore(JoySticksDecoder的控制核心)根据合成摇杆轨迹生成，
+ * 船舶回显的命令交给RttTracker统计往返延迟
+ *
+ * @author yuwen
+ */
+final class ControlSession extends WebSocketClient implements CommandSender.Transport {
+    private static final String TAG = "ControlSession";
+
+    private final String deviceId;
+    private final ControlCore core;
+    private final JoystickTrace trace;
+    // 只在WebSocket读线程中使用
+    private final InboundMessageDispatcher dispatcher;
+    private final CountDownLatch shipPresent = new CountDownLatch(1);
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+
+    final AtomicLong textReceived = new AtomicLong();
+    final AtomicLong binaryReceived = new AtomicLong();
+    final AtomicLong fixesReceived = new AtomicLong();
+    final AtomicLong textSent = new AtomicLong();
+    final AtomicLong binarySent = new AtomicLong();
+
+    /**
+     * @param serverUri     中继服务器地址，包含房间号
+     * @param deviceId      设备ID
+     * @param scheduler     控制线程调度器
+     * @param controlRateHz 控制命令发送频率
+     * @param seed          摇杆轨迹的随机种子
+     */
+    ControlSession(@NonNull URI serverUri, @NonNull String deviceId, @NonNull Scheduler scheduler,
+                   int controlRateHz, long seed) {
+        super(serverUri);
+        this.deviceId = deviceId;
+        this.trace = new JoystickTrace(seed);
+        setTcpNoDelay(true);
+        core = new ControlCore(scheduler, Clock.SYSTEM, Haptics.NONE, this);
+        core.setControlRate(controlRateHz);
+        // JSON命令也附加序号，两种格式都能统计往返延迟
+        core.getCommandSender().setRttProbeEnabled(true);
+        dispatcher = new InboundMessageDispatcher(new InboundMessageDispatcher.MessageHandler() {
+            @Override
+            public void onGpsFix(@NonNull GpsFix fix) {
+                fixesReceived.incrementAndGet();
+            }
+
+            @Override
+            public void onAck(int sequence) {
+                core.getRttTracker().onJsonAck(sequence);
+            }
+
+            @Override
+            public void onConnection(@NonNull String message) {
+                if (RoomProtocol.CONNECTED_MESSAGE.equals(message)) {
+                    sendText(RoomProtocol.mainIdentityMessage(ControlSession.this.deviceId));
+                }
+            }
+
+            @Override
+            public void onRoom(@NonNull JsonObject message) {
+                sendText(RoomProtocol.QUERY_ROOM_MESSAGE);
+            }
+
+            @Override
+            public void onRoomInfo(@NonNull JsonObject message) {
+                wireFormat = RoomProtocol.negotiateWireFormat(message);
+                core.getCommandSender().setWireFormat(wireFormat);
+                JsonElement clients = message.get("clients");
+                if (clients != null && clients.isJsonArray()) {
+                    for (JsonElement client : clients.getAsJsonArray()) {
+                        JsonElement identity = client.getAsJsonObject().get("identity");
+                        if (identity != null && RoomProtocol.IDENTITY_SHIP.equals(identity.getAsString())) {
+                            shipPresent.countDown();
+                            return;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 等待房间内出现船舶设备
+     */
+    boolean awaitShip(long timeout, TimeUnit unit) throws InterruptedException {
+        return shipPresent.await(timeout, unit);
+    }
+
+    /**
+     * 开始生成控制命令
+     */
+    void startControl() {
+        core.start();
+    }
+
+    /**
+     * 送入一个摇杆采样，只在输入线程中调用
+     *
+     * @param elapsedNanos 会话开始后的时间
+     * @param nowNanos     采样时刻
+     */
+    void feed(long elapsedNanos, long nowNanos) {
+        trace.sample(elapsedNanos);
+        core.updateJoystickValue(trace.getX(), trace.getY(), nowNanos);
+    }
+
+    /**
+     * 与MainDeviceSocket的心跳相同，定期查询房间信息
+     */
+    void heartbeat() {
+        sendText(RoomProtocol.QUERY_ROOM_MESSAGE);
+    }
+
+    /**
+     * 停止控制并关闭连接
+     */
+    void shutdown() throws InterruptedException {
+        core.shutdown();
+        closeBlocking();
+    }
+
+    String getDeviceId() {
+        return deviceId;
+    }
+
+    ControlCore getCore() {
+        return core;
+    }
+
+    WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+    }
+
+    @Override
+    public void onMessage(String message) {
+        textReceived.incrementAndGet();
+        if (dispatcher.dispatch(message) == InboundMessageDispatcher.MessageKind.MALFORMED) {
+            Log.e(TAG, "无法解析的消息: {}", message);
+        }
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        binaryReceived.incrementAndGet();
+        byte[] data = new byte[bytes.remaining()];
+        bytes.get(data);
+        core.getRttTracker().onBinaryMessage(data, 0, data.length);
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        if (remote) {
+            Log.w(TAG, "{} 连接被服务器关闭: {}", deviceId, reason);
+        }
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        Log.e(TAG, "{} 连接异常: {}", deviceId, ex.getMessage());
+    }
+
+    @Override
+    public boolean isConnected() {
+        return isOpen();
+    }
+
+    @Override
+    public boolean sendText(@NonNull String text) {
+        try {
+            send(text);
+            textSent.incrementAndGet();
+            return true;
+        } catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean sendBinary(@NonNull byte[] data, int offset, int length) {
+        try {
+            // 发送线程复用帧缓冲区，这里复制一份
+            send(Arrays.copyOfRange(data, offset, offset + length));
+            binarySent.incrementAndGet();
+            return true;
+        } catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+    }
+}
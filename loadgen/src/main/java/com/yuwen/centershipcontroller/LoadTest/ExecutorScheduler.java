@@ -0,0 +1,50 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Platform.Scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于单线程ScheduledExecutorService的调度器，计划时刻使用System.nanoTime时基
+ * 多个控制核心可以共用一个线程，每个核心的任务仍按投递顺序执行
+ *
+ * {@link #remove} 只取消postAt投递的任务(ControlCore只移除定时的控制循环任务)，
+ * 同一任务有多次未执行的postAt时只取消最后一次
+ *
+ * @author yuwen
+ */
+final class ExecutorScheduler implements Scheduler {
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<Runnable, ScheduledFuture<?>> delayed = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor 单线程执行器
+     */
+    ExecutorScheduler(@NonNull ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void post(@NonNull Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public void postAt(@NonNull Runnable task, long deadlineNanos) {
+        long delay = Math.max(0, deadlineNanos - System.nanoTime());
+        delayed.put(task, executor.schedule(task, delay, TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void remove(@NonNull Runnable task) {
+        ScheduledFuture<?> future = delayed.remove(task);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
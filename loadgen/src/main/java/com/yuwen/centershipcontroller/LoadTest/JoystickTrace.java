@@ -0,0 +1,66 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import java.util.Random;
+
+/**
+ * 合成摇杆轨迹
+ * 按8秒为一个周期模拟操作员：前进并左右修正航向、松手回中、后退(触发方向切换保护)、满舵画圈，
+ * 叠加小幅随机抖动。每个会话用不同的种子错开相位，避免所有会话同时切换方向
+ *
+ * 不是线程安全的，只在输入线程中使用
+ *
+ * @author yuwen
+ */
+final class JoystickTrace {
+    static final long CYCLE_NANOS = 8_000_000_000L;
+    private static final float JITTER = 0.02f;
+
+    private final Random random;
+    private final long phaseNanos;
+    private float x;
+    private float y;
+
+    JoystickTrace(long seed) {
+        random = new Random(seed);
+        phaseNanos = (long) (random.nextDouble() * CYCLE_NANOS);
+    }
+
+    /**
+     * 计算指定时刻的摇杆位置
+     *
+     * @param elapsedNanos 会话开始后的时间
+     */
+    void sample(long elapsedNanos) {
+        double t = ((elapsedNanos + phaseNanos) % CYCLE_NANOS) / 1e9;
+        double sx;
+        double sy;
+        if (t < 3) {
+            sx = 0.4 * Math.sin(2 * Math.PI * t / 1.5);
+            sy = 0.8;
+        } else if (t < 4) {
+            sx = 0;
+            sy = 0;
+        } else if (t < 6) {
+            sx = 0.2 * Math.sin(2 * Math.PI * t);
+            sy = -0.6;
+        } else {
+            double angle = Math.PI * (t - 6);
+            sx = Math.cos(angle);
+            sy = Math.sin(angle);
+        }
+        if (sx != 0 || sy != 0) {
+            sx += (random.nextFloat() * 2 - 1) * JITTER;
+            sy += (random.nextFloat() * 2 - 1) * JITTER;
+        }
+        x = (float) Math.max(-1, Math.min(1, sx));
+        y = (float) Math.max(-1, Math.min(1, sy));
+    }
+
+    float getX() {
+        return x;
+    }
+
+    float getY() {
+        return y;
+    }
+}
@@ -0,0 +1,495 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Relay.RelayServer;
+import com.yuwen.centershipcontroller.Simulator.ShipSimulator;
+import com.yuwen.centershipcontroller.Simulator.SimulatorStats;
+import com.yuwen.centershipcontroller.Utils.ControlCore;
+import com.yuwen.centershipcontroller.Utils.LatencyHistogram;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 多会话负载生成器
+ * 每个会话占用一个房间，包含一个模拟主控设备({@link ControlSession})和一个模拟船舶({@link ShipSimulator})：
+ * 主控设备按合成摇杆轨迹生成控制命令，船舶积分船体模型、回传GPS并回显命令。
+ * 预热结束后清空统计，在测量时长内汇总消息吞吐量、各会话命令往返延迟和中继转发耗时
+ * <pre>
+ * LoadGenerator.Report report = new LoadGenerator(20).run();
+ * Log.i(TAG, report.getSummary());
+ * </pre>
+ * 未指定服务器地址时在本机启动一个 {@link RelayServer}，此时报告中包含中继的转发统计
+ *
+ * @author yuwen
+ */
+public final class LoadGenerator {
+    private static final String TAG = "LoadGenerator";
+    public static final int DEFAULT_GPS_RATE_HZ = 10;
+    // 触摸事件的典型频率
+    public static final int DEFAULT_INPUT_RATE_HZ = 60;
+    public static final long DEFAULT_WARMUP_NANOS = 2_000_000_000L;
+    public static final long DEFAULT_DURATION_NANOS = 10_000_000_000L;
+    // 与MainDeviceSocket的心跳间隔相同
+    private static final long HEARTBEAT_INTERVAL_NANOS = 5_000_000_000L;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+
+    private final int sessionCount;
+    private URI serverUri;
+    private int controlRateHz = ControlCore.DEFAULT_CONTROL_RATE_HZ;
+    private int gpsRateHz = DEFAULT_GPS_RATE_HZ;
+    private int inputRateHz = DEFAULT_INPUT_RATE_HZ;
+    private WireFormat shipWireFormat = WireFormat.BINARY;
+    private long warmupNanos = DEFAULT_WARMUP_NANOS;
+    private long durationNanos = DEFAULT_DURATION_NANOS;
+    private int controlThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param sessionCount 会话数，即主控设备和船舶各多少个
+     */
+    public LoadGenerator(int sessionCount) {
+        if (sessionCount <= 0) {
+            throw new IllegalArgumentException("会话数必须为正: " + sessionCount);
+        }
+        this.sessionCount = sessionCount;
+    }
+
+    /**
+     * 使用已运行的服务器，房间号附加在路径后(/room/load-N)
+     *
+     * @param serverUri 服务器地址，如ws://127.0.0.1:8080；null表示在本机启动中继服务器
+     */
+    public void setServerUri(@Nullable URI serverUri) {
+        this.serverUri = serverUri;
+    }
+
+    public void setControlRateHz(int controlRateHz) {
+        this.controlRateHz = controlRateHz;
+    }
+
+    public void setGpsRateHz(int gpsRateHz) {
+        this.gpsRateHz = gpsRateHz;
+    }
+
+    public void setInputRateHz(int inputRateHz) {
+        this.inputRateHz = Math.max(1, inputRateHz);
+    }
+
+    /**
+     * 设置船舶声明的命令格式，主控设备按协商结果发送JSON或二进制命令
+     */
+    public void setShipWireFormat(@NonNull WireFormat shipWireFormat) {
+        this.shipWireFormat = shipWireFormat;
+    }
+
+    public void setWarmupNanos(long warmupNanos) {
+        this.warmupNanos = Math.max(0, warmupNanos);
+    }
+
+    public void setDurationNanos(long durationNanos) {
+        if (durationNanos <= 0) {
+            throw new IllegalArgumentException("测量时长必须为正: " + durationNanos);
+        }
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * 设置控制线程数，会话轮流分配到各线程
+     */
+    public void setControlThreads(int controlThreads) {
+        this.controlThreads = Math.max(1, controlThreads);
+    }
+
+    /**
+     * 建立全部会话并运行负载，阻塞直到测量结束
+     *
+     * @return 测量结果
+     */
+    @NonNull
+    public Report run() throws Exception {
+        RelayServer relay = null;
+        String base;
+        if (serverUri == null) {
+            relay = new RelayServer(new InetSocketAddress("127.0.0.1", 0));
+            relay.start();
+            if (!relay.awaitStarted(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("中继服务器启动超时");
+            }
+            base = "ws://127.0.0.1:" + relay.getPort();
+        } else {
+            base = serverUri.toString();
+        }
+
+        List<ScheduledExecutorService> executors = new ArrayList<>();
+        List<ShipSimulator> ships = new ArrayList<>();
+        List<ControlSession> sessions = new ArrayList<>();
+        try {
+            for (int i = 0; i < controlThreads; i++) {
+                final int index = i;
+                executors.add(Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "LoadControl-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+            }
+            for (int i = 0; i < sessionCount; i++) {
+                URI room = new URI(base + "/room/load-" + i);
+                ShipSimulator ship = new ShipSimulator(room, "ship-" + i, shipWireFormat, gpsRateHz);
+                ship.setEchoCommands(true);
+                ships.add(ship);
+                if (!ship.connectBlocking(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        || !ship.awaitJoined(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("船舶 ship-" + i + " 无法加入房间");
+                }
+                ControlSession session = new ControlSession(room, "main-" + i,
+                        new ExecutorScheduler(executors.get(i % controlThreads)), controlRateHz, i);
+                sessions.add(session);
+                if (!session.connectBlocking(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        || !session.awaitShip(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("主控设备 main-" + i + " 未找到船舶");
+                }
+            }
+            Log.i(TAG, "已建立{}个会话，开始负载", sessionCount);
+            for (ControlSession session : sessions) {
+                session.startControl();
+            }
+            return drive(sessions, ships, relay);
+        } finally {
+            for (ControlSession session : sessions) {
+                session.shutdown();
+            }
+            for (ShipSimulator ship : ships) {
+                ship.closeBlocking();
+            }
+            for (ScheduledExecutorService executor : executors) {
+                executor.shutdownNow();
+            }
+            if (relay != null) {
+                relay.stop(1000);
+            }
+        }
+    }
+
+    /**
+     * 在当前线程按输入频率向所有会话送入摇杆采样，预热后清空统计并开始测量
+     */
+    private Report drive(List<ControlSession> sessions, List<ShipSimulator> ships, RelayServer relay) {
+        long period = 1_000_000_000L / inputRateHz;
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        long nextHeartbeat = start + HEARTBEAT_INTERVAL_NANOS;
+        long next = start;
+        Counters baseline = null;
+        while (true) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            if (baseline == null && now >= measureStart) {
+                baseline = resetAndCount(sessions, ships, relay);
+            }
+            if (now >= end) {
+                break;
+            }
+            for (ControlSession session : sessions) {
+                session.feed(now - start, now);
+            }
+            if (now >= nextHeartbeat) {
+                for (ControlSession session : sessions) {
+                    session.heartbeat();
+                }
+                nextHeartbeat += HEARTBEAT_INTERVAL_NANOS;
+            }
+            next += period;
+            if (now - next > period) {
+                // 落后超过一个周期时不补发积压的采样
+                next = now;
+            }
+        }
+        long elapsed = System.nanoTime() - (baseline != null ? baseline.nanos : start);
+        return buildReport(sessions, ships, relay, baseline, elapsed);
+    }
+
+    /**
+     * 测量开始前的计数器，测量结果取差值
+     */
+    private static final class Counters {
+        long nanos;
+        long clientSent;
+        long clientReceived;
+        long fixesSent;
+        long relayReceived;
+        long relayForwarded;
+    }
+
+    private static Counters resetAndCount(List<ControlSession> sessions, List<ShipSimulator> ships, RelayServer relay) {
+        for (ControlSession session : sessions) {
+            session.getCore().resetStats();
+        }
+        for (ShipSimulator ship : ships) {
+            ship.getSimulatorStats().getCommandToFixHistogram().reset();
+        }
+        if (relay != null) {
+            relay.getRelayStats().getFanOutHistogram().reset();
+        }
+        return count(sessions, ships, relay);
+    }
+
+    private static Counters count(List<ControlSession> sessions, List<ShipSimulator> ships, RelayServer relay) {
+        Counters counters = new Counters();
+        counters.nanos = System.nanoTime();
+        for (ControlSession session : sessions) {
+            counters.clientSent += session.textSent.get() + session.binarySent.get();
+            counters.clientReceived += session.textReceived.get() + session.binaryReceived.get();
+        }
+        for (ShipSimulator ship : ships) {
+            SimulatorStats stats = ship.getSimulatorStats();
+            counters.fixesSent += stats.getFixesSent();
+            counters.clientSent += stats.getFixesSent() + stats.getAcksSent();
+            counters.clientReceived += stats.getCommandsReceived() + stats.getRejectedCommands();
+        }
+        if (relay != null) {
+            counters.relayReceived = relay.getRelayStats().getMessagesReceived();
+            counters.relayForwarded = relay.getRelayStats().getFramesForwarded();
+        }
+        return counters;
+    }
+
+    private Report buildReport(List<ControlSession> sessions, List<ShipSimulator> ships, RelayServer relay,
+                               Counters baseline, long elapsedNanos) {
+        Counters current = count(sessions, ships, relay);
+        if (baseline == null) {
+            baseline = new Counters();
+        }
+        List<SessionResult> results = new ArrayList<>();
+        LatencyHistogram.Snapshot rtt = new LatencyHistogram("命令往返延迟(全部会话)").snapshot();
+        LatencyHistogram.Snapshot fullPath = new LatencyHistogram("全路径延迟(全部会话)").snapshot();
+        LatencyHistogram.Snapshot commandToFix = new LatencyHistogram("命令到定位(全部船舶)").snapshot();
+        long commandsSent = 0;
+        for (ControlSession session : sessions) {
+            ControlCore core = session.getCore();
+            LatencyHistogram.Snapshot sessionRtt = core.getRttTracker().getHistogram().snapshot();
+            rtt = rtt.merge(sessionRtt);
+            fullPath = fullPath.merge(core.getStageHistograms()[0].snapshot());
+            long sent = core.getCommandSender().getSentCount();
+            commandsSent += sent;
+            results.add(new SessionResult(session.getDeviceId(), sent, core.getRttTracker().getAckCount(), sessionRtt));
+        }
+        for (ShipSimulator ship : ships) {
+            commandToFix = commandToFix.merge(ship.getSimulatorStats().getCommandToFixHistogram().snapshot());
+        }
+        LatencyHistogram.Snapshot fanOut = null;
+        String relayStats = null;
+        if (relay != null) {
+            fanOut = relay.getRelayStats().getFanOutHistogram().snapshot();
+            relayStats = relay.getRelayStats().getStats();
+        }
+        return new Report(sessions.size(), sessions.isEmpty() ? shipWireFormat : sessions.get(0).getWireFormat(),
+                controlRateHz, gpsRateHz, elapsedNanos,
+                current.clientSent - baseline.clientSent, current.clientReceived - baseline.clientReceived,
+                commandsSent, current.fixesSent - baseline.fixesSent,
+                current.relayReceived - baseline.relayReceived, current.relayForwarded - baseline.relayForwarded,
+                results, rtt, fullPath, commandToFix, fanOut, relayStats);
+    }
+
+    /**
+     * 单个会话的结果
+     */
+    public static final class SessionResult {
+        private final String deviceId;
+        private final long commandsSent;
+        private final long acks;
+        private final LatencyHistogram.Snapshot rtt;
+
+        SessionResult(String deviceId, long commandsSent, long acks, LatencyHistogram.Snapshot rtt) {
+            this.deviceId = deviceId;
+            this.commandsSent = commandsSent;
+            this.acks = acks;
+            this.rtt = rtt;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public long getCommandsSent() {
+            return commandsSent;
+        }
+
+        public long getAcks() {
+            return acks;
+        }
+
+        @NonNull
+        public LatencyHistogram.Snapshot getRtt() {
+            return rtt;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: 命令=%d, 确认=%d, p50=%.3fms, p99=%.3fms, 最大=%.3fms",
+                    deviceId, commandsSent, acks, rtt.getValueAtPercentile(50) / 1e6,
+                    rtt.getValueAtPercentile(99) / 1e6, rtt.getMaxNanos() / 1e6);
+        }
+    }
+
+    /**
+     * 负载测量结果
+     */
+    public static final class Report {
+        private final int sessions;
+        private final WireFormat wireFormat;
+        private final int controlRateHz;
+        private final int gpsRateHz;
+        private final long elapsedNanos;
+        private final long messagesSent;
+        private final long messagesReceived;
+        private final long commandsSent;
+        private final long fixesSent;
+        private final long relayReceived;
+        private final long relayForwarded;
+        private final List<SessionResult> sessionResults;
+        private final LatencyHistogram.Snapshot rtt;
+        private final LatencyHistogram.Snapshot fullPath;
+        private final LatencyHistogram.Snapshot commandToFix;
+        private final LatencyHistogram.Snapshot fanOut;
+        private final String relayStats;
+
+        Report(int sessions, WireFormat wireFormat, int controlRateHz, int gpsRateHz, long elapsedNanos,
+               long messagesSent, long messagesReceived, long commandsSent, long fixesSent,
+               long relayReceived, long relayForwarded, List<SessionResult> sessionResults,
+               LatencyHistogram.Snapshot rtt, LatencyHistogram.Snapshot fullPath,
+               LatencyHistogram.Snapshot commandToFix, LatencyHistogram.Snapshot fanOut, String relayStats) {
+            this.sessions = sessions;
+            this.wireFormat = wireFormat;
+            this.controlRateHz = controlRateHz;
+            this.gpsRateHz = gpsRateHz;
+            this.elapsedNanos = elapsedNanos;
+            this.messagesSent = messagesSent;
+            this.messagesReceived = messagesReceived;
+            this.commandsSent = commandsSent;
+            this.fixesSent = fixesSent;
+            this.relayReceived = relayReceived;
+            this.relayForwarded = relayForwarded;
+            this.sessionResults = Collections.unmodifiableList(sessionResults);
+            this.rtt = rtt;
+            this.fullPath = fullPath;
+            this.commandToFix = commandToFix;
+            this.fanOut = fanOut;
+            this.relayStats = relayStats;
+        }
+
+        private double perSecond(long count) {
+            return elapsedNanos > 0 ? count * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @return 全部客户端每秒发出的消息数(命令、心跳、GPS和回显)
+         */
+        public double getMessagesSentPerSecond() {
+            return perSecond(messagesSent);
+        }
+
+        /**
+         * @return 全部客户端每秒收到的消息数
+         */
+        public double getMessagesReceivedPerSecond() {
+            return perSecond(messagesReceived);
+        }
+
+        public double getCommandsPerSecond() {
+            return perSecond(commandsSent);
+        }
+
+        public double getFixesPerSecond() {
+            return perSecond(fixesSent);
+        }
+
+        public long getCommandsSent() {
+            return commandsSent;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @NonNull
+        public List<SessionResult> getSessionResults() {
+            return sessionResults;
+        }
+
+        /**
+         * @return 全部会话合并的命令往返延迟
+         */
+        @NonNull
+        public LatencyHistogram.Snapshot getRtt() {
+            return rtt;
+        }
+
+        @NonNull
+        public LatencyHistogram.Snapshot getCommandToFix() {
+            return commandToFix;
+        }
+
+        /**
+         * @return 中继转发耗时，使用外部服务器时为null
+         */
+        @Nullable
+        public LatencyHistogram.Snapshot getFanOut() {
+            return fanOut;
+        }
+
+        /**
+         * @return 各会话往返延迟p99的分布和最慢的会话
+         */
+        @NonNull
+        public String getSessionSpread() {
+            if (sessionResults.isEmpty()) {
+                return "会话: 无数据";
+            }
+            List<SessionResult> sorted = new ArrayList<>(sessionResults);
+            Collections.sort(sorted, (a, b) -> Long.compare(a.rtt.getValueAtPercentile(99), b.rtt.getValueAtPercentile(99)));
+            return String.format(Locale.ROOT, "会话p99: 最小=%.3fms, 中位=%.3fms, 最大=%.3fms; 最慢 %s",
+                    sorted.get(0).rtt.getValueAtPercentile(99) / 1e6,
+                    sorted.get(sorted.size() / 2).rtt.getValueAtPercentile(99) / 1e6,
+                    sorted.get(sorted.size() - 1).rtt.getValueAtPercentile(99) / 1e6,
+                    sorted.get(sorted.size() - 1));
+        }
+
+        @NonNull
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder();
+            summary.append(String.format(Locale.ROOT, "负载: 会话=%d, 格式=%s, 控制频率=%dHz, GPS频率=%dHz, 测量时长=%.1fs",
+                    sessions, wireFormat.getProtocolName(), controlRateHz, gpsRateHz, elapsedNanos / 1e9)).append("\n");
+            summary.append(String.format(Locale.ROOT, "吞吐量: 发出=%.0f条/s, 收到=%.0f条/s, 命令=%.0f条/s, GPS=%.0f条/s",
+                    getMessagesSentPerSecond(), getMessagesReceivedPerSecond(), getCommandsPerSecond(),
+                    getFixesPerSecond())).append("\n");
+            summary.append(rtt).append("\n");
+            summary.append(getSessionSpread()).append("\n");
+            summary.append(fullPath).append("\n");
+            summary.append(commandToFix);
+            if (fanOut != null) {
+                summary.append("\n").append(String.format(Locale.ROOT, "中继吞吐量: 接收=%.0f条/s, 转发=%.0f条/s",
+                        perSecond(relayReceived), perSecond(relayForwarded)));
+                // 中继统计的最后一行即转发耗时
+                summary.append("\n").append(relayStats);
+            }
+            return summary.toString();
+        }
+    }
+}
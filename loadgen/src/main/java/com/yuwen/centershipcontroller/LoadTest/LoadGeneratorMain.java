@@ -0,0 +1,41 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Utils.ControlCore;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import java.net.URI;
+
+/**
+ * 运行一次负载测量并输出报告
+ * 参数: [会话数，默认10] [测量秒数，默认10] [控制频率Hz，默认20] [GPS频率Hz，默认10] [json|binary，默认binary] [服务器地址，默认本机启动中继]
+ *
+ * @author yuwen
+ */
+public final class LoadGeneratorMain {
+    private static final String TAG = "LoadGeneratorMain";
+
+    private LoadGeneratorMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(args.length > 0 ? Integer.parseInt(args[0]) : 10);
+        if (args.length > 1) {
+            generator.setDurationNanos(Long.parseLong(args[1]) * 1_000_000_000L);
+        }
+        generator.setControlRateHz(args.length > 2 ? Integer.parseInt(args[2]) : ControlCore.DEFAULT_CONTROL_RATE_HZ);
+        generator.setGpsRateHz(args.length > 3 ? Integer.parseInt(args[3]) : LoadGenerator.DEFAULT_GPS_RATE_HZ);
+        if (args.length > 4) {
+            generator.setShipWireFormat(WireFormat.fromProtocolName(args[4]));
+        }
+        if (args.length > 5) {
+            generator.setServerUri(new URI(args[5]));
+        }
+        LoadGenerator.Report report = generator.run();
+        Log.i(TAG, report.getSummary());
+        for (LoadGenerator.SessionResult result : report.getSessionResults()) {
+            Log.d(TAG, result.toString());
+        }
+        System.exit(0);
+    }
+}
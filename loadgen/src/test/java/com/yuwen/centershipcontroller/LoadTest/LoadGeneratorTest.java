@@ -0,0 +1,73 @@
+package com.yuwen.centershipcontroller.LoadTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.junit.Test;
+
+/**
+ * 负载生成器在本机中继服务器上的短时运行
+ *
+ * @author yuwen
+ */
+public class LoadGeneratorTest {
+
+    private static LoadGenerator.Report run(WireFormat wireFormat) throws Exception {
+        LoadGenerator generator = new LoadGenerator(3);
+        generator.setShipWireFormat(wireFormat);
+        generator.setWarmupNanos(500_000_000L);
+        generator.setDurationNanos(2_000_000_000L);
+        generator.setGpsRateHz(20);
+        generator.setControlThreads(2);
+        return generator.run();
+    }
+
+    private static void assertEverySessionMeasured(LoadGenerator.Report report) {
+        assertEquals(3, report.getSessionResults().size());
+        for (LoadGenerator.SessionResult result : report.getSessionResults()) {
+            // 20Hz控制循环，2秒内至少发出数十条命令，且都经中继由船舶回显
+            assertTrue(result.toString(), result.getCommandsSent() >= 20);
+            assertTrue(result.toString(), result.getAcks() >= result.getCommandsSent() / 2);
+        }
+        assertTrue(report.getRtt().getCount() > 0);
+        assertTrue(report.getCommandToFix().getCount() > 0);
+        // 3艘船各20Hz
+        assertTrue(report.getSummary(), report.getFixesPerSecond() > 40);
+        assertTrue(report.getMessagesReceivedPerSecond() > report.getCommandsPerSecond());
+    }
+
+    @Test
+    public void binarySessionsReportThroughputAndLatency() throws Exception {
+        LoadGenerator.Report report = run(WireFormat.BINARY);
+        assertEverySessionMeasured(report);
+        assertNotNull(report.getFanOut());
+        assertTrue(report.getFanOut().getCount() > 0);
+        assertTrue(report.getSummary().contains("格式=binary"));
+    }
+
+    @Test
+    public void jsonSessionsAreAckedBySequence() throws Exception {
+        LoadGenerator.Report report = run(WireFormat.JSON);
+        assertEverySessionMeasured(report);
+        assertTrue(report.getSummary().contains("格式=json"));
+    }
+
+    @Test
+    public void traceCoversForwardReverseAndRelease() {
+        JoystickTrace trace = new JoystickTrace(1);
+        boolean forward = false;
+        boolean reverse = false;
+        boolean released = false;
+        for (long t = 0; t < JoystickTrace.CYCLE_NANOS; t += 10_000_000L) {
+            trace.sample(t);
+            assertTrue(Math.abs(trace.getX()) <= 1 && Math.abs(trace.getY()) <= 1);
+            forward |= trace.getY() > 0.7;
+            reverse |= trace.getY() < -0.5;
+            released |= trace.getX() == 0 && trace.getY() == 0;
+        }
+        assertTrue(forward && reverse && released);
+    }
+}
@@ -0,0 +1,31 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.java_websocket.WebSocket;
+
+/**
+ * 中继服务器上一个连接的状态，作为连接的附件保存
+ * 身份信息到达前不属于任何房间，收到的控制消息和转发帧都会被丢弃
+ *
+ * @author yuwen
+ */
+final class RelayClient {
+    final WebSocket connection;
+    // 握手地址中指定的房间，身份信息中没有room_id时使用
+    final String requestedRoomId;
+
+    volatile String deviceId = "";
+    volatile String identity = "";
+    volatile WireFormat wireFormat = WireFormat.JSON;
+    volatile Room room;
+
+    RelayClient(WebSocket connection, String requestedRoomId) {
+        this.connection = connection;
+        this.requestedRoomId = requestedRoomId;
+    }
+
+    boolean isShip() {
+        return RelayServer.IDENTITY_SHIP.equals(identity);
+    }
+}
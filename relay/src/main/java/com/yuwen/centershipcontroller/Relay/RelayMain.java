@@ -0,0 +1,43 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在本机启动中继服务器，每5秒输出一次统计
+ * 参数: [端口，默认8080] [处理线程数，默认CPU核数]
+ *
+ * @author yuwen
+ */
+public final class RelayMain {
+    private static final String TAG = "RelayMain";
+    private static final long STATS_INTERVAL_MS = 5000;
+
+    private RelayMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int decoders = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        RelayServer server = new RelayServer(new InetSocketAddress(port), decoders);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Log.i(TAG, server.getRelayStats().getStats());
+        }));
+        server.start();
+        if (!server.awaitStarted(10, TimeUnit.SECONDS)) {
+            Log.e(TAG, "中继服务器启动超时");
+            System.exit(1);
+        }
+        while (true) {
+            Thread.sleep(STATS_INTERVAL_MS);
+            Log.i(TAG, "房间={}\n{}", server.getRoomCount(), server.getRelayStats().getStats());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Utils.RoomProtocol;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 房间中继参考服务器
+ * 实现应用使用的房间协议：
+ * 连接打开后发送connection消息；收到身份信息(device_id、identity，船舶可带wire_format)后加入房间并回复room消息，
+ * 同时向房间全体成员推送room_info；query_room返回room_info；
+ * 其余文本帧(SHIPMOTRO、GPS、ack等)和二进制帧在房间内转发：控制端发给船舶，船舶发给控制端
+ *
+ * 房间由握手地址指定(/room/8848、/8848或?room_id=8848)，身份信息中的room_id优先；都没有时使用房间"0"
+ *
+ * @author yuwen
+ */
+public class RelayServer extends WebSocketServer {
+    private static final String TAG = "RelayServer";
+    static final String IDENTITY_SHIP = RoomProtocol.IDENTITY_SHIP;
+    static final String DEFAULT_ROOM_ID = "0";
+    private static final String CONNECTED_MESSAGE = "{\"type\":\"connection\",\"message\":\"Connected successfully\"}";
+    // 最高频的两类消息不解析，直接转发
+    private static final String MOTOR_PREFIX = "{\"SHIPMOTRO\"";
+    private static final String GPS_PREFIX = "{\"GPS\"";
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final RelayStats stats = new RelayStats();
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * @param address 监听地址，端口为0时由系统分配，启动后通过getPort()获取
+     */
+    public RelayServer(@NonNull InetSocketAddress address) {
+        this(address, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param address  监听地址
+     * @param decoders 处理收到帧的线程数
+     */
+    public RelayServer(@NonNull InetSocketAddress address, int decoders) {
+        super(address, decoders);
+        setReuseAddr(true);
+        setTcpNoDelay(true);
+    }
+
+    /**
+     * 等待服务器开始监听
+     *
+     * @return 是否已在超时前启动
+     */
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit);
+    }
+
+    public RelayStats getRelayStats() {
+        return stats;
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * 房间当前的成员数，房间不存在时返回0
+     */
+    public int getRoomSize(@NonNull String roomId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room.size() : 0;
+    }
+
+    @Override
+    public void onStart() {
+        Log.i(TAG, "中继服务器已启动，端口: {}", getPort());
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        stats.connectionsOpened.incrementAndGet();
+        conn.setAttachment(new RelayClient(conn, roomIdFromResource(handshake.getResourceDescriptor())));
+        conn.send(CONNECTED_MESSAGE);
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        stats.connectionsClosed.incrementAndGet();
+        RelayClient client = conn.getAttachment();
+        if (client != null && client.room != null) {
+            leaveRoom(client, client.room);
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        Log.e(TAG, "连接异常: {}", ex.getMessage());
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        stats.textReceived.incrementAndGet();
+        stats.bytesReceived.addAndGet(message.length());
+        RelayClient client = conn.getAttachment();
+        if (message.startsWith(MOTOR_PREFIX) || message.startsWith(GPS_PREFIX)
+                || (message.indexOf("\"identity\"") < 0 && message.indexOf("\"type\"") < 0)) {
+            forward(client, message);
+            return;
+        }
+        JsonObject object;
+        try {
+            JsonElement element = JsonParser.parseString(message);
+            if (!element.isJsonObject()) {
+                forward(client, message);
+                return;
+            }
+            object = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            forward(client, message);
+            return;
+        }
+        if (object.has("identity")) {
+            stats.controlMessages.incrementAndGet();
+            handleIdentity(client, object);
+        } else if ("query_room".equals(string(object, "type", null))) {
+            stats.controlMessages.incrementAndGet();
+            Room room = client.room;
+            if (room != null) {
+                conn.send(room.getRoomInfo());
+            } else {
+                stats.framesDropped.incrementAndGet();
+            }
+        } else {
+            forward(client, message);
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        stats.binaryReceived.incrementAndGet();
+        stats.bytesReceived.addAndGet(message.remaining());
+        RelayClient client = conn.getAttachment();
+        Room room = client.room;
+        List<WebSocket> peers = room != null ? room.peersOf(client) : null;
+        if (peers == null || peers.isEmpty()) {
+            stats.framesDropped.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        if (peers.size() == 1) {
+            try {
+                peers.get(0).send(message);
+            } catch (WebsocketNotConnectedException e) {
+                stats.framesDropped.incrementAndGet();
+                return;
+            }
+        } else {
+            broadcast(message, peers);
+        }
+        stats.fanOut.recordSince(start);
+        stats.framesForwarded.addAndGet(peers.size());
+    }
+
+    private void forward(RelayClient client, String message) {
+        Room room = client.room;
+        List<WebSocket> peers = room != null ? room.peersOf(client) : null;
+        if (peers == null || peers.isEmpty()) {
+            stats.framesDropped.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        if (peers.size() == 1) {
+            // 常见的一对一房间直接发送，不经过broadcast的列表复制
+            try {
+                peers.get(0).send(message);
+            } catch (WebsocketNotConnectedException e) {
+                stats.framesDropped.incrementAndGet();
+                return;
+            }
+        } else {
+            broadcast(message, peers);
+        }
+        stats.fanOut.recordSince(start);
+        stats.framesForwarded.addAndGet(peers.size());
+    }
+
+    /**
+     * 登记身份并加入房间；再次发送身份信息时更新成员信息，room_id变化时换到新房间
+     */
+    private void handleIdentity(RelayClient client, JsonObject message) {
+        client.deviceId = string(message, "device_id", "");
+        client.identity = string(message, "identity", "");
+        client.wireFormat = WireFormat.fromProtocolName(string(message, "wire_format", null));
+        String roomId = string(message, "room_id", client.requestedRoomId);
+
+        Room previous = client.room;
+        if (previous != null && !previous.id.equals(roomId)) {
+            leaveRoom(client, previous);
+        }
+        Room room = rooms.compute(roomId, (id, existing) -> {
+            Room target = existing != null ? existing : new Room(id);
+            target.join(client);
+            return target;
+        });
+        client.room = room;
+
+        JsonObject reply = new JsonObject();
+        reply.addProperty("type", "room");
+        reply.addProperty("room_id", room.id);
+        client.connection.send(reply.toString());
+        broadcast(room.getRoomInfo(), room.everyone());
+    }
+
+    private void leaveRoom(RelayClient client, Room room) {
+        client.room = null;
+        Room remaining = rooms.computeIfPresent(room.id, (id, existing) -> existing.leave(client) ? null : existing);
+        if (remaining != null) {
+            broadcast(remaining.getRoomInfo(), remaining.everyone());
+        }
+    }
+
+    private static String string(JsonObject object, String name, String fallback) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : fallback;
+    }
+
+    /**
+     * 从握手地址中取出房间号：查询参数room_id优先，否则为路径的最后一段
+     */
+    static String roomIdFromResource(String resource) {
+        if (resource == null) {
+            return DEFAULT_ROOM_ID;
+        }
+        int query = resource.indexOf('?');
+        if (query >= 0) {
+            for (String parameter : resource.substring(query + 1).split("&")) {
+                if (parameter.startsWith("room_id=") && parameter.length() > "room_id=".length()) {
+                    return parameter.substring("room_id=".length());
+                }
+            }
+            resource = resource.substring(0, query);
+        }
+        int end = resource.length();
+        while (end > 0 && resource.charAt(end - 1) == '/') {
+            end--;
+        }
+        int start = resource.lastIndexOf('/', end - 1) + 1;
+        return start < end ? resource.substring(start, end) : DEFAULT_ROOM_ID;
+    }
+}
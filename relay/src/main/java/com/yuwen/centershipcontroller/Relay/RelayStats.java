@@ -0,0 +1,71 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Utils.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 中继服务器统计，可在任意线程读取
+ *
+ * @author yuwen
+ */
+public final class RelayStats {
+    final AtomicLong connectionsOpened = new AtomicLong();
+    final AtomicLong connectionsClosed = new AtomicLong();
+    final AtomicLong textReceived = new AtomicLong();
+    final AtomicLong binaryReceived = new AtomicLong();
+    final AtomicLong bytesReceived = new AtomicLong();
+    final AtomicLong controlMessages = new AtomicLong();
+    final AtomicLong framesForwarded = new AtomicLong();
+    final AtomicLong framesDropped = new AtomicLong();
+    // 一帧交给房间内全部接收方的耗时
+    final LatencyHistogram fanOut = new LatencyHistogram("中继转发");
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getOpenConnections() {
+        return connectionsOpened.get() - connectionsClosed.get();
+    }
+
+    /**
+     * 收到的文本帧和二进制帧总数
+     */
+    public long getMessagesReceived() {
+        return textReceived.get() + binaryReceived.get();
+    }
+
+    public long getControlMessages() {
+        return controlMessages.get();
+    }
+
+    /**
+     * 转发帧数，按接收方计数
+     */
+    public long getFramesForwarded() {
+        return framesForwarded.get();
+    }
+
+    /**
+     * 发送方未加入房间或房间内没有接收方而丢弃的帧数
+     */
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    public LatencyHistogram getFanOutHistogram() {
+        return fanOut;
+    }
+
+    @NonNull
+    public String getStats() {
+        return String.format(Locale.ROOT, "中继: 连接=%d, 累计连接=%d, 文本=%d, 二进制=%d, 接收=%dKB, 控制消息=%d, 转发=%d, 丢弃=%d",
+                getOpenConnections(), connectionsOpened.get(), textReceived.get(), binaryReceived.get(),
+                bytesReceived.get() / 1024, controlMessages.get(), framesForwarded.get(), framesDropped.get())
+                + "\n" + fanOut.getStats();
+    }
+}
@@ -0,0 +1,107 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.java_websocket.WebSocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一个房间：成员变化时在锁内重建船舶端、控制端的连接列表和房间信息JSON，
+ * 转发时只读取这些不可变快照，不需要加锁
+ *
+ * @author yuwen
+ */
+final class Room {
+    private static final List<WebSocket> NONE = Collections.emptyList();
+
+    final String id;
+    private final List<RelayClient> members = new ArrayList<>();
+    private volatile List<WebSocket> ships = NONE;
+    private volatile List<WebSocket> controllers = NONE;
+    private volatile List<WebSocket> everyone = NONE;
+    private volatile String roomInfo;
+
+    Room(String id) {
+        this.id = id;
+        roomInfo = buildRoomInfo();
+    }
+
+    /**
+     * 加入房间，已在房间中时只更新身份信息
+     */
+    synchronized void join(RelayClient client) {
+        if (!members.contains(client)) {
+            members.add(client);
+        }
+        rebuild();
+    }
+
+    /**
+     * 离开房间
+     *
+     * @return 房间是否已空
+     */
+    synchronized boolean leave(RelayClient client) {
+        members.remove(client);
+        rebuild();
+        return members.isEmpty();
+    }
+
+    synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * 控制端发出的帧转发给船舶，船舶发出的帧转发给控制端
+     */
+    List<WebSocket> peersOf(RelayClient sender) {
+        return sender.isShip() ? controllers : ships;
+    }
+
+    List<WebSocket> everyone() {
+        return everyone;
+    }
+
+    String getRoomInfo() {
+        return roomInfo;
+    }
+
+    private void rebuild() {
+        List<WebSocket> shipList = new ArrayList<>();
+        List<WebSocket> controllerList = new ArrayList<>();
+        WebSocket[] all = new WebSocket[members.size()];
+        for (int i = 0; i < members.size(); i++) {
+            RelayClient member = members.get(i);
+            all[i] = member.connection;
+            (member.isShip() ? shipList : controllerList).add(member.connection);
+        }
+        ships = Collections.unmodifiableList(shipList);
+        controllers = Collections.unmodifiableList(controllerList);
+        everyone = Collections.unmodifiableList(Arrays.asList(all));
+        roomInfo = buildRoomInfo();
+    }
+
+    private String buildRoomInfo() {
+        JsonArray clients = new JsonArray();
+        for (RelayClient member : members) {
+            JsonObject client = new JsonObject();
+            client.addProperty("device_id", member.deviceId);
+            client.addProperty("identity", member.identity);
+            if (member.isShip()) {
+                client.addProperty("wire_format", member.wireFormat.getProtocolName());
+            }
+            clients.add(client);
+        }
+        JsonObject info = new JsonObject();
+        info.addProperty("type", "room_info");
+        info.addProperty("room_id", id);
+        info.addProperty("total_clients", members.size());
+        info.add("clients", clients);
+        return info.toString();
+    }
+}
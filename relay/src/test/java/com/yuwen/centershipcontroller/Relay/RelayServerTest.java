@@ -0,0 +1,239 @@
+package com.yuwen.centershipcontroller.Relay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中继服务器测试：本机回环地址上的真实WebSocket连接
+ *
+ * @author yuwen
+ */
+public class RelayServerTest {
+    private static final String MOTOR = "{\"SHIPMOTRO\":{\"CH1\":20,\"DIR1\":1,\"EN1\":0,\"CH2\":20,\"DIR2\":1,\"EN2\":0}}";
+    private static final String GPS = "{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015.120\"}}";
+
+    /**
+     * 记录收到消息的测试客户端
+     */
+    private static final class TestClient extends WebSocketClient {
+        final LinkedBlockingQueue<String> texts = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<byte[]> binaries = new LinkedBlockingQueue<>();
+
+        TestClient(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            texts.add(message);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            byte[] data = new byte[bytes.remaining()];
+            bytes.get(data);
+            binaries.add(data);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+
+        String next() throws InterruptedException {
+            String message = texts.poll(5, TimeUnit.SECONDS);
+            if (message == null) {
+                throw new AssertionError("没有收到消息");
+            }
+            return message;
+        }
+
+        /**
+         * 跳过成员变化时推送的房间信息，返回下一条转发的消息
+         */
+        String nextForwarded() throws InterruptedException {
+            while (true) {
+                String message = next();
+                if (!message.contains("\"room_info\"")) {
+                    return message;
+                }
+            }
+        }
+
+        /**
+         * 跳过其他消息，返回下一条指定类型的消息
+         */
+        JsonObject nextOfType(String type) throws InterruptedException {
+            while (true) {
+                JsonObject object = JsonParser.parseString(next()).getAsJsonObject();
+                if (object.has("type") && type.equals(object.get("type").getAsString())) {
+                    return object;
+                }
+            }
+        }
+
+        /**
+         * 返回下一条成员数为指定值的房间信息
+         */
+        JsonObject nextRoomInfo(int totalClients) throws InterruptedException {
+            while (true) {
+                JsonObject info = nextOfType("room_info");
+                if (info.get("total_clients").getAsInt() == totalClients) {
+                    return info;
+                }
+            }
+        }
+    }
+
+    private RelayServer server;
+    private final List<TestClient> clients = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new RelayServer(new InetSocketAddress("127.0.0.1", 0), 2);
+        server.start();
+        assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (TestClient client : clients) {
+            client.closeBlocking();
+        }
+        server.stop(1000);
+    }
+
+    private TestClient connect(String path) throws Exception {
+        TestClient client = new TestClient(new URI("ws://127.0.0.1:" + server.getPort() + path));
+        clients.add(client);
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        JsonObject connection = client.nextOfType("connection");
+        assertEquals("Connected successfully", connection.get("message").getAsString());
+        return client;
+    }
+
+    private TestClient join(String path, String identity) throws Exception {
+        TestClient client = connect(path);
+        client.send(identity);
+        client.nextOfType("room");
+        // 加入后服务器随即推送一次房间信息
+        client.nextOfType("room_info");
+        return client;
+    }
+
+    private static String mainIdentity(String deviceId) {
+        return "{\"device_id\":\"" + deviceId + "\",\"identity\":\"MAIN_DEVICES\",\"wire_formats\":[\"json\",\"binary\"]}";
+    }
+
+    private static String shipIdentity(String deviceId) {
+        return "{\"device_id\":\"" + deviceId + "\",\"identity\":\"SHIP_DEVICES\",\"wire_format\":\"binary\"}";
+    }
+
+    @Test
+    public void handshakeJoinsRoomAndReportsMembers() throws Exception {
+        TestClient main = connect("/room/8848");
+        main.send(mainIdentity("main-01"));
+        assertEquals("8848", main.nextOfType("room").get("room_id").getAsString());
+
+        join("/room/8848", shipIdentity("ship-01"));
+        JsonObject info = main.nextRoomInfo(2);
+        JsonArray members = info.getAsJsonArray("clients");
+        JsonObject ship = members.get(1).getAsJsonObject();
+        assertEquals("ship-01", ship.get("device_id").getAsString());
+        assertEquals("SHIP_DEVICES", ship.get("identity").getAsString());
+        assertEquals("binary", ship.get("wire_format").getAsString());
+
+        main.send("{\"type\":\"query_room\"}");
+        assertEquals(2, main.nextOfType("room_info").get("total_clients").getAsInt());
+    }
+
+    @Test
+    public void forwardsCommandsToShipsAndTelemetryToControllers() throws Exception {
+        TestClient main = join("/?room_id=42", mainIdentity("main-01"));
+        TestClient ship = join("/42", shipIdentity("ship-01"));
+
+        main.send(MOTOR);
+        assertEquals(MOTOR, ship.nextForwarded());
+        ship.send(GPS);
+        assertEquals(GPS, main.nextForwarded());
+        ship.send("{\"type\":\"ack\",\"seq\":7}");
+        assertEquals("{\"type\":\"ack\",\"seq\":7}", main.nextForwarded());
+
+        byte[] frame = {(byte) 0xA5, 1, 20, 20, 3, 0};
+        main.send(frame);
+        assertArrayEquals(frame, ship.binaries.poll(5, TimeUnit.SECONDS));
+        // 发送方自己收不到转发
+        assertNull(main.texts.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(server.getRelayStats().getFramesForwarded() >= 4);
+    }
+
+    @Test
+    public void roomsAreIsolatedAndEmptyRoomsRemoved() throws Exception {
+        TestClient mainA = join("/room/a", mainIdentity("main-a"));
+        TestClient shipA = join("/room/a", shipIdentity("ship-a"));
+        TestClient shipB = join("/room/b", shipIdentity("ship-b"));
+        assertEquals(2, server.getRoomCount());
+
+        mainA.send(MOTOR);
+        assertEquals(MOTOR, shipA.nextForwarded());
+        assertNull(shipB.texts.poll(100, TimeUnit.MILLISECONDS));
+
+        shipA.closeBlocking();
+        mainA.nextRoomInfo(1);
+        shipB.closeBlocking();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRoomCount() != 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, server.getRoomCount());
+    }
+
+    @Test
+    public void framesBeforeIdentityAreDropped() throws Exception {
+        TestClient anonymous = connect("/room/1");
+        join("/room/1", shipIdentity("ship-01"));
+        anonymous.send(MOTOR);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRelayStats().getFramesDropped() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, server.getRelayStats().getFramesDropped());
+        assertEquals(1, server.getRoomSize("1"));
+    }
+
+    @Test
+    public void parsesRoomFromResource() {
+        assertEquals("8848", RelayServer.roomIdFromResource("/room/8848"));
+        assertEquals("8848", RelayServer.roomIdFromResource("/8848/"));
+        assertEquals("7", RelayServer.roomIdFromResource("/ws?token=x&room_id=7"));
+        assertEquals(RelayServer.DEFAULT_ROOM_ID, RelayServer.roomIdFromResource("/"));
+        assertEquals(RelayServer.DEFAULT_ROOM_ID, RelayServer.roomIdFromResource(null));
+    }
+}
@@ -0,0 +1,178 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import com.yuwen.centershipcontroller.Utils.CommandTable;
+import com.yuwen.centershipcontroller.Utils.ControlCommand;
+
+/**
+ * 双推进器船体运动模型
+ * 只考虑纵向速度和艏摇，忽略横漂：左右推力之和推动船体前进，推力差产生转向力矩，
+ * 阻力取线性项加二次项。推进器实际推力以一阶惯性跟随命令，模拟电调和螺旋桨的响应延迟
+ *
+ * 坐标为以起点为原点的平面坐标(米)，东为x、北为y；航向0为正北，顺时针为正。
+ * 经纬度按起点纬度做平面近似换算，适用于几公里范围内的模拟
+ *
+ * 不是线程安全的，只在模拟线程中使用
+ *
+ * @author yuwen
+ */
+public final class HullModel {
+    // 每度纬度对应的米数
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    // 积分步长上限，保证二次阻力项的显式积分稳定
+    private static final double MAX_STEP_SECONDS = 0.001;
+
+    // 船体参数，对应约1.2米长的双体无人船
+    static final double MASS_KG = 30.0;
+    static final double YAW_INERTIA = 5.0;
+    // 推进器到中线的距离
+    static final double HALF_BEAM_M = 0.3;
+    // 单侧推进器在最大推力档位时的推力
+    static final double MAX_THRUST_N = 40.0;
+    // 螺旋桨反转时的效率
+    static final double REVERSE_EFFICIENCY = 0.6;
+    static final double THRUST_TIME_CONSTANT_S = 0.1;
+    private static final double SURGE_LINEAR_DRAG = 10.0;
+    private static final double SURGE_QUADRATIC_DRAG = 25.0;
+    private static final double YAW_LINEAR_DRAG = 5.0;
+    private static final double YAW_QUADRATIC_DRAG = 3.0;
+
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double metersPerDegreeLongitude;
+
+    private double east;
+    private double north;
+    private double heading;
+    private double surgeSpeed;
+    private double yawRate;
+    private double leftThrust;
+    private double rightThrust;
+    private double leftTarget;
+    private double rightTarget;
+
+    /**
+     * @param originLatitude  起点十进制纬度
+     * @param originLongitude 起点十进制经度
+     */
+    public HullModel(double originLatitude, double originLongitude) {
+        this.originLatitude = originLatitude;
+        this.originLongitude = originLongitude;
+        this.metersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLatitude));
+    }
+
+    /**
+     * 设置电机命令，之后的积分按新命令计算推力目标
+     * 使能为0表示开启，与SHIPMOTRO中EN字段的含义一致
+     *
+     * @param command 控制命令，null按停止处理
+     */
+    public void setCommand(ControlCommand command) {
+        if (command == null) {
+            leftTarget = 0;
+            rightTarget = 0;
+            return;
+        }
+        leftTarget = thrustOf(command.leftThrust, command.leftDirection, command.leftEnable);
+        rightTarget = thrustOf(command.rightThrust, command.rightDirection, command.rightEnable);
+    }
+
+    private static double thrustOf(int level, int direction, int enable) {
+        if (enable != 0 || level <= 0) {
+            return 0;
+        }
+        double thrust = MAX_THRUST_N * Math.min(level, CommandTable.MAX_THRUST_POWER) / CommandTable.MAX_THRUST_POWER;
+        return direction == 1 ? thrust : -thrust * REVERSE_EFFICIENCY;
+    }
+
+    /**
+     * 推进一段时间，超过积分步长上限时拆分为多步
+     *
+     * @param nanos 经过的纳秒数
+     */
+    public void advance(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        double seconds = nanos / 1e9;
+        int steps = (int) Math.ceil(seconds / MAX_STEP_SECONDS);
+        double dt = seconds / steps;
+        for (int i = 0; i < steps; i++) {
+            step(dt);
+        }
+    }
+
+    /**
+     * 半隐式欧拉积分一步：先更新推力和速度，再用新速度更新位置
+     */
+    void step(double dt) {
+        double lag = Math.min(1.0, dt / THRUST_TIME_CONSTANT_S);
+        leftThrust += (leftTarget - leftThrust) * lag;
+        rightThrust += (rightTarget - rightThrust) * lag;
+
+        double surgeForce = leftThrust + rightThrust
+                - SURGE_LINEAR_DRAG * surgeSpeed - SURGE_QUADRATIC_DRAG * surgeSpeed * Math.abs(surgeSpeed);
+        surgeSpeed += surgeForce / MASS_KG * dt;
+        // 左侧推力大于右侧时向右(顺时针)转
+        double yawMoment = (leftThrust - rightThrust) * HALF_BEAM_M
+                - YAW_LINEAR_DRAG * yawRate - YAW_QUADRATIC_DRAG * yawRate * Math.abs(yawRate);
+        yawRate += yawMoment / YAW_INERTIA * dt;
+
+        heading += yawRate * dt;
+        if (heading >= 2 * Math.PI) {
+            heading -= 2 * Math.PI;
+        } else if (heading < 0) {
+            heading += 2 * Math.PI;
+        }
+        east += surgeSpeed * Math.sin(heading) * dt;
+        north += surgeSpeed * Math.cos(heading) * dt;
+    }
+
+    /**
+     * @return 十进制纬度
+     */
+    public double getLatitude() {
+        return originLatitude + north / METERS_PER_DEGREE;
+    }
+
+    /**
+     * @return 十进制经度
+     */
+    public double getLongitude() {
+        return originLongitude + east / metersPerDegreeLongitude;
+    }
+
+    /**
+     * @return 相对起点向东的距离(米)
+     */
+    public double getEast() {
+        return east;
+    }
+
+    /**
+     * @return 相对起点向北的距离(米)
+     */
+    public double getNorth() {
+        return north;
+    }
+
+    /**
+     * @return 航向角(度)，0为正北，顺时针增大
+     */
+    public double getHeadingDegrees() {
+        return Math.toDegrees(heading);
+    }
+
+    /**
+     * @return 纵向速度(米/秒)，后退为负
+     */
+    public double getSurgeSpeed() {
+        return surgeSpeed;
+    }
+
+    /**
+     * @return 艏摇角速度(弧度/秒)
+     */
+    public double getYawRate() {
+        return yawRate;
+    }
+}
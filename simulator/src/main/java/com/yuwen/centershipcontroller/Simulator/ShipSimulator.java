@@ -0,0 +1,423 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Utils.CommandTable;
+import com.yuwen.centershipcontroller.Utils.ControlCommand;
+import com.yuwen.centershipcontroller.Utils.MotorCommandCodec;
+import com.yuwen.centershipcontroller.Utils.RoomProtocol;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟船舶设备
+ * 以SHIP_DEVICES身份加入房间，接收SHIPMOTRO命令(JSON文本帧或6字节二进制帧)驱动 {@link HullModel}，
+ * 并在独立的模拟线程中按固定频率发送GPS消息：
+ * <pre>
+ * {"GPS":{"E":11623.4567,"N":3954.1234,"time":"083015.120"}}
+ * </pre>
+ * E、N为NMEA度分格式(DDDMM.MMMM/DDMM.MMMM)，time为UTC时间hhmmss.sss，与船舶固件的输出一致。
+ *
+ * 命令在WebSocket读线程中解码，在模拟线程的下一个周期生效；从收到命令到第一帧反映该命令的GPS发出的时间
+ * 记入 {@link SimulatorStats#getCommandToFixHistogram()}。开启回显后，二进制命令原样返回，
+ * 带SEQ的JSON命令回复ack，控制端可用RttTracker统计往返延迟
+ *
+ * @author yuwen
+ */
+public class ShipSimulator extends WebSocketClient {
+    private static final String TAG = "ShipSimulator";
+    public static final int MAX_GPS_RATE_HZ = 5000;
+    // 默认起点，北京附近
+    public static final double DEFAULT_LATITUDE = 39.9042;
+    public static final double DEFAULT_LONGITUDE = 116.4074;
+    private static final String MOTOR_KEY = "SHIPMOTRO";
+    private static final String MOTOR_PREFIX = "{\"" + MOTOR_KEY + "\"";
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final String deviceId;
+    private final WireFormat wireFormat;
+    private final long periodNanos;
+    private final HullModel hull;
+    private final SimulatorStats stats = new SimulatorStats();
+    private final CountDownLatch joined = new CountDownLatch(1);
+    private volatile boolean echoCommands;
+    private volatile String roomId;
+
+    // 读线程写入、模拟线程取走的最新命令
+    private final Object commandLock = new Object();
+    private ControlCommand pendingCommand;
+    private long pendingReceivedNanos;
+
+    private volatile boolean running;
+    private Thread simulationThread;
+    // 模拟线程写入的最新状态，供其他线程读取
+    private volatile double latitude;
+    private volatile double longitude;
+    private volatile double surgeSpeed;
+
+    /**
+     * @param serverUri  中继服务器地址，路径或查询参数中可带房间号
+     * @param deviceId   设备ID
+     * @param wireFormat 在身份信息中声明的命令格式
+     * @param gpsRateHz  GPS发送频率，范围[1, {@link #MAX_GPS_RATE_HZ}]
+     */
+    public ShipSimulator(@NonNull URI serverUri, @NonNull String deviceId, @NonNull WireFormat wireFormat, int gpsRateHz) {
+        this(serverUri, deviceId, wireFormat, gpsRateHz, new HullModel(DEFAULT_LATITUDE, DEFAULT_LONGITUDE));
+    }
+
+    public ShipSimulator(@NonNull URI serverUri, @NonNull String deviceId, @NonNull WireFormat wireFormat, int gpsRateHz,
+                         @NonNull HullModel hull) {
+        super(serverUri);
+        this.deviceId = deviceId;
+        this.wireFormat = wireFormat;
+        this.periodNanos = 1_000_000_000L / Math.max(1, Math.min(MAX_GPS_RATE_HZ, gpsRateHz));
+        this.hull = hull;
+        this.latitude = hull.getLatitude();
+        this.longitude = hull.getLongitude();
+        setTcpNoDelay(true);
+    }
+
+    /**
+     * 设置是否回显命令，用于控制端统计往返延迟
+     */
+    public void setEchoCommands(boolean echoCommands) {
+        this.echoCommands = echoCommands;
+    }
+
+    /**
+     * 等待加入房间，加入后开始发送GPS
+     *
+     * @return 是否已在超时前加入
+     */
+    public boolean awaitJoined(long timeout, TimeUnit unit) throws InterruptedException {
+        return joined.await(timeout, unit);
+    }
+
+    public SimulatorStats getSimulatorStats() {
+        return stats;
+    }
+
+    /**
+     * @return 服务器分配的房间号，加入前为null
+     */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return 纵向速度(米/秒)
+     */
+    public double getSurgeSpeed() {
+        return surgeSpeed;
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        Log.d(TAG, "已连接到服务器，等待connection消息");
+    }
+
+    @Override
+    public void onMessage(String message) {
+        long now = System.nanoTime();
+        if (message.startsWith(MOTOR_PREFIX)) {
+            handleJsonCommand(message, now);
+            return;
+        }
+        JsonObject object;
+        try {
+            JsonElement element = JsonParser.parseString(message);
+            if (!element.isJsonObject()) {
+                return;
+            }
+            object = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            Log.e(TAG, "无法解析的消息: {}", e.getMessage());
+            return;
+        }
+        if (object.has(MOTOR_KEY)) {
+            handleJsonCommand(object, now);
+            return;
+        }
+        JsonElement type = object.get("type");
+        if (type == null || !type.isJsonPrimitive()) {
+            return;
+        }
+        switch (type.getAsString()) {
+            case "connection":
+                sendIdentity();
+                break;
+            case "room":
+                JsonElement room = object.get("room_id");
+                roomId = room != null && room.isJsonPrimitive() ? room.getAsString() : null;
+                Log.i(TAG, "已加入房间: {}", roomId);
+                startSimulation();
+                joined.countDown();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        long now = System.nanoTime();
+        byte[] frame = new byte[bytes.remaining()];
+        bytes.get(frame);
+        ControlCommand command = MotorCommandCodec.decode(frame, 0, frame.length);
+        if (command == null) {
+            stats.rejectedCommands.incrementAndGet();
+            return;
+        }
+        stats.binaryCommands.incrementAndGet();
+        submitCommand(command, now);
+        if (echoCommands && trySend(frame)) {
+            stats.acksSent.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        Log.i(TAG, "连接已关闭: {}", reason);
+        stopSimulation();
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        Log.e(TAG, "连接异常: {}", ex.getMessage());
+    }
+
+    private void sendIdentity() {
+        JsonObject identity = new JsonObject();
+        identity.addProperty("device_id", deviceId);
+        identity.addProperty("identity", RoomProtocol.IDENTITY_SHIP);
+        identity.addProperty("wire_format", wireFormat.getProtocolName());
+        send(identity.toString());
+    }
+
+    private void handleJsonCommand(String message, long receivedNanos) {
+        JsonObject object;
+        try {
+            object = JsonParser.parseString(message).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            stats.rejectedCommands.incrementAndGet();
+            return;
+        }
+        handleJsonCommand(object, receivedNanos);
+    }
+
+    private void handleJsonCommand(JsonObject object, long receivedNanos) {
+        ControlCommand command = parseCommand(object);
+        if (command == null) {
+            stats.rejectedCommands.incrementAndGet();
+            return;
+        }
+        stats.jsonCommands.incrementAndGet();
+        submitCommand(command, receivedNanos);
+        JsonElement sequence = object.get("SEQ");
+        if (echoCommands && sequence != null && sequence.isJsonPrimitive()
+                && trySend("{\"type\":\"ack\",\"seq\":" + sequence.getAsInt() + "}")) {
+            stats.acksSent.incrementAndGet();
+        }
+    }
+
+    /**
+     * 将SHIPMOTRO对象转换为命令表中的命令
+     *
+     * @return 字段缺失、超出范围或左右方向/使能不一致时返回null
+     */
+    static ControlCommand parseCommand(JsonObject message) {
+        JsonElement motor = message.get(MOTOR_KEY);
+        if (motor == null || !motor.isJsonObject()) {
+            return null;
+        }
+        JsonObject fields = motor.getAsJsonObject();
+        try {
+            int leftThrust = fields.get("CH1").getAsInt();
+            int rightThrust = fields.get("CH2").getAsInt();
+            int direction = fields.get("DIR1").getAsInt();
+            int enable = fields.get("EN1").getAsInt();
+            if (direction != fields.get("DIR2").getAsInt() || enable != fields.get("EN2").getAsInt()
+                    || (direction & ~1) != 0 || (enable & ~1) != 0
+                    || leftThrust < 0 || rightThrust < 0
+                    || leftThrust > CommandTable.MAX_THRUST_POWER || rightThrust > CommandTable.MAX_THRUST_POWER) {
+                return null;
+            }
+            return CommandTable.get(leftThrust, rightThrust, direction, enable);
+        } catch (NullPointerException | UnsupportedOperationException | NumberFormatException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private void submitCommand(ControlCommand command, long receivedNanos) {
+        synchronized (commandLock) {
+            if (pendingCommand != null) {
+                stats.coalescedCommands.incrementAndGet();
+            }
+            pendingCommand = command;
+            pendingReceivedNanos = receivedNanos;
+        }
+    }
+
+    private boolean trySend(String message) {
+        try {
+            send(message);
+            return true;
+        } catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+    }
+
+    private boolean trySend(byte[] data) {
+        try {
+            send(data);
+            return true;
+        } catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+    }
+
+    private synchronized void startSimulation() {
+        if (simulationThread != null) {
+            return;
+        }
+        running = true;
+        simulationThread = new Thread(this::runSimulation, "ShipSimulator-" + deviceId);
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+    }
+
+    /**
+     * 停止模拟线程，不关闭连接
+     */
+    public synchronized void stopSimulation() {
+        running = false;
+        if (simulationThread != null) {
+            LockSupport.unpark(simulationThread);
+            simulationThread = null;
+        }
+    }
+
+    /**
+     * 模拟循环：按计划时刻推进船体模型并发送一帧GPS，落后超过一个周期时跳过积压的周期而不连续补发
+     */
+    private void runSimulation() {
+        StringBuilder builder = new StringBuilder(64);
+        long last = System.nanoTime();
+        long next = last + periodNanos;
+        long commandReceivedNanos = 0;
+        while (running) {
+            long now = System.nanoTime();
+            while (now < next && running) {
+                LockSupport.parkNanos(next - now);
+                now = System.nanoTime();
+            }
+            if (!running) {
+                break;
+            }
+            stats.tickJitter.record(now - next);
+            long behind = (now - next) / periodNanos;
+            if (behind > 0) {
+                stats.missedTicks.addAndGet(behind);
+            }
+            next += (behind + 1) * periodNanos;
+
+            synchronized (commandLock) {
+                if (pendingCommand != null) {
+                    hull.setCommand(pendingCommand);
+                    commandReceivedNanos = pendingReceivedNanos;
+                    pendingCommand = null;
+                }
+            }
+            hull.advance(now - last);
+            last = now;
+            latitude = hull.getLatitude();
+            longitude = hull.getLongitude();
+            surgeSpeed = hull.getSurgeSpeed();
+
+            builder.setLength(0);
+            appendGpsMessage(builder, latitude, longitude, System.currentTimeMillis());
+            if (trySend(builder.toString())) {
+                stats.fixesSent.incrementAndGet();
+                if (commandReceivedNanos != 0) {
+                    stats.commandToFix.recordSince(commandReceivedNanos);
+                    commandReceivedNanos = 0;
+                }
+            } else {
+                stats.fixesDropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 按船舶固件的格式写出GPS消息，不使用String.format，高频发送时只分配最终的字符串
+     *
+     * @param latitude    十进制纬度
+     * @param longitude   十进制经度
+     * @param utcMillis   UTC毫秒时间戳，只取当天的时分秒
+     */
+    static StringBuilder appendGpsMessage(StringBuilder builder, double latitude, double longitude, long utcMillis) {
+        builder.append("{\"GPS\":{\"E\":");
+        appendNmea(builder, longitude);
+        builder.append(",\"N\":");
+        appendNmea(builder, latitude);
+        builder.append(",\"time\":\"");
+        long millisOfDay = Math.floorMod(utcMillis, MILLIS_PER_DAY);
+        appendPadded(builder, (int) (millisOfDay / 3_600_000), 2);
+        appendPadded(builder, (int) (millisOfDay / 60_000 % 60), 2);
+        appendPadded(builder, (int) (millisOfDay / 1000 % 60), 2);
+        builder.append('.');
+        appendPadded(builder, (int) (millisOfDay % 1000), 3);
+        return builder.append("\"}}");
+    }
+
+    /**
+     * 十进制度数转换为NMEA度分格式(DDMM.MMMM)，保留4位分钟小数
+     */
+    static void appendNmea(StringBuilder builder, double decimalDegrees) {
+        double magnitude = Math.abs(decimalDegrees);
+        int degrees = (int) magnitude;
+        // 以0.0001分为单位取整，进位到60分时并入度数
+        long minutesScaled = Math.round((magnitude - degrees) * 60.0 * 10_000);
+        if (minutesScaled >= 60 * 10_000) {
+            degrees++;
+            minutesScaled -= 60 * 10_000;
+        }
+        if (decimalDegrees < 0 && (degrees != 0 || minutesScaled != 0)) {
+            builder.append('-');
+        }
+        long wholeMinutes = minutesScaled / 10_000;
+        builder.append(degrees * 100L + wholeMinutes).append('.');
+        appendPadded(builder, (int) (minutesScaled % 10_000), 4);
+    }
+
+    private static void appendPadded(StringBuilder builder, int value, int width) {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) {
+                builder.append('0');
+            }
+        }
+        builder.append(value);
+    }
+}
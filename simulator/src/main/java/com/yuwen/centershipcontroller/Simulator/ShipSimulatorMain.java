@@ -0,0 +1,49 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import com.yuwen.centershipcontroller.Platform.Log;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动一个模拟船舶，每5秒输出一次位置和统计
+ * 参数: &lt;服务器地址&gt; [GPS频率Hz，默认10] [命令格式json/binary，默认binary] [设备ID，默认ship-sim]
+ *
+ * @author yuwen
+ */
+public final class ShipSimulatorMain {
+    private static final String TAG = "ShipSimulatorMain";
+    private static final long STATS_INTERVAL_MS = 5000;
+
+    private ShipSimulatorMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            Log.e(TAG, "用法: ShipSimulatorMain <ws://host:port/room/房间号> [GPS频率Hz] [json|binary] [设备ID]");
+            System.exit(2);
+        }
+        int gpsRateHz = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        WireFormat wireFormat = args.length > 2 ? WireFormat.fromProtocolName(args[2]) : WireFormat.BINARY;
+        String deviceId = args.length > 3 ? args[3] : "ship-sim";
+
+        ShipSimulator simulator = new ShipSimulator(new URI(args[0]), deviceId, wireFormat, gpsRateHz);
+        simulator.setEchoCommands(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulator.stopSimulation();
+            Log.i(TAG, simulator.getSimulatorStats().getStats());
+        }));
+        if (!simulator.connectBlocking(10, TimeUnit.SECONDS) || !simulator.awaitJoined(10, TimeUnit.SECONDS)) {
+            Log.e(TAG, "无法连接服务器或加入房间");
+            System.exit(1);
+        }
+        while (simulator.isOpen()) {
+            Thread.sleep(STATS_INTERVAL_MS);
+            Log.i(TAG, String.format(Locale.ROOT, "位置: 纬度=%.6f, 经度=%.6f, 速度=%.2fm/s",
+                    simulator.getLatitude(), simulator.getLongitude(), simulator.getSurgeSpeed())
+                    + "\n" + simulator.getSimulatorStats().getStats());
+        }
+    }
+}
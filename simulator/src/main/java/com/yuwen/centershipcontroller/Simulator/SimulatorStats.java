@@ -0,0 +1,88 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import androidx.annotation.NonNull;
+
+import com.yuwen.centershipcontroller.Utils.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟船舶统计，可在任意线程读取
+ *
+ * @author yuwen
+ */
+public final class SimulatorStats {
+    final AtomicLong jsonCommands = new AtomicLong();
+    final AtomicLong binaryCommands = new AtomicLong();
+    final AtomicLong rejectedCommands = new AtomicLong();
+    final AtomicLong coalescedCommands = new AtomicLong();
+    final AtomicLong acksSent = new AtomicLong();
+    final AtomicLong fixesSent = new AtomicLong();
+    final AtomicLong fixesDropped = new AtomicLong();
+    final AtomicLong missedTicks = new AtomicLong();
+    // 收到命令到第一帧反映该命令的GPS发出的时间
+    final LatencyHistogram commandToFix = new LatencyHistogram("命令到定位");
+    // 每次定位发送相对计划时刻的延迟
+    final LatencyHistogram tickJitter = new LatencyHistogram("定位周期抖动");
+
+    /**
+     * 收到的有效命令数，JSON和二进制合计
+     */
+    public long getCommandsReceived() {
+        return jsonCommands.get() + binaryCommands.get();
+    }
+
+    /**
+     * 无法解析、校验失败或不在命令表中的命令数
+     */
+    public long getRejectedCommands() {
+        return rejectedCommands.get();
+    }
+
+    /**
+     * 两次定位之间被更新的命令覆盖、未单独生效的命令数
+     */
+    public long getCoalescedCommands() {
+        return coalescedCommands.get();
+    }
+
+    public long getAcksSent() {
+        return acksSent.get();
+    }
+
+    public long getFixesSent() {
+        return fixesSent.get();
+    }
+
+    /**
+     * 连接未打开而未发送的定位数
+     */
+    public long getFixesDropped() {
+        return fixesDropped.get();
+    }
+
+    /**
+     * 模拟线程落后超过一个周期而跳过的定位数
+     */
+    public long getMissedTicks() {
+        return missedTicks.get();
+    }
+
+    public LatencyHistogram getCommandToFixHistogram() {
+        return commandToFix;
+    }
+
+    public LatencyHistogram getTickJitterHistogram() {
+        return tickJitter;
+    }
+
+    @NonNull
+    public String getStats() {
+        return String.format(Locale.ROOT, "模拟船舶: JSON命令=%d, 二进制命令=%d, 无效命令=%d, 合并命令=%d, 确认=%d, 定位=%d, 丢弃定位=%d, 跳过周期=%d",
+                jsonCommands.get(), binaryCommands.get(), rejectedCommands.get(), coalescedCommands.get(),
+                acksSent.get(), fixesSent.get(), fixesDropped.get(), missedTicks.get())
+                + "\n" + commandToFix.getStats()
+                + "\n" + tickJitter.getStats();
+    }
+}
@@ -0,0 +1,97 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.yuwen.centershipcontroller.Utils.CommandTable;
+
+import org.junit.Test;
+
+/**
+ * 船体运动模型
+ *
+ * @author yuwen
+ */
+public class HullModelTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void equalForwardThrustHeadsNorthAtTerminalSpeed() {
+        HullModel hull = new HullModel(39.9, 116.4);
+        hull.setCommand(CommandTable.get(30, 30, 1, 0));
+        hull.advance(30 * SECOND);
+
+        // 80N = 10u + 25u²，u约为1.6m/s
+        assertEquals(1.6, hull.getSurgeSpeed(), 0.01);
+        assertEquals(0, hull.getEast(), 1e-9);
+        assertEquals(0, hull.getHeadingDegrees(), 1e-9);
+        assertTrue(hull.getNorth() > 40);
+        assertEquals(39.9 + hull.getNorth() / 111_320.0, hull.getLatitude(), 1e-12);
+    }
+
+    @Test
+    public void thrustFollowsCommandWithLag() {
+        HullModel hull = new HullModel(0, 0);
+        hull.setCommand(CommandTable.get(30, 30, 1, 0));
+        hull.advance(SECOND / 100);
+        double early = hull.getSurgeSpeed();
+        hull.advance(SECOND / 100);
+        // 推力逐渐建立，第二个10ms的加速度大于第一个
+        assertTrue(hull.getSurgeSpeed() - early > early);
+        assertTrue(early > 0);
+    }
+
+    @Test
+    public void strongerLeftThrustTurnsClockwise() {
+        HullModel hull = new HullModel(0, 0);
+        hull.setCommand(CommandTable.get(30, 10, 1, 0));
+        hull.advance(2 * SECOND);
+
+        assertTrue(hull.getYawRate() > 0);
+        assertTrue(hull.getHeadingDegrees() > 10 && hull.getHeadingDegrees() < 180);
+        assertTrue(hull.getEast() > 0);
+    }
+
+    @Test
+    public void disabledMotorsCoastToStop() {
+        HullModel hull = new HullModel(0, 0);
+        hull.setCommand(CommandTable.get(30, 30, 1, 0));
+        hull.advance(10 * SECOND);
+        // EN=1为关闭
+        hull.setCommand(CommandTable.get(30, 30, 1, 1));
+        hull.advance(SECOND);
+        double coasting = hull.getSurgeSpeed();
+        assertTrue(coasting > 0.3 && coasting < 1.0);
+        // 线性阻力的时间常数为3秒
+        hull.advance(30 * SECOND);
+        assertEquals(0, hull.getSurgeSpeed(), 0.001);
+    }
+
+    @Test
+    public void reverseThrustIsWeaker() {
+        HullModel forward = new HullModel(0, 0);
+        forward.setCommand(CommandTable.get(20, 20, 1, 0));
+        forward.advance(20 * SECOND);
+        HullModel reverse = new HullModel(0, 0);
+        reverse.setCommand(CommandTable.get(20, 20, 0, 0));
+        reverse.advance(20 * SECOND);
+
+        assertTrue(reverse.getSurgeSpeed() < 0);
+        assertTrue(-reverse.getSurgeSpeed() < forward.getSurgeSpeed());
+        assertTrue(reverse.getNorth() < 0);
+    }
+
+    @Test
+    public void integrationIsIndependentOfStepPartition() {
+        HullModel coarse = new HullModel(0, 0);
+        HullModel fine = new HullModel(0, 0);
+        coarse.setCommand(CommandTable.get(25, 15, 1, 0));
+        fine.setCommand(CommandTable.get(25, 15, 1, 0));
+        coarse.advance(5 * SECOND);
+        for (int i = 0; i < 5000; i++) {
+            fine.advance(SECOND / 1000);
+        }
+        assertEquals(fine.getEast(), coarse.getEast(), 1e-6);
+        assertEquals(fine.getNorth(), coarse.getNorth(), 1e-6);
+    }
+}
@@ -0,0 +1,202 @@
+package com.yuwen.centershipcontroller.Simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.yuwen.centershipcontroller.Relay.RelayServer;
+import com.yuwen.centershipcontroller.Utils.CommandTable;
+import com.yuwen.centershipcontroller.Utils.GpsDecoder;
+import com.yuwen.centershipcontroller.Utils.GpsFix;
+import com.yuwen.centershipcontroller.Utils.MotorCommandCodec;
+import com.yuwen.centershipcontroller.Utils.WireFormat;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟船舶的GPS格式、命令解析，以及经中继服务器的闭环控制
+ *
+ * @author yuwen
+ */
+public class ShipSimulatorTest {
+    private RelayServer relay;
+    private ShipSimulator simulator;
+    private Controller controller;
+
+    /**
+     * 以MAIN_DEVICES身份加入房间的控制端
+     */
+    private static final class Controller extends WebSocketClient {
+        final LinkedBlockingQueue<String> texts = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<byte[]> binaries = new LinkedBlockingQueue<>();
+
+        Controller(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            send("{\"device_id\":\"main-01\",\"identity\":\"MAIN_DEVICES\",\"wire_formats\":[\"json\",\"binary\"]}");
+        }
+
+        @Override
+        public void onMessage(String message) {
+            texts.add(message);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            byte[] data = new byte[bytes.remaining()];
+            bytes.get(data);
+            binaries.add(data);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+
+        /**
+         * 取下一帧GPS，跳过房间消息
+         */
+        GpsFix nextFix(GpsDecoder decoder) throws InterruptedException {
+            while (true) {
+                String message = texts.poll(5, TimeUnit.SECONDS);
+                if (message == null) {
+                    throw new AssertionError("没有收到GPS");
+                }
+                GpsFix fix = new GpsFix();
+                if (decoder.decode(message, fix)) {
+                    return fix;
+                }
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        relay = new RelayServer(new InetSocketAddress("127.0.0.1", 0), 1);
+        relay.start();
+        assertTrue(relay.awaitStarted(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (simulator != null) {
+            simulator.closeBlocking();
+        }
+        if (controller != null) {
+            controller.closeBlocking();
+        }
+        relay.stop(1000);
+    }
+
+    private void connect(WireFormat wireFormat, int gpsRateHz) throws Exception {
+        URI uri = new URI("ws://127.0.0.1:" + relay.getPort() + "/room/8848");
+        controller = new Controller(uri);
+        assertTrue(controller.connectBlocking(5, TimeUnit.SECONDS));
+        simulator = new ShipSimulator(uri, "ship-01", wireFormat, gpsRateHz);
+        simulator.setEchoCommands(true);
+        assertTrue(simulator.connectBlocking(5, TimeUnit.SECONDS));
+        assertTrue(simulator.awaitJoined(5, TimeUnit.SECONDS));
+        assertEquals("8848", simulator.getRoomId());
+    }
+
+    @Test
+    public void gpsMessageRoundTripsThroughDecoder() {
+        // 08:30:15.120 UTC
+        long utcMillis = ((8 * 60 + 30) * 60 + 15) * 1000L + 120;
+        String message = ShipSimulator.appendGpsMessage(new StringBuilder(), 39.902057, 116.390945, utcMillis).toString();
+        assertEquals("{\"GPS\":{\"E\":11623.4567,\"N\":3954.1234,\"time\":\"083015.120\"}}", message);
+
+        GpsFix fix = new GpsFix();
+        assertTrue(new GpsDecoder().decode(message, fix));
+        assertEquals(39.902057, fix.getLatitude(), 1e-6);
+        assertEquals(116.390945, fix.getLongitude(), 1e-6);
+        assertEquals("083015.120", fix.getTime());
+    }
+
+    @Test
+    public void nmeaFormatCarriesMinutesAndSign() {
+        StringBuilder builder = new StringBuilder();
+        // 59.99999分进位为下一度
+        ShipSimulator.appendNmea(builder, 39.9999999);
+        assertEquals("4000.0000", builder.toString());
+        builder.setLength(0);
+        ShipSimulator.appendNmea(builder, -0.5);
+        assertEquals("-30.0000", builder.toString());
+        assertEquals(-0.5, GpsDecoder.nmeaToDecimal(-30.0), 1e-12);
+    }
+
+    @Test
+    public void parsesOnlyCommandsInTable() {
+        JsonObject valid = JsonParser.parseString(CommandTable.json(CommandTable.get(12, 30, 1, 0))).getAsJsonObject();
+        assertEquals(CommandTable.get(12, 30, 1, 0), ShipSimulator.parseCommand(valid));
+
+        assertNull(ShipSimulator.parseCommand(JsonParser.parseString(
+                "{\"SHIPMOTRO\":{\"CH1\":10,\"DIR1\":1,\"EN1\":0,\"CH2\":10,\"DIR2\":0,\"EN2\":0}}").getAsJsonObject()));
+        assertNull(ShipSimulator.parseCommand(JsonParser.parseString(
+                "{\"SHIPMOTRO\":{\"CH1\":31,\"DIR1\":1,\"EN1\":0,\"CH2\":10,\"DIR2\":1,\"EN2\":0}}").getAsJsonObject()));
+        assertNull(ShipSimulator.parseCommand(JsonParser.parseString(
+                "{\"SHIPMOTRO\":{\"CH1\":10,\"DIR1\":1,\"EN1\":0}}").getAsJsonObject()));
+    }
+
+    @Test
+    public void binaryCommandDrivesShipNorthAndIsEchoed() throws Exception {
+        connect(WireFormat.BINARY, 200);
+        GpsDecoder decoder = new GpsDecoder();
+        GpsFix start = controller.nextFix(decoder);
+
+        byte[] frame = new byte[MotorCommandCodec.FRAME_LENGTH];
+        MotorCommandCodec.encode(CommandTable.get(30, 30, 1, 0), 7, frame, 0);
+        controller.send(frame);
+        assertArrayEquals(frame, controller.binaries.poll(5, TimeUnit.SECONDS));
+
+        Thread.sleep(1500);
+        controller.texts.clear();
+        GpsFix moved = controller.nextFix(decoder);
+        // 1.5秒后至少前进一米，NMEA 4位小数约0.18米
+        double northMeters = (moved.getLatitude() - start.getLatitude()) * 111_320.0;
+        assertTrue("北向位移 " + northMeters, northMeters > 1.0);
+        assertEquals(start.getLongitude(), moved.getLongitude(), 1e-5);
+
+        SimulatorStats stats = simulator.getSimulatorStats();
+        assertEquals(1, stats.getCommandsReceived());
+        assertEquals(1, stats.getAcksSent());
+        assertEquals(1, stats.getCommandToFixHistogram().getCount());
+        assertTrue(stats.getFixesSent() > 100);
+    }
+
+    @Test
+    public void jsonCommandWithSequenceIsAcked() throws Exception {
+        connect(WireFormat.JSON, 50);
+        controller.send("{\"SHIPMOTRO\":{\"CH1\":10,\"DIR1\":1,\"EN1\":0,\"CH2\":10,\"DIR2\":1,\"EN2\":0},\"SEQ\":42}");
+        while (true) {
+            String message = controller.texts.poll(5, TimeUnit.SECONDS);
+            assertNotNull("没有收到确认", message);
+            if (message.startsWith("{\"type\":\"ack\"")) {
+                assertEquals("{\"type\":\"ack\",\"seq\":42}", message);
+                break;
+            }
+        }
+        assertEquals(1, simulator.getSimulatorStats().getCommandsReceived());
+        assertEquals(0, simulator.getSimulatorStats().getRejectedCommands());
+    }
+}